@@ -2,6 +2,9 @@ package com.tothapplication.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Properties specific to Toth Application.
  * <p>
@@ -11,4 +14,457 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Storage storage = new Storage();
+
+    private final Search search = new Search();
+
+    private final Cache cache = new Cache();
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public static class Storage {
+
+        private String type = "local";
+
+        private final Local local = new Local();
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public Local getLocal() {
+            return local;
+        }
+
+        public static class Local {
+
+            private String directory = "data/documents";
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+        }
+    }
+
+    public static class Search {
+
+        private String backend = "elasticsearch";
+
+        private final Embedded embedded = new Embedded();
+
+        private final Outbox outbox = new Outbox();
+
+        private final Reindex reindex = new Reindex();
+
+        private final Suggest suggest = new Suggest();
+
+        private final Cache cache = new Cache();
+
+        private final Membership membership = new Membership();
+
+        public String getBackend() {
+            return backend;
+        }
+
+        public void setBackend(String backend) {
+            this.backend = backend;
+        }
+
+        public Embedded getEmbedded() {
+            return embedded;
+        }
+
+        public Outbox getOutbox() {
+            return outbox;
+        }
+
+        public Reindex getReindex() {
+            return reindex;
+        }
+
+        public Suggest getSuggest() {
+            return suggest;
+        }
+
+        public Cache getCache() {
+            return cache;
+        }
+
+        public Membership getMembership() {
+            return membership;
+        }
+
+        public static class Embedded {
+
+            private String directory = "data/search";
+
+            private long snapshotInterval = 60000;
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+
+            public long getSnapshotInterval() {
+                return snapshotInterval;
+            }
+
+            public void setSnapshotInterval(long snapshotInterval) {
+                this.snapshotInterval = snapshotInterval;
+            }
+        }
+
+        public static class Outbox {
+
+            private boolean enabled = true;
+
+            private long pollInterval = 1000;
+
+            private int batchSize = 500;
+
+            private long retryDelay = 5000;
+
+            private long maxRetryDelay = 600000;
+
+            private long lease = 60000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getPollInterval() {
+                return pollInterval;
+            }
+
+            public void setPollInterval(long pollInterval) {
+                this.pollInterval = pollInterval;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public long getRetryDelay() {
+                return retryDelay;
+            }
+
+            public void setRetryDelay(long retryDelay) {
+                this.retryDelay = retryDelay;
+            }
+
+            public long getMaxRetryDelay() {
+                return maxRetryDelay;
+            }
+
+            public void setMaxRetryDelay(long maxRetryDelay) {
+                this.maxRetryDelay = maxRetryDelay;
+            }
+
+            public long getLease() {
+                return lease;
+            }
+
+            public void setLease(long lease) {
+                this.lease = lease;
+            }
+        }
+
+        public static class Reindex {
+
+            private int chunkSize = 1000;
+
+            private int concurrency = 4;
+
+            private int maxAttempts = 3;
+
+            public int getChunkSize() {
+                return chunkSize;
+            }
+
+            public void setChunkSize(int chunkSize) {
+                this.chunkSize = chunkSize;
+            }
+
+            public int getConcurrency() {
+                return concurrency;
+            }
+
+            public void setConcurrency(int concurrency) {
+                this.concurrency = concurrency;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+        }
+
+        public static class Suggest {
+
+            private long refreshInterval = 300000;
+
+            public long getRefreshInterval() {
+                return refreshInterval;
+            }
+
+            public void setRefreshInterval(long refreshInterval) {
+                this.refreshInterval = refreshInterval;
+            }
+        }
+
+        public static class Cache {
+
+            private int timeToLiveSeconds = 30;
+
+            private long maxEntries = 1000;
+
+            private long generationPollInterval = 1000;
+
+            public int getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public long getGenerationPollInterval() {
+                return generationPollInterval;
+            }
+
+            public void setGenerationPollInterval(long generationPollInterval) {
+                this.generationPollInterval = generationPollInterval;
+            }
+        }
+
+        public static class Membership {
+
+            private long refreshInterval = 300000;
+
+            private int relatedSize = 10;
+
+            private int relatedMaxCcpSize = 1000;
+
+            public long getRefreshInterval() {
+                return refreshInterval;
+            }
+
+            public void setRefreshInterval(long refreshInterval) {
+                this.refreshInterval = refreshInterval;
+            }
+
+            public int getRelatedSize() {
+                return relatedSize;
+            }
+
+            public void setRelatedSize(int relatedSize) {
+                this.relatedSize = relatedSize;
+            }
+
+            public int getRelatedMaxCcpSize() {
+                return relatedMaxCcpSize;
+            }
+
+            public void setRelatedMaxCcpSize(int relatedMaxCcpSize) {
+                this.relatedMaxCcpSize = relatedMaxCcpSize;
+            }
+        }
+    }
+
+    public static class Cache {
+
+        /**
+         * The settings of the cache regions, by region name. The settings left out default to those of
+         * {@code jhipster.cache.ehcache}.
+         */
+        private final Map<String, Region> regions = new LinkedHashMap<>();
+
+        private final HotKeys hotKeys = new HotKeys();
+
+        private final WarmUp warmUp = new WarmUp();
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public HotKeys getHotKeys() {
+            return hotKeys;
+        }
+
+        public WarmUp getWarmUp() {
+            return warmUp;
+        }
+
+        public static class Region {
+
+            private Long heapEntries;
+
+            private Long offHeapMb;
+
+            private Integer timeToLiveSeconds;
+
+            private Integer timeToIdleSeconds;
+
+            public Long getHeapEntries() {
+                return heapEntries;
+            }
+
+            public void setHeapEntries(Long heapEntries) {
+                this.heapEntries = heapEntries;
+            }
+
+            public Long getOffHeapMb() {
+                return offHeapMb;
+            }
+
+            public void setOffHeapMb(Long offHeapMb) {
+                this.offHeapMb = offHeapMb;
+            }
+
+            public Integer getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Integer timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public Integer getTimeToIdleSeconds() {
+                return timeToIdleSeconds;
+            }
+
+            public void setTimeToIdleSeconds(Integer timeToIdleSeconds) {
+                this.timeToIdleSeconds = timeToIdleSeconds;
+            }
+        }
+
+        public static class HotKeys {
+
+            /**
+             * One read out of this many is sampled, on average. 0 disables the sampling.
+             */
+            private int samplingInterval = 100;
+
+            /**
+             * Number of distinct keys counted for each region: keys read less than once out of this many reads may
+             * go unreported.
+             */
+            private int capacity = 100;
+
+            /**
+             * Number of keys reported for each region.
+             */
+            private int size = 10;
+
+            public int getSamplingInterval() {
+                return samplingInterval;
+            }
+
+            public void setSamplingInterval(int samplingInterval) {
+                this.samplingInterval = samplingInterval;
+            }
+
+            public int getCapacity() {
+                return capacity;
+            }
+
+            public void setCapacity(int capacity) {
+                this.capacity = capacity;
+            }
+
+            public int getSize() {
+                return size;
+            }
+
+            public void setSize(int size) {
+                this.size = size;
+            }
+        }
+
+        public static class WarmUp {
+
+            private boolean enabled = false;
+
+            private int chunkSize = 500;
+
+            private int concurrency = 4;
+
+            /**
+             * Maximum number of entities of each type loaded.
+             */
+            private int maxEntities = 10000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getChunkSize() {
+                return chunkSize;
+            }
+
+            public void setChunkSize(int chunkSize) {
+                this.chunkSize = chunkSize;
+            }
+
+            public int getConcurrency() {
+                return concurrency;
+            }
+
+            public void setConcurrency(int concurrency) {
+                this.concurrency = concurrency;
+            }
+
+            public int getMaxEntities() {
+                return maxEntities;
+            }
+
+            public void setMaxEntities(int maxEntities) {
+                this.maxEntities = maxEntities;
+            }
+        }
+    }
 }
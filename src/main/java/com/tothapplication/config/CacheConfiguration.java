@@ -1,61 +1,239 @@
 package com.tothapplication.config;
 
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
 
 import org.ehcache.config.builders.*;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.core.statistics.TierStatistics;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
 import org.ehcache.jsr107.Eh107Configuration;
 
 import org.hibernate.cache.jcache.ConfigSettings;
 import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
+import com.tothapplication.service.CacheHotKeyService;
+import com.tothapplication.service.CacheWarmUpService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnEnabledEndpoint;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.jcache.JCacheCacheManager;
 import org.springframework.context.annotation.*;
 
+/**
+ * Configuration of the caches: the Hibernate second-level cache regions and the Spring caches.
+ * <p>
+ * Each region is sized and expired on its own from {@code application.cache.regions}, the settings left out
+ * defaulting to {@code jhipster.cache.ehcache} ({@code application.search.cache} for the search results). A region
+ * given {@code off-heap-mb} gets an off-heap tier below its heap tier: its entries are then serialized, and the
+ * JVM must be allowed enough direct memory ({@code -XX:MaxDirectMemorySize}).
+ * <p>
+ * Every region keeps statistics, published with the {@code cache.gets}, {@code cache.puts}, {@code cache.evictions}
+ * and {@code cache.removals} meters bound by Spring Boot, and with the size and off-heap memory gauges bound here
+ * from the statistics of its tiers, read through the {@link CacheStatisticsProvider}. The
+ * reads of both the Hibernate and the Spring caches are sampled by the {@link CacheHotKeyService}.
+ * <p>
+ * The {@link CacheWarmUpService} can fill the entity regions at startup, its progress being reported by the
+ * {@link CacheWarmUpEndpoint}.
+ */
 @Configuration
 @EnableCaching
 public class CacheConfiguration {
 
-    private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    public static final String SIZE_METRIC = "cache.size";
+
+    public static final String HEAP_SIZE_METRIC = "cache.heap.size";
+
+    public static final String OFF_HEAP_USED_METRIC = "cache.offheap.used";
+
+    public static final String OFF_HEAP_ALLOCATED_METRIC = "cache.offheap.allocated";
+
+    private static final String ON_HEAP_TIER = "OnHeap";
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
-        JHipsterProperties.Cache.Ehcache ehcache =
-            jHipsterProperties.getCache().getEhcache();
+    private static final String OFF_HEAP_TIER = "OffHeap";
 
-        jcacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
-            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
-                ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
-                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ehcache.getTimeToLiveSeconds())))
-                .build());
+    /**
+     * The tiers, from the lowest, holding all the entries, to the highest, only holding copies of the most used.
+     */
+    private static final List<String> TIERS = Arrays.asList("Disk", OFF_HEAP_TIER, ON_HEAP_TIER);
+
+    private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
+
+    private final JHipsterProperties.Cache.Ehcache ehcache;
+
+    private final ApplicationProperties applicationProperties;
+
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        this.ehcache = jHipsterProperties.getCache().getEhcache();
+        this.applicationProperties = applicationProperties;
     }
 
     @Bean
-    public HibernatePropertiesCustomizer hibernatePropertiesCustomizer(javax.cache.CacheManager cacheManager) {
-        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+    public HibernatePropertiesCustomizer hibernatePropertiesCustomizer(javax.cache.CacheManager cacheManager,
+                                                                       CacheHotKeyService cacheHotKeyService) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER,
+            cacheHotKeyService.track(cacheManager));
+    }
+
+    @Bean
+    public CacheManagerCustomizer<JCacheCacheManager> hotKeysCacheManagerCustomizer(CacheHotKeyService cacheHotKeyService) {
+        return cm -> cm.setCacheManager(cacheHotKeyService.track(cm.getCacheManager()));
+    }
+
+    @Bean
+    @ConditionalOnEnabledEndpoint
+    public CacheHotKeysEndpoint cacheHotKeysEndpoint(CacheHotKeyService cacheHotKeyService) {
+        return new CacheHotKeysEndpoint(cacheHotKeyService);
+    }
+
+    @Bean
+    @ConditionalOnEnabledEndpoint
+    public CacheWarmUpEndpoint cacheWarmUpEndpoint(CacheWarmUpService cacheWarmUpService) {
+        return new CacheWarmUpEndpoint(cacheWarmUpService);
+    }
+
+    /**
+     * Bind the size and memory gauges of every region, read from the statistics of its Ehcache tiers.
+     */
+    @Bean
+    public MeterBinder cacheTierMetrics(javax.cache.CacheManager cacheManager) {
+        return registry -> cacheManager.getCacheNames().forEach(cacheName -> {
+            Map<String, TierStatistics> tiers = CacheStatisticsProvider.getTierStatistics(cacheManager, cacheName);
+            if (tiers.isEmpty()) {
+                log.warn("The statistics of the cache region {} are not available", cacheName);
+                return;
+            }
+            TIERS.stream().filter(tiers::containsKey).findFirst().ifPresent(lowestTier ->
+                registerGauge(registry, cacheManager, cacheName, lowestTier, TierStatistics::getMappings,
+                    SIZE_METRIC, "Number of entries in the cache", null));
+            if (tiers.size() > 1) {
+                registerGauge(registry, cacheManager, cacheName, ON_HEAP_TIER, TierStatistics::getMappings,
+                    HEAP_SIZE_METRIC, "Number of entries in the heap tier of the cache", null);
+            }
+            registerGauge(registry, cacheManager, cacheName, OFF_HEAP_TIER, TierStatistics::getOccupiedByteSize,
+                OFF_HEAP_USED_METRIC, "Memory used by the entries in the off-heap tier of the cache", "bytes");
+            registerGauge(registry, cacheManager, cacheName, OFF_HEAP_TIER, TierStatistics::getAllocatedByteSize,
+                OFF_HEAP_ALLOCATED_METRIC, "Memory allocated to the off-heap tier of the cache", "bytes");
+        });
+    }
+
+    private static void registerGauge(MeterRegistry registry, javax.cache.CacheManager cacheManager, String cacheName,
+                                      String tier, ToLongFunction<TierStatistics> statistic, String metric,
+                                      String description, String baseUnit) {
+        // Tiers missing, or sized in entries for the memory statistics, report nothing
+        if (tierStatistic(cacheManager, cacheName, tier, statistic) < 0) {
+            return;
+        }
+        // Looked up on each read, as the region may be recreated
+        Gauge.builder(metric, cacheManager, cm -> tierStatistic(cm, cacheName, tier, statistic))
+            .description(description)
+            .baseUnit(baseUnit)
+            .tag("name", cacheName)
+            .register(registry);
+    }
+
+    private static double tierStatistic(javax.cache.CacheManager cacheManager, String cacheName, String tier,
+                                        ToLongFunction<TierStatistics> statistic) {
+        Map<String, TierStatistics> tiers = CacheStatisticsProvider.getTierStatistics(cacheManager, cacheName);
+        if (tiers.isEmpty()) {
+            return Double.NaN;
+        }
+        TierStatistics statistics = tiers.get(tier);
+        return statistics != null ? statistic.applyAsLong(statistics) : -1;
     }
 
     @Bean
     public JCacheManagerCustomizer cacheManagerCustomizer() {
         return cm -> {
-            createCache(cm, com.tothapplication.repository.UserRepository.USERS_BY_LOGIN_CACHE);
-            createCache(cm, com.tothapplication.repository.UserRepository.USERS_BY_EMAIL_CACHE);
-            createCache(cm, com.tothapplication.domain.User.class.getName());
-            createCache(cm, com.tothapplication.domain.Authority.class.getName());
-            createCache(cm, com.tothapplication.domain.User.class.getName() + ".authorities");
-            createCache(cm, com.tothapplication.domain.Document.class.getName());
-            createCache(cm, com.tothapplication.domain.Document.class.getName() + ".cCPS");
-            createCache(cm, com.tothapplication.domain.CCP.class.getName());
-            createCache(cm, com.tothapplication.domain.CCP.class.getName() + ".documents");
+            Set<String> cacheNames = new HashSet<>();
+            createCache(cm, com.tothapplication.repository.UserRepository.USERS_BY_LOGIN_CACHE, cacheNames);
+            createCache(cm, com.tothapplication.repository.UserRepository.USERS_BY_EMAIL_CACHE, cacheNames);
+            createCache(cm, com.tothapplication.domain.User.class.getName(), cacheNames);
+            createCache(cm, com.tothapplication.domain.Authority.class.getName(), cacheNames);
+            createCache(cm, com.tothapplication.domain.User.class.getName() + ".authorities", cacheNames);
+            createCache(cm, com.tothapplication.domain.Document.class.getName(), cacheNames);
+            createCache(cm, com.tothapplication.domain.Document.class.getName() + ".cCPS", cacheNames);
+            createCache(cm, com.tothapplication.domain.CCP.class.getName(), cacheNames);
+            createCache(cm, com.tothapplication.domain.CCP.class.getName() + ".documents", cacheNames);
+            createCache(cm, com.tothapplication.service.EntityTagService.DOCUMENT_TAGS_CACHE, cacheNames);
+            createCache(cm, com.tothapplication.service.EntityTagService.CCP_TAGS_CACHE, cacheNames);
+            createCache(cm, com.tothapplication.service.EntityTagService.USER_TAGS_CACHE, cacheNames);
+            // Search results only live for a short while, on top of being invalidated by writes
+            ApplicationProperties.Search.Cache searchCache = applicationProperties.getSearch().getCache();
+            createCache(cm, com.tothapplication.service.SearchResultCache.SEARCH_RESULTS_CACHE,
+                searchCache.getMaxEntries(), searchCache.getTimeToLiveSeconds(), cacheNames);
             // jhipster-needle-ehcache-add-entry
+            applicationProperties.getCache().getRegions().keySet().stream()
+                .filter(name -> !cacheNames.contains(name))
+                .forEach(name -> log.warn("The settings of the cache region {} are ignored: there is no such region", name));
         };
     }
 
-    private void createCache(javax.cache.CacheManager cm, String cacheName) {
+    private void createCache(javax.cache.CacheManager cm, String cacheName, Set<String> cacheNames) {
+        createCache(cm, cacheName, ehcache.getMaxEntries(), ehcache.getTimeToLiveSeconds(), cacheNames);
+    }
+
+    private void createCache(javax.cache.CacheManager cm, String cacheName, long maxEntries, int timeToLiveSeconds,
+                             Set<String> cacheNames) {
         javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
         if (cache != null) {
             cm.destroyCache(cacheName);
         }
-        cm.createCache(cacheName, jcacheConfiguration);
+        cm.createCache(cacheName, configuration(cacheName, maxEntries, timeToLiveSeconds));
+        cm.enableStatistics(cacheName, true);
+        cacheNames.add(cacheName);
+    }
+
+    /**
+     * Build the configuration of a region from its settings, if any, and the defaults.
+     */
+    private javax.cache.configuration.Configuration<Object, Object> configuration(String cacheName, long maxEntries,
+                                                                                 int timeToLiveSeconds) {
+        ApplicationProperties.Cache.Region region = applicationProperties.getCache().getRegions()
+            .getOrDefault(cacheName, new ApplicationProperties.Cache.Region());
+        ResourcePoolsBuilder resourcePools = ResourcePoolsBuilder.heap(
+            region.getHeapEntries() != null ? region.getHeapEntries() : maxEntries);
+        boolean offHeap = region.getOffHeapMb() != null && region.getOffHeapMb() > 0;
+        if (offHeap) {
+            resourcePools = resourcePools.offheap(region.getOffHeapMb(), MemoryUnit.MB);
+        }
+        CacheConfigurationBuilder<Object, Object> builder = CacheConfigurationBuilder
+            .newCacheConfigurationBuilder(Object.class, Object.class, resourcePools)
+            .withExpiry(expiry(region, timeToLiveSeconds));
+        if (offHeap) {
+            // Ehcache has no serializer for Object: the keys and values are all Serializable
+            ClassLoader classLoader = getClass().getClassLoader();
+            builder = builder.withKeySerializer(new PlainJavaSerializer<>(classLoader))
+                .withValueSerializer(new PlainJavaSerializer<>(classLoader));
+        }
+        return Eh107Configuration.fromEhcacheCacheConfiguration(builder.build());
+    }
+
+    /**
+     * The expiry of a region: after its time to idle if it has one, else after its time to live, never if that is 0.
+     */
+    private static ExpiryPolicy<Object, Object> expiry(ApplicationProperties.Cache.Region region, int timeToLiveSeconds) {
+        if (region.getTimeToIdleSeconds() != null && region.getTimeToIdleSeconds() > 0) {
+            return ExpiryPolicyBuilder.timeToIdleExpiration(Duration.ofSeconds(region.getTimeToIdleSeconds()));
+        }
+        int timeToLive = region.getTimeToLiveSeconds() != null ? region.getTimeToLiveSeconds() : timeToLiveSeconds;
+        if (timeToLive <= 0) {
+            return ExpiryPolicyBuilder.noExpiration();
+        }
+        return ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(timeToLive));
     }
 }
@@ -0,0 +1,42 @@
+package com.tothapplication.config;
+
+import com.tothapplication.service.CacheHotKeyService;
+import com.tothapplication.service.dto.HotKeyDTO;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint reporting the most requested keys of each cache region, sampled by the {@link CacheHotKeyService}.
+ */
+@Endpoint(id = "cachehotkeys")
+public class CacheHotKeysEndpoint {
+
+    private final CacheHotKeyService cacheHotKeyService;
+
+    public CacheHotKeysEndpoint(CacheHotKeyService cacheHotKeyService) {
+        this.cacheHotKeyService = cacheHotKeyService;
+    }
+
+    /**
+     * GET /management/cachehotkeys : get the most requested keys of each cache region.
+     *
+     * @return the most requested keys, by region name.
+     */
+    @ReadOperation
+    public Map<String, List<HotKeyDTO>> hotKeys() {
+        return cacheHotKeyService.getHotKeys();
+    }
+
+    /**
+     * DELETE /management/cachehotkeys : start counting the requested keys afresh.
+     */
+    @DeleteOperation
+    public void reset() {
+        cacheHotKeyService.reset();
+    }
+}
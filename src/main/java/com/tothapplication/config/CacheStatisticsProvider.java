@@ -0,0 +1,82 @@
+package com.tothapplication.config;
+
+import org.ehcache.core.spi.service.CacheManagerProviderService;
+import org.ehcache.core.spi.service.ServiceFactory;
+import org.ehcache.core.spi.service.StatisticsService;
+import org.ehcache.core.statistics.TierStatistics;
+import org.ehcache.spi.service.Service;
+import org.ehcache.spi.service.ServiceCreationConfiguration;
+import org.ehcache.spi.service.ServiceDependencies;
+import org.ehcache.spi.service.ServiceProvider;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Ehcache service giving access to the {@link StatisticsService} of each cache manager, for the gauges bound by
+ * {@link CacheConfiguration}.
+ * <p>
+ * The JSR-107 cache managers do not expose the services of their Ehcache cache manager: this one is created along
+ * with each of them by its {@link Factory}, registered in {@code META-INF/services}, and records the statistics
+ * service of its cache manager while it runs.
+ */
+@ServiceDependencies({StatisticsService.class, CacheManagerProviderService.class})
+public class CacheStatisticsProvider implements Service {
+
+    private static final Map<org.ehcache.CacheManager, StatisticsService> STATISTICS =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    private org.ehcache.CacheManager cacheManager;
+
+    /**
+     * Get the statistics of the tiers of a cache.
+     *
+     * @param cacheManager the JSR-107 cache manager.
+     * @param cacheName the name of the cache.
+     * @return the statistics of the tiers of the cache, by tier name, empty if the cache or its statistics are
+     * unknown.
+     */
+    public static Map<String, TierStatistics> getTierStatistics(javax.cache.CacheManager cacheManager, String cacheName) {
+        if (cacheManager.isClosed() || cacheManager.getCache(cacheName) == null) {
+            return Collections.emptyMap();
+        }
+        StatisticsService statisticsService = STATISTICS.get(cacheManager.unwrap(org.ehcache.CacheManager.class));
+        if (statisticsService == null) {
+            return Collections.emptyMap();
+        }
+        return statisticsService.getCacheStatistics(cacheName).getTierStatistics();
+    }
+
+    @Override
+    public void start(ServiceProvider<Service> serviceProvider) {
+        cacheManager = serviceProvider.getService(CacheManagerProviderService.class).getCacheManager();
+        STATISTICS.put(cacheManager, serviceProvider.getService(StatisticsService.class));
+    }
+
+    @Override
+    public void stop() {
+        STATISTICS.remove(cacheManager);
+    }
+
+    /**
+     * Factory creating a {@link CacheStatisticsProvider} for every cache manager.
+     */
+    public static class Factory implements ServiceFactory<CacheStatisticsProvider> {
+
+        @Override
+        public boolean isMandatory() {
+            return true;
+        }
+
+        @Override
+        public CacheStatisticsProvider create(ServiceCreationConfiguration<CacheStatisticsProvider> configuration) {
+            return new CacheStatisticsProvider();
+        }
+
+        @Override
+        public Class<CacheStatisticsProvider> getServiceType() {
+            return CacheStatisticsProvider.class;
+        }
+    }
+}
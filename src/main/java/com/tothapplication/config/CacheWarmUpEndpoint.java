@@ -0,0 +1,49 @@
+package com.tothapplication.config;
+
+import com.tothapplication.service.CacheWarmUpService;
+
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint reporting the progress of the {@link CacheWarmUpService}, answering with a 503 status until it
+ * is over so that it can serve as a readiness probe.
+ * <p>
+ * The warm-up is kept out of the health endpoint, so that liveness probes on it pass while the caches are filled.
+ */
+@WebEndpoint(id = "cachewarmup")
+public class CacheWarmUpEndpoint {
+
+    private final CacheWarmUpService cacheWarmUpService;
+
+    public CacheWarmUpEndpoint(CacheWarmUpService cacheWarmUpService) {
+        this.cacheWarmUpService = cacheWarmUpService;
+    }
+
+    /**
+     * GET /management/cachewarmup : get the progress of the cache warm-up.
+     *
+     * @return the progress, with status 200 (OK) if the warm-up is over or disabled, or with status 503 (Service
+     * Unavailable) while it runs.
+     */
+    @ReadOperation
+    public WebEndpointResponse<Map<String, Object>> warmUp() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        boolean done = cacheWarmUpService.isDone();
+        progress.put("enabled", cacheWarmUpService.isEnabled());
+        progress.put("done", done);
+        progress.put("loaded", cacheWarmUpService.getLoaded());
+        if (cacheWarmUpService.getDuration() != null) {
+            progress.put("duration", cacheWarmUpService.getDuration().toString());
+        }
+        if (cacheWarmUpService.getFailure() != null) {
+            progress.put("error", cacheWarmUpService.getFailure());
+        }
+        return new WebEndpointResponse<>(progress,
+            done ? WebEndpointResponse.STATUS_OK : WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+    }
+}
@@ -12,6 +12,9 @@ public final class Constants {
     public static final String DEFAULT_LANGUAGE = "fr";
     public static final String ANONYMOUS_USER = "anonymoususer";
 
+    // Newline-delimited JSON, one JSON document per line
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private Constants() {
     }
 }
@@ -0,0 +1,51 @@
+package com.tothapplication.config;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Filter leaving out the auto-configurations of the Elasticsearch clients, Spring Data template and health
+ * indicators when Elasticsearch is not the search backend, so that an application searching with the embedded or
+ * PostgreSQL backend neither connects to, nor starts, a cluster.
+ * <p>
+ * It is registered in {@code META-INF/spring.factories}, and reads the {@code application.search.backend} property
+ * like the backend beans of {@link SearchConfiguration}.
+ */
+public class SearchAutoConfigurationImportFilter implements AutoConfigurationImportFilter, EnvironmentAware {
+
+    private static final String ELASTICSEARCH_BACKEND = "elasticsearch";
+
+    private static final Set<String> ELASTICSEARCH_AUTO_CONFIGURATIONS = new HashSet<>(Arrays.asList(
+        "org.springframework.boot.autoconfigure.elasticsearch.jest.JestAutoConfiguration",
+        "org.springframework.boot.autoconfigure.elasticsearch.rest.RestClientAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.elasticsearch.ElasticSearchClientHealthIndicatorAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.elasticsearch.ElasticSearchJestHealthIndicatorAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.elasticsearch.ElasticSearchRestHealthIndicatorAutoConfiguration",
+        "com.github.vanroy.springboot.autoconfigure.data.jest.ElasticsearchJestAutoConfiguration",
+        "com.github.vanroy.springboot.autoconfigure.data.jest.ElasticsearchJestAWSAutoConfiguration",
+        "com.github.vanroy.springboot.autoconfigure.data.jest.ElasticsearchJestDataAutoConfiguration"));
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfigurationClasses, AutoConfigurationMetadata autoConfigurationMetadata) {
+        boolean elasticsearch = ELASTICSEARCH_BACKEND.equalsIgnoreCase(
+            environment.getProperty("application.search.backend", ELASTICSEARCH_BACKEND));
+        boolean[] matches = new boolean[autoConfigurationClasses.length];
+        for (int i = 0; i < autoConfigurationClasses.length; i++) {
+            matches[i] = elasticsearch || !ELASTICSEARCH_AUTO_CONFIGURATIONS.contains(autoConfigurationClasses[i]);
+        }
+        return matches;
+    }
+}
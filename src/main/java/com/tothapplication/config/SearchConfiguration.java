@@ -0,0 +1,47 @@
+package com.tothapplication.config;
+
+import com.tothapplication.repository.CCPRepository;
+import com.tothapplication.repository.DocumentRepository;
+import com.tothapplication.service.IndexAliasService;
+import com.tothapplication.service.search.ElasticsearchSearchBackend;
+import com.tothapplication.service.search.EmbeddedSearchBackend;
+import com.tothapplication.service.search.PostgresSearchBackend;
+import com.tothapplication.service.search.SearchBackend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.searchbox.client.JestClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class SearchConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.search", name = "backend", havingValue = "elasticsearch", matchIfMissing = true)
+    public SearchBackend elasticsearchSearchBackend(JestClient jestClient, ElasticsearchOperations elasticsearchOperations,
+                                                    EntityMapper entityMapper, IndexAliasService indexAliasService) {
+        return new ElasticsearchSearchBackend(jestClient, elasticsearchOperations, entityMapper, indexAliasService);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.search", name = "backend", havingValue = "embedded")
+    public SearchBackend embeddedSearchBackend(ApplicationProperties applicationProperties, ObjectMapper objectMapper,
+                                               EntityMapper entityMapper) throws IOException {
+        return new EmbeddedSearchBackend(Paths.get(applicationProperties.getSearch().getEmbedded().getDirectory()),
+            objectMapper, entityMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.search", name = "backend", havingValue = "postgresql")
+    public SearchBackend postgresSearchBackend(NamedParameterJdbcTemplate jdbcTemplate, DocumentRepository documentRepository,
+                                               CCPRepository cCPRepository) {
+        return new PostgresSearchBackend(jdbcTemplate, documentRepository, cCPRepository);
+    }
+}
@@ -0,0 +1,21 @@
+package com.tothapplication.config;
+
+import com.tothapplication.service.storage.ContentStore;
+import com.tothapplication.service.storage.LocalContentStore;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class StorageConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.storage", name = "type", havingValue = "local", matchIfMissing = true)
+    public ContentStore localContentStore(ApplicationProperties applicationProperties) throws IOException {
+        return new LocalContentStore(Paths.get(applicationProperties.getStorage().getLocal().getDirectory()));
+    }
+}
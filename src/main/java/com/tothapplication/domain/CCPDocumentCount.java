@@ -0,0 +1,73 @@
+package com.tothapplication.domain;
+
+import javax.persistence.*;
+
+import java.io.Serializable;
+
+/**
+ * A CCPDocumentCount: the number of documents of a {@link CCP}, maintained incrementally as documents are saved
+ * and deleted so that it never has to be counted from {@code document_ccp}.
+ */
+@Entity
+@Table(name = "ccp_document_count")
+public class CCPDocumentCount implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "ccp_id")
+    private Long ccpId;
+
+    @Column(name = "document_count", nullable = false)
+    private Long documentCount;
+
+    public Long getCcpId() {
+        return ccpId;
+    }
+
+    public CCPDocumentCount ccpId(Long ccpId) {
+        this.ccpId = ccpId;
+        return this;
+    }
+
+    public void setCcpId(Long ccpId) {
+        this.ccpId = ccpId;
+    }
+
+    public Long getDocumentCount() {
+        return documentCount;
+    }
+
+    public CCPDocumentCount documentCount(Long documentCount) {
+        this.documentCount = documentCount;
+        return this;
+    }
+
+    public void setDocumentCount(Long documentCount) {
+        this.documentCount = documentCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CCPDocumentCount)) {
+            return false;
+        }
+        return ccpId != null && ccpId.equals(((CCPDocumentCount) o).ccpId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "CCPDocumentCount{" +
+            "ccpId=" + getCcpId() +
+            ", documentCount=" + getDocumentCount() +
+            "}";
+    }
+}
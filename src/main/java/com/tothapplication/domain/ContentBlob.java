@@ -0,0 +1,90 @@
+package com.tothapplication.domain;
+
+import javax.persistence.*;
+
+import java.io.Serializable;
+
+/**
+ * A ContentBlob: a document content stored once, by SHA-256 digest, and shared by every document holding the same
+ * bytes. {@code refCount} is the number of documents referencing it; a blob nobody references is garbage collected.
+ */
+@Entity
+@Table(name = "content_blob")
+public class ContentBlob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "digest", length = 64)
+    private String digest;
+
+    @Column(name = "jhi_size", nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public ContentBlob digest(String digest) {
+        this.digest = digest;
+        return this;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public ContentBlob size(Long size) {
+        this.size = size;
+        return this;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public ContentBlob refCount(Integer refCount) {
+        this.refCount = refCount;
+        return this;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ContentBlob)) {
+            return false;
+        }
+        return digest != null && digest.equals(((ContentBlob) o).digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "ContentBlob{" +
+            "digest='" + getDigest() + "'" +
+            ", size=" + getSize() +
+            ", refCount=" + getRefCount() +
+            "}";
+    }
+}
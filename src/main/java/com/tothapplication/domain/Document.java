@@ -1,4 +1,5 @@
 package com.tothapplication.domain;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 
@@ -25,7 +26,7 @@ public class Document implements Serializable {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
     @SequenceGenerator(name = "sequenceGenerator")
-    @org.springframework.data.elasticsearch.annotations.Field(type = FieldType.Keyword)
+    @org.springframework.data.elasticsearch.annotations.Field(type = FieldType.Long)
     private Long id;
 
     @Column(name = "title")
@@ -38,6 +39,19 @@ public class Document implements Serializable {
     @Column(name = "type_doc")
     private TypeDocument typeDoc;
 
+    /**
+     * Key of the binary content in the content store. Only written when content is uploaded.
+     */
+    @Column(name = "content_key", insertable = false, updatable = false)
+    @JsonIgnore
+    private String contentKey;
+
+    /**
+     * Size in bytes of the binary content. Only written when content is uploaded.
+     */
+    @Column(name = "content_size", insertable = false, updatable = false)
+    private Long contentSize;
+
     @ManyToMany
     @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     @JoinTable(name = "document_ccp",
@@ -93,6 +107,22 @@ public class Document implements Serializable {
         this.typeDoc = typeDoc;
     }
 
+    public String getContentKey() {
+        return contentKey;
+    }
+
+    public void setContentKey(String contentKey) {
+        this.contentKey = contentKey;
+    }
+
+    public Long getContentSize() {
+        return contentSize;
+    }
+
+    public void setContentSize(Long contentSize) {
+        this.contentSize = contentSize;
+    }
+
     public Set<CCP> getCCPS() {
         return cCPS;
     }
@@ -142,6 +172,7 @@ public class Document implements Serializable {
             ", title='" + getTitle() + "'" +
             ", mimeType='" + getMimeType() + "'" +
             ", typeDoc='" + getTypeDoc() + "'" +
+            ", contentSize=" + getContentSize() +
             "}";
     }
 }
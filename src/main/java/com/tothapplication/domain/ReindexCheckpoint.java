@@ -0,0 +1,211 @@
+package com.tothapplication.domain;
+
+import com.tothapplication.domain.enumeration.ReindexStatus;
+
+import javax.persistence.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A ReindexCheckpoint: the progress of the full reindex of an entity type. Entities are reindexed by ascending id
+ * into {@code targetIndex}, and every entity up to {@code lastId} has been sent to it, so an interrupted reindex
+ * resumes after it. Until the reindex completes, changes to the entities are also written to {@code targetIndex}.
+ */
+@Entity
+@Table(name = "reindex_checkpoint")
+public class ReindexCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "entity_type", length = 50)
+    private String entityType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private ReindexStatus status;
+
+    @Column(name = "target_index")
+    private String targetIndex;
+
+    @Column(name = "last_id", nullable = false)
+    private Long lastId;
+
+    @Column(name = "indexed", nullable = false)
+    private Long indexed;
+
+    @Column(name = "failed", nullable = false)
+    private Long failed;
+
+    @Column(name = "total", nullable = false)
+    private Long total;
+
+    @Column(name = "started_date", nullable = false)
+    private Instant startedDate;
+
+    @Column(name = "updated_date", nullable = false)
+    private Instant updatedDate;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public ReindexCheckpoint entityType(String entityType) {
+        this.entityType = entityType;
+        return this;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public ReindexStatus getStatus() {
+        return status;
+    }
+
+    public ReindexCheckpoint status(ReindexStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public void setStatus(ReindexStatus status) {
+        this.status = status;
+    }
+
+    public String getTargetIndex() {
+        return targetIndex;
+    }
+
+    public ReindexCheckpoint targetIndex(String targetIndex) {
+        this.targetIndex = targetIndex;
+        return this;
+    }
+
+    public void setTargetIndex(String targetIndex) {
+        this.targetIndex = targetIndex;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public ReindexCheckpoint lastId(Long lastId) {
+        this.lastId = lastId;
+        return this;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+
+    public Long getIndexed() {
+        return indexed;
+    }
+
+    public ReindexCheckpoint indexed(Long indexed) {
+        this.indexed = indexed;
+        return this;
+    }
+
+    public void setIndexed(Long indexed) {
+        this.indexed = indexed;
+    }
+
+    public Long getFailed() {
+        return failed;
+    }
+
+    public ReindexCheckpoint failed(Long failed) {
+        this.failed = failed;
+        return this;
+    }
+
+    public void setFailed(Long failed) {
+        this.failed = failed;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public ReindexCheckpoint total(Long total) {
+        this.total = total;
+        return this;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+
+    public Instant getStartedDate() {
+        return startedDate;
+    }
+
+    public ReindexCheckpoint startedDate(Instant startedDate) {
+        this.startedDate = startedDate;
+        return this;
+    }
+
+    public void setStartedDate(Instant startedDate) {
+        this.startedDate = startedDate;
+    }
+
+    public Instant getUpdatedDate() {
+        return updatedDate;
+    }
+
+    public ReindexCheckpoint updatedDate(Instant updatedDate) {
+        this.updatedDate = updatedDate;
+        return this;
+    }
+
+    public void setUpdatedDate(Instant updatedDate) {
+        this.updatedDate = updatedDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public ReindexCheckpoint lastError(String lastError) {
+        this.lastError = lastError;
+        return this;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReindexCheckpoint)) {
+            return false;
+        }
+        return entityType != null && entityType.equals(((ReindexCheckpoint) o).entityType);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "ReindexCheckpoint{" +
+            "entityType='" + getEntityType() + "'" +
+            ", status='" + getStatus() + "'" +
+            ", targetIndex='" + getTargetIndex() + "'" +
+            ", lastId=" + getLastId() +
+            ", indexed=" + getIndexed() +
+            ", failed=" + getFailed() +
+            ", total=" + getTotal() +
+            "}";
+    }
+}
@@ -0,0 +1,8 @@
+package com.tothapplication.domain.enumeration;
+
+/**
+ * The ReindexStatus enumeration.
+ */
+public enum ReindexStatus {
+    RUNNING, INTERRUPTED, FAILED, COMPLETED
+}
@@ -0,0 +1,31 @@
+package com.tothapplication.repository;
+
+import com.tothapplication.domain.CCPDocumentCount;
+import com.tothapplication.service.dto.CCPWithDocumentCountDTO;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Spring Data  repository for the CCPDocumentCount entity.
+ */
+@Repository
+public interface CCPDocumentCountRepository extends JpaRepository<CCPDocumentCount, Long>, CCPDocumentCountRepositoryCustom {
+
+    @Modifying
+    @Query("update CCPDocumentCount ccpDocumentCount set ccpDocumentCount.documentCount = ccpDocumentCount.documentCount + :delta" +
+        " where ccpDocumentCount.ccpId in :ccpIds")
+    int addToDocumentCounts(@Param("ccpIds") Collection<Long> ccpIds, @Param("delta") long delta);
+
+    @Query("select ccpDocumentCount.ccpId from CCPDocumentCount ccpDocumentCount where ccpDocumentCount.ccpId in :ccpIds")
+    List<Long> findExistingCCPIds(@Param("ccpIds") Collection<Long> ccpIds);
+
+    @Query("select new com.tothapplication.service.dto.CCPWithDocumentCountDTO(ccp.id, ccp.title, ccp.desc," +
+        " coalesce(ccpDocumentCount.documentCount, 0L)) from CCP ccp" +
+        " left join CCPDocumentCount ccpDocumentCount on ccpDocumentCount.ccpId = ccp.id order by ccp.id asc")
+    List<CCPWithDocumentCountDTO> findAllCCPSWithDocumentCount();
+}
@@ -0,0 +1,18 @@
+package com.tothapplication.repository;
+
+/**
+ * Custom methods of the {@link CCPDocumentCountRepository}.
+ */
+public interface CCPDocumentCountRepositoryCustom {
+
+    /**
+     * Create the count of a CCP from {@code document_ccp}, unless it exists, concurrently created included.
+     * <p>
+     * The count is written straight to {@code ccp_document_count}: the pending changes of {@code document_ccp} must be
+     * flushed before.
+     *
+     * @param ccpId the id of the CCP, which must exist.
+     * @return whether the count was created.
+     */
+    boolean insertDocumentCount(Long ccpId);
+}
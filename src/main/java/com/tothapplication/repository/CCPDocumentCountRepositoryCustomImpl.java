@@ -0,0 +1,23 @@
+package com.tothapplication.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * JDBC implementation of the {@link CCPDocumentCountRepositoryCustom} methods.
+ */
+public class CCPDocumentCountRepositoryCustomImpl implements CCPDocumentCountRepositoryCustom {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public CCPDocumentCountRepositoryCustomImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean insertDocumentCount(Long ccpId) {
+        return JdbcSavepoints.insertIgnoringDuplicate(jdbcTemplate, "insert into ccp_document_count (ccp_id, document_count)" +
+            " select :ccpId, count(*) from document_ccp where ccp_id = :ccpId",
+            new MapSqlParameterSource("ccpId", ccpId)) > 0;
+    }
+}
@@ -1,9 +1,16 @@
 package com.tothapplication.repository;
 
 import com.tothapplication.domain.CCP;
+import com.tothapplication.service.dto.CCPSummaryDTO;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
 
 /**
  * Spring Data  repository for the CCP entity.
@@ -12,4 +19,22 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface CCPRepository extends JpaRepository<CCP, Long> {
 
+    @Query("select new com.tothapplication.service.dto.CCPSummaryDTO(cCP.id, cCP.title) from CCP cCP order by cCP.id asc")
+    List<CCPSummaryDTO> findAllSummaries();
+
+    @Query("select new com.tothapplication.service.dto.CCPSummaryDTO(cCP.id, cCP.title) from CCP cCP where cCP.id in :ids")
+    List<CCPSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select cCP.id from CCP cCP where cCP.id > :id order by cCP.id asc")
+    List<Long> findIdsAfterId(@Param("id") Long id, Pageable pageable);
+
+    @Query("select cCP.id from CCP cCP where cCP.id in :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Get the title and description of a CCP as stored, without flushing the changes made to it in memory.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.FLUSH_MODE, value = "COMMIT"))
+    @Query("select cCP.title, cCP.desc from CCP cCP where cCP.id = :id")
+    List<Object[]> findStoredTitleAndDescById(@Param("id") Long id);
 }
@@ -0,0 +1,27 @@
+package com.tothapplication.repository;
+
+import com.tothapplication.domain.ContentBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
+
+/**
+ * Spring Data  repository for the ContentBlob entity.
+ */
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select contentBlob from ContentBlob contentBlob where contentBlob.digest = :digest")
+    Optional<ContentBlob> findOneForUpdate(@Param("digest") String digest);
+
+    @Query("select contentBlob.digest from ContentBlob contentBlob where contentBlob.refCount <= 0" +
+        " and contentBlob.digest > :digest order by contentBlob.digest asc")
+    List<String> findUnreferencedDigestsAfter(@Param("digest") String digest, Pageable pageable);
+}
@@ -0,0 +1,54 @@
+package com.tothapplication.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository writing the links between documents and CCPs straight to the {@code document_ccp} join table.
+ * <p>
+ * Linking through {@link com.tothapplication.domain.Document#addCCP} loads both sides of the relationship, all the
+ * documents of the CCP included. These writes load neither, but Hibernate does not know about them: the callers must
+ * flush the pending changes before, and evict the cached collections of both sides after.
+ */
+@Repository
+public class DocumentCCPLinkRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public DocumentCCPLinkRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Link a document to a CCP, unless they are already linked, concurrently included.
+     *
+     * @param documentId the id of the document, which must exist.
+     * @param ccpId the id of the CCP, which must exist.
+     * @return whether the link was created.
+     */
+    public boolean insert(Long documentId, Long ccpId) {
+        return JdbcSavepoints.insertIgnoringDuplicate(jdbcTemplate, "insert into document_ccp (document_id, ccp_id)" +
+            " select id, :ccpId from document where id = :documentId" +
+            " and not exists (select 1 from document_ccp where document_id = :documentId and ccp_id = :ccpId)",
+            parameters(documentId, ccpId)) > 0;
+    }
+
+    /**
+     * Unlink a document from a CCP.
+     *
+     * @param documentId the id of the document.
+     * @param ccpId the id of the CCP.
+     * @return whether they were linked.
+     */
+    public boolean delete(Long documentId, Long ccpId) {
+        return jdbcTemplate.update("delete from document_ccp where document_id = :documentId and ccp_id = :ccpId",
+            parameters(documentId, ccpId)) > 0;
+    }
+
+    private static MapSqlParameterSource parameters(Long documentId, Long ccpId) {
+        return new MapSqlParameterSource()
+            .addValue("documentId", documentId)
+            .addValue("ccpId", ccpId);
+    }
+}
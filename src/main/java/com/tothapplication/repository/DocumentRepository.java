@@ -1,12 +1,14 @@
 package com.tothapplication.repository;
 
 import com.tothapplication.domain.Document;
+import com.tothapplication.service.dto.DocumentSummaryDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,4 +28,50 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     @Query("select document from Document document left join fetch document.cCPS where document.id =:id")
     Optional<Document> findOneWithEagerRelationships(@Param("id") Long id);
 
+    @Query("select distinct document from Document document left join fetch document.cCPS where document.id in :ids")
+    List<Document> findAllWithEagerRelationshipsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.tothapplication.service.dto.DocumentSummaryDTO(document.id, document.title, document.typeDoc)" +
+        " from Document document order by document.id asc")
+    List<DocumentSummaryDTO> findAllSummaries();
+
+    @Query("select new com.tothapplication.service.dto.DocumentSummaryDTO(document.id, document.title, document.typeDoc)" +
+        " from Document document where document.id in :ids")
+    List<DocumentSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "select new com.tothapplication.service.dto.DocumentSummaryDTO(document.id, document.title, document.typeDoc)" +
+        " from Document document join document.cCPS ccp where ccp.id = :ccpId",
+        countQuery = "select count(document) from Document document join document.cCPS ccp where ccp.id = :ccpId")
+    Page<DocumentSummaryDTO> findSummariesByCCPId(@Param("ccpId") Long ccpId, Pageable pageable);
+
+    @Query("select document.id, ccp.id from Document document join document.cCPS ccp order by ccp.id asc")
+    List<Object[]> findAllCCPIds();
+
+    @Query("select document.id, ccp.id from Document document join document.cCPS ccp where document.id in :ids order by ccp.id asc")
+    List<Object[]> findCCPIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Document document set document.contentKey = :contentKey, document.contentSize = :contentSize," +
+        " document.mimeType = :mimeType where document.id = :id")
+    int updateContent(@Param("id") Long id, @Param("contentKey") String contentKey, @Param("contentSize") Long contentSize,
+                      @Param("mimeType") String mimeType);
+
+    @Query("select document.id from Document document join document.cCPS ccp where ccp.id = :ccpId")
+    List<Long> findIdsByCCPId(@Param("ccpId") Long ccpId);
+
+    @Query("select document.id from Document document where document.id > :id order by document.id asc")
+    List<Long> findIdsAfterId(@Param("id") Long id, Pageable pageable);
+
+    @Query("select document.id from Document document where document.id in :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select document.id from Document document where document.title is not null" +
+        " and (document.title > :title or (document.title = :title and document.id > :id))" +
+        " order by document.title asc, document.id asc")
+    List<Long> findIdsAfterTitle(@Param("title") String title, @Param("id") Long id, Pageable pageable);
+
+    @Query("select document.id from Document document where document.title is null and document.id > :id" +
+        " order by document.id asc")
+    List<Long> findIdsWithoutTitleAfterId(@Param("id") Long id, Pageable pageable);
+
 }
@@ -0,0 +1,47 @@
+package com.tothapplication.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Savepoint;
+
+/**
+ * Utility class for the JDBC inserts racing with concurrent inserts of the same key.
+ * <p>
+ * On PostgreSQL a failed statement aborts the whole transaction, so a duplicate key cannot just be caught: the insert
+ * is run within a savepoint of the current transaction, rolled back to on a duplicate key.
+ */
+final class JdbcSavepoints {
+
+    private JdbcSavepoints() {
+    }
+
+    /**
+     * Run an insert, skipping it if it inserts a key that exists.
+     *
+     * @param jdbcTemplate the template, using the connection of the current transaction if any.
+     * @param sql the insert.
+     * @param parameters the parameters of the insert.
+     * @return the number of rows inserted, {@code 0} if the key exists.
+     */
+    static int insertIgnoringDuplicate(NamedParameterJdbcTemplate jdbcTemplate, String sql, MapSqlParameterSource parameters) {
+        Integer inserted = jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Integer>) connection -> {
+            Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+            try {
+                int count = jdbcTemplate.update(sql, parameters);
+                if (savepoint != null) {
+                    connection.releaseSavepoint(savepoint);
+                }
+                return count;
+            } catch (DuplicateKeyException e) {
+                if (savepoint != null) {
+                    connection.rollback(savepoint);
+                }
+                return 0;
+            }
+        });
+        return inserted != null ? inserted : 0;
+    }
+}
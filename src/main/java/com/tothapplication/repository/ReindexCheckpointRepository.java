@@ -0,0 +1,19 @@
+package com.tothapplication.repository;
+
+import com.tothapplication.domain.ReindexCheckpoint;
+import com.tothapplication.domain.enumeration.ReindexStatus;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+
+/**
+ * Spring Data  repository for the ReindexCheckpoint entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface ReindexCheckpointRepository extends JpaRepository<ReindexCheckpoint, String> {
+
+    List<ReindexCheckpoint> findAllByStatusAndTargetIndexIsNotNull(ReindexStatus status);
+}
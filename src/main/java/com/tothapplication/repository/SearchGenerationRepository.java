@@ -0,0 +1,49 @@
+package com.tothapplication.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository of the generations of the search indices, in the {@code search_generation} table.
+ * <p>
+ * A generation is bumped each time changes are applied to the index of its type of entities, by whichever instance
+ * of the application applied them, so that the others can tell their cached searches are stale.
+ */
+@Repository
+public class SearchGenerationRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public SearchGenerationRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Get the generation of an index.
+     *
+     * @param entityType the type of the indexed entities, as recorded in the search outbox.
+     * @return the generation, or 0 if the index has none.
+     */
+    public long get(String entityType) {
+        List<Long> generations = jdbcTemplate.queryForList("select generation from search_generation" +
+            " where entity_type = :entityType", parameters(entityType), Long.class);
+        return generations.isEmpty() ? 0 : generations.get(0);
+    }
+
+    /**
+     * Bump the generation of an index.
+     *
+     * @param entityType the type of the indexed entities, as recorded in the search outbox.
+     */
+    public void increment(String entityType) {
+        jdbcTemplate.update("update search_generation set generation = generation + 1 where entity_type = :entityType",
+            parameters(entityType));
+    }
+
+    private static MapSqlParameterSource parameters(String entityType) {
+        return new MapSqlParameterSource().addValue("entityType", entityType);
+    }
+}
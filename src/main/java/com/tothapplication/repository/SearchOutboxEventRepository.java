@@ -0,0 +1,49 @@
+package com.tothapplication.repository;
+
+import com.tothapplication.domain.SearchOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Spring Data  repository for the SearchOutboxEvent entity.
+ */
+@Repository
+public interface SearchOutboxEventRepository extends JpaRepository<SearchOutboxEvent, Long> {
+
+    @Query("select searchOutboxEvent from SearchOutboxEvent searchOutboxEvent" +
+        " where searchOutboxEvent.nextAttemptDate <= :now order by searchOutboxEvent.id asc")
+    List<SearchOutboxEvent> findDue(@Param("now") Instant now, Pageable pageable);
+
+    List<SearchOutboxEvent> findByEntityTypeAndEntityId(String entityType, Long entityId);
+
+    @Query("select min(searchOutboxEvent.createdDate) from SearchOutboxEvent searchOutboxEvent")
+    Instant findOldestCreatedDate();
+
+    /**
+     * Record a change of each document of a CCP, in a single statement.
+     *
+     * @return the number of events recorded.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into search_outbox_event (id, entity_type, entity_id, created_date, attempts, next_attempt_date)" +
+        " select nextval('sequence_generator'), :entityType, j.document_id, :now, 0, :now from document_ccp j" +
+        " where j.ccp_id = :ccpId", nativeQuery = true)
+    int insertForDocumentsOfCCP(@Param("ccpId") Long ccpId, @Param("entityType") String entityType, @Param("now") Instant now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from SearchOutboxEvent searchOutboxEvent where searchOutboxEvent.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update SearchOutboxEvent searchOutboxEvent set searchOutboxEvent.attempts = searchOutboxEvent.attempts + 1," +
+        " searchOutboxEvent.nextAttemptDate = :nextAttemptDate, searchOutboxEvent.lastError = :error" +
+        " where searchOutboxEvent.id = :id")
+    int updateFailedAttempt(@Param("id") Long id, @Param("nextAttemptDate") Instant nextAttemptDate, @Param("error") String error);
+}
@@ -0,0 +1,59 @@
+package com.tothapplication.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Repository of the leases of the {@code search_outbox_lease} table, each one held by at most one instance of the
+ * application at a time.
+ * <p>
+ * A lease is taken with a single conditional {@code update}, so instances racing for it cannot both get it, and it
+ * expires by itself: an instance that stops without releasing it only holds it back until then.
+ */
+@Repository
+public class SearchOutboxLeaseRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public SearchOutboxLeaseRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Take or renew a lease, unless another owner holds it.
+     *
+     * @param name the name of the lease.
+     * @param owner the instance taking the lease.
+     * @param now the current date.
+     * @param until the date the lease expires at.
+     * @return whether the owner holds the lease.
+     */
+    public boolean acquire(String name, String owner, Instant now, Instant until) {
+        return jdbcTemplate.update("update search_outbox_lease set owner = :owner, lease_until = :until" +
+            " where name = :name and (owner = :owner or owner is null or lease_until <= :now)",
+            parameters(name, owner)
+                .addValue("now", Timestamp.from(now))
+                .addValue("until", Timestamp.from(until))) > 0;
+    }
+
+    /**
+     * Release a lease, if the owner holds it.
+     *
+     * @param name the name of the lease.
+     * @param owner the instance holding the lease.
+     */
+    public void release(String name, String owner) {
+        jdbcTemplate.update("update search_outbox_lease set owner = null where name = :name and owner = :owner",
+            parameters(name, owner));
+    }
+
+    private static MapSqlParameterSource parameters(String name, String owner) {
+        return new MapSqlParameterSource()
+            .addValue("name", name)
+            .addValue("owner", owner);
+    }
+}
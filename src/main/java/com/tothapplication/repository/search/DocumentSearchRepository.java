@@ -1,10 +0,0 @@
-package com.tothapplication.repository.search;
-
-import com.tothapplication.domain.Document;
-import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
-
-/**
- * Spring Data Elasticsearch repository for the {@link Document} entity.
- */
-public interface DocumentSearchRepository extends ElasticsearchRepository<Document, Long> {
-}
@@ -1,10 +0,0 @@
-package com.tothapplication.repository.search;
-
-import com.tothapplication.domain.User;
-import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
-
-/**
- * Spring Data Elasticsearch repository for the User entity.
- */
-public interface UserSearchRepository extends ElasticsearchRepository<User, Long> {
-}
@@ -1,4 +0,0 @@
-/**
- * Spring Data Elasticsearch repositories.
- */
-package com.tothapplication.repository.search;
@@ -0,0 +1,134 @@
+package com.tothapplication.service;
+
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.CCPDocumentCount;
+import com.tothapplication.repository.CCPDocumentCountRepository;
+import com.tothapplication.service.dto.CCPWithDocumentCountDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service class maintaining the number of documents of each CCP.
+ * <p>
+ * The counts are kept in {@link CCPDocumentCount} and updated in the transaction that changes the CCPs of documents,
+ * with one relative {@code update} per distinct change, so concurrent writers never lose increments. A CCP without
+ * a count yet gets one computed from {@code document_ccp}; if a concurrent writer creates it first, the change is
+ * added to it instead.
+ */
+@Service
+@Transactional
+public class CCPDocumentCountService {
+
+    private final Logger log = LoggerFactory.getLogger(CCPDocumentCountService.class);
+
+    private final CCPDocumentCountRepository cCPDocumentCountRepository;
+
+    public CCPDocumentCountService(CCPDocumentCountRepository cCPDocumentCountRepository) {
+        this.cCPDocumentCountRepository = cCPDocumentCountRepository;
+    }
+
+    /**
+     * Get all the CCPs with the number of their documents.
+     *
+     * @return the CCPs, ordered by id.
+     */
+    @Transactional(readOnly = true)
+    public List<CCPWithDocumentCountDTO> findAllWithDocumentCount() {
+        log.debug("Request to get all CCPs with their document count");
+        return cCPDocumentCountRepository.findAllCCPSWithDocumentCount();
+    }
+
+    /**
+     * Record the change of the CCPs of a document into pending count changes.
+     *
+     * @param deltas the pending count changes, by CCP id.
+     * @param before the ids of the CCPs of the document before the change, empty for a new document.
+     * @param after the ids of the CCPs of the document after the change, empty for a deleted document.
+     */
+    public static void addDeltas(Map<Long, Long> deltas, Collection<Long> before, Collection<Long> after) {
+        for (Long id : before) {
+            if (!after.contains(id)) {
+                deltas.merge(id, -1L, Long::sum);
+            }
+        }
+        for (Long id : after) {
+            if (!before.contains(id)) {
+                deltas.merge(id, 1L, Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Get the ids of a set of CCPs.
+     *
+     * @param cCPS the CCPs, may be {@code null}.
+     * @return their ids.
+     */
+    public static Set<Long> idsOf(Collection<CCP> cCPS) {
+        if (cCPS == null) {
+            return new HashSet<>();
+        }
+        return cCPS.stream().filter(Objects::nonNull).map(CCP::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    /**
+     * Apply the change of the CCPs of a document to the counts.
+     *
+     * @param before the ids of the CCPs of the document before the change, empty for a new document.
+     * @param after the ids of the CCPs of the document after the change, empty for a deleted document.
+     */
+    public void update(Collection<Long> before, Collection<Long> after) {
+        Map<Long, Long> deltas = new HashMap<>();
+        addDeltas(deltas, before, after);
+        apply(deltas);
+    }
+
+    /**
+     * Apply pending count changes. Must be called once the changes of {@code document_ccp} are done, though not
+     * necessarily flushed.
+     *
+     * @param deltas the count changes, by CCP id.
+     */
+    public void apply(Map<Long, Long> deltas) {
+        Map<Long, Set<Long>> ccpIdsByDelta = new HashMap<>();
+        deltas.forEach((ccpId, delta) -> {
+            if (delta != 0) {
+                ccpIdsByDelta.computeIfAbsent(delta, key -> new HashSet<>()).add(ccpId);
+            }
+        });
+        if (ccpIdsByDelta.isEmpty()) {
+            return;
+        }
+        log.debug("Request to update the document counts of CCPs : {}", deltas);
+        Set<Long> missing = new HashSet<>();
+        ccpIdsByDelta.forEach((delta, ccpIds) -> {
+            if (cCPDocumentCountRepository.addToDocumentCounts(ccpIds, delta) < ccpIds.size()) {
+                missing.addAll(ccpIds);
+            }
+        });
+        if (!missing.isEmpty()) {
+            missing.removeAll(cCPDocumentCountRepository.findExistingCCPIds(missing));
+            cCPDocumentCountRepository.flush();
+            for (Long ccpId : missing) {
+                // Counted once the changes of the current transaction are flushed, so the delta is already included
+                if (!cCPDocumentCountRepository.insertDocumentCount(ccpId)) {
+                    // Created by a concurrent transaction, which could not count the changes of this one
+                    cCPDocumentCountRepository.addToDocumentCounts(Collections.singleton(ccpId), deltas.get(ccpId));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.tothapplication.service;
+
+import com.tothapplication.domain.CCP;
+import com.tothapplication.repository.CCPRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Service class for managing cCPS.
+ * <p>
+ * Indexed documents carry a copy of their CCPs, so that they can be searched by CCP title: when the title or
+ * description of a CCP is updated, its documents are reindexed along with it.
+ */
+@Service
+@Transactional
+public class CCPService {
+
+    private final Logger log = LoggerFactory.getLogger(CCPService.class);
+
+    private final CCPRepository cCPRepository;
+
+    private final SearchOutboxService searchOutboxService;
+
+    public CCPService(CCPRepository cCPRepository, SearchOutboxService searchOutboxService) {
+        this.cCPRepository = cCPRepository;
+        this.searchOutboxService = searchOutboxService;
+    }
+
+    /**
+     * Save a cCP.
+     *
+     * @param cCP the entity to save.
+     * @return the persisted entity.
+     */
+    public CCP save(CCP cCP) {
+        log.debug("Request to save CCP : {}", cCP);
+        List<Object[]> stored = cCP.getId() == null ? Collections.emptyList()
+            : cCPRepository.findStoredTitleAndDescById(cCP.getId());
+        CCP result = cCPRepository.save(cCP);
+        searchOutboxService.changed(SearchOutboxService.CCP, result.getId());
+        // The documents only carry the title and description of their CCPs
+        if (!stored.isEmpty() && (!Objects.equals(stored.get(0)[0], result.getTitle())
+            || !Objects.equals(stored.get(0)[1], result.getDesc()))) {
+            searchOutboxService.changedDocumentsOf(result.getId());
+        }
+        return result;
+    }
+
+    /**
+     * Delete the cCP by id.
+     *
+     * @param id the id of the entity.
+     */
+    public void delete(Long id) {
+        log.debug("Request to delete CCP : {}", id);
+        cCPRepository.deleteById(id);
+        searchOutboxService.deleted(SearchOutboxService.CCP, id);
+    }
+}
@@ -0,0 +1,143 @@
+package com.tothapplication.service;
+
+import com.tothapplication.config.ApplicationProperties;
+import com.tothapplication.service.dto.HotKeyDTO;
+import com.tothapplication.service.util.HotKeySketch;
+
+import org.springframework.stereotype.Service;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Service class sampling the keys read from the caches, to report the most requested keys of each cache region.
+ * <p>
+ * The reads of the Hibernate second-level cache and of the Spring caches go through the cache manager returned by
+ * {@link #track(CacheManager)}, which hands out caches sampling one {@code get} out of
+ * {@code application.cache.hot-keys.sampling-interval} on average. The sampled keys of each region are counted in a
+ * {@link HotKeySketch}, so that the memory used does not depend on the number of distinct keys.
+ */
+@Service
+public class CacheHotKeyService {
+
+    private static final int MAX_KEY_LENGTH = 200;
+
+    private final ApplicationProperties.Cache.HotKeys properties;
+
+    private final Map<String, HotKeySketch> sketches = new ConcurrentHashMap<>();
+
+    public CacheHotKeyService(ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getCache().getHotKeys();
+    }
+
+    /**
+     * Track the reads from the caches of a cache manager.
+     *
+     * @param cacheManager the cache manager.
+     * @return a cache manager sampling the keys read from its caches, or the cache manager itself if sampling is
+     * disabled.
+     */
+    public CacheManager track(CacheManager cacheManager) {
+        if (properties.getSamplingInterval() <= 0 || Proxy.isProxyClass(cacheManager.getClass())) {
+            return cacheManager;
+        }
+        return proxy(CacheManager.class, cacheManager, (method, args, result) -> {
+            if (result instanceof Cache && ("getCache".equals(method.getName()) || "createCache".equals(method.getName()))) {
+                return track((Cache<?, ?>) result);
+            }
+            return result;
+        });
+    }
+
+    private Cache<?, ?> track(Cache<?, ?> cache) {
+        String cacheName = cache.getName();
+        return proxy(Cache.class, cache, (method, args, result) -> {
+            if ("get".equals(method.getName()) && args.length == 1) {
+                sample(cacheName, args[0]);
+            } else if ("getAll".equals(method.getName())) {
+                ((Collection<?>) args[0]).forEach(key -> sample(cacheName, key));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Count a read of a key from a cache, one time out of {@code application.cache.hot-keys.sampling-interval}.
+     *
+     * @param cacheName the name of the cache.
+     * @param key the key.
+     */
+    public void sample(String cacheName, Object key) {
+        int samplingInterval = properties.getSamplingInterval();
+        if (samplingInterval <= 0 || ThreadLocalRandom.current().nextInt(samplingInterval) != 0) {
+            return;
+        }
+        String rendered = String.valueOf(key);
+        if (rendered.length() > MAX_KEY_LENGTH) {
+            rendered = rendered.substring(0, MAX_KEY_LENGTH);
+        }
+        sketches.computeIfAbsent(cacheName, name -> new HotKeySketch(properties.getCapacity())).offer(rendered);
+    }
+
+    /**
+     * Get the most requested keys of each cache.
+     *
+     * @return the {@code application.cache.hot-keys.size} most requested keys of each cache read since the last
+     * reset, by cache name, with their estimated number of reads.
+     */
+    public SortedMap<String, List<HotKeyDTO>> getHotKeys() {
+        int samplingInterval = Math.max(properties.getSamplingInterval(), 1);
+        SortedMap<String, List<HotKeyDTO>> hotKeys = new TreeMap<>();
+        sketches.forEach((cacheName, sketch) -> {
+            List<HotKeyDTO> top = sketch.top(properties.getSize());
+            // Scale the sampled counts back to the number of reads
+            top.forEach(hotKey -> {
+                hotKey.setCount(hotKey.getCount() * samplingInterval);
+                hotKey.setError(hotKey.getError() * samplingInterval);
+            });
+            hotKeys.put(cacheName, top);
+        });
+        return hotKeys;
+    }
+
+    /**
+     * Forget the keys read so far.
+     */
+    public void reset() {
+        sketches.values().forEach(HotKeySketch::clear);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, ResultHandler resultHandler) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if ("equals".equals(method.getName()) && args != null && args.length == 1) {
+                return proxy == args[0];
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return resultHandler.handle(method, args == null ? new Object[0] : args, result);
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    @FunctionalInterface
+    private interface ResultHandler {
+
+        Object handle(Method method, Object[] args, Object result);
+    }
+}
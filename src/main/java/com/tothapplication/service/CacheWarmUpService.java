@@ -0,0 +1,255 @@
+package com.tothapplication.service;
+
+import com.tothapplication.config.ApplicationProperties;
+import com.tothapplication.repository.AuthorityRepository;
+import com.tothapplication.repository.CCPRepository;
+import com.tothapplication.repository.DocumentRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Service class loading the documents, the CCPs and the authorities into the second-level cache at startup, so that
+ * the first requests after a deploy are not all sent to the database.
+ * <p>
+ * When {@code application.cache.warm-up.enabled} is set, the warm-up starts in the background once the application
+ * is ready. The entities are read by ascending id, at most {@code application.cache.warm-up.max-entities} of each
+ * type, in chunks of {@code application.cache.warm-up.chunk-size} loaded by a pool of
+ * {@code application.cache.warm-up.concurrency} workers, the documents with their CCPs. Until it is over, the
+ * {@code cachewarmup} management endpoint answers with a 503 status, so that a readiness probe on it keeps traffic
+ * away from the application while its caches are cold. The health endpoint is left as is, for the liveness probes.
+ */
+@Service
+public class CacheWarmUpService {
+
+    public static final String DOCUMENT = "document";
+
+    public static final String CCP = "ccp";
+
+    public static final String AUTHORITY = "authority";
+
+    private final Logger log = LoggerFactory.getLogger(CacheWarmUpService.class);
+
+    private final AuthorityRepository authorityRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Executor taskExecutor;
+
+    private final ApplicationProperties.Cache.WarmUp properties;
+
+    private final Map<String, EntityType> entityTypes = new LinkedHashMap<>();
+
+    private final Map<String, AtomicLong> loaded = new LinkedHashMap<>();
+
+    private volatile State state;
+
+    private volatile Duration duration;
+
+    private volatile String failure;
+
+    public CacheWarmUpService(DocumentRepository documentRepository, CCPRepository cCPRepository,
+                              AuthorityRepository authorityRepository, PlatformTransactionManager transactionManager,
+                              @Qualifier("taskExecutor") Executor taskExecutor, ApplicationProperties applicationProperties) {
+        this.authorityRepository = authorityRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.properties = applicationProperties.getCache().getWarmUp();
+        // Loading the documents with their CCPs fills their collection region too. The documents of the CCPs are left
+        // out, as a chunk of CCPs could otherwise load most of the documents.
+        entityTypes.put(DOCUMENT, new EntityType(documentRepository::findIdsAfterId,
+            documentRepository::findAllWithEagerRelationshipsByIdIn));
+        entityTypes.put(CCP, new EntityType(cCPRepository::findIdsAfterId, cCPRepository::findAllById));
+        entityTypes.keySet().forEach(entityType -> loaded.put(entityType, new AtomicLong()));
+        loaded.put(AUTHORITY, new AtomicLong());
+        this.state = properties.isEnabled() ? State.PENDING : State.DISABLED;
+    }
+
+    /**
+     * Start the warm-up in the background, if it is enabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (state != State.PENDING) {
+            return;
+        }
+        state = State.RUNNING;
+        try {
+            taskExecutor.execute(this::warmUp);
+        } catch (RuntimeException e) {
+            log.warn("Could not start the cache warm-up: {}", e.toString());
+            failure = e.toString();
+            state = State.DONE;
+        }
+    }
+
+    /**
+     * Load the entities into the second-level cache, and wait for them to be loaded.
+     */
+    public void warmUp() {
+        state = State.RUNNING;
+        failure = null;
+        loaded.values().forEach(count -> count.set(0));
+        Instant started = Instant.now();
+        int concurrency = Math.max(properties.getConcurrency(), 1);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warm-up-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore slots = new Semaphore(concurrency);
+        try {
+            submit(workers, slots, AUTHORITY, () -> authorityRepository.findAll().size());
+            for (Map.Entry<String, EntityType> entry : entityTypes.entrySet()) {
+                String entityType = entry.getKey();
+                EntityType type = entry.getValue();
+                Long after = 0L;
+                int remaining = properties.getMaxEntities();
+                while (remaining > 0 && failure == null) {
+                    int size = Math.min(properties.getChunkSize(), remaining);
+                    Long from = after;
+                    List<Long> ids = transactionTemplate.execute(status -> type.idsAfter.apply(from, PageRequest.of(0, size)));
+                    if (ids.isEmpty()) {
+                        break;
+                    }
+                    submit(workers, slots, entityType, () -> type.loader.apply(ids).size());
+                    after = ids.get(ids.size() - 1);
+                    remaining -= ids.size();
+                    if (ids.size() < size) {
+                        break;
+                    }
+                }
+            }
+            slots.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "Interrupted";
+        } catch (RuntimeException e) {
+            failure = e.toString();
+        } finally {
+            workers.shutdownNow();
+            duration = Duration.between(started, Instant.now());
+            state = State.DONE;
+        }
+        if (failure != null) {
+            log.warn("Cache warm-up failed after {}: {}", duration, failure);
+        } else {
+            log.info("Cache warm-up loaded {} in {}", getLoaded(), duration);
+        }
+    }
+
+    /**
+     * Load a chunk of entities on a worker, once one is free.
+     */
+    private void submit(ExecutorService workers, Semaphore slots, String entityType, Chunk chunk)
+        throws InterruptedException {
+        slots.acquire();
+        workers.execute(() -> {
+            try {
+                if (failure == null) {
+                    Integer count = transactionTemplate.execute(status -> chunk.load());
+                    loaded.get(entityType).addAndGet(count);
+                }
+            } catch (RuntimeException e) {
+                failure = e.toString();
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    /**
+     * Check whether the warm-up is over, or disabled: a failed warm-up is over too, the caches then filling up as
+     * usual.
+     *
+     * @return whether the application can be sent traffic.
+     */
+    public boolean isDone() {
+        return state == State.DONE || state == State.DISABLED;
+    }
+
+    /**
+     * Check whether the warm-up is enabled.
+     *
+     * @return whether it runs at startup.
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Get the number of entities loaded so far.
+     *
+     * @return the counts, by entity type.
+     */
+    public Map<String, Long> getLoaded() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        loaded.forEach((entityType, count) -> counts.put(entityType, count.get()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Get the duration of the last warm-up.
+     *
+     * @return the duration, or {@code null} if no warm-up is over.
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the error that stopped the last warm-up.
+     *
+     * @return the error, or {@code null} if it did not fail.
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    private enum State {
+        DISABLED, PENDING, RUNNING, DONE
+    }
+
+    @FunctionalInterface
+    private interface Chunk {
+
+        int load();
+    }
+
+    private static final class EntityType {
+
+        private final BiFunction<Long, PageRequest, List<Long>> idsAfter;
+
+        private final Function<Collection<Long>, List<?>> loader;
+
+        private EntityType(BiFunction<Long, PageRequest, List<Long>> idsAfter, Function<Collection<Long>, List<?>> loader) {
+            this.idsAfter = idsAfter;
+            this.loader = loader;
+        }
+    }
+}
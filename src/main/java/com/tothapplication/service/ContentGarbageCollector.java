@@ -0,0 +1,95 @@
+package com.tothapplication.service;
+
+import com.tothapplication.domain.ContentBlob;
+import com.tothapplication.repository.ContentBlobRepository;
+import com.tothapplication.service.storage.ContentStore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service class deleting the contents no document references anymore.
+ * <p>
+ * Each {@link ContentBlob} is collected in its own transaction, holding a lock on its row while the file is deleted:
+ * an upload of the same content waits for the lock and then finds the blob gone, instead of referencing a deleted file.
+ */
+@Service
+public class ContentGarbageCollector {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final Logger log = LoggerFactory.getLogger(ContentGarbageCollector.class);
+
+    private final ContentBlobRepository contentBlobRepository;
+
+    private final ContentStore contentStore;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public ContentGarbageCollector(ContentBlobRepository contentBlobRepository, ContentStore contentStore,
+                                   PlatformTransactionManager transactionManager) {
+        this.contentBlobRepository = contentBlobRepository;
+        this.contentStore = contentStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Collect the unreferenced contents in the background.
+     */
+    @Async
+    public void collectGarbageAsync() {
+        collectGarbage();
+    }
+
+    /**
+     * Collect the unreferenced contents.
+     *
+     * @return the number of contents deleted.
+     */
+    public int collectGarbage() {
+        int collected = 0;
+        String after = "";
+        List<String> digests;
+        do {
+            digests = contentBlobRepository.findUnreferencedDigestsAfter(after, PageRequest.of(0, BATCH_SIZE));
+            for (String digest : digests) {
+                try {
+                    if (collect(digest)) {
+                        collected++;
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not collect content {}", digest, e);
+                }
+                after = digest;
+            }
+        } while (digests.size() == BATCH_SIZE);
+        log.debug("Collected {} unreferenced contents", collected);
+        return collected;
+    }
+
+    private boolean collect(String digest) {
+        return transactionTemplate.execute(status -> {
+            Optional<ContentBlob> blob = contentBlobRepository.findOneForUpdate(digest);
+            if (!blob.isPresent() || blob.get().getRefCount() > 0) {
+                return false;
+            }
+            try {
+                contentStore.delete(digest);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            contentBlobRepository.delete(blob.get());
+            return true;
+        });
+    }
+}
@@ -0,0 +1,218 @@
+package com.tothapplication.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.repository.CCPRepository;
+import com.tothapplication.repository.DocumentRepository;
+import com.tothapplication.service.dto.BulkItemResultDTO;
+import com.tothapplication.service.dto.BulkResultDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for creating and updating documents in bulk.
+ * <p>
+ * Documents are processed in chunks of {@value #CHUNK_SIZE}, each in its own transaction: the chunk is flushed as
+ * JDBC batches (see {@code hibernate.jdbc.batch_size}), and its documents are indexed through the search outbox.
+ * A failing chunk does not roll back the chunks before it.
+ */
+@Service
+public class DocumentBulkService {
+
+    /**
+     * Number of documents per transaction. Matches the JDBC batch size and the {@code sequence_generator} allocation.
+     */
+    public static final int CHUNK_SIZE = 50;
+
+    /**
+     * The error of the documents of a chunk whose transaction failed, whatever the cause.
+     */
+    public static final String CHUNK_ROLLED_BACK = "Chunk rolled back";
+
+    private final Logger log = LoggerFactory.getLogger(DocumentBulkService.class);
+
+    private final DocumentRepository documentRepository;
+
+    private final CCPRepository cCPRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final EntityTagService entityTagService;
+
+    private final CCPDocumentCountService cCPDocumentCountService;
+
+    private final SearchOutboxService searchOutboxService;
+
+    public DocumentBulkService(DocumentRepository documentRepository, CCPRepository cCPRepository,
+                               PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                               EntityTagService entityTagService, CCPDocumentCountService cCPDocumentCountService,
+                               SearchOutboxService searchOutboxService) {
+        this.documentRepository = documentRepository;
+        this.cCPRepository = cCPRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.entityTagService = entityTagService;
+        this.cCPDocumentCountService = cCPDocumentCountService;
+        this.searchOutboxService = searchOutboxService;
+    }
+
+    /**
+     * Create or update all the documents read from the stream.
+     * <p>
+     * The stream holds either a JSON array of documents or newline-delimited JSON documents. A document without id is
+     * created, a document with an id updates the existing one. The CCPs of a document are given by their ids.
+     * The documents are read lazily, so the stream is never held in memory as a whole.
+     *
+     * @param in the stream to read the documents from.
+     * @return the report, with one result per document.
+     * @throws IOException if the stream could not be read.
+     */
+    public BulkResultDTO saveAll(InputStream in) throws IOException {
+        MappingIterator<Document> documents = objectMapper.readerFor(Document.class).readValues(in);
+        BulkResultDTO result = new BulkResultDTO();
+        List<Document> chunk = new ArrayList<>(CHUNK_SIZE);
+        int index = 0;
+        try {
+            while (documents.hasNextValue()) {
+                chunk.add(documents.nextValue());
+                index++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    saveChunk(chunk, index - chunk.size(), result);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Stopping bulk save at item {}: {}", index, e.getMessage());
+            saveChunk(chunk, index - chunk.size(), result);
+            chunk.clear();
+            result.addItem(new BulkItemResultDTO(index, null, HttpStatus.BAD_REQUEST.value(), "Malformed document, processing stopped"));
+        }
+        saveChunk(chunk, index - chunk.size(), result);
+        return result;
+    }
+
+    private void saveChunk(List<Document> chunk, int firstIndex, BulkResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        log.debug("Request to save a chunk of {} Documents", chunk.size());
+        List<BulkItemResultDTO> items = new ArrayList<>(chunk.size());
+        List<Document> saved = new ArrayList<>(chunk.size());
+        try {
+            transactionTemplate.execute(status -> {
+                Map<Long, Document> existing = findExisting(chunk);
+                Map<Long, CCP> cCPS = findReferencedCCPS(chunk);
+                Map<Long, Long> countDeltas = new HashMap<>();
+                for (int i = 0; i < chunk.size(); i++) {
+                    Document document = chunk.get(i);
+                    int index = firstIndex + i;
+                    if (document.getId() != null && !existing.containsKey(document.getId())) {
+                        items.add(new BulkItemResultDTO(index, document.getId(), HttpStatus.NOT_FOUND.value(), "Document not found"));
+                        continue;
+                    }
+                    Set<CCP> resolved = resolveCCPS(document, cCPS);
+                    if (resolved == null) {
+                        items.add(new BulkItemResultDTO(index, document.getId(), HttpStatus.BAD_REQUEST.value(), "Unknown CCP"));
+                        continue;
+                    }
+                    boolean created = document.getId() == null;
+                    Set<Long> before = created ? new HashSet<>() : CCPDocumentCountService.idsOf(existing.get(document.getId()).getCCPS());
+                    document.setCCPS(resolved);
+                    Document savedDocument = documentRepository.save(document);
+                    CCPDocumentCountService.addDeltas(countDeltas, before, CCPDocumentCountService.idsOf(resolved));
+                    searchOutboxService.changed(SearchOutboxService.DOCUMENT, savedDocument.getId());
+                    saved.add(savedDocument);
+                    items.add(new BulkItemResultDTO(index, savedDocument.getId(),
+                        created ? HttpStatus.CREATED.value() : HttpStatus.OK.value(), null));
+                }
+                cCPDocumentCountService.apply(countDeltas);
+                documentRepository.flush();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // The cause is only logged, as it may hold SQL or constraint names
+            log.error("Bulk save of Documents {} to {} failed", firstIndex, firstIndex + chunk.size() - 1, e);
+            for (BulkItemResultDTO item : items) {
+                if (item.getError() == null) {
+                    // The id given to a created document was rolled back with it
+                    if (item.getStatus() == HttpStatus.CREATED.value()) {
+                        item.setId(null);
+                    }
+                    item.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                    item.setError(CHUNK_ROLLED_BACK);
+                }
+            }
+            // The documents the chunk did not get to before failing
+            for (int i = items.size(); i < chunk.size(); i++) {
+                items.add(new BulkItemResultDTO(firstIndex + i, chunk.get(i).getId(),
+                    HttpStatus.INTERNAL_SERVER_ERROR.value(), CHUNK_ROLLED_BACK));
+            }
+            items.forEach(result::addItem);
+            return;
+        }
+        saved.forEach(document -> entityTagService.evict(EntityTagService.DOCUMENT_TAGS_CACHE, document.getId()));
+        items.forEach(result::addItem);
+    }
+
+    private Set<CCP> resolveCCPS(Document document, Map<Long, CCP> cCPS) {
+        Set<CCP> resolved = new HashSet<>();
+        if (document.getCCPS() == null) {
+            return resolved;
+        }
+        for (CCP cCP : document.getCCPS()) {
+            CCP reference = cCP != null ? cCPS.get(cCP.getId()) : null;
+            if (reference == null) {
+                return null;
+            }
+            resolved.add(reference);
+        }
+        return resolved;
+    }
+
+    private Map<Long, Document> findExisting(List<Document> chunk) {
+        Set<Long> ids = chunk.stream().map(Document::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return documentRepository.findAllWithEagerRelationshipsByIdIn(ids).stream()
+            .collect(Collectors.toMap(Document::getId, Function.identity()));
+    }
+
+    private Map<Long, CCP> findReferencedCCPS(List<Document> chunk) {
+        Set<Long> ids = chunk.stream()
+            .map(Document::getCCPS)
+            .filter(Objects::nonNull)
+            .flatMap(Set::stream)
+            .filter(Objects::nonNull)
+            .map(CCP::getId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return cCPRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(CCP::getId, Function.identity()));
+    }
+}
@@ -0,0 +1,208 @@
+package com.tothapplication.service;
+
+import com.tothapplication.domain.ContentBlob;
+import com.tothapplication.domain.Document;
+import com.tothapplication.repository.ContentBlobRepository;
+import com.tothapplication.repository.DocumentRepository;
+import com.tothapplication.service.storage.ContentStore;
+import com.tothapplication.service.storage.StagedContent;
+import com.tothapplication.service.storage.StoredContent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Optional;
+
+/**
+ * Service class for the binary content of documents.
+ * <p>
+ * Contents are streamed to and from the {@link ContentStore}; only their key and size are kept on the document.
+ * Uploads are written to the store outside of any transaction, so a slow client never holds a database connection.
+ * <p>
+ * Contents are stored once per digest and shared between documents: each {@link ContentBlob} counts the documents
+ * referencing it, and the {@link ContentGarbageCollector} deletes it once that count drops to zero.
+ */
+@Service
+public class DocumentContentService {
+
+    private final Logger log = LoggerFactory.getLogger(DocumentContentService.class);
+
+    private final DocumentRepository documentRepository;
+
+    private final ContentBlobRepository contentBlobRepository;
+
+    private final ContentStore contentStore;
+
+    private final ContentGarbageCollector contentGarbageCollector;
+
+    private final EntityTagService entityTagService;
+
+    private final SearchOutboxService searchOutboxService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public DocumentContentService(DocumentRepository documentRepository, ContentBlobRepository contentBlobRepository,
+                                  ContentStore contentStore, ContentGarbageCollector contentGarbageCollector,
+                                  EntityTagService entityTagService, SearchOutboxService searchOutboxService,
+                                  PlatformTransactionManager transactionManager) {
+        this.documentRepository = documentRepository;
+        this.contentBlobRepository = contentBlobRepository;
+        this.contentStore = contentStore;
+        this.contentGarbageCollector = contentGarbageCollector;
+        this.entityTagService = entityTagService;
+        this.searchOutboxService = searchOutboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Store the content of a document, replacing its previous content.
+     * <p>
+     * When the same content is already stored, the upload is not written again and the document references the
+     * existing copy.
+     *
+     * @param id the id of the document.
+     * @param content the content, read until its end.
+     * @param mimeType the MIME type of the content, or {@code null} to keep the MIME type of the document.
+     * @return the updated document, or an empty {@link Optional} if there is no such document.
+     * @throws IOException if the content could not be stored.
+     */
+    public Optional<Document> saveContent(Long id, InputStream content, String mimeType) throws IOException {
+        if (!documentRepository.existsById(id)) {
+            return Optional.empty();
+        }
+        ContentUpdate update;
+        try (StagedContent staged = contentStore.stage(content)) {
+            try {
+                update = updateContent(id, staged, mimeType);
+            } catch (DataIntegrityViolationException e) {
+                // The same content was uploaded concurrently and its blob inserted first: it now exists
+                update = updateContent(id, staged, mimeType);
+            }
+        }
+        if (update.released) {
+            contentGarbageCollector.collectGarbageAsync();
+        }
+        if (!update.found) {
+            return Optional.empty();
+        }
+        entityTagService.evict(EntityTagService.DOCUMENT_TAGS_CACHE, id);
+        return documentRepository.findOneWithEagerRelationships(id);
+    }
+
+    private ContentUpdate updateContent(Long id, StagedContent staged, String mimeType) {
+        return transactionTemplate.execute(status -> {
+            Optional<Document> document = documentRepository.findById(id);
+            if (!document.isPresent()) {
+                // The document was deleted while its content was being uploaded: the upload is dropped
+                return new ContentUpdate(false, false);
+            }
+            String previousKey = document.get().getContentKey();
+            searchOutboxService.changed(SearchOutboxService.DOCUMENT, id);
+            if (staged.getKey().equals(previousKey)) {
+                documentRepository.updateContent(id, previousKey, staged.getSize(),
+                    mimeType != null ? mimeType : document.get().getMimeType());
+                return new ContentUpdate(true, false);
+            }
+            acquire(staged);
+            documentRepository.updateContent(id, staged.getKey(), staged.getSize(),
+                mimeType != null ? mimeType : document.get().getMimeType());
+            return new ContentUpdate(true, previousKey != null && release(previousKey));
+        });
+    }
+
+    /**
+     * Add a reference to a staged content, registering and storing it if needed.
+     * <p>
+     * The content is stored while the row of its blob is locked, which the {@link ContentGarbageCollector} also locks
+     * to delete it: a content collected since the upload started is simply stored again.
+     */
+    private void acquire(StagedContent staged) {
+        ContentBlob blob = contentBlobRepository.findOneForUpdate(staged.getKey())
+            .orElseGet(() -> contentBlobRepository.saveAndFlush(new ContentBlob()
+                .digest(staged.getKey())
+                .size(staged.getSize())
+                .refCount(0)));
+        try {
+            StoredContent stored = contentStore.store(staged);
+            log.debug("Stored content {}", stored);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        blob.setRefCount(blob.getRefCount() + 1);
+    }
+
+    /**
+     * Remove a reference to a stored content.
+     *
+     * @return whether the content is not referenced anymore.
+     */
+    private boolean release(String key) {
+        return contentBlobRepository.findOneForUpdate(key)
+            .map(blob -> {
+                blob.setRefCount(Math.max(blob.getRefCount() - 1, 0));
+                return blob.getRefCount() == 0;
+            })
+            .orElse(false);
+    }
+
+    /**
+     * Open the content of a document for reading.
+     *
+     * @param document the document.
+     * @return a channel on the content, to be closed by the caller, or an empty {@link Optional} if the document
+     * has no content.
+     * @throws IOException if the content could not be opened.
+     */
+    public Optional<SeekableByteChannel> openContent(Document document) throws IOException {
+        if (document.getContentKey() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(contentStore.open(document.getContentKey()));
+    }
+
+    /**
+     * Release the content of a deleted document, and collect it in the background if no other document references it.
+     * <p>
+     * The reference is released in the current transaction, if any, so that it is only released if the document is
+     * deleted; the content is then collected after the commit.
+     *
+     * @param key the key of the content, may be {@code null}.
+     */
+    public void releaseContent(String key) {
+        if (key == null || !transactionTemplate.execute(status -> release(key))) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    contentGarbageCollector.collectGarbageAsync();
+                }
+            });
+        } else {
+            contentGarbageCollector.collectGarbageAsync();
+        }
+    }
+
+    private static final class ContentUpdate {
+
+        private final boolean found;
+
+        private final boolean released;
+
+        private ContentUpdate(boolean found, boolean released) {
+            this.found = found;
+            this.released = released;
+        }
+    }
+}
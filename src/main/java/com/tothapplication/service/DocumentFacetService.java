@@ -0,0 +1,99 @@
+package com.tothapplication.service;
+
+import com.tothapplication.domain.Document;
+import com.tothapplication.domain.enumeration.TypeDocument;
+import com.tothapplication.service.dto.DocumentFacetsDTO;
+import com.tothapplication.service.search.SearchBackend;
+import com.tothapplication.service.search.TermCounts;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+
+/**
+ * Service class computing the facet counts of documents.
+ * <p>
+ * When the {@link SearchBackend} aggregates, as Elasticsearch does with one {@code size=0} request holding a terms
+ * aggregation per facet, the facets are computed by the backend. Otherwise the backend only finds the ids of the
+ * documents matching the query, and their facets are counted from the bitmaps of the
+ * {@link DocumentMembershipService}, which also count the facets of all the documents when there is no query, or
+ * when the backend is unavailable.
+ */
+@Service
+public class DocumentFacetService {
+
+    /**
+     * Maximum number of CCPs returned in the CCP facet.
+     */
+    public static final int MAX_CCP_BUCKETS = 10000;
+
+    /**
+     * Maximum number of documents matching a query whose facets are counted, when the backend does not aggregate.
+     */
+    public static final int MAX_COUNTED_HITS = 1000000;
+
+    private static final String TYPE_DOC_FIELD = "typeDoc.keyword";
+
+    private static final String CCPS_FIELD = "ccps.id";
+
+    private final Logger log = LoggerFactory.getLogger(DocumentFacetService.class);
+
+    private final SearchBackend searchBackend;
+
+    private final DocumentMembershipService documentMembershipService;
+
+    public DocumentFacetService(SearchBackend searchBackend, DocumentMembershipService documentMembershipService) {
+        this.searchBackend = searchBackend;
+        this.documentMembershipService = documentMembershipService;
+    }
+
+    /**
+     * Get the facet counts of the documents matching a search query.
+     *
+     * @param query the search query, or {@code null} for all the documents.
+     * @return the facets, or an empty {@link Optional} if they cannot be computed because the search backend is
+     * unavailable and a query is given.
+     * @throws IllegalArgumentException if the query is invalid.
+     */
+    public Optional<DocumentFacetsDTO> getFacets(String query) {
+        boolean filtered = query != null && !query.trim().isEmpty();
+        log.debug("Request to get the facets of Documents for query {}", query);
+        QueryBuilder queryBuilder = filtered ? queryStringQuery(query) : matchAllQuery();
+        try {
+            Map<String, Integer> fields = new LinkedHashMap<>();
+            fields.put(TYPE_DOC_FIELD, TypeDocument.values().length);
+            fields.put(CCPS_FIELD, MAX_CCP_BUCKETS);
+            Optional<TermCounts> counts = searchBackend.countTerms(Document.class, queryBuilder, fields);
+            if (counts.isPresent()) {
+                return Optional.of(toFacets(counts.get()));
+            }
+            if (filtered) {
+                return Optional.of(documentMembershipService.getFacets(
+                    searchBackend.searchIds(Document.class, queryBuilder, MAX_COUNTED_HITS)));
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.warn("Could not compute the facets of Documents with the search backend: {}", e.getMessage());
+            if (filtered) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(documentMembershipService.getFacets(null));
+    }
+
+    private static DocumentFacetsDTO toFacets(TermCounts counts) {
+        DocumentFacetsDTO facets = new DocumentFacetsDTO();
+        facets.setTotal(counts.getTotal());
+        facets.getTypeDoc().putAll(counts.get(TYPE_DOC_FIELD));
+        counts.get(CCPS_FIELD).forEach((cCPId, count) -> facets.getCcps().put(Long.valueOf(cCPId), count));
+        return facets;
+    }
+}
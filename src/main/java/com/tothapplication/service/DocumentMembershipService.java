@@ -0,0 +1,691 @@
+package com.tothapplication.service;
+
+import com.tothapplication.config.ApplicationProperties;
+import com.tothapplication.domain.enumeration.TypeDocument;
+import com.tothapplication.repository.DocumentRepository;
+import com.tothapplication.service.dto.DocumentFacetsDTO;
+import com.tothapplication.service.dto.DocumentMembershipDTO;
+import com.tothapplication.service.dto.DocumentMembershipQueryDTO;
+import com.tothapplication.service.dto.DocumentSummaryDTO;
+import com.tothapplication.service.dto.RelatedDocumentDTO;
+import com.tothapplication.service.util.CoalescingReloader;
+import com.tothapplication.service.util.CompressedBitmap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service class answering boolean queries on the CCPs and types of documents, with counts and facets.
+ * <p>
+ * The ids of the documents are held in memory in {@link CompressedBitmap}s, one per CCP and one per type, so that
+ * a query is a few intersections and differences of bitmaps rather than joins on {@code document_ccp}, and a facet
+ * count is the cardinality of an intersection.
+ * <p>
+ * The bitmaps are kept in sync with the changes recorded in the search outbox: the memberships of the changed
+ * documents, and of the documents of the deleted CCPs, are reloaded in the background once their transaction is
+ * committed, by a {@link CoalescingReloader}. They are also rebuilt from the database at startup and periodically,
+ * to catch up with the changes committed by the other instances.
+ * <p>
+ * The documents related to each document, the ones sharing the most CCPs with it, are also held in memory, at most
+ * {@code application.search.membership.related-size} of them. They are updated along with the bitmaps: when the CCPs
+ * of a document change, its shared CCP counts with the documents of its previous and current CCPs are recounted from
+ * the bitmaps, and the related documents of those whose count changed are patched, so that a lookup only reads a
+ * precomputed list. A rebuild builds the bitmaps and related documents of all the documents aside, with counts in
+ * primitive arrays, and swaps them in at once. The CCPs of more than
+ * {@code application.search.membership.related-max-ccp-size} documents are left out of the shared CCP counts, which
+ * would otherwise grow with the square of their size: when a CCP crosses that size, the related documents of its
+ * documents are only recounted by the next rebuild.
+ */
+@Service
+public class DocumentMembershipService {
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private static final long[] NO_CCP_IDS = new long[0];
+
+    private final Logger log = LoggerFactory.getLogger(DocumentMembershipService.class);
+
+    private final DocumentRepository documentRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CoalescingReloader reloader;
+
+    private final int relatedSize;
+
+    private final int relatedMaxCCPSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // The fields below are guarded by lock, and replaced as a whole by a rebuild
+
+    private Map<Long, Membership> memberships = new HashMap<>();
+
+    private CompressedBitmap all = new CompressedBitmap();
+
+    private Map<TypeDocument, CompressedBitmap> byTypeDoc = new EnumMap<>(TypeDocument.class);
+
+    private Map<Long, CompressedBitmap> byCCP = new HashMap<>();
+
+    private Map<Integer, Neighbours> related = new HashMap<>();
+
+    /**
+     * The documents changed since the start of the running rebuild, {@code null} when not rebuilding.
+     */
+    private Set<Long> changedDuringRebuild;
+
+    private boolean rebuilding;
+
+    public DocumentMembershipService(DocumentRepository documentRepository, PlatformTransactionManager transactionManager,
+                                     @Qualifier("taskExecutor") Executor taskExecutor,
+                                     ApplicationProperties applicationProperties) {
+        this.documentRepository = documentRepository;
+        this.reloader = new CoalescingReloader("document memberships", taskExecutor, this::reload);
+        this.relatedSize = applicationProperties.getSearch().getMembership().getRelatedSize();
+        this.relatedMaxCCPSize = applicationProperties.getSearch().getMembership().getRelatedMaxCcpSize();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Find the documents matching a query.
+     *
+     * @param query the query.
+     * @param pageable the requested page of ids, sorted by ascending id.
+     * @return a page of the ids of the matching documents, and the facet counts of all of them, the CCPs and types
+     * being sorted by descending count.
+     * @throws IllegalArgumentException if the page size is greater than {@link SearchService#MAX_PAGE_SIZE}.
+     */
+    public DocumentMembershipDTO query(DocumentMembershipQueryDTO query, Pageable pageable) {
+        if (pageable.getPageSize() > SearchService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must not be greater than " + SearchService.MAX_PAGE_SIZE);
+        }
+        lock.readLock().lock();
+        try {
+            CompressedBitmap matches = all;
+            for (Long cCPId : query.getAllCcpIds()) {
+                matches = matches.and(byCCP.getOrDefault(cCPId, new CompressedBitmap()));
+            }
+            if (!query.getAnyCcpIds().isEmpty()) {
+                matches = matches.and(union(query.getAnyCcpIds().stream().map(byCCP::get)
+                    .filter(Objects::nonNull).toArray(CompressedBitmap[]::new)));
+            }
+            for (Long cCPId : query.getNotCcpIds()) {
+                CompressedBitmap bitmap = byCCP.get(cCPId);
+                if (bitmap != null) {
+                    matches = matches.andNot(bitmap);
+                }
+            }
+            if (!query.getTypeDoc().isEmpty()) {
+                matches = matches.and(union(query.getTypeDoc().stream().map(byTypeDoc::get)
+                    .filter(Objects::nonNull).toArray(CompressedBitmap[]::new)));
+            }
+            for (TypeDocument typeDoc : query.getNotTypeDoc()) {
+                CompressedBitmap bitmap = byTypeDoc.get(typeDoc);
+                if (bitmap != null) {
+                    matches = matches.andNot(bitmap);
+                }
+            }
+
+            DocumentMembershipDTO result = new DocumentMembershipDTO();
+            for (int id : matches.select(pageable.getOffset(), pageable.getPageSize())) {
+                result.getIds().add((long) id);
+            }
+            result.setFacets(facets(matches));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the facet counts of some documents.
+     *
+     * @param ids the ids of the documents, or {@code null} for all the documents.
+     * @return the facet counts of those of the documents that are known, the CCPs and types being sorted by
+     * descending count.
+     */
+    public DocumentFacetsDTO getFacets(long[] ids) {
+        CompressedBitmap documents = null;
+        if (ids != null) {
+            long[] sorted = ids.clone();
+            Arrays.sort(sorted);
+            documents = new CompressedBitmap();
+            for (long id : sorted) {
+                if (id >= 0 && id <= Integer.MAX_VALUE) {
+                    documents.add((int) id);
+                }
+            }
+        }
+        lock.readLock().lock();
+        try {
+            return facets(documents != null ? documents.and(all) : all);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private DocumentFacetsDTO facets(CompressedBitmap matches) {
+        DocumentFacetsDTO facets = new DocumentFacetsDTO();
+        facets.setTotal(matches.cardinality());
+        Map<TypeDocument, Long> typeDocCounts = counts(matches, byTypeDoc);
+        typeDocCounts.forEach((typeDoc, count) -> facets.getTypeDoc().put(typeDoc.name(), count));
+        facets.setCcps(counts(matches, byCCP));
+        return facets;
+    }
+
+    /**
+     * Find the documents related to a document, the ones sharing the most CCPs with it.
+     *
+     * @param id the id of the document.
+     * @return the related documents, by descending number of shared CCPs then ascending id, or an empty
+     * {@link Optional} if the document is unknown.
+     */
+    public Optional<List<RelatedDocumentDTO>> findRelated(Long id) {
+        int[] ids;
+        int[] shared;
+        lock.readLock().lock();
+        try {
+            if (!memberships.containsKey(id)) {
+                return Optional.empty();
+            }
+            Neighbours neighbours = related.get(id.intValue());
+            if (neighbours == null) {
+                return Optional.of(Collections.emptyList());
+            }
+            ids = Arrays.copyOf(neighbours.ids, neighbours.size);
+            shared = Arrays.copyOf(neighbours.shared, neighbours.size);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (ids.length == 0) {
+            return Optional.of(Collections.emptyList());
+        }
+        List<Long> relatedIds = Arrays.stream(ids).mapToObj(relatedId -> (long) relatedId).collect(Collectors.toList());
+        Map<Long, DocumentSummaryDTO> documents = transactionTemplate.execute(status ->
+            documentRepository.findSummariesByIdIn(relatedIds).stream()
+                .collect(Collectors.toMap(DocumentSummaryDTO::getId, Function.identity())));
+        List<RelatedDocumentDTO> result = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            // A document deleted since the last update of the related documents is skipped
+            DocumentSummaryDTO document = documents.get((long) ids[i]);
+            if (document != null) {
+                result.add(new RelatedDocumentDTO(document, shared[i]));
+            }
+        }
+        return Optional.of(result);
+    }
+
+    private static CompressedBitmap union(CompressedBitmap[] bitmaps) {
+        CompressedBitmap union = new CompressedBitmap();
+        for (CompressedBitmap bitmap : bitmaps) {
+            union = union.or(bitmap);
+        }
+        return union;
+    }
+
+    private static <K extends Comparable<K>> Map<K, Long> counts(CompressedBitmap matches, Map<K, CompressedBitmap> bitmaps) {
+        List<Map.Entry<K, Long>> counts = new ArrayList<>();
+        bitmaps.forEach((key, bitmap) -> {
+            long count = matches.andCardinality(bitmap);
+            if (count > 0) {
+                counts.add(new AbstractMap.SimpleImmutableEntry<>(key, count));
+            }
+        });
+        counts.sort(Map.Entry.<K, Long>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+        Map<K, Long> sorted = new LinkedHashMap<>();
+        counts.forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    /**
+     * Record that a document was created, updated or deleted, or a CCP deleted, in the current transaction. The
+     * memberships of the document, or of the documents of the CCP, are reloaded in the background once the
+     * transaction is committed. Other entities are ignored.
+     * <p>
+     * The links between documents and CCPs are owned by the documents: saving a CCP never changes its documents.
+     *
+     * @param entityType the type of the entity, one of the types of {@link SearchOutboxService}.
+     * @param entityId the id of the entity.
+     */
+    public void changed(String entityType, Long entityId) {
+        if (SearchOutboxService.DOCUMENT.equals(entityType) || SearchOutboxService.CCP.equals(entityType)) {
+            reloader.changed(entityType, entityId);
+        }
+    }
+
+    /**
+     * Check whether the changes committed on this instance were all applied to the bitmaps.
+     *
+     * @return whether no reload is pending.
+     */
+    public boolean isUpToDate() {
+        return reloader.isIdle();
+    }
+
+    /**
+     * Rebuild the bitmaps from the database.
+     * <p>
+     * This is scheduled to run at startup, then every {@code application.search.membership.refresh-interval}
+     * milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${application.search.membership.refresh-interval:300000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                return;
+            }
+            rebuilding = true;
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Map<Long, Membership> loaded = transactionTemplate.execute(status ->
+                toMemberships(documentRepository.findAllSummaries(), documentRepository.findAllCCPIds()));
+            Graph graph = build(loaded);
+            lock.writeLock().lock();
+            try {
+                Map<Long, Membership> current = memberships;
+                memberships = graph.memberships;
+                all = graph.all;
+                byTypeDoc = graph.byTypeDoc;
+                byCCP = graph.byCCP;
+                related = graph.related;
+                // The documents changed meanwhile were reloaded after the load above, so they are carried over
+                for (Long id : changedDuringRebuild) {
+                    Membership membership = current.get(id);
+                    if (membership == null) {
+                        remove(id);
+                    } else {
+                        put(id, membership);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Rebuilt the memberships of {} documents", loaded.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild the document memberships: {}", e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void reload(Map<String, Set<Long>> entityIds) {
+        Set<Long> documentIds = new HashSet<>(entityIds.getOrDefault(SearchOutboxService.DOCUMENT, Collections.emptySet()));
+        Set<Long> cCPIds = entityIds.getOrDefault(SearchOutboxService.CCP, Collections.emptySet());
+        lock.readLock().lock();
+        try {
+            // The documents the CCPs had, in case they were unlinked or the CCPs deleted
+            for (Long cCPId : cCPIds) {
+                CompressedBitmap bitmap = byCCP.get(cCPId);
+                if (bitmap != null) {
+                    bitmap.forEach(id -> documentIds.add((long) id));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<Long, Membership> loaded = transactionTemplate.execute(status -> {
+            cCPIds.forEach(cCPId -> documentIds.addAll(documentRepository.findIdsByCCPId(cCPId)));
+            Map<Long, Membership> result = new HashMap<>();
+            List<Long> ids = new ArrayList<>(documentIds);
+            for (int from = 0; from < ids.size(); from += LOAD_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + LOAD_CHUNK_SIZE, ids.size()));
+                result.putAll(toMemberships(documentRepository.findSummariesByIdIn(chunk), documentRepository.findCCPIdsByIdIn(chunk)));
+            }
+            return result;
+        });
+        lock.writeLock().lock();
+        try {
+            for (Long id : documentIds) {
+                Membership membership = loaded.get(id);
+                if (membership == null) {
+                    remove(id);
+                } else {
+                    put(id, membership);
+                }
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.add(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Build the bitmaps and related documents of some documents, without touching the ones in use.
+     */
+    private Graph build(Map<Long, Membership> loaded) {
+        Graph graph = new Graph();
+        int[] documents = loaded.keySet().stream().filter(id -> {
+            if (id < 0 || id > Integer.MAX_VALUE) {
+                log.warn("Document {} cannot be held in the membership bitmaps", id);
+                return false;
+            }
+            return true;
+        }).mapToInt(Long::intValue).sorted().toArray();
+        // Added by ascending id, so that each bitmap is appended to
+        for (int document : documents) {
+            Membership membership = loaded.get((long) document);
+            graph.memberships.put((long) document, membership);
+            graph.all.add(document);
+            if (membership.typeDoc != null) {
+                graph.byTypeDoc.computeIfAbsent(membership.typeDoc, typeDoc -> new CompressedBitmap()).add(document);
+            }
+            for (long cCPId : membership.cCPIds) {
+                graph.byCCP.computeIfAbsent(cCPId, key -> new CompressedBitmap()).add(document);
+            }
+        }
+
+        // The positions of the documents of each CCP in documents, for the CCPs counted as shared
+        Map<Long, int[]> positions = new HashMap<>();
+        graph.byCCP.forEach((cCPId, bitmap) -> {
+            if (bitmap.cardinality() > 1 && bitmap.cardinality() <= relatedMaxCCPSize) {
+                int[] members = bitmap.toArray();
+                for (int i = 0; i < members.length; i++) {
+                    members[i] = Arrays.binarySearch(documents, members[i]);
+                }
+                positions.put(cCPId, members);
+            }
+        });
+        int[] counts = new int[documents.length];
+        int[] counted = new int[documents.length];
+        for (int position = 0; position < documents.length; position++) {
+            long[] cCPIds = graph.memberships.get((long) documents[position]).cCPIds;
+            if (cCPIds.length == 0) {
+                continue;
+            }
+            int size = 0;
+            for (long cCPId : cCPIds) {
+                int[] members = positions.get(cCPId);
+                if (members != null) {
+                    for (int other : members) {
+                        if (other != position && counts[other]++ == 0) {
+                            counted[size++] = other;
+                        }
+                    }
+                }
+            }
+            Neighbours neighbours = new Neighbours(relatedSize);
+            for (int i = 0; i < size; i++) {
+                neighbours.offer(documents[counted[i]], counts[counted[i]]);
+                counts[counted[i]] = 0;
+            }
+            graph.related.put(documents[position], neighbours);
+        }
+        return graph;
+    }
+
+    private static Map<Long, Membership> toMemberships(List<DocumentSummaryDTO> documents, List<Object[]> cCPIds) {
+        Map<Long, Set<Long>> cCPIdsByDocument = new HashMap<>();
+        for (Object[] row : cCPIds) {
+            cCPIdsByDocument.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((Long) row[1]);
+        }
+        Map<Long, Membership> result = new HashMap<>();
+        for (DocumentSummaryDTO document : documents) {
+            result.put(document.getId(), new Membership(document.getTypeDoc(),
+                cCPIdsByDocument.getOrDefault(document.getId(), Collections.emptySet())));
+        }
+        return result;
+    }
+
+    private void put(Long id, Membership membership) {
+        Membership previous = memberships.get(id);
+        if (membership.equals(previous)) {
+            return;
+        }
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            log.warn("Document {} cannot be held in the membership bitmaps", id);
+            return;
+        }
+        int value = id.intValue();
+        if (previous != null) {
+            unlink(value, previous);
+        }
+        memberships.put(id, membership);
+        all.add(value);
+        if (membership.typeDoc != null) {
+            byTypeDoc.computeIfAbsent(membership.typeDoc, typeDoc -> new CompressedBitmap()).add(value);
+        }
+        for (long cCPId : membership.cCPIds) {
+            byCCP.computeIfAbsent(cCPId, key -> new CompressedBitmap()).add(value);
+        }
+        long[] previousCCPIds = previous != null ? previous.cCPIds : NO_CCP_IDS;
+        if (!Arrays.equals(previousCCPIds, membership.cCPIds)) {
+            relate(value, previousCCPIds, membership.cCPIds);
+        }
+    }
+
+    private void remove(Long id) {
+        Membership membership = memberships.remove(id);
+        if (membership == null) {
+            return;
+        }
+        int value = id.intValue();
+        unlink(value, membership);
+        relate(value, membership.cCPIds, NO_CCP_IDS);
+    }
+
+    private void unlink(int value, Membership membership) {
+        all.remove(value);
+        if (membership.typeDoc != null) {
+            removeFrom(byTypeDoc, membership.typeDoc, value);
+        }
+        for (long cCPId : membership.cCPIds) {
+            removeFrom(byCCP, cCPId, value);
+        }
+    }
+
+    /**
+     * Update the related documents after the CCPs of a document changed in the bitmaps.
+     *
+     * @param document the document.
+     * @param previous the previous CCPs of the document.
+     * @param current the current CCPs of the document, empty if it was removed.
+     */
+    private void relate(int document, long[] previous, long[] current) {
+        Map<Integer, Integer> before = sharedCounts(document, previous);
+        Map<Integer, Integer> after = sharedCounts(document, current);
+        if (current.length == 0) {
+            related.remove(document);
+        } else {
+            related.put(document, Neighbours.of(after, relatedSize));
+        }
+        Set<Integer> others = new HashSet<>(before.keySet());
+        others.addAll(after.keySet());
+        for (Integer other : others) {
+            int countBefore = before.getOrDefault(other, 0);
+            int countAfter = after.getOrDefault(other, 0);
+            if (countBefore == countAfter) {
+                continue;
+            }
+            Neighbours neighbours = related.computeIfAbsent(other, key -> new Neighbours(relatedSize));
+            boolean full = neighbours.size == relatedSize;
+            boolean wasRelated = neighbours.remove(document);
+            if (wasRelated && full && countAfter < countBefore) {
+                // A document left out of a full list may now rank before this one: recount them all
+                related.put(other, Neighbours.of(sharedCounts(other, memberships.get((long) other).cCPIds), relatedSize));
+            } else if (countAfter > 0) {
+                neighbours.offer(document, countAfter);
+            }
+        }
+    }
+
+    /**
+     * Count the CCPs shared with a document by the other documents of some CCPs, leaving out the CCPs of more than
+     * {@code relatedMaxCCPSize} documents.
+     *
+     * @return the number of those CCPs each document belongs to, by document.
+     */
+    private Map<Integer, Integer> sharedCounts(int document, long[] cCPIds) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (long cCPId : cCPIds) {
+            CompressedBitmap bitmap = byCCP.get(cCPId);
+            if (bitmap != null && bitmap.cardinality() <= relatedMaxCCPSize) {
+                bitmap.forEach(other -> {
+                    if (other != document) {
+                        counts.merge(other, 1, Integer::sum);
+                    }
+                });
+            }
+        }
+        return counts;
+    }
+
+    private static <K> void removeFrom(Map<K, CompressedBitmap> bitmaps, K key, int value) {
+        CompressedBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(value);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    /**
+     * The bitmaps and related documents built by a rebuild.
+     */
+    private static final class Graph {
+
+        private final Map<Long, Membership> memberships = new HashMap<>();
+
+        private final CompressedBitmap all = new CompressedBitmap();
+
+        private final Map<TypeDocument, CompressedBitmap> byTypeDoc = new EnumMap<>(TypeDocument.class);
+
+        private final Map<Long, CompressedBitmap> byCCP = new HashMap<>();
+
+        private final Map<Integer, Neighbours> related = new HashMap<>();
+    }
+
+    /**
+     * The type and CCPs of a document.
+     */
+    private static final class Membership {
+
+        private final TypeDocument typeDoc;
+
+        private final long[] cCPIds;
+
+        private Membership(TypeDocument typeDoc, Collection<Long> cCPIds) {
+            this.typeDoc = typeDoc;
+            this.cCPIds = cCPIds.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Membership)) {
+                return false;
+            }
+            Membership other = (Membership) o;
+            return typeDoc == other.typeDoc && Arrays.equals(cCPIds, other.cCPIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(typeDoc) + Arrays.hashCode(cCPIds);
+        }
+    }
+
+    /**
+     * The documents related to a document, by descending number of shared CCPs then ascending id, in primitive
+     * arrays of a fixed capacity.
+     */
+    private static final class Neighbours {
+
+        private final int[] ids;
+
+        private final int[] shared;
+
+        private int size;
+
+        private Neighbours(int capacity) {
+            this.ids = new int[capacity];
+            this.shared = new int[capacity];
+        }
+
+        private static Neighbours of(Map<Integer, Integer> counts, int capacity) {
+            Neighbours neighbours = new Neighbours(capacity);
+            counts.forEach(neighbours::offer);
+            return neighbours;
+        }
+
+        /**
+         * Insert a document at its rank, if it ranks before the last one or there is room left.
+         */
+        private void offer(int id, int count) {
+            int position = size;
+            while (position > 0 && (shared[position - 1] < count || (shared[position - 1] == count && ids[position - 1] > id))) {
+                position--;
+            }
+            if (position == ids.length) {
+                return;
+            }
+            int moved = Math.min(size, ids.length - 1) - position;
+            System.arraycopy(ids, position, ids, position + 1, moved);
+            System.arraycopy(shared, position, shared, position + 1, moved);
+            ids[position] = id;
+            shared[position] = count;
+            size = Math.min(size + 1, ids.length);
+        }
+
+        /**
+         * Remove a document.
+         *
+         * @return whether it was there.
+         */
+        private boolean remove(int id) {
+            for (int position = 0; position < size; position++) {
+                if (ids[position] == id) {
+                    System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                    System.arraycopy(shared, position + 1, shared, position, size - position - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
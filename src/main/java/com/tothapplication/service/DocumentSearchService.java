@@ -0,0 +1,76 @@
+package com.tothapplication.service;
+
+import com.tothapplication.domain.Document;
+import com.tothapplication.domain.enumeration.TypeDocument;
+import com.tothapplication.service.dto.DocumentSearchDTO;
+import com.tothapplication.service.dto.SearchPage;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.stream.Collectors;
+
+import static org.elasticsearch.index.query.QueryBuilders.*;
+
+/**
+ * Service class for the structured search of documents.
+ * <p>
+ * A structured search is translated into a {@code bool} query whose exact criteria (types, CCP ids or titles, MIME
+ * type prefix) are {@code filter} clauses: they are not scored, and Elasticsearch caches their matching documents per
+ * segment, so they are reused by the next searches with the same criteria. Only the title is scored.
+ */
+@Service
+public class DocumentSearchService {
+
+    private final Logger log = LoggerFactory.getLogger(DocumentSearchService.class);
+
+    private final SearchService searchService;
+
+    public DocumentSearchService(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    /**
+     * Search for a page of documents matching a structured search.
+     *
+     * @param search the criteria of the search.
+     * @param pageable the requested page.
+     * @param cursor the cursor of the previous page, or {@code null} to read the page by number.
+     * @return the page of documents.
+     * @throws IllegalArgumentException if the page size, page number or cursor is invalid.
+     * @throws IOException if Elasticsearch could not be queried.
+     * @see SearchService#search(Class, QueryBuilder, Pageable, String)
+     */
+    public SearchPage<Document> search(DocumentSearchDTO search, Pageable pageable, String cursor) throws IOException {
+        log.debug("Request to search for a page of Documents : {}", search);
+        return searchService.search(Document.class, toQuery(search), pageable, cursor);
+    }
+
+    private static QueryBuilder toQuery(DocumentSearchDTO search) {
+        BoolQueryBuilder query = boolQuery();
+        if (search.getTitle() != null && !search.getTitle().trim().isEmpty()) {
+            query.must(matchQuery("title", search.getTitle()).operator(Operator.AND));
+        }
+        if (search.getTypeDoc() != null && !search.getTypeDoc().isEmpty()) {
+            query.filter(termsQuery("typeDoc.keyword",
+                search.getTypeDoc().stream().map(TypeDocument::name).collect(Collectors.toList())));
+        }
+        if (search.getCcpIds() != null && !search.getCcpIds().isEmpty()) {
+            query.filter(termsQuery("ccps.id", search.getCcpIds()));
+        }
+        if (search.getCcpTitles() != null && !search.getCcpTitles().isEmpty()) {
+            // The indexed documents carry a copy of their CCPs, kept up to date by the SearchIndexerService
+            query.filter(termsQuery("ccps.title.keyword", search.getCcpTitles()));
+        }
+        if (search.getMimeTypePrefix() != null && !search.getMimeTypePrefix().isEmpty()) {
+            query.filter(prefixQuery("mimeType.keyword", search.getMimeTypePrefix()));
+        }
+        return query;
+    }
+}
@@ -0,0 +1,339 @@
+package com.tothapplication.service;
+
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.repository.CCPRepository;
+import com.tothapplication.repository.DocumentCCPLinkRepository;
+import com.tothapplication.repository.DocumentRepository;
+import com.tothapplication.service.dto.DocumentSummaryDTO;
+import com.tothapplication.service.dto.KeysetSlice;
+import com.tothapplication.service.util.KeysetCursor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for managing documents.
+ */
+@Service
+@Transactional
+public class DocumentService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(DocumentService.class);
+
+    private final DocumentRepository documentRepository;
+
+    private final CCPDocumentCountService cCPDocumentCountService;
+
+    private final SearchOutboxService searchOutboxService;
+
+    private final CCPRepository cCPRepository;
+
+    private final DocumentCCPLinkRepository documentCCPLinkRepository;
+
+    private final EntityManager entityManager;
+
+    private final DocumentContentService documentContentService;
+
+    public DocumentService(DocumentRepository documentRepository, CCPDocumentCountService cCPDocumentCountService,
+                           SearchOutboxService searchOutboxService, CCPRepository cCPRepository,
+                           DocumentCCPLinkRepository documentCCPLinkRepository, EntityManager entityManager,
+                           DocumentContentService documentContentService) {
+        this.documentRepository = documentRepository;
+        this.cCPDocumentCountService = cCPDocumentCountService;
+        this.searchOutboxService = searchOutboxService;
+        this.cCPRepository = cCPRepository;
+        this.documentCCPLinkRepository = documentCCPLinkRepository;
+        this.entityManager = entityManager;
+        this.documentContentService = documentContentService;
+    }
+
+    /**
+     * Save a document.
+     *
+     * @param document the entity to save.
+     * @return the persisted entity.
+     */
+    public Document save(Document document) {
+        log.debug("Request to save Document : {}", document);
+        Set<Long> before = document.getId() != null ? findCCPIds(document.getId()) : new HashSet<>();
+        Document result = documentRepository.save(document);
+        cCPDocumentCountService.update(before, CCPDocumentCountService.idsOf(result.getCCPS()));
+        searchOutboxService.changed(SearchOutboxService.DOCUMENT, result.getId());
+        return result;
+    }
+
+    /**
+     * Delete the document by id.
+     *
+     * @param id the id of the entity.
+     */
+    public void delete(Long id) {
+        log.debug("Request to delete Document : {}", id);
+        Set<Long> before = findCCPIds(id);
+        Optional<String> contentKey = documentRepository.findById(id).map(Document::getContentKey);
+        documentRepository.deleteById(id);
+        cCPDocumentCountService.update(before, new HashSet<>());
+        // Released with the deletion, so that a failed deletion keeps its reference
+        contentKey.ifPresent(documentContentService::releaseContent);
+        searchOutboxService.changed(SearchOutboxService.DOCUMENT, id);
+    }
+
+    /**
+     * Link a document to a CCP.
+     * <p>
+     * The link is written straight to {@code document_ccp}, so neither the CCPs of the document nor the documents of
+     * the CCP are loaded, and only their cached collections are evicted. Linking documents already linked does
+     * nothing.
+     *
+     * @param id the id of the document.
+     * @param cCPId the id of the CCP.
+     * @return whether the document and the CCP exist.
+     */
+    public boolean linkCCP(Long id, Long cCPId) {
+        log.debug("Request to link Document {} to CCP {}", id, cCPId);
+        if (!documentRepository.existsById(id) || !cCPRepository.existsById(cCPId)) {
+            return false;
+        }
+        documentRepository.flush();
+        if (documentCCPLinkRepository.insert(id, cCPId)) {
+            linksChanged(id, cCPId);
+            cCPDocumentCountService.update(Collections.emptySet(), Collections.singleton(cCPId));
+        }
+        return true;
+    }
+
+    /**
+     * Unlink a document from a CCP.
+     *
+     * @param id the id of the document.
+     * @param cCPId the id of the CCP.
+     * @return whether the document and the CCP exist.
+     * @see #linkCCP(Long, Long)
+     */
+    public boolean unlinkCCP(Long id, Long cCPId) {
+        log.debug("Request to unlink Document {} from CCP {}", id, cCPId);
+        if (!documentRepository.existsById(id) || !cCPRepository.existsById(cCPId)) {
+            return false;
+        }
+        documentRepository.flush();
+        if (documentCCPLinkRepository.delete(id, cCPId)) {
+            linksChanged(id, cCPId);
+            cCPDocumentCountService.update(Collections.singleton(cCPId), Collections.emptySet());
+        }
+        return true;
+    }
+
+    /**
+     * Evict the cached collections of a document and a CCP whose link changed, now and once the transaction is
+     * committed so that a concurrent read cannot cache the collections as they were, and index the document again.
+     */
+    private void linksChanged(Long id, Long cCPId) {
+        evictLinks(id, cCPId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    evictLinks(id, cCPId);
+                }
+            });
+        }
+        searchOutboxService.changed(SearchOutboxService.DOCUMENT, id);
+    }
+
+    private void evictLinks(Long id, Long cCPId) {
+        org.hibernate.Cache cache = entityManager.getEntityManagerFactory().getCache().unwrap(org.hibernate.Cache.class);
+        cache.evictCollectionData(Document.class.getName() + ".cCPS", id);
+        cache.evictCollectionData(CCP.class.getName() + ".documents", cCPId);
+    }
+
+    private Set<Long> findCCPIds(Long id) {
+        return documentRepository.findCCPIdsByIdIn(Collections.singleton(id)).stream()
+            .map(row -> (Long) row[1])
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Get all the documents as summaries.
+     * <p>
+     * Summaries are read with a constructor expression, so no entity is hydrated nor enters the persistence context.
+     *
+     * @return the summaries, ordered by id.
+     */
+    @Transactional(readOnly = true)
+    public List<DocumentSummaryDTO> findAllSummaries() {
+        log.debug("Request to get all Document summaries");
+        List<DocumentSummaryDTO> summaries = documentRepository.findAllSummaries();
+        return withCCPIds(summaries, documentRepository.findAllCCPIds());
+    }
+
+    /**
+     * Get one page of the documents of a CCP as summaries, ordered by id unless another order is requested.
+     * <p>
+     * Only the documents of the page are read, so this does not depend on the number of documents of the CCP.
+     *
+     * @param cCPId the id of the CCP.
+     * @param pageable the pagination information.
+     * @return the page, or an empty {@link Optional} if the CCP does not exist.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Page<DocumentSummaryDTO>> findSummariesByCCPId(Long cCPId, Pageable pageable) {
+        log.debug("Request to get a page of the Document summaries of CCP : {}", cCPId);
+        if (!cCPRepository.existsById(cCPId)) {
+            return Optional.empty();
+        }
+        if (pageable.getSort().isUnsorted()) {
+            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id"));
+        }
+        Page<DocumentSummaryDTO> page = documentRepository.findSummariesByCCPId(cCPId, pageable);
+        if (page.hasContent()) {
+            List<Long> ids = page.getContent().stream().map(DocumentSummaryDTO::getId).collect(Collectors.toList());
+            withCCPIds(page.getContent(), documentRepository.findCCPIdsByIdIn(ids));
+        }
+        return Optional.of(page);
+    }
+
+    /**
+     * Get one page of documents ordered by id, with their CCPs.
+     * <p>
+     * The page is read in two phases: an index-only range scan on the primary key selects the ids of the page,
+     * then the documents and their CCPs are fetched for those ids only. Cost does not depend on the page position
+     * nor on the size of the table.
+     *
+     * @param cursor the position after which to read, or {@code null} for the first page.
+     * @param size the maximum number of documents to return.
+     * @return the page, with the cursor to the next one if more documents are available.
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<Document> findSliceById(KeysetCursor cursor, int size) {
+        log.debug("Request to get a slice of Documents by id after {}", cursor);
+        return toSlice(findIdsById(cursor, size), size, documentRepository::findAllWithEagerRelationshipsByIdIn,
+            Document::getId, document -> KeysetCursor.afterId(document.getId()));
+    }
+
+    /**
+     * Get one page of document summaries ordered by id.
+     *
+     * @param cursor the position after which to read, or {@code null} for the first page.
+     * @param size the maximum number of documents to return.
+     * @return the page, with the cursor to the next one if more documents are available.
+     * @see #findSliceById(KeysetCursor, int)
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<DocumentSummaryDTO> findSummarySliceById(KeysetCursor cursor, int size) {
+        log.debug("Request to get a slice of Document summaries by id after {}", cursor);
+        return toSlice(findIdsById(cursor, size), size, this::findSummariesByIdIn,
+            DocumentSummaryDTO::getId, summary -> KeysetCursor.afterId(summary.getId()));
+    }
+
+    /**
+     * Get one page of documents ordered by title then id, with their CCPs.
+     * <p>
+     * Documents without a title are returned after all the titled ones, ordered by id.
+     *
+     * @param cursor the position after which to read, or {@code null} for the first page.
+     * @param size the maximum number of documents to return.
+     * @return the page, with the cursor to the next one if more documents are available.
+     * @see #findSliceById(KeysetCursor, int)
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<Document> findSliceByTitle(KeysetCursor cursor, int size) {
+        log.debug("Request to get a slice of Documents by title after {}", cursor);
+        return toSlice(findIdsByTitle(cursor, size), size, documentRepository::findAllWithEagerRelationshipsByIdIn,
+            Document::getId, document -> KeysetCursor.afterTitle(document.getTitle(), document.getId()));
+    }
+
+    /**
+     * Get one page of document summaries ordered by title then id.
+     *
+     * @param cursor the position after which to read, or {@code null} for the first page.
+     * @param size the maximum number of documents to return.
+     * @return the page, with the cursor to the next one if more documents are available.
+     * @see #findSliceByTitle(KeysetCursor, int)
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<DocumentSummaryDTO> findSummarySliceByTitle(KeysetCursor cursor, int size) {
+        log.debug("Request to get a slice of Document summaries by title after {}", cursor);
+        return toSlice(findIdsByTitle(cursor, size), size, this::findSummariesByIdIn,
+            DocumentSummaryDTO::getId, summary -> KeysetCursor.afterTitle(summary.getTitle(), summary.getId()));
+    }
+
+    private List<Long> findIdsById(KeysetCursor cursor, int size) {
+        Long after = cursor != null ? cursor.getId() : Long.MIN_VALUE;
+        return documentRepository.findIdsAfterId(after, PageRequest.of(0, size + 1));
+    }
+
+    private List<Long> findIdsByTitle(KeysetCursor cursor, int size) {
+        List<Long> ids = new ArrayList<>(size + 1);
+        Long afterUntitled = Long.MIN_VALUE;
+        if (cursor == null || cursor.isTitled()) {
+            String title = cursor != null ? cursor.getTitle() : "";
+            Long after = cursor != null ? cursor.getId() : Long.MIN_VALUE;
+            ids.addAll(documentRepository.findIdsAfterTitle(title, after, PageRequest.of(0, size + 1)));
+        } else {
+            afterUntitled = cursor.getId();
+        }
+        if (ids.size() <= size) {
+            ids.addAll(documentRepository.findIdsWithoutTitleAfterId(afterUntitled, PageRequest.of(0, size + 1 - ids.size())));
+        }
+        return ids;
+    }
+
+    private List<DocumentSummaryDTO> findSummariesByIdIn(Collection<Long> ids) {
+        return withCCPIds(documentRepository.findSummariesByIdIn(ids), documentRepository.findCCPIdsByIdIn(ids));
+    }
+
+    private List<DocumentSummaryDTO> withCCPIds(List<DocumentSummaryDTO> summaries, List<Object[]> cCPIds) {
+        Map<Long, DocumentSummaryDTO> byId = summaries.stream()
+            .collect(Collectors.toMap(DocumentSummaryDTO::getId, Function.identity()));
+        for (Object[] row : cCPIds) {
+            DocumentSummaryDTO summary = byId.get((Long) row[0]);
+            if (summary != null) {
+                summary.getCcpIds().add((Long) row[1]);
+            }
+        }
+        return summaries;
+    }
+
+    private <T> KeysetSlice<T> toSlice(List<Long> ids, int size, Function<List<Long>, List<T>> fetch,
+                                       Function<T, Long> idOf, Function<T, KeysetCursor> cursorOf) {
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+        if (pageIds.isEmpty()) {
+            return new KeysetSlice<>(new ArrayList<>(), null);
+        }
+        Map<Long, T> elements = fetch.apply(pageIds).stream()
+            .collect(Collectors.toMap(idOf, Function.identity()));
+        List<T> content = pageIds.stream()
+            .map(elements::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+        KeysetCursor next = hasNext && !content.isEmpty() ? cursorOf.apply(content.get(content.size() - 1)) : null;
+        return new KeysetSlice<>(content, next);
+    }
+}
@@ -0,0 +1,161 @@
+package com.tothapplication.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Service class computing and caching the entity tags (ETags) of the representations served by the REST API.
+ * <p>
+ * A tag is the MD5 digest of the JSON representation of an entity, so it is strong: it changes whenever a single
+ * byte of the representation does. Tags are cached by id, one cache per kind of entity, so that a conditional
+ * {@code GET} can be answered without loading nor serializing the entity. Every write to an entity must therefore
+ * evict its tag, and every write changing the representation of other entities (a CCP embedded in documents) must
+ * evict theirs.
+ * <p>
+ * A read racing with a write could cache the tag of the representation it loaded before the write, after the write
+ * evicted it. So evictions are counted, over {@value #STRIPES} stripes of ids per cache: a reader takes a
+ * {@link #stamp(String, Object)} before loading the entity, and its tag is not cached if an eviction happened since.
+ * Evictions within a transaction are repeated after the commit, as readers still load the previous representation
+ * until then.
+ */
+@Service
+public class EntityTagService {
+
+    public static final String DOCUMENT_TAGS_CACHE = "documentTags";
+
+    public static final String CCP_TAGS_CACHE = "ccpTags";
+
+    public static final String USER_TAGS_CACHE = "userTags";
+
+    private static final int STRIPES = 1024;
+
+    private final ObjectMapper objectMapper;
+
+    private final CacheManager cacheManager;
+
+    private final Map<String, AtomicLongArray> evictions = new ConcurrentHashMap<>();
+
+    public EntityTagService(ObjectMapper objectMapper, CacheManager cacheManager) {
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Get the cached tag of an entity.
+     *
+     * @param cacheName the cache of the kind of entity.
+     * @param id the id of the entity.
+     * @return the tag, or an empty {@link Optional} if it is not cached.
+     */
+    public Optional<String> getCachedTag(String cacheName, Object id) {
+        return Optional.ofNullable(getCache(cacheName).get(id, String.class));
+    }
+
+    /**
+     * Get the stamp to pass to {@link #tag(String, Object, long, Object)}, before loading an entity.
+     *
+     * @param cacheName the cache of the kind of entity.
+     * @param id the id of the entity.
+     * @return the stamp.
+     */
+    public long stamp(String cacheName, Object id) {
+        return evictions(cacheName).get(stripe(id));
+    }
+
+    /**
+     * Compute the tag of an entity from its representation, and cache it unless it was evicted since the entity was
+     * loaded.
+     *
+     * @param cacheName the cache of the kind of entity.
+     * @param id the id of the entity.
+     * @param stamp the stamp taken before loading the entity.
+     * @param representation the object serialized in responses for the entity.
+     * @return the tag, quoted.
+     */
+    public String tag(String cacheName, Object id, long stamp, Object representation) {
+        String tag;
+        try {
+            tag = "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(representation)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + representation, e);
+        }
+        if (stamp(cacheName, id) == stamp) {
+            getCache(cacheName).put(id, tag);
+            // Evicted while it was being put: it may be stale
+            if (stamp(cacheName, id) != stamp) {
+                getCache(cacheName).evict(id);
+            }
+        }
+        return tag;
+    }
+
+    /**
+     * Evict the tag of an entity, again after the commit if a transaction is active.
+     *
+     * @param cacheName the cache of the kind of entity.
+     * @param id the id of the entity.
+     */
+    public void evict(String cacheName, Object id) {
+        doEvict(cacheName, id);
+        afterCommit(() -> doEvict(cacheName, id));
+    }
+
+    /**
+     * Evict the tags of all the entities of a kind, again after the commit if a transaction is active.
+     *
+     * @param cacheName the cache of the kind of entity.
+     */
+    public void evictAll(String cacheName) {
+        doEvictAll(cacheName);
+        afterCommit(() -> doEvictAll(cacheName));
+    }
+
+    private void doEvict(String cacheName, Object id) {
+        evictions(cacheName).incrementAndGet(stripe(id));
+        getCache(cacheName).evict(id);
+    }
+
+    private void doEvictAll(String cacheName) {
+        AtomicLongArray stripes = evictions(cacheName);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.incrementAndGet(i);
+        }
+        getCache(cacheName).clear();
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    private AtomicLongArray evictions(String cacheName) {
+        return evictions.computeIfAbsent(cacheName, key -> new AtomicLongArray(STRIPES));
+    }
+
+    private static int stripe(Object id) {
+        return Math.floorMod(Objects.hashCode(id), STRIPES);
+    }
+
+    private Cache getCache(String cacheName) {
+        return Objects.requireNonNull(cacheManager.getCache(cacheName));
+    }
+}
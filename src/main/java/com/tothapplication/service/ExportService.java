@@ -0,0 +1,140 @@
+package com.tothapplication.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Service streaming whole tables as newline-delimited JSON.
+ * <p>
+ * Rows are read through a forward-only cursor with a bounded fetch size and written as soon as they are read,
+ * so memory use does not depend on the number of rows. Rows are read as scalar projections: nothing is
+ * attached to the persistence context nor put in the second level cache while exporting.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+
+    /**
+     * Number of rows fetched from the database per round trip, and written between two flushes.
+     */
+    public static final int FETCH_SIZE = 500;
+
+    private final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    public ExportService(EntityManager entityManager, ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write all the documents, with their CCPs, to the given stream, one JSON document per line.
+     *
+     * @param out the stream to write to, left open.
+     * @throws IOException if the stream could not be written.
+     */
+    public void exportDocuments(OutputStream out) throws IOException {
+        log.debug("Request to export all Documents");
+        try (ScrollableResults rows = scroll(
+            "select document.id, document.title, document.mimeType, document.typeDoc, document.contentSize, ccp.id, ccp.title, ccp.desc" +
+                " from Document document left join document.cCPS ccp order by document.id");
+             JsonGenerator generator = createGenerator(out)) {
+            Long current = null;
+            int count = 0;
+            while (rows.next()) {
+                Object[] row = rows.get();
+                Long id = (Long) row[0];
+                if (!Objects.equals(id, current)) {
+                    if (current != null) {
+                        endDocument(generator);
+                    }
+                    current = id;
+                    generator.writeStartObject();
+                    generator.writeObjectField("id", id);
+                    generator.writeObjectField("title", row[1]);
+                    generator.writeObjectField("mimeType", row[2]);
+                    generator.writeObjectField("typeDoc", row[3]);
+                    generator.writeObjectField("contentSize", row[4]);
+                    generator.writeArrayFieldStart("ccps");
+                }
+                if (row[5] != null) {
+                    writeCCP(generator, (Long) row[5], (String) row[6], (String) row[7]);
+                }
+                if (++count % FETCH_SIZE == 0) {
+                    generator.flush();
+                }
+            }
+            if (current != null) {
+                endDocument(generator);
+            }
+        }
+    }
+
+    /**
+     * Write all the CCPs to the given stream, one JSON document per line.
+     *
+     * @param out the stream to write to, left open.
+     * @throws IOException if the stream could not be written.
+     */
+    public void exportCCPS(OutputStream out) throws IOException {
+        log.debug("Request to export all CCPS");
+        try (ScrollableResults rows = scroll("select ccp.id, ccp.title, ccp.desc from CCP ccp order by ccp.id");
+             JsonGenerator generator = createGenerator(out)) {
+            int count = 0;
+            while (rows.next()) {
+                Object[] row = rows.get();
+                writeCCP(generator, (Long) row[0], (String) row[1], (String) row[2]);
+                generator.writeRaw('\n');
+                if (++count % FETCH_SIZE == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    private ScrollableResults scroll(String query) {
+        return entityManager.unwrap(Session.class)
+            .createQuery(query)
+            .setReadOnly(true)
+            .setFetchSize(FETCH_SIZE)
+            .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        return objectMapper.getFactory()
+            .createGenerator(out)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .setPrettyPrinter(null)
+            .setRootValueSeparator(null);
+    }
+
+    private void writeCCP(JsonGenerator generator, Long id, String title, String desc) throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectField("id", id);
+        generator.writeObjectField("title", title);
+        generator.writeObjectField("desc", desc);
+        generator.writeEndObject();
+    }
+
+    private void endDocument(JsonGenerator generator) throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
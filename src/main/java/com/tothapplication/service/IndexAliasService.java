@@ -0,0 +1,263 @@
+package com.tothapplication.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.searchbox.action.Action;
+import io.searchbox.action.GenericResultAbstractAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.config.ElasticsearchVersion;
+import io.searchbox.indices.CreateIndex;
+import io.searchbox.indices.DeleteIndex;
+import io.searchbox.indices.IndicesExists;
+import io.searchbox.indices.Refresh;
+import io.searchbox.indices.aliases.GetAliases;
+import io.searchbox.indices.mapping.PutMapping;
+import io.searchbox.indices.settings.UpdateSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service class managing the versioned physical indices behind the index names of the entities.
+ * <p>
+ * The index name of an entity ({@code document}) is an alias of a physical index ({@code document_v3}): searches
+ * and writes go through the alias, while a rebuild fills the next version in the background and then moves the
+ * alias to it in a single {@code _aliases} request, so searches never see a missing or half-filled index. An index
+ * created under the alias name itself, before versioning, is replaced by the first swap in the same request.
+ * <p>
+ * This service only exists when Elasticsearch is the search backend.
+ */
+@Service
+@ConditionalOnProperty(prefix = "application.search", name = "backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class IndexAliasService {
+
+    private static final String VERSION_SEPARATOR = "_v";
+
+    private static final String PROPERTIES = "properties";
+
+    private static final String ID_FIELD = "id";
+
+    private final Logger log = LoggerFactory.getLogger(IndexAliasService.class);
+
+    private final JestClient jestClient;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    public IndexAliasService(JestClient jestClient, ElasticsearchOperations elasticsearchOperations) {
+        this.jestClient = jestClient;
+        this.elasticsearchOperations = elasticsearchOperations;
+    }
+
+    /**
+     * Get the alias through which an entity is searched and indexed.
+     *
+     * @param entityClass the class of the entity.
+     * @return the alias, as given by its {@code @Document} annotation.
+     */
+    public String getAlias(Class<?> entityClass) {
+        return elasticsearchOperations.getPersistentEntityFor(entityClass).getIndexName();
+    }
+
+    /**
+     * Get the physical indices behind the alias of an entity.
+     *
+     * @param entityClass the class of the entity.
+     * @return the names of the indices, the alias itself for an index created before versioning, or none if there
+     * is no index yet.
+     * @throws IOException if Elasticsearch could not be queried.
+     */
+    public Set<String> getIndices(Class<?> entityClass) throws IOException {
+        return findIndices(getAlias(entityClass));
+    }
+
+    /**
+     * Create the next version of the physical index of an entity, with the mapping of the current version and a
+     * numeric id.
+     * <p>
+     * The new index is not refreshed until it is swapped in, which makes filling it cheaper.
+     *
+     * @param entityClass the class of the entity.
+     * @return the name of the created index.
+     * @throws IOException if the index could not be created.
+     */
+    public String createNextIndex(Class<?> entityClass) throws IOException {
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchOperations.getPersistentEntityFor(entityClass);
+        String alias = persistentEntity.getIndexName();
+        int version = 0;
+        Pattern versioned = Pattern.compile(Pattern.quote(alias + VERSION_SEPARATOR) + "(\\d+)");
+        for (String index : findIndices(alias + VERSION_SEPARATOR + "*")) {
+            Matcher matcher = versioned.matcher(index);
+            if (matcher.matches()) {
+                version = Math.max(version, Integer.parseInt(matcher.group(1)));
+            }
+        }
+        String index = alias + VERSION_SEPARATOR + (version + 1);
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("number_of_shards", persistentEntity.getShards());
+        settings.put("number_of_replicas", persistentEntity.getReplicas());
+        settings.put("refresh_interval", "-1");
+        execute(new CreateIndex.Builder(index).settings(settings).build());
+        Set<String> current = findIndices(alias);
+        JsonObject mapping = new JsonObject();
+        if (!current.isEmpty()) {
+            try {
+                mapping = new Gson().toJsonTree(elasticsearchOperations.getMapping(current.iterator().next(),
+                    persistentEntity.getIndexType())).getAsJsonObject();
+            } catch (RuntimeException e) {
+                log.warn("Could not read the mapping of {}, {} will be mapped dynamically: {}", alias, index, e.getMessage());
+            }
+        }
+        // Ids are mapped as numbers, so that they sort numerically: older indices mapping them as keywords are
+        // migrated by their next rebuild
+        JsonObject properties = mapping.has(PROPERTIES) ? mapping.getAsJsonObject(PROPERTIES) : new JsonObject();
+        JsonObject id = new JsonObject();
+        id.addProperty("type", "long");
+        properties.add(ID_FIELD, id);
+        mapping.add(PROPERTIES, properties);
+        execute(new PutMapping.Builder(index, persistentEntity.getIndexType(), mapping.toString()).build());
+        log.info("Created index {} for {}", index, alias);
+        return index;
+    }
+
+    /**
+     * Check whether an index exists.
+     *
+     * @param index the name of the index.
+     * @return whether it exists.
+     * @throws IOException if Elasticsearch could not be queried.
+     */
+    public boolean exists(String index) throws IOException {
+        return jestClient.execute(new IndicesExists.Builder(index).build()).isSucceeded();
+    }
+
+    /**
+     * Move the alias of an entity to a new version of its index, then delete the other versions.
+     *
+     * @param entityClass the class of the entity.
+     * @param index the name of the new index, created by {@link #createNextIndex(Class)}.
+     * @throws IOException if the alias could not be moved.
+     */
+    public void swap(Class<?> entityClass, String index) throws IOException {
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchOperations.getPersistentEntityFor(entityClass);
+        String alias = persistentEntity.getIndexName();
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("refresh_interval", persistentEntity.getRefreshInterval());
+        Map<String, Object> indexSettings = new HashMap<>();
+        indexSettings.put("index", settings);
+        execute(new UpdateSettings.Builder(indexSettings).addIndex(index).build());
+        execute(new Refresh.Builder().addIndex(index).build());
+
+        JsonArray actions = new JsonArray();
+        for (String current : findIndices(alias)) {
+            if (current.equals(alias)) {
+                actions.add(action("remove_index", current, null));
+            } else if (!current.equals(index)) {
+                actions.add(action("remove", current, alias));
+            }
+        }
+        actions.add(action("add", index, alias));
+        JsonObject body = new JsonObject();
+        body.add("actions", actions);
+        execute(new UpdateAliases(body.toString()));
+        log.info("Swapped {} to {}", alias, index);
+
+        for (String previous : findIndices(alias + VERSION_SEPARATOR + "*")) {
+            if (!previous.equals(index)) {
+                try {
+                    execute(new DeleteIndex.Builder(previous).build());
+                } catch (IOException e) {
+                    log.warn("Could not delete the previous index {}: {}", previous, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete a version of the index of an entity that was never swapped in, such as the index of an abandoned
+     * rebuild. Does nothing if the index does not exist.
+     *
+     * @param entityClass the class of the entity.
+     * @param index the name of the index, created by {@link #createNextIndex(Class)}.
+     * @throws IllegalArgumentException if the index is the one behind the alias of the entity.
+     * @throws IOException if the index could not be deleted.
+     */
+    public void deleteIndex(Class<?> entityClass, String index) throws IOException {
+        String alias = getAlias(entityClass);
+        if (index.equals(alias) || findIndices(alias).contains(index)) {
+            throw new IllegalArgumentException(index + " is the current index of " + alias);
+        }
+        if (exists(index)) {
+            execute(new DeleteIndex.Builder(index).build());
+            log.info("Deleted index {} of {}", index, alias);
+        }
+    }
+
+    private static JsonObject action(String type, String index, String alias) {
+        JsonObject target = new JsonObject();
+        target.addProperty("index", index);
+        if (alias != null) {
+            target.addProperty("alias", alias);
+        }
+        JsonObject action = new JsonObject();
+        action.add(type, target);
+        return action;
+    }
+
+    /**
+     * Get the physical indices matching a name, an alias or a wildcard expression.
+     */
+    private Set<String> findIndices(String name) throws IOException {
+        JestResult result = jestClient.execute(new GetAliases.Builder().addIndex(name).build());
+        Set<String> indices = new TreeSet<>();
+        if (result.getResponseCode() == 404) {
+            return indices;
+        }
+        if (!result.isSucceeded()) {
+            throw new IOException(result.getErrorMessage());
+        }
+        indices.addAll(result.getJsonObject().keySet());
+        return indices;
+    }
+
+    private JestResult execute(Action<JestResult> action) throws IOException {
+        JestResult result = jestClient.execute(action);
+        if (!result.isSucceeded()) {
+            throw new IOException(result.getErrorMessage());
+        }
+        return result;
+    }
+
+    /**
+     * The {@code _aliases} request. Jest only builds {@code add} and {@code remove} actions, while replacing an
+     * unversioned index needs {@code remove_index} in the same request.
+     */
+    private static final class UpdateAliases extends GenericResultAbstractAction {
+
+        private UpdateAliases(String body) {
+            this.payload = body;
+        }
+
+        @Override
+        protected String buildURI(ElasticsearchVersion elasticsearchVersion) {
+            return "/_aliases";
+        }
+
+        @Override
+        public String getRestMethodName() {
+            return "POST";
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.tothapplication.service;
+
+import com.tothapplication.config.ApplicationProperties;
+import com.tothapplication.domain.ReindexCheckpoint;
+import com.tothapplication.domain.enumeration.ReindexStatus;
+import com.tothapplication.repository.ReindexCheckpointRepository;
+import com.tothapplication.service.dto.ReindexStatusDTO;
+import com.tothapplication.service.search.SearchBackend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service class rebuilding the search index of an entity type from the database.
+ * <p>
+ * The entities are read by ascending id in chunks of {@code application.search.reindex.chunk-size}, and each chunk is
+ * sent as one bulk write by a pool of {@code application.search.reindex.concurrency} workers; the reader
+ * waits for a free worker, so at most that many chunks are in flight. Every entity up to the last chunk completed
+ * without a gap is recorded in a {@link ReindexCheckpoint}: a reindex interrupted by a crash or a failing backend
+ * resumes from there instead of starting over.
+ * <p>
+ * The entities are written to a new version of the index, created by the {@link SearchBackend}, while searches
+ * keep using the current one: the alias is moved to the new index once it is complete, and a failed reindex leaves
+ * the current index untouched. Changes made during the reindex keep going through the search outbox, which writes
+ * them to both indices.
+ */
+@Service
+public class ReindexService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(ReindexService.class);
+
+    private final SearchIndexerService searchIndexerService;
+
+    private final SearchBackend searchBackend;
+
+    private final SearchResultCache searchResultCache;
+
+    private final ReindexCheckpointRepository reindexCheckpointRepository;
+
+    private final Executor taskExecutor;
+
+    private final ApplicationProperties.Search.Reindex properties;
+
+    private final Map<String, ReindexJob> jobs = new ConcurrentHashMap<>();
+
+    public ReindexService(SearchIndexerService searchIndexerService, SearchBackend searchBackend,
+                          SearchResultCache searchResultCache, ReindexCheckpointRepository reindexCheckpointRepository,
+                          @Qualifier("taskExecutor") Executor taskExecutor, ApplicationProperties applicationProperties) {
+        this.searchIndexerService = searchIndexerService;
+        this.searchBackend = searchBackend;
+        this.searchResultCache = searchResultCache;
+        this.reindexCheckpointRepository = reindexCheckpointRepository;
+        this.taskExecutor = taskExecutor;
+        this.properties = applicationProperties.getSearch().getReindex();
+    }
+
+    /**
+     * Check whether an entity type is indexed.
+     *
+     * @param entityType the type of the entities.
+     * @return whether it can be reindexed.
+     */
+    public boolean isIndexed(String entityType) {
+        return searchIndexerService.getEntityTypes().contains(entityType);
+    }
+
+    /**
+     * Start the reindex of an entity type in the background. An interrupted reindex is resumed from its checkpoint,
+     * unless {@code restart} is set or its index is gone; a running one is left as is. A failed reindex starts over,
+     * as its index is deleted when it fails: the writes made after the failure are no longer copied to it.
+     *
+     * @param entityType the type of the entities.
+     * @param restart whether to start over from the first entity.
+     * @return the status of the reindex.
+     * @throws IOException if the new index could not be created.
+     */
+    public synchronized ReindexStatusDTO start(String entityType, boolean restart) throws IOException {
+        ReindexJob running = jobs.get(entityType);
+        if (running != null) {
+            return running.getStatus();
+        }
+        Instant now = Instant.now();
+        ReindexCheckpoint checkpoint = reindexCheckpointRepository.findById(entityType).orElse(null);
+        String abandonedIndex = null;
+        if (checkpoint == null || restart || checkpoint.getStatus() == ReindexStatus.COMPLETED
+            || checkpoint.getTargetIndex() == null || !searchBackend.exists(checkpoint.getTargetIndex())) {
+            if (checkpoint != null && checkpoint.getStatus() != ReindexStatus.COMPLETED) {
+                abandonedIndex = checkpoint.getTargetIndex();
+            }
+            checkpoint = new ReindexCheckpoint()
+                .entityType(entityType)
+                .targetIndex(searchBackend.createNextIndex(searchIndexerService.getEntityClass(entityType)))
+                .lastId(0L)
+                .indexed(0L)
+                .failed(0L)
+                .startedDate(now);
+            log.info("Starting the reindex of {} into {}", entityType, checkpoint.getTargetIndex());
+        } else {
+            log.info("Resuming the reindex of {} after id {}", entityType, checkpoint.getLastId());
+        }
+        checkpoint.status(ReindexStatus.RUNNING)
+            .total(searchIndexerService.count(entityType))
+            .updatedDate(now)
+            .lastError(null);
+        ReindexJob job = new ReindexJob(reindexCheckpointRepository.save(checkpoint));
+        if (abandonedIndex != null) {
+            // Deleted once writes are copied to the new index instead, rather than left until the next swap
+            deleteAbandonedIndex(entityType, abandonedIndex);
+        }
+        jobs.put(entityType, job);
+        try {
+            taskExecutor.execute(job);
+        } catch (RuntimeException e) {
+            jobs.remove(entityType);
+            throw e;
+        }
+        return job.getStatus();
+    }
+
+    /**
+     * Get the status of the reindex of an entity type.
+     *
+     * @param entityType the type of the entities.
+     * @return the status, or an empty {@link Optional} if the entity type was never reindexed.
+     */
+    public Optional<ReindexStatusDTO> getStatus(String entityType) {
+        ReindexJob running = jobs.get(entityType);
+        if (running != null) {
+            return Optional.of(running.getStatus());
+        }
+        return reindexCheckpointRepository.findById(entityType).map(ReindexService::toStatus);
+    }
+
+    /**
+     * Get the status of the reindex of all the entity types that were reindexed.
+     *
+     * @return the statuses.
+     */
+    public List<ReindexStatusDTO> getStatuses() {
+        Map<String, ReindexStatusDTO> statuses = new TreeMap<>();
+        reindexCheckpointRepository.findAll().forEach(checkpoint -> statuses.put(checkpoint.getEntityType(), toStatus(checkpoint)));
+        jobs.forEach((entityType, job) -> statuses.put(entityType, job.getStatus()));
+        return new ArrayList<>(statuses.values());
+    }
+
+    /**
+     * A checkpoint left running by a stopped instance reads as interrupted.
+     */
+    private static ReindexStatusDTO toStatus(ReindexCheckpoint checkpoint) {
+        ReindexStatusDTO status = new ReindexStatusDTO(checkpoint);
+        if (status.getStatus() == ReindexStatus.RUNNING) {
+            status.setStatus(ReindexStatus.INTERRUPTED);
+        }
+        return status;
+    }
+
+    private void deleteAbandonedIndex(String entityType, String index) {
+        try {
+            searchBackend.deleteIndex(searchIndexerService.getEntityClass(entityType), index);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete the index {} of the abandoned reindex of {}: {}", index, entityType, e.toString());
+        }
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * A running reindex: reads the ids and dispatches the chunks to its workers.
+     */
+    private final class ReindexJob implements Runnable {
+
+        private final ReindexCheckpoint checkpoint;
+
+        private final String entityType;
+
+        /**
+         * Dispatched chunks not yet part of the checkpoint, by the id they start after.
+         */
+        private final TreeMap<Long, Chunk> pending = new TreeMap<>();
+
+        private final Instant runStarted = Instant.now();
+
+        private final AtomicLong runProcessed = new AtomicLong();
+
+        private volatile String failure;
+
+        private ReindexJob(ReindexCheckpoint checkpoint) {
+            this.checkpoint = checkpoint;
+            this.entityType = checkpoint.getEntityType();
+        }
+
+        @Override
+        public void run() {
+            int concurrency = Math.max(properties.getConcurrency(), 1);
+            AtomicInteger threads = new AtomicInteger();
+            ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+                Thread thread = new Thread(runnable, "reindex-" + entityType + "-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            Semaphore slots = new Semaphore(concurrency);
+            try {
+                Long after = checkpoint.getLastId();
+                List<Long> ids;
+                do {
+                    ids = searchIndexerService.findIdsAfter(entityType, after, properties.getChunkSize());
+                    if (ids.isEmpty()) {
+                        break;
+                    }
+                    slots.acquire();
+                    if (failure != null) {
+                        slots.release();
+                        break;
+                    }
+                    Chunk chunk = new Chunk(after, ids);
+                    synchronized (this) {
+                        pending.put(after, chunk);
+                    }
+                    workers.execute(() -> {
+                        try {
+                            index(chunk);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                    after = ids.get(ids.size() - 1);
+                } while (ids.size() == properties.getChunkSize());
+                slots.acquire(concurrency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = "Interrupted";
+            } catch (RuntimeException e) {
+                log.error("Reindex of {} failed", entityType, e);
+                failure = e.toString();
+            } finally {
+                workers.shutdownNow();
+                finish();
+            }
+        }
+
+        private void index(Chunk chunk) {
+            int attempt = 0;
+            while (failure == null) {
+                try {
+                    Map<Long, String> errors = searchIndexerService.index(entityType, chunk.ids, checkpoint.getTargetIndex());
+                    chunk.failed = errors.size();
+                    if (!errors.isEmpty()) {
+                        chunk.error = errors.values().iterator().next();
+                        log.warn("Could not reindex {} {} entities: {}", errors.size(), entityType, chunk.error);
+                    }
+                    runProcessed.addAndGet(chunk.ids.size());
+                    complete(chunk);
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    attempt++;
+                    if (attempt >= properties.getMaxAttempts()) {
+                        log.error("Reindex of {} stopped after id {}: {}", entityType, chunk.after, e.toString());
+                        failure = e.toString();
+                        return;
+                    }
+                    log.warn("Retrying reindex of {} after id {}: {}", entityType, chunk.after, e.toString());
+                    try {
+                        Thread.sleep(1000L << attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        failure = "Interrupted";
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Move the checkpoint over the completed chunks that are not preceded by a pending one.
+         */
+        private synchronized void complete(Chunk chunk) {
+            chunk.done = true;
+            boolean advanced = false;
+            while (!pending.isEmpty() && pending.firstEntry().getValue().done) {
+                Chunk first = pending.pollFirstEntry().getValue();
+                checkpoint.lastId(first.ids.get(first.ids.size() - 1))
+                    .indexed(checkpoint.getIndexed() + first.ids.size() - first.failed)
+                    .failed(checkpoint.getFailed() + first.failed);
+                if (first.error != null) {
+                    checkpoint.setLastError(truncate(first.error));
+                }
+                advanced = true;
+            }
+            if (advanced) {
+                reindexCheckpointRepository.save(checkpoint.updatedDate(Instant.now()));
+            }
+        }
+
+        private synchronized void finish() {
+            if (failure == null) {
+                try {
+                    searchBackend.swap(searchIndexerService.getEntityClass(entityType), checkpoint.getTargetIndex());
+                    searchResultCache.invalidate(searchIndexerService.getEntityClass(entityType));
+                } catch (IOException | RuntimeException e) {
+                    log.error("Could not swap the index of {} to {}", entityType, checkpoint.getTargetIndex(), e);
+                    failure = e.toString();
+                }
+            }
+            String abandonedIndex = null;
+            if (failure != null) {
+                // Writes are only copied to the index of a running reindex, so it cannot be resumed
+                abandonedIndex = checkpoint.getTargetIndex();
+                checkpoint.status(ReindexStatus.FAILED).targetIndex(null).lastError(truncate(failure));
+            } else {
+                checkpoint.status(ReindexStatus.COMPLETED);
+            }
+            try {
+                reindexCheckpointRepository.save(checkpoint.updatedDate(Instant.now()));
+            } finally {
+                jobs.remove(entityType);
+            }
+            if (abandonedIndex != null) {
+                deleteAbandonedIndex(entityType, abandonedIndex);
+            }
+            log.info("Reindex of {} {}: {} indexed, {} failed, in {}", entityType, checkpoint.getStatus(),
+                checkpoint.getIndexed(), checkpoint.getFailed(), Duration.between(runStarted, Instant.now()));
+        }
+
+        private synchronized ReindexStatusDTO getStatus() {
+            ReindexStatusDTO status = new ReindexStatusDTO(checkpoint);
+            long elapsed = Duration.between(runStarted, Instant.now()).toMillis();
+            long processed = runProcessed.get();
+            if (elapsed > 0 && processed > 0) {
+                double docsPerSecond = processed * 1000.0 / elapsed;
+                long remaining = Math.max(checkpoint.getTotal() - checkpoint.getIndexed() - checkpoint.getFailed(), 0);
+                status.setDocsPerSecond(docsPerSecond);
+                status.setEtaSeconds((long) Math.ceil(remaining / docsPerSecond));
+            }
+            return status;
+        }
+    }
+
+    private static final class Chunk {
+
+        private final Long after;
+
+        private final List<Long> ids;
+
+        private volatile boolean done;
+
+        private volatile int failed;
+
+        private volatile String error;
+
+        private Chunk(Long after, List<Long> ids) {
+            this.after = after;
+            this.ids = ids;
+        }
+    }
+}
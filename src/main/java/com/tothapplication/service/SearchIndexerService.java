@@ -0,0 +1,491 @@
+package com.tothapplication.service;
+
+import com.tothapplication.config.ApplicationProperties;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.domain.ReindexCheckpoint;
+import com.tothapplication.domain.SearchOutboxEvent;
+import com.tothapplication.domain.User;
+import com.tothapplication.domain.enumeration.ReindexStatus;
+import com.tothapplication.repository.CCPRepository;
+import com.tothapplication.repository.DocumentRepository;
+import com.tothapplication.repository.ReindexCheckpointRepository;
+import com.tothapplication.repository.SearchOutboxEventRepository;
+import com.tothapplication.repository.SearchOutboxLeaseRepository;
+import com.tothapplication.repository.UserRepository;
+import com.tothapplication.service.search.IndexOperation;
+import com.tothapplication.service.search.SearchBackend;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service class applying the search outbox to the {@link SearchBackend}.
+ * <p>
+ * Due events are read in batches, ordered by id. The events of a batch are grouped by entity, the current state of
+ * each entity is read from the database, and the whole batch is sent as a single bulk write: an entity that still
+ * exists is indexed, a missing one is deleted. Applied events are deleted; failed ones are retried with an
+ * exponential backoff, so an unavailable search backend delays indexing without losing any change.
+ * <p>
+ * Changes are written through the alias of the index, and also to the index being filled by a running
+ * {@link ReindexService rebuild}, so that it is up to date when it is swapped in. The rebuild itself only creates
+ * missing documents: it never overwrites a newer state written by the outbox.
+ * <p>
+ * When the application runs on several instances, a single one applies the outbox at a time, holding the
+ * {@value #LEASE} lease of {@link SearchOutboxLeaseRepository}: the events of an entity are then applied in order, and
+ * never twice. The lease is renewed before each batch for {@code application.search.outbox.lease} milliseconds, so
+ * another instance takes over once an instance stopped, or took longer than that for a batch.
+ * <p>
+ * The size of the outbox, the age of its oldest event and the applied and failed events are published as metrics.
+ */
+@Service
+public class SearchIndexerService {
+
+    public static final String PENDING_METRIC = "search.outbox.pending";
+
+    public static final String LAG_METRIC = "search.outbox.lag";
+
+    public static final String APPLIED_METRIC = "search.outbox.applied";
+
+    public static final String FAILED_METRIC = "search.outbox.failed";
+
+    static final String LEASE = "indexer";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(SearchIndexerService.class);
+
+    private final SearchOutboxEventRepository searchOutboxEventRepository;
+
+    private final SearchOutboxLeaseRepository searchOutboxLeaseRepository;
+
+    private final ReindexCheckpointRepository reindexCheckpointRepository;
+
+    private final SearchBackend searchBackend;
+
+    private final SearchResultCache searchResultCache;
+
+    private final EntityMapper entityMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.Search.Outbox properties;
+
+    private final Map<String, IndexedType<?>> indexedTypes = new HashMap<>();
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicReference<Instant> oldestPending = new AtomicReference<>();
+
+    private final Counter applied;
+
+    private final Counter failed;
+
+    public SearchIndexerService(SearchOutboxEventRepository searchOutboxEventRepository,
+                                SearchOutboxLeaseRepository searchOutboxLeaseRepository,
+                                ReindexCheckpointRepository reindexCheckpointRepository, DocumentRepository documentRepository,
+                                CCPRepository cCPRepository, UserRepository userRepository, SearchBackend searchBackend,
+                                SearchResultCache searchResultCache,
+                                EntityMapper entityMapper,
+                                PlatformTransactionManager transactionManager, ApplicationProperties applicationProperties,
+                                MeterRegistry meterRegistry) {
+        this.searchOutboxEventRepository = searchOutboxEventRepository;
+        this.searchOutboxLeaseRepository = searchOutboxLeaseRepository;
+        this.reindexCheckpointRepository = reindexCheckpointRepository;
+        this.searchBackend = searchBackend;
+        this.searchResultCache = searchResultCache;
+        this.entityMapper = entityMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = applicationProperties.getSearch().getOutbox();
+        indexedTypes.put(SearchOutboxService.DOCUMENT, new IndexedType<>(Document.class, documentRepository,
+            documentRepository::findAllWithEagerRelationshipsByIdIn, Document::getId, documentRepository::findIdsAfterId,
+            documentRepository::findIdsByIdIn));
+        indexedTypes.put(SearchOutboxService.CCP, new IndexedType<>(CCP.class, cCPRepository,
+            cCPRepository::findAllById, CCP::getId, cCPRepository::findIdsAfterId, cCPRepository::findIdsByIdIn));
+        indexedTypes.put(SearchOutboxService.USER, new IndexedType<>(User.class, userRepository,
+            userRepository::findAllById, User::getId, userRepository::findIdsAfterId, userRepository::findIdsByIdIn));
+        Gauge.builder(PENDING_METRIC, pending, AtomicLong::get)
+            .description("Number of changes waiting to be indexed")
+            .register(meterRegistry);
+        Gauge.builder(LAG_METRIC, oldestPending, SearchIndexerService::lagSeconds)
+            .description("Age of the oldest change waiting to be indexed")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        this.applied = Counter.builder(APPLIED_METRIC)
+            .description("Number of changes applied to the index")
+            .register(meterRegistry);
+        this.failed = Counter.builder(FAILED_METRIC)
+            .description("Number of changes that failed to be applied to the index")
+            .register(meterRegistry);
+    }
+
+    private static double lagSeconds(AtomicReference<Instant> oldest) {
+        Instant instant = oldest.get();
+        return instant == null ? 0 : Math.max(Duration.between(instant, Instant.now()).toMillis(), 0) / 1000.0;
+    }
+
+    /**
+     * Poll the outbox, unless disabled by {@code application.search.outbox.enabled}.
+     */
+    @Scheduled(fixedDelayString = "${application.search.outbox.poll-interval:1000}")
+    public void scheduledIndexPending() {
+        if (properties.isEnabled()) {
+            indexPending();
+        }
+    }
+
+    /**
+     * Apply all the due events of the outbox, unless another instance holds the lease.
+     *
+     * @return the number of events applied.
+     */
+    public int indexPending() {
+        int total = 0;
+        try {
+            while (acquireLease()) {
+                BatchResult result = indexBatch(Instant.now());
+                total += result.applied;
+                if (result.read < properties.getBatchSize()) {
+                    break;
+                }
+            }
+        } finally {
+            transactionTemplate.execute(status -> {
+                searchOutboxLeaseRepository.release(LEASE, owner);
+                return null;
+            });
+            refreshMetrics();
+        }
+        return total;
+    }
+
+    private boolean acquireLease() {
+        Instant now = Instant.now();
+        // Committed at once, as the connections do not auto-commit
+        if (transactionTemplate.execute(status ->
+            searchOutboxLeaseRepository.acquire(LEASE, owner, now, now.plusMillis(properties.getLease())))) {
+            return true;
+        }
+        log.debug("The search outbox is applied by another instance");
+        return false;
+    }
+
+    private BatchResult indexBatch(Instant now) {
+        Batch batch = transactionTemplate.execute(status -> readBatch(now));
+        if (batch.events.isEmpty()) {
+            return new BatchResult(0, 0);
+        }
+        Map<String, String> errors = new HashMap<>(batch.errors);
+        try {
+            errors.putAll(send(batch));
+        } catch (IOException e) {
+            batch.keys.forEach(key -> errors.put(key, e.toString()));
+        }
+        List<Long> appliedIds = new ArrayList<>();
+        List<SearchOutboxEvent> failedEvents = new ArrayList<>();
+        for (SearchOutboxEvent event : batch.events) {
+            if (errors.containsKey(keyOf(event.getEntityType(), event.getEntityId()))) {
+                failedEvents.add(event);
+            } else {
+                appliedIds.add(event.getId());
+            }
+        }
+        transactionTemplate.execute(status -> {
+            if (!appliedIds.isEmpty()) {
+                searchOutboxEventRepository.deleteByIdIn(appliedIds);
+            }
+            for (SearchOutboxEvent event : failedEvents) {
+                searchOutboxEventRepository.updateFailedAttempt(event.getId(), now.plusMillis(retryDelay(event.getAttempts())),
+                    truncate(errors.get(keyOf(event.getEntityType(), event.getEntityId()))));
+            }
+            return null;
+        });
+        applied.increment(appliedIds.size());
+        if (!failedEvents.isEmpty()) {
+            failed.increment(failedEvents.size());
+            log.warn("Could not index {} of {} changes, first error: {}", failedEvents.size(), batch.events.size(),
+                errors.values().iterator().next());
+        }
+        return new BatchResult(batch.events.size(), appliedIds.size());
+    }
+
+    /**
+     * Read the due events and build the actions applying them. Runs in a transaction, so that lazy associations can
+     * be serialized.
+     */
+    private Batch readBatch(Instant now) {
+        Batch batch = new Batch(searchOutboxEventRepository.findDue(now, PageRequest.of(0, properties.getBatchSize())));
+        if (batch.events.isEmpty()) {
+            return batch;
+        }
+        Map<String, String> rebuiltIndices = reindexCheckpointRepository
+            .findAllByStatusAndTargetIndexIsNotNull(ReindexStatus.RUNNING).stream()
+            .collect(Collectors.toMap(ReindexCheckpoint::getEntityType, ReindexCheckpoint::getTargetIndex));
+        Map<String, Set<Long>> idsByType = batch.events.stream()
+            .collect(Collectors.groupingBy(SearchOutboxEvent::getEntityType, LinkedHashMap::new,
+                Collectors.mapping(SearchOutboxEvent::getEntityId, Collectors.toCollection(LinkedHashSet::new))));
+        idsByType.forEach((type, ids) -> {
+            IndexedType<?> indexedType = indexedTypes.get(type);
+            if (indexedType == null) {
+                ids.forEach(id -> batch.errors.put(keyOf(type, id), "Unknown entity type " + type));
+                return;
+            }
+            List<String> indices = new ArrayList<>();
+            indices.add(searchBackend.getIndexName(indexedType.entityClass));
+            if (rebuiltIndices.containsKey(type)) {
+                indices.add(rebuiltIndices.get(type));
+            }
+            addActions(batch, type, indexedType, ids, indices, false);
+        });
+        return batch;
+    }
+
+    /**
+     * Add the actions writing the current state of entities to indices.
+     *
+     * @param createOnly whether to only create the missing documents, instead of replacing them.
+     */
+    private <T> void addActions(Batch batch, String type, IndexedType<T> indexedType, Set<Long> ids, List<String> indices,
+                                boolean createOnly) {
+        Class<T> entityClass = indexedType.entityClass;
+        Map<Long, T> entities = indexedType.loader.apply(ids).stream()
+            .collect(Collectors.toMap(indexedType.idOf, Function.identity()));
+        for (Long id : ids) {
+            T entity = entities.get(id);
+            if (entity == null) {
+                indices.forEach(index -> batch.add(keyOf(type, id), IndexOperation.delete(entityClass, index, id)));
+                continue;
+            }
+            String source;
+            try {
+                source = entityMapper.mapToString(entity);
+            } catch (IOException e) {
+                batch.errors.put(keyOf(type, id), "Could not serialize: " + e.getMessage());
+                continue;
+            }
+            for (String index : indices) {
+                batch.add(keyOf(type, id), createOnly ? IndexOperation.create(entityClass, index, id, source)
+                    : IndexOperation.index(entityClass, index, id, source));
+            }
+        }
+    }
+
+    /**
+     * Send the actions of a batch as one bulk write.
+     *
+     * @return the errors of the failed actions, by entity key.
+     * @throws IOException if the write failed as a whole.
+     */
+    private Map<String, String> send(Batch batch) throws IOException {
+        Map<String, String> errors = new HashMap<>();
+        if (batch.actions.isEmpty()) {
+            return errors;
+        }
+        try {
+            searchBackend.bulk(batch.actions).forEach((position, error) -> errors.put(batch.keys.get(position), error));
+        } finally {
+            // Even a failed write may have changed the index
+            batch.actions.stream().map(IndexOperation::getEntityClass).distinct().forEach(searchResultCache::invalidate);
+        }
+        return errors;
+    }
+
+    /**
+     * Get the types of entities that are indexed.
+     *
+     * @return the entity types, as recorded in the search outbox.
+     */
+    public Set<String> getEntityTypes() {
+        return Collections.unmodifiableSet(indexedTypes.keySet());
+    }
+
+    /**
+     * Count the entities of a type in the database.
+     *
+     * @param entityType the type of the entities.
+     * @return the number of entities.
+     */
+    public long count(String entityType) {
+        return indexedType(entityType).repository.count();
+    }
+
+    /**
+     * Get the ids of the entities of a type following an id, in ascending order.
+     *
+     * @param entityType the type of the entities.
+     * @param afterId the id to start after, excluded.
+     * @param size the maximum number of ids.
+     * @return the ids.
+     */
+    public List<Long> findIdsAfter(String entityType, Long afterId, int size) {
+        return transactionTemplate.execute(status -> indexedType(entityType).idsAfter.apply(afterId, PageRequest.of(0, size)));
+    }
+
+    /**
+     * Get the class of the entities of a type.
+     *
+     * @param entityType the type of the entities.
+     * @return the class of the entities.
+     */
+    public Class<?> getEntityClass(String entityType) {
+        return indexedType(entityType).entityClass;
+    }
+
+    /**
+     * Write the current state of entities to an index being rebuilt with a single bulk write, bypassing
+     * the outbox: the entities that exist are created if they are missing, the others are deleted.
+     * <p>
+     * An entity deleted once read, whose deletion was applied by the outbox before its creation reached the index,
+     * would be created again: the entities created are looked up once written, and the ones that no longer exist are
+     * deleted from the index. A deletion committed after that lookup is applied to the index by the outbox.
+     *
+     * @param entityType the type of the entities.
+     * @param ids the ids of the entities.
+     * @param index the name of the index being rebuilt.
+     * @return the errors of the entities that could not be indexed, by id.
+     * @throws IOException if the write failed as a whole.
+     */
+    public Map<Long, String> index(String entityType, Collection<Long> ids, String index) throws IOException {
+        IndexedType<?> indexedType = indexedType(entityType);
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        Batch batch = transactionTemplate.execute(status -> {
+            Batch read = new Batch(new ArrayList<>());
+            addActions(read, entityType, indexedType, distinctIds, Collections.singletonList(index), true);
+            return read;
+        });
+        Map<String, String> errors = new HashMap<>(batch.errors);
+        errors.putAll(send(batch));
+        Set<Long> created = batch.actions.stream().filter(action -> !action.isDelete()).map(IndexOperation::getId)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (!created.isEmpty()) {
+            created.removeAll(transactionTemplate.execute(status -> indexedType.existingIds.apply(created)));
+            Batch deleted = new Batch(new ArrayList<>());
+            created.forEach(id -> deleted.add(keyOf(entityType, id), IndexOperation.delete(indexedType.entityClass, index, id)));
+            errors.putAll(send(deleted));
+        }
+        Map<Long, String> errorsById = new HashMap<>();
+        for (Long id : distinctIds) {
+            String error = errors.get(keyOf(entityType, id));
+            if (error != null) {
+                errorsById.put(id, error);
+            }
+        }
+        return errorsById;
+    }
+
+    private IndexedType<?> indexedType(String entityType) {
+        IndexedType<?> indexedType = indexedTypes.get(entityType);
+        if (indexedType == null) {
+            throw new IllegalArgumentException("Unknown entity type " + entityType);
+        }
+        return indexedType;
+    }
+
+    private long retryDelay(int attempts) {
+        long delay = properties.getRetryDelay() << Math.min(attempts, 30);
+        return delay <= 0 ? properties.getMaxRetryDelay() : Math.min(delay, properties.getMaxRetryDelay());
+    }
+
+    private void refreshMetrics() {
+        pending.set(searchOutboxEventRepository.count());
+        oldestPending.set(searchOutboxEventRepository.findOldestCreatedDate());
+    }
+
+    private static String keyOf(String type, Long id) {
+        return type + ":" + id;
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private static final class IndexedType<T> {
+
+        private final Class<T> entityClass;
+
+        private final Function<Collection<Long>, List<T>> loader;
+
+        private final Function<T, Long> idOf;
+
+        private final CrudRepository<T, Long> repository;
+
+        private final BiFunction<Long, Pageable, List<Long>> idsAfter;
+
+        private final Function<Collection<Long>, List<Long>> existingIds;
+
+        private IndexedType(Class<T> entityClass, CrudRepository<T, Long> repository, Function<Collection<Long>, List<T>> loader,
+                            Function<T, Long> idOf, BiFunction<Long, Pageable, List<Long>> idsAfter,
+                            Function<Collection<Long>, List<Long>> existingIds) {
+            this.entityClass = entityClass;
+            this.repository = repository;
+            this.loader = loader;
+            this.idOf = idOf;
+            this.idsAfter = idsAfter;
+            this.existingIds = existingIds;
+        }
+    }
+
+    private static final class Batch {
+
+        private final List<SearchOutboxEvent> events;
+
+        private final List<String> keys = new ArrayList<>();
+
+        private final List<IndexOperation> actions = new ArrayList<>();
+
+        private final Map<String, String> errors = new HashMap<>();
+
+        private Batch(List<SearchOutboxEvent> events) {
+            this.events = events;
+        }
+
+        private void add(String key, IndexOperation action) {
+            keys.add(key);
+            actions.add(action);
+        }
+    }
+
+    private static final class BatchResult {
+
+        private final int read;
+
+        private final int applied;
+
+        private BatchResult(int read, int applied) {
+            this.read = read;
+            this.applied = applied;
+        }
+    }
+}
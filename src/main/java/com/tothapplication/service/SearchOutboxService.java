@@ -0,0 +1,102 @@
+package com.tothapplication.service;
+
+import com.tothapplication.domain.SearchOutboxEvent;
+import com.tothapplication.repository.SearchOutboxEventRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Service class recording the changes to indexed entities in the search outbox.
+ * <p>
+ * Events must be recorded in the transaction changing the entity, so that they are committed or rolled back with
+ * it: the index can then never miss a committed change, nor hold a rolled back one. They are applied to
+ * Elasticsearch by the {@link SearchIndexerService}. The in-memory structures of this instance are also notified,
+ * see {@link TitleSuggestService}, {@link SearchResultCache} and {@link DocumentMembershipService}.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class SearchOutboxService {
+
+    public static final String DOCUMENT = "document";
+
+    public static final String CCP = "ccp";
+
+    public static final String USER = "user";
+
+    private final Logger log = LoggerFactory.getLogger(SearchOutboxService.class);
+
+    private final SearchOutboxEventRepository searchOutboxEventRepository;
+
+    private final TitleSuggestService titleSuggestService;
+
+    private final SearchResultCache searchResultCache;
+
+    private final DocumentMembershipService documentMembershipService;
+
+    public SearchOutboxService(SearchOutboxEventRepository searchOutboxEventRepository, TitleSuggestService titleSuggestService,
+                               SearchResultCache searchResultCache, DocumentMembershipService documentMembershipService) {
+        this.searchOutboxEventRepository = searchOutboxEventRepository;
+        this.titleSuggestService = titleSuggestService;
+        this.searchResultCache = searchResultCache;
+        this.documentMembershipService = documentMembershipService;
+    }
+
+    /**
+     * Record that an indexed entity was created, updated or deleted.
+     *
+     * @param entityType the type of the entity, one of {@link #DOCUMENT}, {@link #CCP} or {@link #USER}.
+     * @param entityId the id of the entity.
+     */
+    public void changed(String entityType, Long entityId) {
+        record(entityType, entityId);
+        if (!CCP.equals(entityType)) {
+            // Saving a CCP never changes its documents, which own their links to it
+            documentMembershipService.changed(entityType, entityId);
+        }
+    }
+
+    /**
+     * Record that an indexed entity was deleted.
+     *
+     * @param entityType the type of the entity, one of {@link #DOCUMENT}, {@link #CCP} or {@link #USER}.
+     * @param entityId the id of the entity.
+     */
+    public void deleted(String entityType, Long entityId) {
+        record(entityType, entityId);
+        documentMembershipService.changed(entityType, entityId);
+    }
+
+    /**
+     * Record that the documents of a CCP changed, as their indexed copy of the CCP did.
+     * <p>
+     * The events of the documents are inserted by a single statement, however many documents there are, and the
+     * in-memory structures are notified once: their titles and memberships are unchanged, only the searches of
+     * documents have to be invalidated.
+     *
+     * @param cCPId the id of the CCP.
+     */
+    public void changedDocumentsOf(Long cCPId) {
+        int count = searchOutboxEventRepository.insertForDocumentsOfCCP(cCPId, DOCUMENT, Instant.now());
+        log.debug("Request to reindex the {} documents of CCP {}", count, cCPId);
+        searchResultCache.changed(DOCUMENT);
+    }
+
+    private void record(String entityType, Long entityId) {
+        log.debug("Request to reindex {} {}", entityType, entityId);
+        Instant now = Instant.now();
+        searchOutboxEventRepository.save(new SearchOutboxEvent()
+            .entityType(entityType)
+            .entityId(entityId)
+            .createdDate(now)
+            .attempts(0)
+            .nextAttemptDate(now));
+        titleSuggestService.changed(entityType, entityId);
+        searchResultCache.changed(entityType);
+    }
+}
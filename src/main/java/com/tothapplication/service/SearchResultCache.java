@@ -0,0 +1,342 @@
+package com.tothapplication.service;
+
+import com.tothapplication.config.ApplicationProperties;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.repository.SearchGenerationRepository;
+import com.tothapplication.service.dto.SearchPage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.Serializable;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+
+/**
+ * Service class caching the results of the searches of documents and CCPs.
+ * <p>
+ * Only the ids of the hits are cached, with the total and the cursor of the next page, keyed by the query, the sort
+ * and the requested page: cached pages are read back through the second-level cache of the entities. Entries live
+ * {@code application.search.cache.time-to-live-seconds} at most, and each one records the generations of its index
+ * when the search ran. The local generation is bumped when a write to an entity is committed on this instance, so that
+ * an entry computed before a write is never served after it here. The shared generation, in the database, is bumped
+ * by the instance applying changes to the index, so that the other instances forget their entries as well: it is read
+ * every {@code application.search.cache.generation-poll-interval} milliseconds and on each miss, so that a hit is
+ * answered without querying the database for anything but the second-level cache misses.
+ * <p>
+ * The query strings are trimmed, their spaces collapsed and their terms lower cased in the keys, and their accents
+ * folded when the backend folds them, so that searches differing only by them share their entries.
+ */
+@Service
+public class SearchResultCache {
+
+    public static final String SEARCH_RESULTS_CACHE = "searchResults";
+
+    public static final String REQUESTS_METRIC = "search.cache.requests";
+
+    private static final Set<String> OPERATORS = new HashSet<>(Arrays.asList("AND", "OR", "NOT", "TO"));
+
+    private static final Pattern UNFOLDED_TERM = Pattern.compile("[:\\[\\]{}/\\\\]");
+
+    private final Logger log = LoggerFactory.getLogger(SearchResultCache.class);
+
+    private final Cache cache;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate generationTemplate;
+
+    private final SearchGenerationRepository searchGenerationRepository;
+
+    private final boolean foldAccents;
+
+    private final Map<Class<?>, Region<?>> regions = new HashMap<>();
+
+    public SearchResultCache(CacheManager cacheManager, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             SearchGenerationRepository searchGenerationRepository, MeterRegistry meterRegistry,
+                             ApplicationProperties applicationProperties) {
+        this.cache = cacheManager.getCache(SEARCH_RESULTS_CACHE);
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.generationTemplate = new TransactionTemplate(transactionManager);
+        this.searchGenerationRepository = searchGenerationRepository;
+        // Only the embedded backend folds the accents of the terms it indexes and searches
+        this.foldAccents = "embedded".equalsIgnoreCase(applicationProperties.getSearch().getBackend());
+        regions.put(Document.class, new Region<>(SearchOutboxService.DOCUMENT, Document::getId,
+            document -> Hibernate.initialize(document.getCCPS()), meterRegistry));
+        regions.put(CCP.class, new Region<>(SearchOutboxService.CCP, CCP::getId, cCP -> { }, meterRegistry));
+    }
+
+    /**
+     * Search for a page of entities, or read it from the cache.
+     *
+     * @param entityClass the class of the entities, whose searches are run uncached if they are not documents or CCPs.
+     * @param query the query.
+     * @param pageable the requested page.
+     * @param cursor the cursor of the previous page, or {@code null}.
+     * @param search the search to run on a miss.
+     * @return the page of entities.
+     * @throws IOException if the search failed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> SearchPage<T> get(Class<T> entityClass, QueryBuilder query, Pageable pageable, String cursor,
+                                 Search<T> search) throws IOException {
+        Region<T> region = (Region<T>) regions.get(entityClass);
+        if (region == null) {
+            return search.run();
+        }
+        String key = entityClass.getName() + '\n' + queryKey(query) + '\n' + pageable.getSort() + '\n'
+            + (cursor != null ? cursor : pageable.getOffset()) + '\n' + pageable.getPageSize();
+        long generation = region.generation.get();
+        CachedPage cached = cache.get(key, CachedPage.class);
+        if (cached != null && cached.generation == generation
+            && cached.sharedGeneration == region.sharedGeneration.get()) {
+            Optional<SearchPage<T>> page = load(entityClass, region, cached);
+            if (page.isPresent()) {
+                region.hits.increment();
+                return page.get();
+            }
+        }
+        region.misses.increment();
+        long sharedGeneration = region.sharedGeneration.accumulateAndGet(
+            searchGenerationRepository.get(region.entityType), Math::max);
+        SearchPage<T> page = search.run();
+        List<Long> ids = new ArrayList<>(page.getContent().size());
+        page.getContent().forEach(entity -> ids.add(region.idOf.apply(entity)));
+        // Recorded with the generations read before the search: a write during the search makes it stale at once
+        cache.put(key, new CachedPage(generation, sharedGeneration, ids, page.getTotal(), page.getNext().orElse(null)));
+        return page;
+    }
+
+    /**
+     * Read the shared generations, bumped by the instances applying changes to the indices.
+     * <p>
+     * This is scheduled to run every {@code application.search.cache.generation-poll-interval} milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${application.search.cache.generation-poll-interval:1000}")
+    public void pollGenerations() {
+        try {
+            regions.values().forEach(region -> region.sharedGeneration.accumulateAndGet(
+                searchGenerationRepository.get(region.entityType), Math::max));
+        } catch (DataAccessException e) {
+            log.warn("Could not read the search generations: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Get the text identifying a query in the keys of the cache.
+     * <p>
+     * The terms of a query string are folded, but not its operators, nor the terms of a field, a range or a regular
+     * expression, which may be matched on a keyword, so that the folded query always runs the same search.
+     */
+    private String queryKey(QueryBuilder query) {
+        String json = Strings.toString(query);
+        if (query instanceof QueryStringQueryBuilder) {
+            String text = ((QueryStringQueryBuilder) query).queryString();
+            // Only a query string with the default settings is keyed by its text alone
+            if (json.equals(Strings.toString(queryStringQuery(text)))) {
+                StringBuilder key = new StringBuilder("query_string:");
+                for (String token : text.trim().split("\\s+")) {
+                    key.append(' ').append(OPERATORS.contains(token) || UNFOLDED_TERM.matcher(token).find()
+                        ? token : fold(token));
+                }
+                return key.toString();
+            }
+        }
+        return json;
+    }
+
+    private String fold(String term) {
+        String folded = term.toLowerCase(Locale.ROOT);
+        if (!foldAccents) {
+            return folded;
+        }
+        String decomposed = Normalizer.normalize(folded, Normalizer.Form.NFD);
+        StringBuilder withoutAccents = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                withoutAccents.append(c);
+            }
+        }
+        return withoutAccents.toString();
+    }
+
+    /**
+     * Read the entities of a cached page, in order.
+     *
+     * @return the page, or an empty {@link Optional} if one of the entities no longer exists.
+     */
+    private <T> Optional<SearchPage<T>> load(Class<T> entityClass, Region<T> region, CachedPage cached) {
+        return transactionTemplate.execute(status -> {
+            List<T> content = new ArrayList<>(cached.ids.size());
+            for (Long id : cached.ids) {
+                T entity = entityManager.find(entityClass, id);
+                if (entity == null) {
+                    log.debug("Cached search of {} hit the deleted entity {}", entityClass.getSimpleName(), id);
+                    return Optional.empty();
+                }
+                region.initializer.accept(entity);
+                content.add(entity);
+            }
+            return Optional.of(new SearchPage<>(content, cached.total, cached.next));
+        });
+    }
+
+    /**
+     * Record that indexed entities were created, updated or deleted: the cached searches of their type are
+     * invalidated once the current transaction is committed.
+     *
+     * @param entityType the type of the entities, as recorded in the search outbox.
+     */
+    public void changed(String entityType) {
+        Class<?> entityClass = regions.entrySet().stream()
+            .filter(entry -> entry.getValue().entityType.equals(entityType))
+            .map(Map.Entry::getKey).findFirst().orElse(null);
+        if (entityClass == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            regions.get(entityClass).generation.incrementAndGet();
+            return;
+        }
+        PendingInvalidations pending = (PendingInvalidations) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingInvalidations();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.entityClasses.add(entityClass);
+    }
+
+    /**
+     * Invalidate the cached searches of a class of entities on every instance, after its index changed.
+     *
+     * @param entityClass the class of the entities.
+     */
+    public void invalidate(Class<?> entityClass) {
+        Region<?> region = regions.get(entityClass);
+        if (region != null) {
+            region.generation.incrementAndGet();
+            // Committed at once, as the connections do not auto-commit
+            generationTemplate.execute(status -> {
+                searchGenerationRepository.increment(region.entityType);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * A search run on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Search<T> {
+
+        SearchPage<T> run() throws IOException;
+    }
+
+    private static final class Region<T> {
+
+        private final String entityType;
+
+        private final Function<T, Long> idOf;
+
+        private final Consumer<T> initializer;
+
+        private final AtomicLong generation = new AtomicLong();
+
+        private final AtomicLong sharedGeneration = new AtomicLong();
+
+        private final Counter hits;
+
+        private final Counter misses;
+
+        private Region(String entityType, Function<T, Long> idOf, Consumer<T> initializer, MeterRegistry meterRegistry) {
+            this.entityType = entityType;
+            this.idOf = idOf;
+            this.initializer = initializer;
+            this.hits = Counter.builder(REQUESTS_METRIC)
+                .description("Number of searches answered by the search result cache, or not")
+                .tag("entity", entityType).tag("result", "hit")
+                .register(meterRegistry);
+            this.misses = Counter.builder(REQUESTS_METRIC)
+                .description("Number of searches answered by the search result cache, or not")
+                .tag("entity", entityType).tag("result", "miss")
+                .register(meterRegistry);
+        }
+    }
+
+    private static final class CachedPage implements Serializable {
+
+        private static final long serialVersionUID = 2L;
+
+        private final long generation;
+
+        private final long sharedGeneration;
+
+        private final List<Long> ids;
+
+        private final long total;
+
+        private final String next;
+
+        private CachedPage(long generation, long sharedGeneration, List<Long> ids, long total, String next) {
+            this.generation = generation;
+            this.sharedGeneration = sharedGeneration;
+            this.ids = Collections.unmodifiableList(ids);
+            this.total = total;
+            this.next = next;
+        }
+    }
+
+    private final class PendingInvalidations extends TransactionSynchronizationAdapter {
+
+        private final Set<Class<?>> entityClasses = new HashSet<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(SearchResultCache.this);
+            if (status == STATUS_COMMITTED) {
+                entityClasses.forEach(entityClass -> regions.get(entityClass).generation.incrementAndGet());
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.tothapplication.service;
+
+import com.tothapplication.service.dto.SearchPage;
+import com.tothapplication.service.search.SearchBackend;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Service class running paginated searches on the search indices, held by the configured {@link SearchBackend}.
+ * <p>
+ * Pages are read by number up to {@value #MAX_RESULT_WINDOW} hits, the default result window of Elasticsearch.
+ * Every page also comes with a cursor made of the sort values of its last hit: following the cursors reads the next
+ * pages however deep. The hits are always sorted by id last, so that the cursor of a page is unique.
+ * <p>
+ * The pages of documents and CCPs are cached by the {@link SearchResultCache}.
+ */
+@Service
+public class SearchService {
+
+    /**
+     * Maximum number of hits per page.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Maximum number of hits that can be reached with page numbers, deeper pages need a cursor.
+     */
+    public static final int MAX_RESULT_WINDOW = 10000;
+
+    private final Logger log = LoggerFactory.getLogger(SearchService.class);
+
+    private final SearchBackend searchBackend;
+
+    private final SearchResultCache searchResultCache;
+
+    public SearchService(SearchBackend searchBackend, SearchResultCache searchResultCache) {
+        this.searchBackend = searchBackend;
+        this.searchResultCache = searchResultCache;
+    }
+
+    /**
+     * Search for a page of entities.
+     * <p>
+     * The hits are sorted by relevance unless a sort is requested. Text properties are sorted on their keyword.
+     *
+     * @param entityClass the class of the entities.
+     * @param query the query.
+     * @param pageable the requested page, whose number is ignored when a cursor is given.
+     * @param cursor the cursor of the previous page, or {@code null} to read the page by number.
+     * @return the page of entities.
+     * @throws IllegalArgumentException if the page size, page number, cursor or query is invalid.
+     * @throws IOException if the search backend could not be queried.
+     */
+    public <T> SearchPage<T> search(Class<T> entityClass, QueryBuilder query, Pageable pageable, String cursor) throws IOException {
+        int size = pageable.getPageSize();
+        if (size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must not be greater than " + MAX_PAGE_SIZE);
+        }
+        if (cursor == null && pageable.getOffset() + size > MAX_RESULT_WINDOW) {
+            throw new IllegalArgumentException("Hits past the first " + MAX_RESULT_WINDOW + " must be read with a cursor");
+        }
+        log.debug("Request to search for a page of {} : {}", entityClass.getSimpleName(), pageable);
+        return searchResultCache.get(entityClass, query, pageable, cursor,
+            () -> searchBackend.search(entityClass, query, pageable, cursor));
+    }
+}
@@ -0,0 +1,289 @@
+package com.tothapplication.service;
+
+import com.tothapplication.repository.CCPRepository;
+import com.tothapplication.repository.DocumentRepository;
+import com.tothapplication.repository.SearchGenerationRepository;
+import com.tothapplication.service.dto.SuggestionDTO;
+import com.tothapplication.service.util.CoalescingReloader;
+import com.tothapplication.service.util.TextNormalizer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Service class suggesting the titles of documents and CCPs starting with a typed prefix.
+ * <p>
+ * The titles are held in memory in a sorted map, keyed by each of their folded words (see {@link TextNormalizer}),
+ * so that "dév" suggests both "Développeur web" and "Titre professionnel développeur". A prefix is then looked up
+ * with a single range scan, without querying the database or Elasticsearch: on its word if it has one, or on its
+ * first word, the titles found being kept if they hold the whole prefix from the start of a word.
+ * <p>
+ * The map is kept in sync with the changes recorded in the search outbox: the titles of the changed entities are
+ * reloaded in the background once their transaction is committed, by a {@link CoalescingReloader}. It is also rebuilt
+ * from the database at startup, then periodically when the shared generation of the documents or CCPs moved, to
+ * catch up with the changes committed by the other instances.
+ */
+@Service
+public class TitleSuggestService {
+
+    /**
+     * Maximum number of suggestions per prefix.
+     */
+    public static final int MAX_SUGGESTIONS = 50;
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final Logger log = LoggerFactory.getLogger(TitleSuggestService.class);
+
+    private final DocumentRepository documentRepository;
+
+    private final CCPRepository cCPRepository;
+
+    private final SearchGenerationRepository searchGenerationRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CoalescingReloader reloader;
+
+    private final ConcurrentSkipListMap<String, Suggestion> suggestions = new ConcurrentSkipListMap<>();
+
+    private final Map<String, List<String>> keysByEntity = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+
+    /**
+     * The entities changed since the start of the running rebuild, {@code null} when not rebuilding. Guarded by
+     * {@link #lock}.
+     */
+    private Set<String> changedDuringRebuild;
+
+    /**
+     * The shared generations of the documents and CCPs when the last rebuild loaded them, {@code null} before the
+     * first one. Only read and written by the rebuilds, which do not overlap.
+     */
+    private volatile List<Long> rebuiltGenerations;
+
+    public TitleSuggestService(DocumentRepository documentRepository, CCPRepository cCPRepository,
+                               SearchGenerationRepository searchGenerationRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Qualifier("taskExecutor") Executor taskExecutor) {
+        this.documentRepository = documentRepository;
+        this.cCPRepository = cCPRepository;
+        this.searchGenerationRepository = searchGenerationRepository;
+        this.reloader = new CoalescingReloader("title suggestions", taskExecutor, this::reload);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Suggest the titles starting with a prefix, or having a word starting with it. Case and diacritics are ignored.
+     *
+     * @param prefix the prefix.
+     * @param size the maximum number of suggestions.
+     * @return the suggestions, ordered by the matched word.
+     */
+    public List<SuggestionDTO> suggest(String prefix, int size) {
+        String folded = TextNormalizer.fold(prefix);
+        if (folded.isEmpty() || size <= 0) {
+            return Collections.emptyList();
+        }
+        int space = folded.indexOf(' ');
+        // The words of the prefix but the last one are whole, so the first one is matched exactly
+        String from = space < 0 ? folded : folded.substring(0, space) + KEY_SEPARATOR;
+        NavigableMap<String, Suggestion> matches = suggestions.subMap(from, true, from + Character.MAX_VALUE, false);
+        String fromWord = ' ' + folded;
+        Map<String, SuggestionDTO> distinct = new LinkedHashMap<>();
+        for (Suggestion suggestion : matches.values()) {
+            if (space >= 0 && !suggestion.words.contains(fromWord)) {
+                continue;
+            }
+            distinct.putIfAbsent(entityKey(suggestion.dto.getType(), suggestion.dto.getId()), suggestion.dto);
+            if (distinct.size() == size) {
+                break;
+            }
+        }
+        return new ArrayList<>(distinct.values());
+    }
+
+    /**
+     * Record that an entity was created, updated or deleted in the current transaction. Its title is reloaded in the
+     * background once the transaction is committed. Entities whose title is not suggested are ignored.
+     *
+     * @param entityType the type of the entity, one of the types of {@link SearchOutboxService}.
+     * @param entityId the id of the entity.
+     */
+    public void changed(String entityType, Long entityId) {
+        if (SearchOutboxService.DOCUMENT.equals(entityType) || SearchOutboxService.CCP.equals(entityType)) {
+            reloader.changed(entityType, entityId);
+        }
+    }
+
+    /**
+     * Check whether the changes committed on this instance were all applied to the suggestions.
+     *
+     * @return whether no reload is pending.
+     */
+    public boolean isUpToDate() {
+        return reloader.isIdle();
+    }
+
+    /**
+     * Rebuild the suggestions from the database, unless no change to the documents or CCPs was applied to the
+     * search indices since the last rebuild, by any instance.
+     * <p>
+     * This is scheduled to run at startup, then every {@code application.search.suggest.refresh-interval}
+     * milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${application.search.suggest.refresh-interval:300000}")
+    public void rebuild() {
+        synchronized (lock) {
+            if (changedDuringRebuild != null) {
+                return;
+            }
+            changedDuringRebuild = new HashSet<>();
+        }
+        try {
+            Map<String, SuggestionDTO> loaded = new HashMap<>();
+            List<Long> generations = transactionTemplate.execute(status -> {
+                // Read before the titles, so that a change committed meanwhile triggers the next rebuild
+                List<Long> current = Arrays.asList(searchGenerationRepository.get(SearchOutboxService.DOCUMENT),
+                    searchGenerationRepository.get(SearchOutboxService.CCP));
+                if (current.equals(rebuiltGenerations)) {
+                    return null;
+                }
+                documentRepository.findAllSummaries().forEach(document -> loaded.put(entityKey(SearchOutboxService.DOCUMENT, document.getId()),
+                    new SuggestionDTO(SearchOutboxService.DOCUMENT, document.getId(), document.getTitle())));
+                cCPRepository.findAllSummaries().forEach(cCP -> loaded.put(entityKey(SearchOutboxService.CCP, cCP.getId()),
+                    new SuggestionDTO(SearchOutboxService.CCP, cCP.getId(), cCP.getTitle())));
+                return current;
+            });
+            if (generations == null) {
+                log.debug("Title suggestions up to date, not rebuilt");
+                return;
+            }
+            synchronized (lock) {
+                // The entities changed meanwhile were reloaded after the load above, so they are already up to date
+                for (String entityKey : new ArrayList<>(keysByEntity.keySet())) {
+                    if (!loaded.containsKey(entityKey) && !changedDuringRebuild.contains(entityKey)) {
+                        remove(entityKey);
+                    }
+                }
+                loaded.forEach((entityKey, suggestion) -> {
+                    if (!changedDuringRebuild.contains(entityKey)) {
+                        put(entityKey, suggestion);
+                    }
+                });
+            }
+            rebuiltGenerations = generations;
+            log.debug("Rebuilt the title suggestions of {} documents and CCPs", loaded.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild the title suggestions: {}", e.getMessage());
+        } finally {
+            synchronized (lock) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    private void reload(Map<String, Set<Long>> entityIds) {
+        Map<String, SuggestionDTO> loaded = new HashMap<>();
+        transactionTemplate.execute(status -> {
+            Set<Long> documentIds = entityIds.getOrDefault(SearchOutboxService.DOCUMENT, Collections.emptySet());
+            if (!documentIds.isEmpty()) {
+                documentRepository.findSummariesByIdIn(documentIds).forEach(document -> loaded.put(entityKey(SearchOutboxService.DOCUMENT, document.getId()),
+                    new SuggestionDTO(SearchOutboxService.DOCUMENT, document.getId(), document.getTitle())));
+            }
+            Set<Long> cCPIds = entityIds.getOrDefault(SearchOutboxService.CCP, Collections.emptySet());
+            if (!cCPIds.isEmpty()) {
+                cCPRepository.findSummariesByIdIn(cCPIds).forEach(cCP -> loaded.put(entityKey(SearchOutboxService.CCP, cCP.getId()),
+                    new SuggestionDTO(SearchOutboxService.CCP, cCP.getId(), cCP.getTitle())));
+            }
+            return null;
+        });
+        synchronized (lock) {
+            entityIds.forEach((entityType, ids) -> ids.forEach(id -> {
+                String entityKey = entityKey(entityType, id);
+                SuggestionDTO suggestion = loaded.get(entityKey);
+                if (suggestion == null) {
+                    remove(entityKey);
+                } else {
+                    put(entityKey, suggestion);
+                }
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.add(entityKey);
+                }
+            }));
+        }
+    }
+
+    private void put(String entityKey, SuggestionDTO suggestion) {
+        List<String> previousKeys = keysByEntity.get(entityKey);
+        if (previousKeys != null) {
+            Suggestion previous = suggestions.get(previousKeys.get(0));
+            if (previous != null && Objects.equals(suggestion.getTitle(), previous.dto.getTitle())) {
+                // Left in place, so that a rebuild does not make unchanged titles disappear for a while
+                return;
+            }
+        }
+        remove(entityKey);
+        Suggestion entry = new Suggestion(suggestion);
+        List<String> keys = new ArrayList<>();
+        for (String word : new LinkedHashSet<>(TextNormalizer.words(suggestion.getTitle()))) {
+            String key = word + KEY_SEPARATOR + entityKey;
+            suggestions.put(key, entry);
+            keys.add(key);
+        }
+        if (!keys.isEmpty()) {
+            keysByEntity.put(entityKey, keys);
+        }
+    }
+
+    private void remove(String entityKey) {
+        List<String> keys = keysByEntity.remove(entityKey);
+        if (keys != null) {
+            keys.forEach(suggestions::remove);
+        }
+    }
+
+    private static String entityKey(String entityType, Long entityId) {
+        return entityType + KEY_SEPARATOR + entityId;
+    }
+
+    /**
+     * A suggested title, with its folded words each preceded by a space, to match the prefixes of several words.
+     */
+    private static final class Suggestion {
+
+        private final SuggestionDTO dto;
+
+        private final String words;
+
+        private Suggestion(SuggestionDTO dto) {
+            this.dto = dto;
+            this.words = ' ' + TextNormalizer.fold(dto.getTitle());
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.tothapplication.domain.Authority;
 import com.tothapplication.domain.User;
 import com.tothapplication.repository.AuthorityRepository;
 import com.tothapplication.repository.UserRepository;
-import com.tothapplication.repository.search.UserSearchRepository;
 import com.tothapplication.security.AuthoritiesConstants;
 import com.tothapplication.security.SecurityUtils;
 import com.tothapplication.service.dto.UserDTO;
@@ -40,18 +39,21 @@ public class UserService {
 
     private final PasswordEncoder passwordEncoder;
 
-    private final UserSearchRepository userSearchRepository;
+    private final SearchOutboxService searchOutboxService;
 
     private final AuthorityRepository authorityRepository;
 
     private final CacheManager cacheManager;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, UserSearchRepository userSearchRepository, AuthorityRepository authorityRepository, CacheManager cacheManager) {
+    private final EntityTagService entityTagService;
+
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, SearchOutboxService searchOutboxService, AuthorityRepository authorityRepository, CacheManager cacheManager, EntityTagService entityTagService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
-        this.userSearchRepository = userSearchRepository;
+        this.searchOutboxService = searchOutboxService;
         this.authorityRepository = authorityRepository;
         this.cacheManager = cacheManager;
+        this.entityTagService = entityTagService;
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -61,7 +63,7 @@ public class UserService {
                 // activate given user for the registration key.
                 user.setActivated(true);
                 user.setActivationKey(null);
-                userSearchRepository.save(user);
+                searchOutboxService.changed(SearchOutboxService.USER, user.getId());
                 this.clearUserCaches(user);
                 log.debug("Activated user: {}", user);
                 return user;
@@ -123,7 +125,7 @@ public class UserService {
         authorityRepository.findById(AuthoritiesConstants.USER).ifPresent(authorities::add);
         newUser.setAuthorities(authorities);
         userRepository.save(newUser);
-        userSearchRepository.save(newUser);
+        searchOutboxService.changed(SearchOutboxService.USER, newUser.getId());
         this.clearUserCaches(newUser);
         log.debug("Created Information for User: {}", newUser);
         return newUser;
@@ -135,6 +137,7 @@ public class UserService {
         }
         userRepository.delete(existingUser);
         userRepository.flush();
+        searchOutboxService.changed(SearchOutboxService.USER, existingUser.getId());
         this.clearUserCaches(existingUser);
         return true;
     }
@@ -165,7 +168,7 @@ public class UserService {
             user.setAuthorities(authorities);
         }
         userRepository.save(user);
-        userSearchRepository.save(user);
+        searchOutboxService.changed(SearchOutboxService.USER, user.getId());
         this.clearUserCaches(user);
         log.debug("Created Information for User: {}", user);
         return user;
@@ -189,7 +192,7 @@ public class UserService {
                 user.setEmail(email.toLowerCase());
                 user.setLangKey(langKey);
                 user.setImageUrl(imageUrl);
-                userSearchRepository.save(user);
+                searchOutboxService.changed(SearchOutboxService.USER, user.getId());
                 this.clearUserCaches(user);
                 log.debug("Changed Information for User: {}", user);
             });
@@ -222,7 +225,7 @@ public class UserService {
                     .filter(Optional::isPresent)
                     .map(Optional::get)
                     .forEach(managedAuthorities::add);
-                userSearchRepository.save(user);
+                searchOutboxService.changed(SearchOutboxService.USER, user.getId());
                 this.clearUserCaches(user);
                 log.debug("Changed Information for User: {}", user);
                 return user;
@@ -233,7 +236,7 @@ public class UserService {
     public void deleteUser(String login) {
         userRepository.findOneByLogin(login).ifPresent(user -> {
             userRepository.delete(user);
-            userSearchRepository.delete(user);
+            searchOutboxService.changed(SearchOutboxService.USER, user.getId());
             this.clearUserCaches(user);
             log.debug("Deleted User: {}", user);
         });
@@ -286,7 +289,7 @@ public class UserService {
             .forEach(user -> {
                 log.debug("Deleting not activated user {}", user.getLogin());
                 userRepository.delete(user);
-                userSearchRepository.delete(user);
+                searchOutboxService.changed(SearchOutboxService.USER, user.getId());
                 this.clearUserCaches(user);
             });
     }
@@ -302,5 +305,6 @@ public class UserService {
     private void clearUserCaches(User user) {
         Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE)).evict(user.getLogin());
         Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE)).evict(user.getEmail());
+        entityTagService.evict(EntityTagService.USER_TAGS_CACHE, user.getLogin());
     }
 }
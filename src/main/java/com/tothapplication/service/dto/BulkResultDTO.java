@@ -0,0 +1,37 @@
+package com.tothapplication.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO representing the report of a bulk request: one result per item, in request order.
+ */
+public class BulkResultDTO {
+
+    private boolean errors;
+
+    private List<BulkItemResultDTO> items = new ArrayList<>();
+
+    public boolean isErrors() {
+        return errors;
+    }
+
+    public void setErrors(boolean errors) {
+        this.errors = errors;
+    }
+
+    public List<BulkItemResultDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<BulkItemResultDTO> items) {
+        this.items = items;
+    }
+
+    public void addItem(BulkItemResultDTO item) {
+        items.add(item);
+        if (item.getError() != null) {
+            errors = true;
+        }
+    }
+}
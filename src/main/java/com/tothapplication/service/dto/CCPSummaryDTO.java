@@ -0,0 +1,44 @@
+package com.tothapplication.service.dto;
+
+/**
+ * A DTO representing a CCP in listings.
+ */
+public class CCPSummaryDTO {
+
+    private Long id;
+
+    private String title;
+
+    public CCPSummaryDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public CCPSummaryDTO(Long id, String title) {
+        this.id = id;
+        this.title = title;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    @Override
+    public String toString() {
+        return "CCPSummaryDTO{" +
+            "id=" + id +
+            ", title='" + title + "'" +
+            "}";
+    }
+}
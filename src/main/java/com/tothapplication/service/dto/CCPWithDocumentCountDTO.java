@@ -0,0 +1,68 @@
+package com.tothapplication.service.dto;
+
+/**
+ * A DTO representing a CCP with the number of its documents.
+ */
+public class CCPWithDocumentCountDTO {
+
+    private Long id;
+
+    private String title;
+
+    private String desc;
+
+    private long documentCount;
+
+    public CCPWithDocumentCountDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public CCPWithDocumentCountDTO(Long id, String title, String desc, long documentCount) {
+        this.id = id;
+        this.title = title;
+        this.desc = desc;
+        this.documentCount = documentCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    public void setDesc(String desc) {
+        this.desc = desc;
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    public void setDocumentCount(long documentCount) {
+        this.documentCount = documentCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CCPWithDocumentCountDTO{" +
+            "id=" + id +
+            ", title='" + title + "'" +
+            ", desc='" + desc + "'" +
+            ", documentCount=" + documentCount +
+            "}";
+    }
+}
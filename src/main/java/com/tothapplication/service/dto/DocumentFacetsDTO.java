@@ -0,0 +1,49 @@
+package com.tothapplication.service.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A DTO representing the facet counts of a set of documents: how many of them have each type, and each CCP.
+ */
+public class DocumentFacetsDTO {
+
+    private long total;
+
+    private Map<String, Long> typeDoc = new LinkedHashMap<>();
+
+    private Map<Long, Long> ccps = new LinkedHashMap<>();
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public Map<String, Long> getTypeDoc() {
+        return typeDoc;
+    }
+
+    public void setTypeDoc(Map<String, Long> typeDoc) {
+        this.typeDoc = typeDoc;
+    }
+
+    public Map<Long, Long> getCcps() {
+        return ccps;
+    }
+
+    public void setCcps(Map<Long, Long> ccps) {
+        this.ccps = ccps;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentFacetsDTO{" +
+            "total=" + total +
+            ", typeDoc=" + typeDoc +
+            ", ccps=" + ccps +
+            "}";
+    }
+}
@@ -0,0 +1,39 @@
+package com.tothapplication.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO representing the documents matching a {@link DocumentMembershipQueryDTO}: a page of their ids, and the
+ * facet counts of all of them.
+ */
+public class DocumentMembershipDTO {
+
+    private List<Long> ids = new ArrayList<>();
+
+    private DocumentFacetsDTO facets = new DocumentFacetsDTO();
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public DocumentFacetsDTO getFacets() {
+        return facets;
+    }
+
+    public void setFacets(DocumentFacetsDTO facets) {
+        this.facets = facets;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentMembershipDTO{" +
+            "ids=" + ids +
+            ", facets=" + facets +
+            "}";
+    }
+}
@@ -0,0 +1,88 @@
+package com.tothapplication.service.dto;
+
+import com.tothapplication.domain.enumeration.TypeDocument;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A DTO representing a boolean query on the CCPs and types of documents. Every criterion given must match.
+ */
+public class DocumentMembershipQueryDTO {
+
+    private Set<Long> allCcpIds = new HashSet<>();
+
+    private Set<Long> anyCcpIds = new HashSet<>();
+
+    private Set<Long> notCcpIds = new HashSet<>();
+
+    private Set<TypeDocument> typeDoc = new HashSet<>();
+
+    private Set<TypeDocument> notTypeDoc = new HashSet<>();
+
+    /**
+     * @return the CCPs the documents must all be linked to.
+     */
+    public Set<Long> getAllCcpIds() {
+        return allCcpIds;
+    }
+
+    public void setAllCcpIds(Set<Long> allCcpIds) {
+        this.allCcpIds = allCcpIds;
+    }
+
+    /**
+     * @return the CCPs the documents must be linked to at least one of.
+     */
+    public Set<Long> getAnyCcpIds() {
+        return anyCcpIds;
+    }
+
+    public void setAnyCcpIds(Set<Long> anyCcpIds) {
+        this.anyCcpIds = anyCcpIds;
+    }
+
+    /**
+     * @return the CCPs the documents must not be linked to.
+     */
+    public Set<Long> getNotCcpIds() {
+        return notCcpIds;
+    }
+
+    public void setNotCcpIds(Set<Long> notCcpIds) {
+        this.notCcpIds = notCcpIds;
+    }
+
+    /**
+     * @return the types the documents must have one of.
+     */
+    public Set<TypeDocument> getTypeDoc() {
+        return typeDoc;
+    }
+
+    public void setTypeDoc(Set<TypeDocument> typeDoc) {
+        this.typeDoc = typeDoc;
+    }
+
+    /**
+     * @return the types the documents must not have.
+     */
+    public Set<TypeDocument> getNotTypeDoc() {
+        return notTypeDoc;
+    }
+
+    public void setNotTypeDoc(Set<TypeDocument> notTypeDoc) {
+        this.notTypeDoc = notTypeDoc;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentMembershipQueryDTO{" +
+            "allCcpIds=" + allCcpIds +
+            ", anyCcpIds=" + anyCcpIds +
+            ", notCcpIds=" + notCcpIds +
+            ", typeDoc=" + typeDoc +
+            ", notTypeDoc=" + notTypeDoc +
+            "}";
+    }
+}
@@ -0,0 +1,74 @@
+package com.tothapplication.service.dto;
+
+import com.tothapplication.domain.enumeration.TypeDocument;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A DTO representing a structured search of documents. Every criterion given must match; a criterion listing
+ * several values matches any of them.
+ */
+public class DocumentSearchDTO {
+
+    private Set<TypeDocument> typeDoc = new HashSet<>();
+
+    private Set<Long> ccpIds = new HashSet<>();
+
+    private Set<String> ccpTitles = new HashSet<>();
+
+    private String title;
+
+    private String mimeTypePrefix;
+
+    public Set<TypeDocument> getTypeDoc() {
+        return typeDoc;
+    }
+
+    public void setTypeDoc(Set<TypeDocument> typeDoc) {
+        this.typeDoc = typeDoc;
+    }
+
+    public Set<Long> getCcpIds() {
+        return ccpIds;
+    }
+
+    public void setCcpIds(Set<Long> ccpIds) {
+        this.ccpIds = ccpIds;
+    }
+
+    public Set<String> getCcpTitles() {
+        return ccpTitles;
+    }
+
+    public void setCcpTitles(Set<String> ccpTitles) {
+        this.ccpTitles = ccpTitles;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getMimeTypePrefix() {
+        return mimeTypePrefix;
+    }
+
+    public void setMimeTypePrefix(String mimeTypePrefix) {
+        this.mimeTypePrefix = mimeTypePrefix;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentSearchDTO{" +
+            "typeDoc=" + typeDoc +
+            ", ccpIds=" + ccpIds +
+            ", ccpTitles=" + ccpTitles +
+            ", title='" + title + "'" +
+            ", mimeTypePrefix='" + mimeTypePrefix + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,72 @@
+package com.tothapplication.service.dto;
+
+import com.tothapplication.domain.enumeration.TypeDocument;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A DTO representing a document in listings: its CCPs are given by id only.
+ */
+public class DocumentSummaryDTO {
+
+    private Long id;
+
+    private String title;
+
+    private TypeDocument typeDoc;
+
+    private Set<Long> ccpIds = new LinkedHashSet<>();
+
+    public DocumentSummaryDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public DocumentSummaryDTO(Long id, String title, TypeDocument typeDoc) {
+        this.id = id;
+        this.title = title;
+        this.typeDoc = typeDoc;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public TypeDocument getTypeDoc() {
+        return typeDoc;
+    }
+
+    public void setTypeDoc(TypeDocument typeDoc) {
+        this.typeDoc = typeDoc;
+    }
+
+    public Set<Long> getCcpIds() {
+        return ccpIds;
+    }
+
+    public void setCcpIds(Set<Long> ccpIds) {
+        this.ccpIds = ccpIds;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentSummaryDTO{" +
+            "id=" + id +
+            ", title='" + title + "'" +
+            ", typeDoc='" + typeDoc + "'" +
+            ", ccpIds=" + ccpIds +
+            "}";
+    }
+}
@@ -0,0 +1,57 @@
+package com.tothapplication.service.dto;
+
+/**
+ * A DTO representing a frequently requested cache key: its sampled count of requests, which overestimates the
+ * actual count by at most {@code error}.
+ */
+public class HotKeyDTO {
+
+    private String key;
+
+    private long count;
+
+    private long error;
+
+    public HotKeyDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public HotKeyDTO(String key, long count, long error) {
+        this.key = key;
+        this.count = count;
+        this.error = error;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getError() {
+        return error;
+    }
+
+    public void setError(long error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "HotKeyDTO{" +
+            "key='" + key + "'" +
+            ", count=" + count +
+            ", error=" + error +
+            "}";
+    }
+}
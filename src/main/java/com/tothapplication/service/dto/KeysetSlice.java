@@ -0,0 +1,35 @@
+package com.tothapplication.service.dto;
+
+import com.tothapplication.service.util.KeysetCursor;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A DTO representing one page of a keyset-paginated listing, with the cursor to the next page if any.
+ *
+ * @param <T> the type of the page elements.
+ */
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+
+    private final KeysetCursor next;
+
+    public KeysetSlice(List<T> content, KeysetCursor next) {
+        this.content = content;
+        this.next = next;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public Optional<KeysetCursor> getNext() {
+        return Optional.ofNullable(next);
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
@@ -0,0 +1,168 @@
+package com.tothapplication.service.dto;
+
+import com.tothapplication.domain.ReindexCheckpoint;
+import com.tothapplication.domain.enumeration.ReindexStatus;
+
+import java.time.Instant;
+
+/**
+ * A DTO representing the progress of the full reindex of an entity type.
+ * <p>
+ * The throughput and the estimated time left are only known while the reindex runs.
+ */
+public class ReindexStatusDTO {
+
+    private String entityType;
+
+    private ReindexStatus status;
+
+    private long total;
+
+    private long indexed;
+
+    private long failed;
+
+    private String targetIndex;
+
+    private Long lastId;
+
+    private Instant startedDate;
+
+    private Instant updatedDate;
+
+    private String lastError;
+
+    private Double docsPerSecond;
+
+    private Long etaSeconds;
+
+    public ReindexStatusDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public ReindexStatusDTO(ReindexCheckpoint checkpoint) {
+        this.entityType = checkpoint.getEntityType();
+        this.status = checkpoint.getStatus();
+        this.total = checkpoint.getTotal();
+        this.indexed = checkpoint.getIndexed();
+        this.failed = checkpoint.getFailed();
+        this.targetIndex = checkpoint.getTargetIndex();
+        this.lastId = checkpoint.getLastId();
+        this.startedDate = checkpoint.getStartedDate();
+        this.updatedDate = checkpoint.getUpdatedDate();
+        this.lastError = checkpoint.getLastError();
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public ReindexStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ReindexStatus status) {
+        this.status = status;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getIndexed() {
+        return indexed;
+    }
+
+    public void setIndexed(long indexed) {
+        this.indexed = indexed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public String getTargetIndex() {
+        return targetIndex;
+    }
+
+    public void setTargetIndex(String targetIndex) {
+        this.targetIndex = targetIndex;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+
+    public Instant getStartedDate() {
+        return startedDate;
+    }
+
+    public void setStartedDate(Instant startedDate) {
+        this.startedDate = startedDate;
+    }
+
+    public Instant getUpdatedDate() {
+        return updatedDate;
+    }
+
+    public void setUpdatedDate(Instant updatedDate) {
+        this.updatedDate = updatedDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Double getDocsPerSecond() {
+        return docsPerSecond;
+    }
+
+    public void setDocsPerSecond(Double docsPerSecond) {
+        this.docsPerSecond = docsPerSecond;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "ReindexStatusDTO{" +
+            "entityType='" + entityType + "'" +
+            ", status='" + status + "'" +
+            ", total=" + total +
+            ", indexed=" + indexed +
+            ", failed=" + failed +
+            ", targetIndex='" + targetIndex + "'" +
+            ", lastId=" + lastId +
+            ", startedDate='" + startedDate + "'" +
+            ", updatedDate='" + updatedDate + "'" +
+            ", docsPerSecond=" + docsPerSecond +
+            ", etaSeconds=" + etaSeconds +
+            "}";
+    }
+}
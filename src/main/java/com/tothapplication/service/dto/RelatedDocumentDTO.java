@@ -0,0 +1,70 @@
+package com.tothapplication.service.dto;
+
+import com.tothapplication.domain.enumeration.TypeDocument;
+
+/**
+ * A DTO representing a document related to another one, with the number of CCPs they share.
+ */
+public class RelatedDocumentDTO {
+
+    private Long id;
+
+    private String title;
+
+    private TypeDocument typeDoc;
+
+    private int sharedCcps;
+
+    public RelatedDocumentDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public RelatedDocumentDTO(DocumentSummaryDTO document, int sharedCcps) {
+        this.id = document.getId();
+        this.title = document.getTitle();
+        this.typeDoc = document.getTypeDoc();
+        this.sharedCcps = sharedCcps;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public TypeDocument getTypeDoc() {
+        return typeDoc;
+    }
+
+    public void setTypeDoc(TypeDocument typeDoc) {
+        this.typeDoc = typeDoc;
+    }
+
+    public int getSharedCcps() {
+        return sharedCcps;
+    }
+
+    public void setSharedCcps(int sharedCcps) {
+        this.sharedCcps = sharedCcps;
+    }
+
+    @Override
+    public String toString() {
+        return "RelatedDocumentDTO{" +
+            "id=" + id +
+            ", title='" + title + "'" +
+            ", typeDoc='" + typeDoc + "'" +
+            ", sharedCcps=" + sharedCcps +
+            "}";
+    }
+}
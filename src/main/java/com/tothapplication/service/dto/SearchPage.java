@@ -0,0 +1,53 @@
+package com.tothapplication.service.dto;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A DTO representing one page of search hits, with the total number of hits and the cursor to the next page if any.
+ *
+ * @param <T> the type of the hits.
+ */
+public class SearchPage<T> {
+
+    private final List<T> content;
+
+    private final long total;
+
+    private final String next;
+
+    public SearchPage(List<T> content, long total, String next) {
+        this.content = content;
+        this.total = total;
+        this.next = next;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the encoded {@code search_after} cursor of the next page, or an empty {@link Optional} on the last page.
+     */
+    public Optional<String> getNext() {
+        return Optional.ofNullable(next);
+    }
+
+    /**
+     * Get this page as a numbered page.
+     *
+     * @param pageable the requested page.
+     * @return the page.
+     */
+    public Page<T> toPage(Pageable pageable) {
+        return new PageImpl<>(content, pageable, total);
+    }
+}
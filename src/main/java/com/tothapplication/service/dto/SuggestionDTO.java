@@ -0,0 +1,56 @@
+package com.tothapplication.service.dto;
+
+/**
+ * A DTO representing a title suggested for a typed prefix.
+ */
+public class SuggestionDTO {
+
+    private String type;
+
+    private Long id;
+
+    private String title;
+
+    public SuggestionDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public SuggestionDTO(String type, Long id, String title) {
+        this.type = type;
+        this.id = id;
+        this.title = title;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    @Override
+    public String toString() {
+        return "SuggestionDTO{" +
+            "type='" + type + "'" +
+            ", id=" + id +
+            ", title='" + title + "'" +
+            "}";
+    }
+}
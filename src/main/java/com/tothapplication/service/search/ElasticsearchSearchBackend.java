@@ -0,0 +1,313 @@
+package com.tothapplication.service.search;
+
+import com.tothapplication.service.IndexAliasService;
+import com.tothapplication.service.dto.SearchPage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Index;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchResult;
+import io.searchbox.core.search.aggregation.TermsAggregation;
+import io.searchbox.params.Parameters;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * {@link SearchBackend} storing the indices in an Elasticsearch cluster, reached through Jest.
+ * <p>
+ * Pages read by number use {@code from} and {@code size}. Every page also comes with a {@code search_after} cursor
+ * made of the sort values of its last hit: following the cursors reads the next pages at a constant cost, however
+ * deep, since the shards do not have to collect and skip all the previous hits. Text properties are sorted on their
+ * {@code .keyword} sub-field, the others, ids included, on their own values.
+ * <p>
+ * Facets are counted with terms aggregations, in a {@code size=0} search.
+ * <p>
+ * Writes are sent as one {@code _bulk} request, and the versioned indices are managed by the
+ * {@link IndexAliasService}.
+ */
+public class ElasticsearchSearchBackend implements SearchBackend {
+
+    private static final String ID_FIELD = "id";
+
+    private static final String SCORE_FIELD = "_score";
+
+    private static final String KEYWORD_SUFFIX = ".keyword";
+
+    private static final String KEYWORD_TYPE = "keyword";
+
+    private static final String LONG_TYPE = "long";
+
+    private static final String CREATE_OPERATION = "create";
+
+    private final Logger log = LoggerFactory.getLogger(ElasticsearchSearchBackend.class);
+
+    private final JestClient jestClient;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    private final EntityMapper entityMapper;
+
+    private final IndexAliasService indexAliasService;
+
+    public ElasticsearchSearchBackend(JestClient jestClient, ElasticsearchOperations elasticsearchOperations,
+                                      EntityMapper entityMapper, IndexAliasService indexAliasService) {
+        this.jestClient = jestClient;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.entityMapper = entityMapper;
+        this.indexAliasService = indexAliasService;
+    }
+
+    @Override
+    public <T> SearchPage<T> search(Class<T> entityClass, QueryBuilder query, Pageable pageable, String cursor) throws IOException {
+        int size = pageable.getPageSize();
+        SearchSourceBuilder source = new SearchSourceBuilder().query(query).size(size);
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchOperations.getPersistentEntityFor(entityClass);
+        List<SortBuilder<?>> sorts = sorts(persistentEntity, pageable.getSort());
+        sorts.forEach(source::sort);
+        JsonArray searchAfter = null;
+        if (cursor != null) {
+            searchAfter = SearchCursors.decode(cursor);
+            if (searchAfter.size() != sorts.size()) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+        } else {
+            source.from((int) pageable.getOffset());
+        }
+        JsonObject body = new JsonParser().parse(source.toString()).getAsJsonObject();
+        if (searchAfter != null) {
+            body.add("search_after", searchAfter);
+        }
+
+        log.debug("Searching {} after {}: {}", persistentEntity.getIndexName(), cursor, body);
+        SearchResult result = execute(persistentEntity, body.toString());
+
+        JsonObject hits = result.getJsonObject().getAsJsonObject("hits");
+        long total = hits.get("total").getAsLong();
+        List<T> content = new ArrayList<>();
+        JsonArray lastSort = null;
+        for (JsonElement hit : hits.getAsJsonArray("hits")) {
+            content.add(entityMapper.mapToObject(hit.getAsJsonObject().get("_source").toString(), entityClass));
+            lastSort = hit.getAsJsonObject().getAsJsonArray("sort");
+        }
+        boolean hasNext = content.size() == size && (cursor != null || pageable.getOffset() + size < total);
+        return new SearchPage<>(content, total, hasNext && lastSort != null ? SearchCursors.encode(lastSort) : null);
+    }
+
+    @Override
+    public long[] searchIds(Class<?> entityClass, QueryBuilder query, int limit) throws IOException {
+        SearchSourceBuilder source = new SearchSourceBuilder().query(query).size(limit).fetchSource(false);
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchOperations.getPersistentEntityFor(entityClass);
+        log.debug("Searching the ids of {}: {}", persistentEntity.getIndexName(), source);
+        JsonArray hits = execute(persistentEntity, source.toString()).getJsonObject().getAsJsonObject("hits").getAsJsonArray("hits");
+        long[] ids = new long[hits.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = hits.get(i).getAsJsonObject().get("_id").getAsLong();
+        }
+        return ids;
+    }
+
+    @Override
+    public Optional<TermCounts> countTerms(Class<?> entityClass, QueryBuilder query, Map<String, Integer> fields) throws IOException {
+        // No hit is fetched, so the result is served from the shard request cache until the index changes
+        SearchSourceBuilder source = new SearchSourceBuilder().query(query).size(0);
+        fields.forEach((field, size) -> source.aggregation(AggregationBuilders.terms(field).field(field).size(size)));
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchOperations.getPersistentEntityFor(entityClass);
+        log.debug("Counting the terms of {}: {}", persistentEntity.getIndexName(), source);
+        SearchResult result = execute(persistentEntity, source.toString());
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        for (String field : fields.keySet()) {
+            Map<String, Long> values = new LinkedHashMap<>();
+            TermsAggregation aggregation = result.getAggregations().getTermsAggregation(field);
+            if (aggregation != null) {
+                aggregation.getBuckets().forEach(bucket -> values.put(bucket.getKey(), bucket.getCount()));
+            }
+            counts.put(field, values);
+        }
+        return Optional.of(new TermCounts(result.getTotal(), counts));
+    }
+
+    private SearchResult execute(ElasticsearchPersistentEntity<?> persistentEntity, String body) throws IOException {
+        SearchResult result = jestClient.execute(new Search.Builder(body)
+            .addIndex(persistentEntity.getIndexName()).addType(persistentEntity.getIndexType()).build());
+        if (!result.isSucceeded()) {
+            if (result.getResponseCode() == 400) {
+                throw new IllegalArgumentException("Invalid search: " + result.getErrorMessage());
+            }
+            throw new IllegalStateException(result.getErrorMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Translate a sort on entity properties, ending with the id.
+     */
+    private static List<SortBuilder<?>> sorts(ElasticsearchPersistentEntity<?> persistentEntity, Sort sort) {
+        List<SortBuilder<?>> sorts = new ArrayList<>();
+        boolean byId = false;
+        if (sort.isUnsorted()) {
+            sorts.add(SortBuilders.scoreSort());
+        }
+        for (Sort.Order order : sort) {
+            SortOrder direction = order.isAscending() ? SortOrder.ASC : SortOrder.DESC;
+            String property = order.getProperty();
+            if (SCORE_FIELD.equals(property)) {
+                sorts.add(SortBuilders.scoreSort().order(direction));
+            } else {
+                byId |= ID_FIELD.equals(property);
+                sorts.add(fieldSort(persistentEntity, property).order(direction));
+            }
+        }
+        if (!byId) {
+            sorts.add(SortBuilders.fieldSort(ID_FIELD).order(SortOrder.ASC).unmappedType(LONG_TYPE));
+        }
+        return sorts;
+    }
+
+    /**
+     * Sort on a property: text properties, mapped dynamically, on their keyword sub-field, the others on themselves.
+     */
+    private static FieldSortBuilder fieldSort(ElasticsearchPersistentEntity<?> persistentEntity, String property) {
+        if (property.endsWith(KEYWORD_SUFFIX)) {
+            return SortBuilders.fieldSort(property).unmappedType(KEYWORD_TYPE);
+        }
+        ElasticsearchPersistentProperty persistentProperty = persistentEntity.getPersistentProperty(property);
+        String type = persistentProperty != null ? sortType(persistentProperty) : null;
+        if (type == null) {
+            return SortBuilders.fieldSort(property + KEYWORD_SUFFIX).unmappedType(KEYWORD_TYPE);
+        }
+        return SortBuilders.fieldSort(property).unmappedType(type);
+    }
+
+    /**
+     * The type of a property sorted on itself, or {@code null} for a text property.
+     */
+    private static String sortType(ElasticsearchPersistentProperty persistentProperty) {
+        Field field = persistentProperty.findAnnotation(Field.class);
+        if (field != null && field.type() != FieldType.Auto && field.type() != FieldType.Text) {
+            return field.type().name().toLowerCase(Locale.ROOT);
+        }
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(persistentProperty.getType());
+        if (Long.class.equals(type) || Integer.class.equals(type) || Short.class.equals(type) || Byte.class.equals(type)) {
+            return LONG_TYPE;
+        }
+        if (Number.class.isAssignableFrom(type)) {
+            return "double";
+        }
+        if (Boolean.class.equals(type)) {
+            return "boolean";
+        }
+        if (Temporal.class.isAssignableFrom(type) || Date.class.isAssignableFrom(type)) {
+            return "date";
+        }
+        return null;
+    }
+
+    @Override
+    public Map<Integer, String> bulk(List<IndexOperation> operations) throws IOException {
+        Map<Integer, String> errors = new HashMap<>();
+        if (operations.isEmpty()) {
+            return errors;
+        }
+        List<BulkableAction<?>> actions = new ArrayList<>(operations.size());
+        for (IndexOperation operation : operations) {
+            String indexType = elasticsearchOperations.getPersistentEntityFor(operation.getEntityClass()).getIndexType();
+            if (operation.isDelete()) {
+                actions.add(new Delete.Builder(operation.getId().toString()).index(operation.getIndex()).type(indexType).build());
+                continue;
+            }
+            Index.Builder action = new Index.Builder(operation.getSource()).index(operation.getIndex()).type(indexType)
+                .id(operation.getId().toString());
+            if (operation.isCreateOnly()) {
+                action.setParameter(Parameters.OP_TYPE, CREATE_OPERATION);
+            }
+            actions.add(action.build());
+        }
+        BulkResult result;
+        try {
+            result = jestClient.execute(new Bulk.Builder().addAction(actions).build());
+        } catch (RuntimeException e) {
+            throw new IOException(e);
+        }
+        List<BulkResult.BulkResultItem> items = result.getItems();
+        if (items.size() != actions.size()) {
+            throw new IOException(result.getErrorMessage() != null ? result.getErrorMessage() : "Unexpected _bulk response");
+        }
+        // Items are returned in the order of the actions
+        for (int i = 0; i < items.size(); i++) {
+            BulkResult.BulkResultItem item = items.get(i);
+            // A document to create that already exists was written by a more recent change
+            boolean alreadyCreated = CREATE_OPERATION.equals(item.operation) && item.status == HttpStatus.CONFLICT.value();
+            if (item.error != null && !alreadyCreated) {
+                errors.put(i, item.error);
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public String getIndexName(Class<?> entityClass) {
+        return indexAliasService.getAlias(entityClass);
+    }
+
+    @Override
+    public Set<String> getIndices(Class<?> entityClass) throws IOException {
+        return indexAliasService.getIndices(entityClass);
+    }
+
+    @Override
+    public String createNextIndex(Class<?> entityClass) throws IOException {
+        return indexAliasService.createNextIndex(entityClass);
+    }
+
+    @Override
+    public boolean exists(String index) throws IOException {
+        return indexAliasService.exists(index);
+    }
+
+    @Override
+    public void swap(Class<?> entityClass, String index) throws IOException {
+        indexAliasService.swap(entityClass, index);
+    }
+
+    @Override
+    public void deleteIndex(Class<?> entityClass, String index) throws IOException {
+        indexAliasService.deleteIndex(entityClass, index);
+    }
+}
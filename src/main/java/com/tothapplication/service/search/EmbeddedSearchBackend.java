@@ -0,0 +1,786 @@
+package com.tothapplication.service.search;
+
+import com.tothapplication.service.dto.SearchPage;
+import com.tothapplication.service.util.TextNormalizer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.IdsQueryBuilder;
+import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.PrefixQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * {@link SearchBackend} holding the indices in memory, in the application itself, for deployments without an
+ * Elasticsearch cluster.
+ * <p>
+ * Each index is an {@link InvertedIndex}. The supported queries are {@code match_all}, {@code match}, {@code term},
+ * {@code terms}, {@code prefix}, {@code ids}, {@code bool}, and {@code query_string} made of words, {@code field:value}
+ * clauses and trailing {@code *} wildcards, combined with {@code OR} unless {@code AND} is used. Keyword values, ids
+ * included, are sorted as strings.
+ * <p>
+ * Every write is appended to a journal, flushed to disk, before it is applied. The indices are periodically written
+ * to a snapshot, and the journal is then truncated. At startup the snapshot is memory-mapped and read back without
+ * analyzing the sources again, then the journal is replayed.
+ */
+public class EmbeddedSearchBackend implements SearchBackend {
+
+    private static final String SNAPSHOT_FILE = "indices.snapshot";
+
+    private static final String JOURNAL_FILE = "indices.journal";
+
+    private static final int SNAPSHOT_MAGIC = 0x54534930;
+
+    private static final byte PUT = 1;
+
+    private static final byte DELETE = 2;
+
+    private static final byte CREATE_INDEX = 3;
+
+    private static final byte SWAP = 4;
+
+    private static final byte CREATE = 5;
+
+    private static final byte DELETE_INDEX = 6;
+
+    private static final String VERSION_SEPARATOR = "_v";
+
+    private static final String ID_FIELD = "id";
+
+    private static final String SCORE_FIELD = "_score";
+
+    private static final Pattern CLAUSE = Pattern.compile("\"[^\"]*\"|\\S+");
+
+    private final Logger log = LoggerFactory.getLogger(EmbeddedSearchBackend.class);
+
+    private final ObjectMapper objectMapper;
+
+    private final EntityMapper entityMapper;
+
+    private final Path snapshot;
+
+    private final Path journal;
+
+    private final Map<String, InvertedIndex> indices = new TreeMap<>();
+
+    private final Map<String, String> aliases = new TreeMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel journalChannel;
+
+    public EmbeddedSearchBackend(Path directory, ObjectMapper objectMapper, EntityMapper entityMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        this.entityMapper = entityMapper;
+        Path root = directory.toAbsolutePath();
+        Files.createDirectories(root);
+        this.snapshot = root.resolve(SNAPSHOT_FILE);
+        this.journal = root.resolve(JOURNAL_FILE);
+        load();
+        log.info("Holding the search indices in {}: {}", root, indices.keySet());
+    }
+
+    @Override
+    public <T> SearchPage<T> search(Class<T> entityClass, QueryBuilder query, Pageable pageable, String cursor) throws IOException {
+        int size = pageable.getPageSize();
+        lock.readLock().lock();
+        try {
+            InvertedIndex index = resolve(indexName(entityClass));
+            if (index == null) {
+                return new SearchPage<>(Collections.emptyList(), 0, null);
+            }
+            InvertedIndex.Matches matches = evaluate(index, query);
+            List<SortField> sorts = sorts(index, pageable.getSort());
+            List<Hit> hits = new ArrayList<>(matches.docs.cardinality());
+            for (int doc = matches.docs.nextSetBit(0); doc >= 0; doc = matches.docs.nextSetBit(doc + 1)) {
+                hits.add(new Hit(doc, sortValues(index, sorts, doc, matches.scores[doc])));
+            }
+            Comparator<Object[]> order = order(sorts);
+            hits.sort((first, second) -> order.compare(first.sortValues, second.sortValues));
+
+            int start;
+            if (cursor != null) {
+                Object[] after = fromCursor(SearchCursors.decode(cursor), sorts);
+                start = 0;
+                while (start < hits.size() && order.compare(hits.get(start).sortValues, after) <= 0) {
+                    start++;
+                }
+            } else {
+                start = (int) Math.min(pageable.getOffset(), hits.size());
+            }
+            int end = Math.min(start + size, hits.size());
+            List<T> content = new ArrayList<>(end - start);
+            for (Hit hit : hits.subList(start, end)) {
+                content.add(entityMapper.mapToObject(index.source(hit.doc), entityClass));
+            }
+            String next = end < hits.size() && end > start ? SearchCursors.encode(toCursor(hits.get(end - 1).sortValues)) : null;
+            return new SearchPage<>(content, hits.size(), next);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] searchIds(Class<?> entityClass, QueryBuilder query, int limit) {
+        lock.readLock().lock();
+        try {
+            InvertedIndex index = resolve(indexName(entityClass));
+            if (index == null) {
+                return new long[0];
+            }
+            InvertedIndex.Matches matches = evaluate(index, query);
+            long[] ids = new long[Math.min(matches.docs.cardinality(), limit)];
+            int i = 0;
+            for (int doc = matches.docs.nextSetBit(0); doc >= 0 && i < ids.length; doc = matches.docs.nextSetBit(doc + 1)) {
+                ids[i++] = index.entityId(doc);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<TermCounts> countTerms(Class<?> entityClass, QueryBuilder query, Map<String, Integer> fields) {
+        // The values of the matching documents are not held by the inverted index
+        return Optional.empty();
+    }
+
+    private InvertedIndex.Matches evaluate(InvertedIndex index, QueryBuilder query) {
+        if (query instanceof MatchAllQueryBuilder) {
+            return index.all();
+        }
+        if (query instanceof QueryStringQueryBuilder) {
+            QueryStringQueryBuilder queryString = (QueryStringQueryBuilder) query;
+            return queryString(index, queryString.queryString(), queryString.defaultOperator() == Operator.AND);
+        }
+        if (query instanceof MatchQueryBuilder) {
+            MatchQueryBuilder match = (MatchQueryBuilder) query;
+            return match(index, match.fieldName(), String.valueOf(match.value()), match.operator() == Operator.AND);
+        }
+        if (query instanceof TermQueryBuilder) {
+            TermQueryBuilder term = (TermQueryBuilder) query;
+            return exact(index, term.fieldName(), Collections.singletonList(term.value()));
+        }
+        if (query instanceof TermsQueryBuilder) {
+            TermsQueryBuilder terms = (TermsQueryBuilder) query;
+            return exact(index, terms.fieldName(), terms.values());
+        }
+        if (query instanceof PrefixQueryBuilder) {
+            PrefixQueryBuilder prefix = (PrefixQueryBuilder) query;
+            return prefix(index, prefix.fieldName(), prefix.value());
+        }
+        if (query instanceof IdsQueryBuilder) {
+            return exact(index, ID_FIELD, new ArrayList<>(((IdsQueryBuilder) query).ids()));
+        }
+        if (query instanceof BoolQueryBuilder) {
+            return bool(index, (BoolQueryBuilder) query);
+        }
+        throw new IllegalArgumentException("Unsupported query: " + query.getName());
+    }
+
+    private InvertedIndex.Matches bool(InvertedIndex index, BoolQueryBuilder bool) {
+        InvertedIndex.Matches result = null;
+        for (QueryBuilder must : bool.must()) {
+            InvertedIndex.Matches matches = evaluate(index, must);
+            if (result == null) {
+                result = matches;
+            } else {
+                result.and(matches, true);
+            }
+        }
+        for (QueryBuilder filter : bool.filter()) {
+            InvertedIndex.Matches matches = evaluate(index, filter);
+            if (result == null) {
+                matches.clearScores();
+                result = matches;
+            } else {
+                result.and(matches, false);
+            }
+        }
+        if (result == null && !bool.should().isEmpty()) {
+            result = index.none();
+            for (QueryBuilder should : bool.should()) {
+                result.or(evaluate(index, should));
+            }
+        } else {
+            if (result == null) {
+                result = index.all();
+            }
+            for (QueryBuilder should : bool.should()) {
+                result.boost(evaluate(index, should));
+            }
+        }
+        for (QueryBuilder mustNot : bool.mustNot()) {
+            result.andNot(evaluate(index, mustNot));
+        }
+        return result;
+    }
+
+    private InvertedIndex.Matches queryString(InvertedIndex index, String queryString, boolean all) {
+        List<String> clauses = new ArrayList<>();
+        Matcher matcher = CLAUSE.matcher(queryString);
+        while (matcher.find()) {
+            clauses.add(matcher.group());
+        }
+        boolean and = all || clauses.contains("AND");
+        InvertedIndex.Matches result = null;
+        for (String clause : clauses) {
+            if ("AND".equals(clause) || "OR".equals(clause)) {
+                continue;
+            }
+            InvertedIndex.Matches matches;
+            int separator = clause.startsWith("\"") ? -1 : clause.indexOf(':');
+            if ("*".equals(clause)) {
+                matches = index.all();
+            } else if (separator > 0) {
+                String field = clause.substring(0, separator);
+                String value = unquote(clause.substring(separator + 1));
+                matches = value.endsWith("*") ? prefix(index, field, value.substring(0, value.length() - 1))
+                    : match(index, field, value, true);
+            } else if (clause.endsWith("*")) {
+                matches = prefix(index, InvertedIndex.ALL_FIELD, clause.substring(0, clause.length() - 1));
+            } else {
+                matches = index.match(InvertedIndex.ALL_FIELD, TextNormalizer.words(unquote(clause)), true);
+            }
+            if (result == null) {
+                result = matches;
+            } else if (and) {
+                result.and(matches, true);
+            } else {
+                result.or(matches);
+            }
+        }
+        return result == null ? index.none() : result;
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+    }
+
+    private static InvertedIndex.Matches match(InvertedIndex index, String field, String value, boolean all) {
+        if (index.isTextField(field)) {
+            return index.match(field, TextNormalizer.words(value), all);
+        }
+        return index.terms(field, Collections.singletonList(value));
+    }
+
+    private static InvertedIndex.Matches exact(InvertedIndex index, String field, List<Object> values) {
+        boolean text = index.isTextField(field);
+        return index.terms(field, values.stream()
+            .map(value -> text ? TextNormalizer.fold(String.valueOf(value)) : String.valueOf(value))
+            .collect(Collectors.toList()));
+    }
+
+    private static InvertedIndex.Matches prefix(InvertedIndex index, String field, String prefix) {
+        return index.prefix(field, index.isTextField(field) ? TextNormalizer.fold(prefix) : prefix);
+    }
+
+    /**
+     * Translate a sort on entity properties, ending with the id.
+     */
+    private static List<SortField> sorts(InvertedIndex index, Sort sort) {
+        List<SortField> sorts = new ArrayList<>();
+        boolean byId = false;
+        if (sort.isUnsorted()) {
+            sorts.add(new SortField(null, false));
+        }
+        for (Sort.Order order : sort) {
+            String property = order.getProperty();
+            if (SCORE_FIELD.equals(property)) {
+                sorts.add(new SortField(null, order.isAscending()));
+            } else {
+                byId |= ID_FIELD.equals(property);
+                boolean text = !property.endsWith(InvertedIndex.KEYWORD_SUFFIX) && index.isTextField(property);
+                sorts.add(new SortField(text ? property + InvertedIndex.KEYWORD_SUFFIX : property, order.isAscending()));
+            }
+        }
+        if (!byId) {
+            sorts.add(new SortField(ID_FIELD, true));
+        }
+        return sorts;
+    }
+
+    private static Object[] sortValues(InvertedIndex index, List<SortField> sorts, int doc, float score) {
+        Object[] values = new Object[sorts.size()];
+        for (int i = 0; i < values.length; i++) {
+            SortField sort = sorts.get(i);
+            values[i] = sort.field == null ? (Object) score : index.sortValue(sort.field, doc);
+        }
+        return values;
+    }
+
+    /**
+     * Order sort values like Elasticsearch does: missing values last, whatever the direction.
+     */
+    private static Comparator<Object[]> order(List<SortField> sorts) {
+        return (first, second) -> {
+            for (int i = 0; i < sorts.size(); i++) {
+                int comparison;
+                if (sorts.get(i).field == null) {
+                    comparison = Float.compare((Float) first[i], (Float) second[i]);
+                } else if (first[i] == null || second[i] == null) {
+                    comparison = first[i] == null ? (second[i] == null ? 0 : 1) : -1;
+                    if (comparison != 0) {
+                        return comparison;
+                    }
+                } else {
+                    comparison = InvertedIndex.compareSortValues(first[i], second[i]);
+                }
+                if (comparison != 0) {
+                    return sorts.get(i).ascending ? comparison : -comparison;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private static JsonArray toCursor(Object[] sortValues) {
+        JsonArray cursor = new JsonArray();
+        for (Object value : sortValues) {
+            if (value == null) {
+                cursor.add(JsonNull.INSTANCE);
+            } else if (value instanceof Float) {
+                cursor.add((Float) value);
+            } else if (value instanceof Long) {
+                cursor.add((Long) value);
+            } else {
+                cursor.add((String) value);
+            }
+        }
+        return cursor;
+    }
+
+    private static Object[] fromCursor(JsonArray cursor, List<SortField> sorts) {
+        if (cursor.size() != sorts.size()) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+        Object[] values = new Object[sorts.size()];
+        try {
+            for (int i = 0; i < values.length; i++) {
+                JsonElement value = cursor.get(i);
+                if (sorts.get(i).field == null) {
+                    values[i] = value.getAsFloat();
+                } else {
+                    values[i] = value.isJsonNull() ? null
+                        : value.getAsJsonPrimitive().isNumber() ? (Object) value.getAsLong() : value.getAsString();
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+        return values;
+    }
+
+    @Override
+    public Map<Integer, String> bulk(List<IndexOperation> operations) throws IOException {
+        Map<Integer, String> errors = new HashMap<>();
+        Map<Integer, JsonNode> trees = new HashMap<>();
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(records);
+        for (int i = 0; i < operations.size(); i++) {
+            IndexOperation operation = operations.get(i);
+            if (operation.isDelete()) {
+                writeRecord(out, DELETE, operation.getIndex(), operation.getId(), null);
+                continue;
+            }
+            try {
+                trees.put(i, objectMapper.readTree(operation.getSource()));
+            } catch (IOException e) {
+                errors.put(i, "Invalid source: " + e.getMessage());
+                continue;
+            }
+            // Create-only writes are journaled as such, so that replaying them skips the documents they skipped
+            writeRecord(out, operation.isCreateOnly() ? CREATE : PUT, operation.getIndex(), operation.getId(),
+                operation.getSource());
+        }
+        lock.writeLock().lock();
+        try {
+            appendToJournal(records.toByteArray());
+            for (int i = 0; i < operations.size(); i++) {
+                IndexOperation operation = operations.get(i);
+                if (operation.isDelete()) {
+                    indexForWrite(operation.getIndex()).remove(operation.getId());
+                } else if (trees.containsKey(i)) {
+                    InvertedIndex index = indexForWrite(operation.getIndex());
+                    // A document to create that already exists was written by a more recent change
+                    if (!operation.isCreateOnly() || !index.contains(operation.getId())) {
+                        index.put(operation.getId(), operation.getSource(), trees.get(i));
+                    }
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return errors;
+    }
+
+    @Override
+    public String getIndexName(Class<?> entityClass) {
+        return indexName(entityClass);
+    }
+
+    @Override
+    public Set<String> getIndices(Class<?> entityClass) {
+        String alias = indexName(entityClass);
+        lock.readLock().lock();
+        try {
+            Set<String> names = new TreeSet<>();
+            if (aliases.containsKey(alias)) {
+                names.add(aliases.get(alias));
+            } else if (indices.containsKey(alias)) {
+                names.add(alias);
+            }
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String createNextIndex(Class<?> entityClass) throws IOException {
+        String alias = indexName(entityClass);
+        lock.writeLock().lock();
+        try {
+            int version = 0;
+            Pattern versioned = Pattern.compile(Pattern.quote(alias + VERSION_SEPARATOR) + "(\\d+)");
+            for (String index : indices.keySet()) {
+                Matcher matcher = versioned.matcher(index);
+                if (matcher.matches()) {
+                    version = Math.max(version, Integer.parseInt(matcher.group(1)));
+                }
+            }
+            String index = alias + VERSION_SEPARATOR + (version + 1);
+            appendRecord(CREATE_INDEX, index, null);
+            indices.put(index, new InvertedIndex(objectMapper::readTree));
+            log.info("Created index {} for {}", index, alias);
+            return index;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String index) {
+        lock.readLock().lock();
+        try {
+            return indices.containsKey(index) || aliases.containsKey(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void swap(Class<?> entityClass, String index) throws IOException {
+        String alias = indexName(entityClass);
+        lock.writeLock().lock();
+        try {
+            if (!indices.containsKey(index)) {
+                throw new IOException("No such index " + index);
+            }
+            appendRecord(SWAP, alias, index);
+            applySwap(alias, index);
+            log.info("Swapped {} to {}", alias, index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteIndex(Class<?> entityClass, String index) throws IOException {
+        String alias = indexName(entityClass);
+        lock.writeLock().lock();
+        try {
+            if (index.equals(alias) || index.equals(aliases.get(alias))) {
+                throw new IllegalArgumentException(index + " is the current index of " + alias);
+            }
+            if (indices.containsKey(index)) {
+                appendRecord(DELETE_INDEX, index, null);
+                indices.remove(index);
+                log.info("Deleted index {} of {}", index, alias);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applySwap(String alias, String index) {
+        aliases.put(alias, index);
+        indices.keySet().removeIf(name -> !name.equals(index)
+            && (name.equals(alias) || name.startsWith(alias + VERSION_SEPARATOR)));
+    }
+
+    private static String indexName(Class<?> entityClass) {
+        org.springframework.data.elasticsearch.annotations.Document document =
+            entityClass.getAnnotation(org.springframework.data.elasticsearch.annotations.Document.class);
+        if (document == null) {
+            throw new IllegalArgumentException(entityClass.getName() + " is not indexed");
+        }
+        return document.indexName();
+    }
+
+    private InvertedIndex resolve(String name) {
+        return indices.get(aliases.getOrDefault(name, name));
+    }
+
+    /**
+     * Get the index written through a name, created if missing, as Elasticsearch creates indices on first write.
+     */
+    private InvertedIndex indexForWrite(String name) {
+        return indices.computeIfAbsent(aliases.getOrDefault(name, name), key -> new InvertedIndex(objectMapper::readTree));
+    }
+
+    private void compactIfNeeded() throws IOException {
+        for (Map.Entry<String, InvertedIndex> entry : indices.entrySet()) {
+            if (entry.getValue().needsCompaction()) {
+                entry.setValue(entry.getValue().compact());
+            }
+        }
+    }
+
+    /**
+     * Write the indices to a new snapshot and truncate the journal, if anything was written since the last snapshot.
+     * <p>
+     * This is scheduled every {@code application.search.embedded.snapshot-interval} milliseconds, and done on shutdown.
+     */
+    @Scheduled(fixedDelayString = "${application.search.embedded.snapshot-interval:60000}")
+    public synchronized void snapshot() {
+        // Searches go on, while writes wait until the journal is truncated
+        lock.readLock().lock();
+        try {
+            if (!journalChannel.isOpen() || journalChannel.size() == 0) {
+                return;
+            }
+            Path temporary = snapshot.resolveSibling(SNAPSHOT_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(aliases.size());
+                for (Map.Entry<String, String> alias : aliases.entrySet()) {
+                    writeString(out, alias.getKey());
+                    writeString(out, alias.getValue());
+                }
+                out.writeInt(indices.size());
+                for (Map.Entry<String, InvertedIndex> index : indices.entrySet()) {
+                    writeString(out, index.getKey());
+                    index.getValue().write(out);
+                }
+            }
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journalChannel.truncate(0);
+            journalChannel.force(true);
+            log.debug("Wrote a snapshot of the search indices: {}", indices.keySet());
+        } catch (IOException e) {
+            log.warn("Could not write a snapshot of the search indices, the journal is kept: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        snapshot();
+        journalChannel.close();
+    }
+
+    private void load() throws IOException {
+        if (Files.exists(snapshot)) {
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not a snapshot of search indices: " + snapshot);
+                }
+                int aliasCount = buffer.getInt();
+                for (int i = 0; i < aliasCount; i++) {
+                    aliases.put(readString(buffer), readString(buffer));
+                }
+                int indexCount = buffer.getInt();
+                for (int i = 0; i < indexCount; i++) {
+                    indices.put(readString(buffer), InvertedIndex.read(buffer, objectMapper::readTree));
+                }
+            }
+        }
+        journalChannel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long replayed = replay();
+        if (replayed < journalChannel.size()) {
+            log.warn("Dropping an incomplete record at the end of the search journal");
+            journalChannel.truncate(replayed);
+        }
+        journalChannel.position(journalChannel.size());
+        compactIfNeeded();
+    }
+
+    /**
+     * Apply the complete records of the journal.
+     *
+     * @return the length of the complete records.
+     */
+    private long replay() throws IOException {
+        long size = journalChannel.size();
+        if (size == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = journalChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        long replayed = 0;
+        int records = 0;
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer record = buffer.slice();
+            record.limit(length);
+            buffer.position(buffer.position() + length);
+            byte type = record.get();
+            String name = readString(record);
+            if (type == PUT || type == CREATE) {
+                long id = record.getLong();
+                String source = readString(record);
+                InvertedIndex index = indexForWrite(name);
+                if (type == PUT || !index.contains(id)) {
+                    index.put(id, source, objectMapper.readTree(source));
+                }
+            } else if (type == DELETE) {
+                indexForWrite(name).remove(record.getLong());
+            } else if (type == CREATE_INDEX) {
+                indices.put(name, new InvertedIndex(objectMapper::readTree));
+            } else if (type == SWAP) {
+                applySwap(name, readString(record));
+            } else if (type == DELETE_INDEX) {
+                indices.remove(name);
+            }
+            replayed = buffer.position();
+            records++;
+        }
+        log.info("Replayed {} records of the search journal", records);
+        return replayed;
+    }
+
+    private void appendRecord(byte type, String name, String value) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeInt(0);
+        out.writeByte(type);
+        writeString(out, name);
+        if (value != null) {
+            writeString(out, value);
+        }
+        byte[] bytes = record.toByteArray();
+        ByteBuffer.wrap(bytes).putInt(0, bytes.length - Integer.BYTES);
+        appendToJournal(bytes);
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, String index, Long id, String source) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream recordOut = new DataOutputStream(record);
+        recordOut.writeByte(type);
+        writeString(recordOut, index);
+        recordOut.writeLong(id);
+        if (source != null) {
+            writeString(recordOut, source);
+        }
+        out.writeInt(record.size());
+        record.writeTo(out);
+    }
+
+    private void appendToJournal(byte[] records) throws IOException {
+        if (records.length == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        while (buffer.hasRemaining()) {
+            journalChannel.write(buffer);
+        }
+        journalChannel.force(false);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupted search journal or snapshot");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class SortField {
+
+        /**
+         * The field, {@code null} for the score.
+         */
+        private final String field;
+
+        private final boolean ascending;
+
+        private SortField(String field, boolean ascending) {
+            this.field = field;
+            this.ascending = ascending;
+        }
+    }
+
+    private static final class Hit {
+
+        private final int doc;
+
+        private final Object[] sortValues;
+
+        private Hit(int doc, Object[] sortValues) {
+            this.doc = doc;
+            this.sortValues = sortValues;
+        }
+    }
+}
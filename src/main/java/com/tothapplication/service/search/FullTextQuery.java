@@ -0,0 +1,282 @@
+package com.tothapplication.service.search;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.IdsQueryBuilder;
+import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.PrefixQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Translation of a query into the SQL run by the {@link PostgresSearchBackend}.
+ * <p>
+ * Text is turned into a {@code tsquery} by {@code websearch_to_tsquery} and matched against the {@code search_vector}
+ * of the table, whatever the text field it targets. The other clauses compare the values of the columns. Rows are
+ * ranked by {@code ts_rank} against the text of the scoring clauses, that is outside of filters and exclusions.
+ */
+final class FullTextQuery {
+
+    static final String CONFIGURATION = "french";
+
+    private static final String KEYWORD_SUFFIX = ".keyword";
+
+    private static final String SCORE_FIELD = "_score";
+
+    private static final String MATCH_ALL = "*";
+
+    private final Table table;
+
+    private final MapSqlParameterSource parameters = new MapSqlParameterSource();
+
+    private final List<String> scoredTexts = new ArrayList<>();
+
+    private final String condition;
+
+    FullTextQuery(Table table, QueryBuilder query) {
+        this.table = table;
+        this.condition = translate(query, true);
+    }
+
+    /**
+     * @return the statement selecting the ids of a page of the matching rows, in order.
+     */
+    String select(Sort sort) {
+        return "select t.id from " + table.name + " t where " + condition + " order by " + orderBy(sort)
+            + " limit :limit offset :offset";
+    }
+
+    /**
+     * @return the statement selecting the ids of at most {@code :limit} matching rows, in no particular order.
+     */
+    String selectIds() {
+        return "select t.id from " + table.name + " t where " + condition + " limit :limit";
+    }
+
+    /**
+     * @return the statement counting the matching rows.
+     */
+    String count() {
+        return "select count(*) from " + table.name + " t where " + condition;
+    }
+
+    /**
+     * @return the parameters of the statements, their limit and offset excepted.
+     */
+    MapSqlParameterSource getParameters() {
+        return parameters;
+    }
+
+    private String translate(QueryBuilder query, boolean scored) {
+        if (query instanceof MatchAllQueryBuilder) {
+            return "true";
+        }
+        if (query instanceof QueryStringQueryBuilder) {
+            String text = ((QueryStringQueryBuilder) query).queryString().trim();
+            return text.isEmpty() || MATCH_ALL.equals(text) ? "true" : text(text, scored);
+        }
+        if (query instanceof MatchQueryBuilder) {
+            MatchQueryBuilder match = (MatchQueryBuilder) query;
+            if (!table.textFields.contains(match.fieldName())) {
+                throw new IllegalArgumentException("Unsupported match on " + match.fieldName());
+            }
+            String text = match.value().toString().trim();
+            if (match.operator() == Operator.OR) {
+                // websearch_to_tsquery requires all the words unless they are separated by "or"
+                text = String.join(" or ", text.split("\\s+"));
+            }
+            return text(text, scored);
+        }
+        if (query instanceof TermQueryBuilder) {
+            TermQueryBuilder term = (TermQueryBuilder) query;
+            return in(term.fieldName(), Collections.singletonList(term.value()));
+        }
+        if (query instanceof TermsQueryBuilder) {
+            TermsQueryBuilder terms = (TermsQueryBuilder) query;
+            return in(terms.fieldName(), terms.values());
+        }
+        if (query instanceof IdsQueryBuilder) {
+            return in("id", ((IdsQueryBuilder) query).ids());
+        }
+        if (query instanceof PrefixQueryBuilder) {
+            PrefixQueryBuilder prefix = (PrefixQueryBuilder) query;
+            Field field = field(prefix.fieldName());
+            String value = prefix.value().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            return String.format(field.template, "like " + parameter(value) + " escape '\\'");
+        }
+        if (query instanceof BoolQueryBuilder) {
+            return bool((BoolQueryBuilder) query, scored);
+        }
+        throw new IllegalArgumentException("Unsupported query: " + query.getName());
+    }
+
+    private String bool(BoolQueryBuilder bool, boolean scored) {
+        List<String> clauses = new ArrayList<>();
+        for (QueryBuilder must : bool.must()) {
+            clauses.add(translate(must, scored));
+        }
+        for (QueryBuilder filter : bool.filter()) {
+            clauses.add(translate(filter, false));
+        }
+        List<String> shoulds = new ArrayList<>();
+        for (QueryBuilder should : bool.should()) {
+            shoulds.add(translate(should, scored));
+        }
+        // Like Elasticsearch, optional clauses only raise the rank of the rows matching the required ones
+        if (clauses.isEmpty() && !shoulds.isEmpty()) {
+            clauses.add("(" + String.join(" or ", shoulds) + ")");
+        }
+        for (QueryBuilder mustNot : bool.mustNot()) {
+            clauses.add("not (" + translate(mustNot, false) + ")");
+        }
+        return clauses.isEmpty() ? "true" : "(" + String.join(" and ", clauses) + ")";
+    }
+
+    private String text(String text, boolean scored) {
+        String tsquery = "websearch_to_tsquery('" + CONFIGURATION + "', " + parameter(text) + ")";
+        if (scored) {
+            scoredTexts.add(tsquery);
+        }
+        return "t.search_vector @@ " + tsquery;
+    }
+
+    private String in(String fieldName, Collection<?> values) {
+        if (values.isEmpty()) {
+            return "false";
+        }
+        Field field = field(fieldName);
+        List<Object> converted = values.stream().map(field::convert).collect(Collectors.toList());
+        return String.format(field.template, "in (" + parameter(converted) + ")");
+    }
+
+    private String parameter(Object value) {
+        String name = "p" + parameters.getValues().size();
+        parameters.addValue(name, value);
+        return ":" + name;
+    }
+
+    private Field field(String name) {
+        Field field = table.fields.get(name.endsWith(KEYWORD_SUFFIX) ? name.substring(0, name.length() - KEYWORD_SUFFIX.length()) : name);
+        if (field == null) {
+            throw new IllegalArgumentException("Unsupported field: " + name);
+        }
+        return field;
+    }
+
+    /**
+     * Translate a sort on entity properties, ending with the id.
+     */
+    private String orderBy(Sort sort) {
+        List<String> orders = new ArrayList<>();
+        String rank = scoredTexts.isEmpty() ? null
+            : "ts_rank(t.search_vector, " + String.join(" || ", scoredTexts) + ")";
+        boolean byId = false;
+        if (sort.isUnsorted() && rank != null) {
+            orders.add(rank + " desc");
+        }
+        for (Sort.Order order : sort) {
+            String direction = order.isAscending() ? "asc" : "desc";
+            if (SCORE_FIELD.equals(order.getProperty())) {
+                if (rank != null) {
+                    orders.add(rank + " " + direction);
+                }
+                continue;
+            }
+            Field field = field(order.getProperty());
+            if (field.column == null) {
+                throw new IllegalArgumentException("Unsupported sort on " + order.getProperty());
+            }
+            orders.add("t." + field.column + " " + direction + " nulls last");
+            byId |= "id".equals(field.column);
+        }
+        if (!byId) {
+            orders.add("t.id asc");
+        }
+        return String.join(", ", orders);
+    }
+
+    /**
+     * A table with a {@code search_vector} column, and the fields of its entity that queries can use.
+     */
+    static final class Table {
+
+        private final String name;
+
+        private final Set<String> textFields = new HashSet<>();
+
+        private final Map<String, Field> fields = new HashMap<>();
+
+        Table(String name) {
+            this.name = name;
+            column("id", "id", Long.class);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Add a field stored in a column of the table.
+         */
+        Table column(String field, String column, Class<?> type) {
+            fields.put(field, new Field("t." + column + " %s", column, type));
+            return this;
+        }
+
+        /**
+         * Add a field stored elsewhere, that can be filtered on but not sorted by.
+         *
+         * @param template the condition on the row, where {@code %s} stands for the comparison of the value.
+         */
+        Table joined(String field, String template, Class<?> type) {
+            fields.put(field, new Field(template, null, type));
+            return this;
+        }
+
+        /**
+         * Declare the fields whose text is in the {@code search_vector}, that {@code match} queries can target.
+         */
+        Table searched(String... fields) {
+            textFields.addAll(Arrays.asList(fields));
+            return this;
+        }
+    }
+
+    private static final class Field {
+
+        private final String template;
+
+        private final String column;
+
+        private final Class<?> type;
+
+        private Field(String template, String column, Class<?> type) {
+            this.template = template;
+            this.column = column;
+            this.type = type;
+        }
+
+        private Object convert(Object value) {
+            if (type == Long.class) {
+                return Long.valueOf(value.toString());
+            }
+            return value.toString();
+        }
+    }
+}
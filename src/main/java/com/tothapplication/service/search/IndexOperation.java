@@ -0,0 +1,99 @@
+package com.tothapplication.service.search;
+
+/**
+ * A write to a search index: the current state of an entity, or its deletion.
+ */
+public final class IndexOperation {
+
+    private final Class<?> entityClass;
+
+    private final String index;
+
+    private final Long id;
+
+    private final String source;
+
+    private final boolean createOnly;
+
+    private IndexOperation(Class<?> entityClass, String index, Long id, String source, boolean createOnly) {
+        this.entityClass = entityClass;
+        this.index = index;
+        this.id = id;
+        this.source = source;
+        this.createOnly = createOnly;
+    }
+
+    /**
+     * Write an entity, replacing its previous state.
+     *
+     * @param entityClass the class of the entity.
+     * @param index the name of the index or alias.
+     * @param id the id of the entity.
+     * @param source the entity serialized as JSON.
+     * @return the operation.
+     */
+    public static IndexOperation index(Class<?> entityClass, String index, Long id, String source) {
+        return new IndexOperation(entityClass, index, id, source, false);
+    }
+
+    /**
+     * Write an entity unless it is already indexed, so that a more recent state is never overwritten.
+     *
+     * @param entityClass the class of the entity.
+     * @param index the name of the index or alias.
+     * @param id the id of the entity.
+     * @param source the entity serialized as JSON.
+     * @return the operation.
+     */
+    public static IndexOperation create(Class<?> entityClass, String index, Long id, String source) {
+        return new IndexOperation(entityClass, index, id, source, true);
+    }
+
+    /**
+     * Delete an entity. Deleting a missing entity is not an error.
+     *
+     * @param entityClass the class of the entity.
+     * @param index the name of the index or alias.
+     * @param id the id of the entity.
+     * @return the operation.
+     */
+    public static IndexOperation delete(Class<?> entityClass, String index, Long id) {
+        return new IndexOperation(entityClass, index, id, null, false);
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the entity serialized as JSON, or {@code null} for a deletion.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public boolean isCreateOnly() {
+        return createOnly;
+    }
+
+    public boolean isDelete() {
+        return source == null;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexOperation{" +
+            "index='" + index + "'" +
+            ", id=" + id +
+            ", operation=" + (isDelete() ? "delete" : createOnly ? "create" : "index") +
+            "}";
+    }
+}
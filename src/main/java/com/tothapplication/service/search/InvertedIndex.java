@@ -0,0 +1,700 @@
+package com.tothapplication.service.search;
+
+import com.tothapplication.service.util.TextNormalizer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index of the JSON sources of one entity type, used by the {@link EmbeddedSearchBackend}.
+ * <p>
+ * Sources are mapped the way Elasticsearch maps them dynamically: a string property {@code title} is a text field
+ * {@code title}, split into words folded by {@link TextNormalizer}, and a keyword field {@code title.keyword} holding
+ * the exact value; a number or boolean is a keyword field named after its path, such as {@code ccps.id}. The words of
+ * every text field are also indexed in the {@link #ALL_FIELD} field, searched by default.
+ * <p>
+ * Each term has a postings list of documents and term frequencies held in primitive {@code int} arrays. Documents get
+ * increasing numbers, so postings are appended in order; an updated entity is indexed as a new document, and the
+ * previous one is only marked deleted until the index is compacted. Text fields are scored with BM25; the statistics it
+ * relies on, the document count and total length of each field and the document frequency of each term, only count
+ * the live documents: removing a document parses its source again to take its terms out of them.
+ * <p>
+ * Documents are sorted on the smallest value of a keyword field: a whole number, such as an id, as a {@code Long}, so
+ * that 9 sorts before 10, and any other value as a {@code String}.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class InvertedIndex {
+
+    /**
+     * The field holding the words of all the text fields.
+     */
+    static final String ALL_FIELD = "_all";
+
+    static final String KEYWORD_SUFFIX = ".keyword";
+
+    private static final int SNAPSHOT_MAGIC = 0x54534931;
+
+    private static final int IGNORE_ABOVE = 256;
+
+    private static final float K1 = 1.2f;
+
+    private static final float B = 0.75f;
+
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+
+    private long[] entityIds = new long[16];
+
+    private String[] sources = new String[16];
+
+    private int maxDoc;
+
+    private final BitSet deleted = new BitSet();
+
+    private int deletedCount;
+
+    private final Map<Long, Integer> docByEntity = new HashMap<>();
+
+    private final Map<String, Field> fields = new HashMap<>();
+
+    private final SourceParser parser;
+
+    /**
+     * @param parser the parser of the sources, used to take the terms of the removed documents out of the statistics.
+     */
+    InvertedIndex(SourceParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * @return the number of indexed entities.
+     */
+    int size() {
+        return maxDoc - deletedCount;
+    }
+
+    boolean contains(long entityId) {
+        return docByEntity.containsKey(entityId);
+    }
+
+    /**
+     * Index the source of an entity, replacing its previous source.
+     *
+     * @param entityId the id of the entity.
+     * @param source the JSON source.
+     * @param tree the parsed source.
+     * @throws IOException if the previous source could not be parsed.
+     */
+    void put(long entityId, String source, JsonNode tree) throws IOException {
+        remove(entityId);
+        int doc = maxDoc++;
+        if (doc == entityIds.length) {
+            entityIds = Arrays.copyOf(entityIds, doc * 2);
+            sources = Arrays.copyOf(sources, doc * 2);
+        }
+        entityIds[doc] = entityId;
+        sources[doc] = source;
+        docByEntity.put(entityId, doc);
+
+        Map<String, Map<String, Integer>> termsByField = new HashMap<>();
+        analyze("", tree, termsByField);
+        termsByField.forEach((name, terms) -> {
+            Field field = fields.computeIfAbsent(name, key -> new Field(isText(key), isNumeric(key)));
+            field.add(doc, terms);
+        });
+    }
+
+    /**
+     * Remove an entity. Removing a missing entity does nothing.
+     *
+     * @param entityId the id of the entity.
+     * @throws IOException if its source could not be parsed.
+     */
+    void remove(long entityId) throws IOException {
+        Integer doc = docByEntity.get(entityId);
+        if (doc == null) {
+            return;
+        }
+        Map<String, Map<String, Integer>> termsByField = new HashMap<>();
+        analyze("", parser.parse(sources[doc]), termsByField);
+        docByEntity.remove(entityId);
+        termsByField.forEach((name, terms) -> {
+            Field field = fields.get(name);
+            if (field != null) {
+                field.remove(doc, terms.keySet());
+            }
+        });
+        deleted.set(doc);
+        sources[doc] = null;
+        deletedCount++;
+    }
+
+    /**
+     * Check whether enough documents are deleted to make {@link #compact()} worthwhile.
+     */
+    boolean needsCompaction() {
+        return deletedCount >= MIN_DELETED_TO_COMPACT && deletedCount > maxDoc / 2;
+    }
+
+    /**
+     * Rebuild the index from the live sources, dropping the deleted documents.
+     *
+     * @return the compacted index.
+     * @throws IOException if a source could not be parsed.
+     */
+    InvertedIndex compact() throws IOException {
+        InvertedIndex compacted = new InvertedIndex(parser);
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (!deleted.get(doc)) {
+                compacted.put(entityIds[doc], sources[doc], parser.parse(sources[doc]));
+            }
+        }
+        return compacted;
+    }
+
+    private static boolean isText(String field) {
+        return ALL_FIELD.equals(field) || !field.endsWith(KEYWORD_SUFFIX) && !field.startsWith("#");
+    }
+
+    private static boolean isNumeric(String field) {
+        return field.startsWith("#");
+    }
+
+    /**
+     * Get the value a term is sorted on.
+     */
+    private static Object sortValue(boolean numeric, String term) {
+        if (numeric) {
+            try {
+                return Long.valueOf(term);
+            } catch (NumberFormatException e) {
+                // A boolean or a decimal number, sorted as text
+            }
+        }
+        return term;
+    }
+
+    /**
+     * Compare two sort values: numerically if both are whole numbers, as text otherwise.
+     *
+     * @param first a sort value, not {@code null}.
+     * @param second another sort value, not {@code null}.
+     * @return the comparison of the values.
+     */
+    static int compareSortValues(Object first, Object second) {
+        if (first instanceof Long && second instanceof Long) {
+            return Long.compare((Long) first, (Long) second);
+        }
+        return String.valueOf(first).compareTo(String.valueOf(second));
+    }
+
+    private void analyze(String path, JsonNode node, Map<String, Map<String, Integer>> termsByField) {
+        if (node == null || node.isNull()) {
+            return;
+        }
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> properties = node.fields();
+            while (properties.hasNext()) {
+                Map.Entry<String, JsonNode> property = properties.next();
+                analyze(path.isEmpty() ? property.getKey() : path + "." + property.getKey(), property.getValue(), termsByField);
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                analyze(path, element, termsByField);
+            }
+        } else if (node.isTextual()) {
+            String value = node.asText();
+            for (String word : TextNormalizer.words(value)) {
+                termsByField.computeIfAbsent(path, key -> new HashMap<>()).merge(word, 1, Integer::sum);
+                termsByField.computeIfAbsent(ALL_FIELD, key -> new HashMap<>()).merge(word, 1, Integer::sum);
+            }
+            if (value.length() <= IGNORE_ABOVE) {
+                termsByField.computeIfAbsent(path + KEYWORD_SUFFIX, key -> new HashMap<>()).merge(value, 1, Integer::sum);
+            }
+        } else {
+            // Numbers and booleans are only matched exactly, under a name marking them as keywords
+            termsByField.computeIfAbsent(keywordName(path), key -> new HashMap<>()).merge(node.asText(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Get the internal name of the keyword field of a number or boolean property, which has no text field.
+     */
+    private static String keywordName(String path) {
+        return "#" + path;
+    }
+
+    /**
+     * Resolve the name of a field as used in a query: a text field, a {@code .keyword} field, or a number or boolean
+     * property.
+     *
+     * @param name the name of the field.
+     * @return the field, or {@code null} if no document has it.
+     */
+    private Field field(String name) {
+        Field field = fields.get(name);
+        if (field == null && !name.endsWith(KEYWORD_SUFFIX)) {
+            field = fields.get(keywordName(name));
+        }
+        return field;
+    }
+
+    /**
+     * Check whether a field is a text field, whose values are folded words.
+     *
+     * @param name the name of the field.
+     * @return whether it is a text field; a field no document has is considered text.
+     */
+    boolean isTextField(String name) {
+        Field field = field(name);
+        return field == null ? !name.endsWith(KEYWORD_SUFFIX) : field.text;
+    }
+
+    /**
+     * Match no document.
+     */
+    Matches none() {
+        return new Matches(maxDoc);
+    }
+
+    /**
+     * Match all the live documents, with a constant score.
+     */
+    Matches all() {
+        Matches matches = new Matches(maxDoc);
+        matches.docs.set(0, maxDoc);
+        matches.docs.andNot(deleted);
+        for (int doc = matches.docs.nextSetBit(0); doc >= 0; doc = matches.docs.nextSetBit(doc + 1)) {
+            matches.scores[doc] = 1;
+        }
+        return matches;
+    }
+
+    /**
+     * Match the documents having words in a text field, scored with BM25.
+     *
+     * @param name the name of the text field.
+     * @param words the folded words.
+     * @param all whether all the words are required, instead of any.
+     */
+    Matches match(String name, List<String> words, boolean all) {
+        Matches matches = new Matches(maxDoc);
+        Field field = field(name);
+        if (field == null || words.isEmpty()) {
+            return matches;
+        }
+        int[] counts = all ? new int[maxDoc] : null;
+        float averageLength = field.docCount == 0 ? 1 : (float) field.totalLength / field.docCount;
+        for (String word : words) {
+            Postings postings = field.terms.get(word);
+            if (postings == null) {
+                if (all) {
+                    return new Matches(maxDoc);
+                }
+                continue;
+            }
+            float idf = (float) Math.log(1 + (field.docCount - postings.live + 0.5) / (postings.live + 0.5));
+            for (int i = 0; i < postings.size; i++) {
+                int doc = postings.docs[i];
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                int freq = postings.freqs[i];
+                float norm = field.text ? K1 * (1 - B + B * field.lengths[doc] / averageLength) : K1;
+                matches.scores[doc] += idf * freq * (K1 + 1) / (freq + norm);
+                matches.docs.set(doc);
+                if (all) {
+                    counts[doc]++;
+                }
+            }
+        }
+        if (all) {
+            for (int doc = matches.docs.nextSetBit(0); doc >= 0; doc = matches.docs.nextSetBit(doc + 1)) {
+                if (counts[doc] < words.size()) {
+                    matches.docs.clear(doc);
+                    matches.scores[doc] = 0;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Match the documents having any of exact values in a field, with a constant score.
+     *
+     * @param name the name of the field.
+     * @param values the values, folded words for a text field.
+     */
+    Matches terms(String name, Collection<String> values) {
+        Matches matches = new Matches(maxDoc);
+        Field field = field(name);
+        if (field != null) {
+            for (String value : values) {
+                addConstant(matches, field.terms.get(value));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Match the documents having a value starting with a prefix in a field, with a constant score.
+     *
+     * @param name the name of the field.
+     * @param prefix the prefix, folded for a text field.
+     */
+    Matches prefix(String name, String prefix) {
+        Matches matches = new Matches(maxDoc);
+        Field field = field(name);
+        if (field != null) {
+            SortedMap<String, Postings> terms = prefix.isEmpty() ? field.terms : field.terms.subMap(prefix, prefix + Character.MAX_VALUE);
+            terms.values().forEach(postings -> addConstant(matches, postings));
+        }
+        return matches;
+    }
+
+    private void addConstant(Matches matches, Postings postings) {
+        if (postings == null) {
+            return;
+        }
+        for (int i = 0; i < postings.size; i++) {
+            int doc = postings.docs[i];
+            if (!deleted.get(doc)) {
+                matches.docs.set(doc);
+                matches.scores[doc] = 1;
+            }
+        }
+    }
+
+    long entityId(int doc) {
+        return entityIds[doc];
+    }
+
+    String source(int doc) {
+        return sources[doc];
+    }
+
+    /**
+     * Get the value a document is sorted on for a field: its smallest value.
+     *
+     * @param name the name of the field.
+     * @param doc the document.
+     * @return the value, a {@code Long} or a {@code String}, or {@code null} if the document has none.
+     */
+    Object sortValue(String name, int doc) {
+        Field field = field(name);
+        if (field == null || field.text || doc >= field.sortValues.length) {
+            return null;
+        }
+        return field.sortValues[doc];
+    }
+
+    /**
+     * Write the live documents and their postings, renumbered without the deleted documents.
+     *
+     * @param out the output.
+     * @throws IOException if the output could not be written.
+     */
+    void write(DataOutputStream out) throws IOException {
+        int[] newDocs = new int[maxDoc];
+        int live = 0;
+        for (int doc = 0; doc < maxDoc; doc++) {
+            newDocs[doc] = deleted.get(doc) ? -1 : live++;
+        }
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(live);
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (!deleted.get(doc)) {
+                out.writeLong(entityIds[doc]);
+                writeString(out, sources[doc]);
+            }
+        }
+        out.writeInt(fields.size());
+        for (Map.Entry<String, Field> entry : fields.entrySet()) {
+            Field field = entry.getValue();
+            writeString(out, entry.getKey());
+            out.writeBoolean(field.text);
+            out.writeInt(field.docCount);
+            out.writeLong(field.totalLength);
+            for (int doc = 0; doc < maxDoc; doc++) {
+                if (!deleted.get(doc)) {
+                    if (field.text) {
+                        out.writeInt(doc < field.lengths.length ? field.lengths[doc] : 0);
+                    } else {
+                        Object sortValue = doc < field.sortValues.length ? field.sortValues[doc] : null;
+                        out.writeBoolean(sortValue != null);
+                        if (sortValue != null) {
+                            writeString(out, String.valueOf(sortValue));
+                        }
+                    }
+                }
+            }
+            out.writeInt(field.terms.size());
+            for (Map.Entry<String, Postings> term : field.terms.entrySet()) {
+                Postings postings = term.getValue();
+                writeString(out, term.getKey());
+                out.writeInt(postings.live);
+                for (int i = 0; i < postings.size; i++) {
+                    if (!deleted.get(postings.docs[i])) {
+                        out.writeInt(newDocs[postings.docs[i]]);
+                        out.writeInt(postings.freqs[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Read an index written by {@link #write(DataOutputStream)}.
+     *
+     * @param buffer the buffer, positioned at the start of the index, and left at its end.
+     * @param parser the parser of the sources.
+     * @return the index.
+     * @throws IOException if the buffer does not hold a valid index.
+     */
+    static InvertedIndex read(ByteBuffer buffer, SourceParser parser) throws IOException {
+        if (buffer.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not an index snapshot");
+        }
+        InvertedIndex index = new InvertedIndex(parser);
+        int live = buffer.getInt();
+        index.maxDoc = live;
+        index.entityIds = new long[Math.max(live, 16)];
+        index.sources = new String[Math.max(live, 16)];
+        for (int doc = 0; doc < live; doc++) {
+            index.entityIds[doc] = buffer.getLong();
+            index.sources[doc] = readString(buffer);
+            index.docByEntity.put(index.entityIds[doc], doc);
+        }
+        int fieldCount = buffer.getInt();
+        for (int f = 0; f < fieldCount; f++) {
+            String name = readString(buffer);
+            Field field = new Field(buffer.get() != 0, isNumeric(name));
+            field.docCount = buffer.getInt();
+            field.totalLength = buffer.getLong();
+            if (field.text) {
+                field.lengths = new int[Math.max(live, 16)];
+                buffer.asIntBuffer().get(field.lengths, 0, live);
+                buffer.position(buffer.position() + live * Integer.BYTES);
+            } else {
+                field.sortValues = new Object[Math.max(live, 16)];
+                for (int doc = 0; doc < live; doc++) {
+                    if (buffer.get() != 0) {
+                        field.sortValues[doc] = sortValue(field.numeric, readString(buffer));
+                    }
+                }
+            }
+            int termCount = buffer.getInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = readString(buffer);
+                int size = buffer.getInt();
+                Postings postings = new Postings(size);
+                for (int i = 0; i < size; i++) {
+                    postings.docs[i] = buffer.getInt();
+                    postings.freqs[i] = buffer.getInt();
+                }
+                postings.size = size;
+                postings.live = size;
+                field.terms.put(term, postings);
+            }
+            index.fields.put(name, field);
+        }
+        return index;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupted index snapshot");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parser of the JSON sources.
+     */
+    @FunctionalInterface
+    interface SourceParser {
+
+        JsonNode parse(String source) throws IOException;
+    }
+
+    /**
+     * The documents matching a query, with their scores.
+     */
+    static final class Matches {
+
+        final BitSet docs = new BitSet();
+
+        final float[] scores;
+
+        Matches(int maxDoc) {
+            this.scores = new float[maxDoc];
+        }
+
+        /**
+         * Keep the documents also matching another query, adding its scores if they count.
+         */
+        void and(Matches other, boolean scored) {
+            docs.and(other.docs);
+            if (scored) {
+                addScores(other);
+            }
+        }
+
+        /**
+         * Add the documents matching another query, adding its scores.
+         */
+        void or(Matches other) {
+            docs.or(other.docs);
+            addScores(other);
+        }
+
+        /**
+         * Add the scores of another query to the documents that also match it, without adding any document.
+         */
+        void boost(Matches other) {
+            BitSet both = (BitSet) docs.clone();
+            both.and(other.docs);
+            for (int doc = both.nextSetBit(0); doc >= 0; doc = both.nextSetBit(doc + 1)) {
+                scores[doc] += other.scores[doc];
+            }
+        }
+
+        /**
+         * Reset the scores, for a query used as a filter.
+         */
+        void clearScores() {
+            Arrays.fill(scores, 0);
+        }
+
+        /**
+         * Remove the documents matching another query.
+         */
+        void andNot(Matches other) {
+            docs.andNot(other.docs);
+        }
+
+        private void addScores(Matches other) {
+            for (int doc = other.docs.nextSetBit(0); doc >= 0; doc = other.docs.nextSetBit(doc + 1)) {
+                scores[doc] += other.scores[doc];
+            }
+        }
+    }
+
+    private static final class Field {
+
+        private final boolean text;
+
+        private final boolean numeric;
+
+        private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+        private int[] lengths = new int[0];
+
+        private Object[] sortValues = new Object[0];
+
+        private int docCount;
+
+        private long totalLength;
+
+        private Field(boolean text, boolean numeric) {
+            this.text = text;
+            this.numeric = numeric;
+        }
+
+        private void add(int doc, Map<String, Integer> docTerms) {
+            int length = 0;
+            Object smallest = null;
+            for (Map.Entry<String, Integer> term : docTerms.entrySet()) {
+                terms.computeIfAbsent(term.getKey(), key -> new Postings(4)).add(doc, term.getValue());
+                length += term.getValue();
+                if (!text) {
+                    Object value = sortValue(numeric, term.getKey());
+                    if (smallest == null || compareSortValues(value, smallest) < 0) {
+                        smallest = value;
+                    }
+                }
+            }
+            docCount++;
+            if (text) {
+                if (doc >= lengths.length) {
+                    lengths = Arrays.copyOf(lengths, Math.max(doc + 1, lengths.length * 2));
+                }
+                lengths[doc] = length;
+                totalLength += length;
+            } else {
+                if (doc >= sortValues.length) {
+                    sortValues = Arrays.copyOf(sortValues, Math.max(doc + 1, sortValues.length * 2));
+                }
+                sortValues[doc] = smallest;
+            }
+        }
+
+        /**
+         * Take a removed document out of the statistics, dropping the terms no live document has anymore.
+         */
+        private void remove(int doc, Collection<String> docTerms) {
+            for (String term : docTerms) {
+                Postings postings = terms.get(term);
+                if (postings != null && --postings.live == 0) {
+                    terms.remove(term);
+                }
+            }
+            docCount--;
+            if (text) {
+                totalLength -= lengths[doc];
+            }
+        }
+    }
+
+    private static final class Postings {
+
+        private int[] docs;
+
+        private int[] freqs;
+
+        private int size;
+
+        /**
+         * The number of live documents, the document frequency of the term.
+         */
+        private int live;
+
+        private Postings(int capacity) {
+            docs = new int[Math.max(capacity, 1)];
+            freqs = new int[Math.max(capacity, 1)];
+        }
+
+        private void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+            live++;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.tothapplication.service.search;
+
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.repository.CCPRepository;
+import com.tothapplication.repository.DocumentRepository;
+import com.tothapplication.service.dto.SearchPage;
+
+import com.google.gson.JsonArray;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link SearchBackend} running the searches on PostgreSQL full-text search, for deployments where the database is
+ * close enough that a separate cluster is not worth its network hop.
+ * <p>
+ * The {@code document} and {@code ccp} tables have a {@code search_vector} column, generated by PostgreSQL from their
+ * titles and descriptions with the French configuration and covered by a GIN index. Text is matched with
+ * {@code websearch_to_tsquery}, so query strings use its syntax: quoted phrases, {@code or} and {@code -} exclusions.
+ * The supported queries are those of the {@link FullTextQuery}, and users cannot be searched.
+ * <p>
+ * The database is the index: writes have nothing to apply and there is a single, unversioned index per entity.
+ * Cursors hold the offset of the next page, which PostgreSQL skips as it reads the ranked rows.
+ */
+public class PostgresSearchBackend implements SearchBackend {
+
+    private final Logger log = LoggerFactory.getLogger(PostgresSearchBackend.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final Map<Class<?>, Searchable<?>> searchables = new HashMap<>();
+
+    public PostgresSearchBackend(NamedParameterJdbcTemplate jdbcTemplate, DocumentRepository documentRepository,
+                                 CCPRepository cCPRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        searchables.put(Document.class, new Searchable<>(new FullTextQuery.Table("document")
+            .column("title", "title", String.class)
+            .column("mimeType", "mime_type", String.class)
+            .column("typeDoc", "type_doc", String.class)
+            .column("contentSize", "content_size", Long.class)
+            .joined("ccps.id", "exists (select 1 from document_ccp j where j.document_id = t.id and j.ccp_id %s)", Long.class)
+            .joined("ccps.title", "exists (select 1 from document_ccp j join ccp c on c.id = j.ccp_id"
+                + " where j.document_id = t.id and c.title %s)", String.class)
+            .searched("title"),
+            documentRepository::findAllWithEagerRelationshipsByIdIn, Document::getId));
+        searchables.put(CCP.class, new Searchable<>(new FullTextQuery.Table("ccp")
+            .column("title", "title", String.class)
+            .column("desc", "jhi_desc", String.class)
+            .searched("title", "desc"),
+            cCPRepository::findAllById, CCP::getId));
+    }
+
+    @Override
+    public <T> SearchPage<T> search(Class<T> entityClass, QueryBuilder query, Pageable pageable, String cursor) {
+        Searchable<T> searchable = searchable(entityClass);
+        long offset = cursor != null ? offset(cursor) : pageable.getOffset();
+        int size = pageable.getPageSize();
+
+        FullTextQuery fullTextQuery = new FullTextQuery(searchable.table, query);
+        String select = fullTextQuery.select(pageable.getSort());
+        log.debug("Searching {} at {}: {}", searchable.table.getName(), offset, select);
+        MapSqlParameterSource parameters = fullTextQuery.getParameters();
+        Long total = jdbcTemplate.queryForObject(fullTextQuery.count(), parameters, Long.class);
+        List<Long> ids = jdbcTemplate.queryForList(select,
+            new MapSqlParameterSource(parameters.getValues()).addValue("limit", size).addValue("offset", offset), Long.class);
+
+        Map<Long, T> entities = ids.isEmpty() ? Collections.emptyMap()
+            : searchable.loader.apply(ids).stream().collect(Collectors.toMap(searchable.id, Function.identity()));
+        // Rows deleted since they were selected are left out
+        List<T> content = ids.stream().map(entities::get).filter(Objects::nonNull).collect(Collectors.toList());
+        boolean hasNext = ids.size() == size && offset + size < total;
+        return new SearchPage<>(content, total, hasNext ? cursor(offset + size) : null);
+    }
+
+    @Override
+    public long[] searchIds(Class<?> entityClass, QueryBuilder query, int limit) {
+        FullTextQuery fullTextQuery = new FullTextQuery(searchable(entityClass).table, query);
+        String select = fullTextQuery.selectIds();
+        log.debug("Searching the ids of {}: {}", searchable(entityClass).table.getName(), select);
+        return jdbcTemplate.queryForList(select, new MapSqlParameterSource(fullTextQuery.getParameters().getValues())
+            .addValue("limit", limit), Long.class).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public Optional<TermCounts> countTerms(Class<?> entityClass, QueryBuilder query, Map<String, Integer> fields) {
+        return Optional.empty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Searchable<T> searchable(Class<T> entityClass) {
+        Searchable<T> searchable = (Searchable<T>) searchables.get(entityClass);
+        if (searchable == null) {
+            throw new IllegalArgumentException(entityClass.getSimpleName() + " cannot be searched with PostgreSQL");
+        }
+        return searchable;
+    }
+
+    private static String cursor(long offset) {
+        JsonArray values = new JsonArray();
+        values.add(offset);
+        return SearchCursors.encode(values);
+    }
+
+    private static long offset(String cursor) {
+        JsonArray values = SearchCursors.decode(cursor);
+        try {
+            if (values.size() == 1 && values.get(0).getAsLong() >= 0) {
+                return values.get(0).getAsLong();
+            }
+        } catch (RuntimeException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    @Override
+    public Map<Integer, String> bulk(List<IndexOperation> operations) {
+        // The search vectors are generated by PostgreSQL as the rows are written
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public String getIndexName(Class<?> entityClass) {
+        return indexName(entityClass);
+    }
+
+    @Override
+    public Set<String> getIndices(Class<?> entityClass) {
+        return Collections.singleton(indexName(entityClass));
+    }
+
+    @Override
+    public String createNextIndex(Class<?> entityClass) {
+        return indexName(entityClass);
+    }
+
+    @Override
+    public boolean exists(String index) {
+        return true;
+    }
+
+    @Override
+    public void swap(Class<?> entityClass, String index) {
+        // There is only one version of the index: the table itself
+    }
+
+    @Override
+    public void deleteIndex(Class<?> entityClass, String index) {
+        // There is only one version of the index, which is never abandoned
+    }
+
+    private static String indexName(Class<?> entityClass) {
+        org.springframework.data.elasticsearch.annotations.Document document =
+            entityClass.getAnnotation(org.springframework.data.elasticsearch.annotations.Document.class);
+        if (document == null) {
+            throw new IllegalArgumentException(entityClass.getName() + " is not indexed");
+        }
+        return document.indexName();
+    }
+
+    private static final class Searchable<T> {
+
+        private final FullTextQuery.Table table;
+
+        private final Function<Collection<Long>, List<T>> loader;
+
+        private final Function<T, Long> id;
+
+        private Searchable(FullTextQuery.Table table, Function<Collection<Long>, List<T>> loader, Function<T, Long> id) {
+            this.table = table;
+            this.loader = loader;
+            this.id = id;
+        }
+    }
+}
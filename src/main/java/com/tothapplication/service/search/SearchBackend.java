@@ -0,0 +1,133 @@
+package com.tothapplication.service.search;
+
+import com.tothapplication.service.dto.SearchPage;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Backend holding the search indices of the entities.
+ * <p>
+ * The index of an entity is named after its {@code @Document} annotation, and is an alias of a versioned physical
+ * index: a rebuild fills the next version while searches and writes keep going through the alias, then swaps it in.
+ * Queries are expressed with the Elasticsearch query builders; a backend that does not support a query rejects it
+ * with an {@link IllegalArgumentException}.
+ * <p>
+ * Searches sort their hits by id last, so that the cursor of a page, made of the sort values of its last hit, is
+ * unique. Cursors are opaque and only valid for the backend that produced them.
+ */
+public interface SearchBackend {
+
+    /**
+     * Search for a page of entities.
+     * <p>
+     * The hits are sorted by relevance unless a sort is requested. Text properties are sorted on their keyword.
+     *
+     * @param entityClass the class of the entities.
+     * @param query the query.
+     * @param pageable the requested page, whose number is ignored when a cursor is given.
+     * @param cursor the cursor of the previous page, or {@code null} to read the page by number.
+     * @return the page of entities.
+     * @throws IllegalArgumentException if the page number, cursor or query is invalid.
+     * @throws IOException if the index could not be queried.
+     */
+    <T> SearchPage<T> search(Class<T> entityClass, QueryBuilder query, Pageable pageable, String cursor) throws IOException;
+
+    /**
+     * Search for the ids of the entities matching a query, without reading the entities.
+     *
+     * @param entityClass the class of the entities.
+     * @param query the query.
+     * @param limit the maximum number of ids to return.
+     * @return the ids, in no particular order.
+     * @throws IllegalArgumentException if the query is invalid, or the limit greater than the backend can return.
+     * @throws IOException if the index could not be queried.
+     */
+    long[] searchIds(Class<?> entityClass, QueryBuilder query, int limit) throws IOException;
+
+    /**
+     * Count the entities matching a query by value of some of their keyword or numeric properties, when the backend
+     * can aggregate them itself. Otherwise the ids of the matching entities must be read with
+     * {@link #searchIds(Class, QueryBuilder, int)} and their values counted from another source.
+     *
+     * @param entityClass the class of the entities.
+     * @param query the query.
+     * @param fields the properties, with the maximum number of values to count for each.
+     * @return the counts, by property, or an empty {@link Optional} if the backend does not aggregate.
+     * @throws IllegalArgumentException if the query is invalid.
+     * @throws IOException if the index could not be queried.
+     */
+    Optional<TermCounts> countTerms(Class<?> entityClass, QueryBuilder query, Map<String, Integer> fields) throws IOException;
+
+    /**
+     * Apply write operations, in order. Each operation succeeds or fails on its own.
+     *
+     * @param operations the operations.
+     * @return the errors of the failed operations, by position in the list.
+     * @throws IOException if the operations could not be applied as a whole.
+     */
+    Map<Integer, String> bulk(List<IndexOperation> operations) throws IOException;
+
+    /**
+     * Get the name of the index of an entity: the alias searched and written through.
+     *
+     * @param entityClass the class of the entity.
+     * @return the name of the index.
+     * @throws IllegalArgumentException if the entity is not indexed.
+     */
+    String getIndexName(Class<?> entityClass);
+
+    /**
+     * Get the physical indices behind the alias of an entity.
+     *
+     * @param entityClass the class of the entity.
+     * @return the names of the indices, the alias itself for an index created before versioning, or none if there
+     * is no index yet.
+     * @throws IOException if the backend could not be queried.
+     */
+    Set<String> getIndices(Class<?> entityClass) throws IOException;
+
+    /**
+     * Create the next version of the physical index of an entity.
+     *
+     * @param entityClass the class of the entity.
+     * @return the name of the created index.
+     * @throws IOException if the index could not be created.
+     */
+    String createNextIndex(Class<?> entityClass) throws IOException;
+
+    /**
+     * Check whether an index exists.
+     *
+     * @param index the name of the index.
+     * @return whether it exists.
+     * @throws IOException if the backend could not be queried.
+     */
+    boolean exists(String index) throws IOException;
+
+    /**
+     * Move the alias of an entity to a new version of its index, then delete the other versions.
+     *
+     * @param entityClass the class of the entity.
+     * @param index the name of the new index, created by {@link #createNextIndex(Class)}.
+     * @throws IOException if the alias could not be moved.
+     */
+    void swap(Class<?> entityClass, String index) throws IOException;
+
+    /**
+     * Delete a version of the index of an entity that was never swapped in, such as the index of an abandoned
+     * rebuild. Does nothing if the index does not exist.
+     *
+     * @param entityClass the class of the entity.
+     * @param index the name of the index, created by {@link #createNextIndex(Class)}.
+     * @throws IllegalArgumentException if the index is the one behind the alias of the entity.
+     * @throws IOException if the index could not be deleted.
+     */
+    void deleteIndex(Class<?> entityClass, String index) throws IOException;
+}
@@ -0,0 +1,33 @@
+package com.tothapplication.service.search;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Utility class encoding the sort values of the last hit of a page as an opaque, URL-safe cursor.
+ */
+final class SearchCursors {
+
+    private SearchCursors() {
+    }
+
+    static String encode(JsonArray sortValues) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sortValues.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static JsonArray decode(String cursor) {
+        try {
+            JsonElement values = new JsonParser().parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (values.isJsonArray()) {
+                return values.getAsJsonArray();
+            }
+        } catch (RuntimeException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+}
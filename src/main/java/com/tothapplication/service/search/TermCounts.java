@@ -0,0 +1,40 @@
+package com.tothapplication.service.search;
+
+import java.util.Map;
+
+/**
+ * The number of entities matching a query, and how many of them have each value of some of their properties.
+ */
+public class TermCounts {
+
+    private final long total;
+
+    private final Map<String, Map<String, Long>> counts;
+
+    public TermCounts(long total, Map<String, Map<String, Long>> counts) {
+        this.total = total;
+        this.counts = counts;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the counts of the values of a property.
+     *
+     * @param field the property.
+     * @return the number of entities by value, the values held by no entity being left out.
+     */
+    public Map<String, Long> get(String field) {
+        return counts.get(field);
+    }
+
+    @Override
+    public String toString() {
+        return "TermCounts{" +
+            "total=" + total +
+            ", counts=" + counts +
+            "}";
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Search backends, holding the search indices of the entities.
+ */
+package com.tothapplication.service.search;
@@ -0,0 +1,67 @@
+package com.tothapplication.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Content-addressed storage backend for the binary content of documents.
+ * <p>
+ * A content is keyed by the hexadecimal SHA-256 digest of its bytes, so identical contents are stored once. The store
+ * does not track who uses a content: reference counting is left to the caller, see
+ * {@link com.tothapplication.domain.ContentBlob}.
+ * <p>
+ * Implementations must stream content in and out: neither {@link #stage(InputStream)} nor the channel returned by
+ * {@link #open(String)} may hold a whole content in memory. When the backend is file based, {@link #open(String)}
+ * should return a {@link java.nio.channels.FileChannel} so that downloads can be sent without copying through the heap.
+ */
+public interface ContentStore {
+
+    /**
+     * Upload and hash the content read from the stream, without storing it yet.
+     *
+     * @param content the content, read until its end and left open.
+     * @return the staged content, to be closed by the caller.
+     * @throws IOException if the content could not be read or uploaded.
+     */
+    StagedContent stage(InputStream content) throws IOException;
+
+    /**
+     * Store a staged content, unless a content with the same digest is already stored.
+     * <p>
+     * Callers deduplicating contents call this while holding the lock the contents are deleted under, so that the
+     * content they reference cannot be deleted between this check and their reference: a content deleted in between
+     * is stored again from the upload.
+     *
+     * @param staged a content staged by this store, and not closed.
+     * @return the digest and size of the content, and whether it was already stored.
+     * @throws IOException if the content could not be stored.
+     */
+    StoredContent store(StagedContent staged) throws IOException;
+
+    /**
+     * Open a stored content for reading.
+     *
+     * @param key the key returned when the content was stored.
+     * @return a channel positioned at the start of the content, to be closed by the caller.
+     * @throws IOException if the content could not be opened.
+     */
+    SeekableByteChannel open(String key) throws IOException;
+
+    /**
+     * Check whether a content is stored.
+     *
+     * @param key the key returned when the content was stored.
+     * @return whether the content is stored.
+     * @throws IOException if the store could not be read.
+     */
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Delete a stored content. Deleting a missing content is not an error.
+     *
+     * @param key the key returned when the content was stored.
+     * @throws IOException if the content could not be deleted.
+     */
+    void delete(String key) throws IOException;
+}
@@ -0,0 +1,155 @@
+package com.tothapplication.service.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ContentStore} keeping each content in a file under a root directory, named after its SHA-256 digest.
+ * <p>
+ * Uploads are hashed while they are streamed to a temporary file, which is then atomically moved in place, so a
+ * partial upload is never visible, or simply dropped when a file with the same digest already exists. Contents are
+ * spread over 256 sub-directories to keep directories small.
+ */
+public class LocalContentStore implements ContentStore {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Logger log = LoggerFactory.getLogger(LocalContentStore.class);
+
+    private final Path root;
+
+    private final Path uploads;
+
+    public LocalContentStore(Path root) throws IOException {
+        this.root = root.toAbsolutePath();
+        this.uploads = this.root.resolve("tmp");
+        Files.createDirectories(uploads);
+        log.info("Storing document contents in {}", this.root);
+    }
+
+    @Override
+    public StagedContent stage(InputStream content) throws IOException {
+        Path upload = Files.createTempFile(uploads, "upload-", ".tmp");
+        try {
+            DigestInputStream digestStream = new DigestInputStream(content, sha256());
+            long size = Files.copy(digestStream, upload, StandardCopyOption.REPLACE_EXISTING);
+            return new LocalStagedContent(upload, toHex(digestStream.getMessageDigest().digest()), size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+    }
+
+    @Override
+    public StoredContent store(StagedContent staged) throws IOException {
+        if (!(staged instanceof LocalStagedContent)) {
+            throw new IllegalArgumentException("Not staged by this store: " + staged);
+        }
+        LocalStagedContent upload = (LocalStagedContent) staged;
+        Path target = resolve(upload.key);
+        if (Files.exists(target)) {
+            return new StoredContent(upload.key, upload.size, true);
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(upload.path, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently by another upload of the same content
+            return new StoredContent(upload.key, upload.size, true);
+        }
+        return new StoredContent(upload.key, upload.size, false);
+    }
+
+    @Override
+    public SeekableByteChannel open(String key) throws IOException {
+        return FileChannel.open(resolve(key), StandardOpenOption.READ);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid content key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static final class LocalStagedContent implements StagedContent {
+
+        private final Path path;
+
+        private final String key;
+
+        private final long size;
+
+        private LocalStagedContent(Path path, String key, long size) {
+            this.path = path;
+            this.key = key;
+            this.size = size;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(path);
+        }
+
+        @Override
+        public String toString() {
+            return "LocalStagedContent{" +
+                "key='" + key + "'" +
+                ", size=" + size +
+                "}";
+        }
+    }
+}
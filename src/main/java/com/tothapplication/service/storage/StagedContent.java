@@ -0,0 +1,30 @@
+package com.tothapplication.service.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A content uploaded to a {@link ContentStore} and hashed, but not stored yet.
+ * <p>
+ * It is stored by {@link ContentStore#store(StagedContent)}, and closing it drops the upload if it was not stored.
+ */
+public interface StagedContent extends Closeable {
+
+    /**
+     * @return the hexadecimal SHA-256 digest of the content, its key once stored.
+     */
+    String getKey();
+
+    /**
+     * @return the size of the content, in bytes.
+     */
+    long getSize();
+
+    /**
+     * Drop the upload, if it was not stored.
+     *
+     * @throws IOException if the upload could not be dropped.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,40 @@
+package com.tothapplication.service.storage;
+
+/**
+ * The key and size of a content saved in a {@link ContentStore}, and whether the store already held it.
+ */
+public class StoredContent {
+
+    private final String key;
+
+    private final long size;
+
+    private final boolean deduplicated;
+
+    public StoredContent(String key, long size, boolean deduplicated) {
+        this.key = key;
+        this.size = size;
+        this.deduplicated = deduplicated;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public boolean isDeduplicated() {
+        return deduplicated;
+    }
+
+    @Override
+    public String toString() {
+        return "StoredContent{" +
+            "key='" + key + "'" +
+            ", size=" + size +
+            ", deduplicated=" + deduplicated +
+            "}";
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Storage backends for the content of documents.
+ */
+package com.tothapplication.service.storage;
@@ -0,0 +1,135 @@
+package com.tothapplication.service.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Utility class reloading the in-memory copies of changed entities in the background, once the transactions that
+ * changed them are committed.
+ * <p>
+ * The committing thread only queues the ids of the entities, so that it returns its connection to the pool without
+ * waiting for a reload. At most one reload runs at a time, on a thread of the executor: the ids queued while it runs
+ * are coalesced into the next one.
+ */
+public class CoalescingReloader {
+
+    private final Logger log = LoggerFactory.getLogger(CoalescingReloader.class);
+
+    private final String name;
+
+    private final Executor executor;
+
+    private final Consumer<Map<String, Set<Long>>> reload;
+
+    // The fields below are guarded by this
+
+    private Map<String, Set<Long>> queued = new HashMap<>();
+
+    private boolean running;
+
+    /**
+     * @param name what is reloaded, for the logs.
+     * @param executor the executor running the reloads.
+     * @param reload the reload of the ids of changed entities, by entity type.
+     */
+    public CoalescingReloader(String name, Executor executor, Consumer<Map<String, Set<Long>>> reload) {
+        this.name = name;
+        this.executor = executor;
+        this.reload = reload;
+    }
+
+    /**
+     * Record that an entity was created, updated or deleted in the current transaction. It is reloaded once the
+     * transaction is committed, or soon if there is no transaction.
+     *
+     * @param entityType the type of the entity.
+     * @param entityId the id of the entity.
+     */
+    public void changed(String entityType, Long entityId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(Collections.singletonMap(entityType, Collections.singleton(entityId)));
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.entityIds.computeIfAbsent(entityType, type -> new HashSet<>()).add(entityId);
+    }
+
+    /**
+     * Check whether all the committed changes were reloaded.
+     *
+     * @return whether no reload is queued nor running.
+     */
+    public synchronized boolean isIdle() {
+        return !running && queued.isEmpty();
+    }
+
+    private void submit(Map<String, Set<Long>> entityIds) {
+        synchronized (this) {
+            entityIds.forEach((entityType, ids) -> queued.computeIfAbsent(entityType, type -> new HashSet<>()).addAll(ids));
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                queued = new HashMap<>();
+                running = false;
+            }
+            log.warn("Could not reload the {}, left to the next rebuild: {}", name, e.getMessage());
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Map<String, Set<Long>> entityIds;
+            synchronized (this) {
+                if (queued.isEmpty()) {
+                    running = false;
+                    return;
+                }
+                entityIds = queued;
+                queued = new HashMap<>();
+            }
+            try {
+                reload.accept(entityIds);
+            } catch (RuntimeException e) {
+                log.warn("Could not reload the {} of {}: {}", name, entityIds, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The entities changed in a transaction, queued once it is committed.
+     */
+    private class PendingChanges extends TransactionSynchronizationAdapter {
+
+        private final Map<String, Set<Long>> entityIds = new HashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CoalescingReloader.this);
+            if (status == STATUS_COMMITTED) {
+                submit(entityIds);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.tothapplication.service.util;
+
+import com.tothapplication.service.dto.HotKeyDTO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sketch of the most frequent keys of a stream, in bounded memory (the Space-Saving algorithm).
+ * <p>
+ * At most {@code capacity} keys are counted. A key not counted yet when all the counters are taken replaces the key
+ * with the lowest count, and inherits that count as its possible overestimation: the count of a key is never
+ * underestimated, and overestimated by at most its error. Any key more frequent than {@code 1 / capacity} of the
+ * stream is guaranteed to be counted.
+ * <p>
+ * This class is thread-safe.
+ */
+public class HotKeySketch {
+
+    private final int capacity;
+
+    private final Map<String, Counter> counters = new HashMap<>();
+
+    public HotKeySketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Count an occurrence of a key.
+     *
+     * @param key the key.
+     */
+    public synchronized void offer(String key) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            counter.count++;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(key, new Counter(1, 0));
+            return;
+        }
+        // Linear in the capacity, which is small, and only reached by the keys not counted yet
+        Map.Entry<String, Counter> min = null;
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            if (min == null || entry.getValue().count < min.getValue().count) {
+                min = entry;
+            }
+        }
+        counters.remove(min.getKey());
+        counters.put(key, new Counter(min.getValue().count + 1, min.getValue().count));
+    }
+
+    /**
+     * Get the most frequent keys.
+     *
+     * @param size the maximum number of keys to return.
+     * @return the keys, by descending count.
+     */
+    public synchronized List<HotKeyDTO> top(int size) {
+        List<HotKeyDTO> top = new ArrayList<>(counters.size());
+        counters.forEach((key, counter) -> top.add(new HotKeyDTO(key, counter.count, counter.error)));
+        top.sort(Comparator.comparingLong(HotKeyDTO::getCount).reversed().thenComparing(HotKeyDTO::getKey));
+        return new ArrayList<>(top.subList(0, Math.min(size, top.size())));
+    }
+
+    /**
+     * Forget all the keys.
+     */
+    public synchronized void clear() {
+        counters.clear();
+    }
+
+    private static final class Counter {
+
+        private long count;
+
+        private final long error;
+
+        private Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.tothapplication.service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in a keyset-ordered listing.
+ * <p>
+ * A cursor remembers the sort key of the last row returned, so that the next page can be
+ * read with an index range scan ({@code where key > :last}) instead of an {@code offset}.
+ * When listing by title, rows without a title are served after every titled row, ordered by id.
+ */
+public final class KeysetCursor {
+
+    private enum Kind {
+        ID("i"), TITLE("t"), NO_TITLE("n");
+
+        private final String prefix;
+
+        Kind(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private final Kind kind;
+
+    private final Long id;
+
+    private final String title;
+
+    private KeysetCursor(Kind kind, Long id, String title) {
+        this.kind = kind;
+        this.id = id;
+        this.title = title;
+    }
+
+    /**
+     * Create a cursor positioned after the given id.
+     *
+     * @param id the id of the last row returned.
+     * @return the cursor.
+     */
+    public static KeysetCursor afterId(Long id) {
+        return new KeysetCursor(Kind.ID, id, null);
+    }
+
+    /**
+     * Create a cursor positioned after the given (title, id) pair, or after the given id among the rows
+     * without a title if {@code title} is {@code null}.
+     *
+     * @param title the title of the last row returned.
+     * @param id the id of the last row returned.
+     * @return the cursor.
+     */
+    public static KeysetCursor afterTitle(String title, Long id) {
+        return new KeysetCursor(title != null ? Kind.TITLE : Kind.NO_TITLE, id, title);
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode()}.
+     *
+     * @param value the encoded cursor.
+     * @return the cursor.
+     * @throws IllegalArgumentException if the value is not a valid cursor.
+     */
+    public static KeysetCursor decode(String value) {
+        String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        int separator = decoded.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor: " + value);
+        }
+        String prefix = decoded.substring(0, separator);
+        String rest = decoded.substring(separator + 1);
+        if (Kind.TITLE.prefix.equals(prefix)) {
+            int titleSeparator = rest.indexOf(':');
+            if (titleSeparator < 0) {
+                throw new IllegalArgumentException("Malformed cursor: " + value);
+            }
+            return afterTitle(rest.substring(titleSeparator + 1), Long.valueOf(rest.substring(0, titleSeparator)));
+        } else if (Kind.NO_TITLE.prefix.equals(prefix)) {
+            return afterTitle(null, Long.valueOf(rest));
+        } else if (Kind.ID.prefix.equals(prefix)) {
+            return afterId(Long.valueOf(rest));
+        }
+        throw new IllegalArgumentException("Malformed cursor: " + value);
+    }
+
+    /**
+     * Encode this cursor as an URL-safe string.
+     *
+     * @return the encoded cursor.
+     */
+    public String encode() {
+        String raw = kind.prefix + ":" + id + (kind == Kind.TITLE ? ":" + title : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return {@code true} if this cursor was produced by a listing ordered by title.
+     */
+    public boolean isByTitle() {
+        return kind != Kind.ID;
+    }
+
+    /**
+     * @return {@code true} if this cursor points into the titled part of a listing ordered by title.
+     */
+    public boolean isTitled() {
+        return kind == Kind.TITLE;
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetCursor{" +
+            "kind=" + kind +
+            ", id=" + id +
+            ", title='" + title + "'" +
+            "}";
+    }
+}
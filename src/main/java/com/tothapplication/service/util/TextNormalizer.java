@@ -0,0 +1,85 @@
+package com.tothapplication.service.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class normalizing text for matching.
+ * <p>
+ * Folded text is lower case, without diacritics ("Développeur" becomes "developpeur"), with the French ligatures
+ * expanded, and made of words of letters and digits separated by single spaces.
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Fold a text.
+     *
+     * @param text the text, may be {@code null}.
+     * @return the folded text, empty if the text has no letter nor digit.
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (space && folded.length() > 0) {
+                    folded.append(' ');
+                }
+                space = false;
+                appendFolded(folded, Character.toLowerCase(c));
+            } else {
+                space = true;
+            }
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Split a text into folded words.
+     *
+     * @param text the text, may be {@code null}.
+     * @return the folded words, in order.
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        String folded = fold(text);
+        int start = 0;
+        while (start < folded.length()) {
+            int end = folded.indexOf(' ', start);
+            if (end < 0) {
+                end = folded.length();
+            }
+            words.add(folded.substring(start, end));
+            start = end + 1;
+        }
+        return words;
+    }
+
+    private static void appendFolded(StringBuilder folded, char c) {
+        switch (c) {
+            case 'œ':
+                folded.append("oe");
+                break;
+            case 'æ':
+                folded.append("ae");
+                break;
+            case 'ß':
+                folded.append("ss");
+                break;
+            default:
+                folded.append(c);
+        }
+    }
+}
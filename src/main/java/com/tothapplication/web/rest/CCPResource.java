@@ -1,25 +1,46 @@
 package com.tothapplication.web.rest;
 
+import com.tothapplication.config.Constants;
 import com.tothapplication.domain.CCP;
 import com.tothapplication.repository.CCPRepository;
-import com.tothapplication.repository.search.CCPSearchRepository;
+import com.tothapplication.service.CCPDocumentCountService;
+import com.tothapplication.service.CCPService;
+import com.tothapplication.service.DocumentService;
+import com.tothapplication.service.EntityTagService;
+import com.tothapplication.service.ExportService;
+import com.tothapplication.service.SearchService;
+import com.tothapplication.service.dto.CCPSummaryDTO;
+import com.tothapplication.service.dto.CCPWithDocumentCountDTO;
+import com.tothapplication.service.dto.DocumentSummaryDTO;
+import com.tothapplication.service.dto.SearchPage;
 import com.tothapplication.web.rest.errors.BadRequestAlertException;
+import com.tothapplication.web.rest.util.EntityTagUtil;
+import com.tothapplication.web.rest.util.KeysetPaginationUtil;
+import com.tothapplication.web.rest.util.SearchPaginationUtil;
 
 import io.github.jhipster.web.util.HeaderUtil;
-import io.github.jhipster.web.util.ResponseUtil;
+import io.github.jhipster.web.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -39,11 +60,28 @@ public class CCPResource {
 
     private final CCPRepository cCPRepository;
 
-    private final CCPSearchRepository cCPSearchRepository;
+    private final SearchService searchService;
 
-    public CCPResource(CCPRepository cCPRepository, CCPSearchRepository cCPSearchRepository) {
+    private final CCPService cCPService;
+
+    private final ExportService exportService;
+
+    private final EntityTagService entityTagService;
+
+    private final CCPDocumentCountService cCPDocumentCountService;
+
+    private final DocumentService documentService;
+
+    public CCPResource(CCPRepository cCPRepository, SearchService searchService, CCPService cCPService,
+                       ExportService exportService, EntityTagService entityTagService,
+                       CCPDocumentCountService cCPDocumentCountService, DocumentService documentService) {
         this.cCPRepository = cCPRepository;
-        this.cCPSearchRepository = cCPSearchRepository;
+        this.searchService = searchService;
+        this.cCPService = cCPService;
+        this.exportService = exportService;
+        this.entityTagService = entityTagService;
+        this.cCPDocumentCountService = cCPDocumentCountService;
+        this.documentService = documentService;
     }
 
     /**
@@ -59,8 +97,7 @@ public class CCPResource {
         if (cCP.getId() != null) {
             throw new BadRequestAlertException("A new cCP cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        CCP result = cCPRepository.save(cCP);
-        cCPSearchRepository.save(result);
+        CCP result = cCPService.save(cCP);
         return ResponseEntity.created(new URI("/api/ccps/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
             .body(result);
@@ -81,8 +118,8 @@ public class CCPResource {
         if (cCP.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
-        CCP result = cCPRepository.save(cCP);
-        cCPSearchRepository.save(result);
+        CCP result = cCPService.save(cCP);
+        evictTags(result.getId());
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, cCP.getId().toString()))
             .body(result);
@@ -99,17 +136,96 @@ public class CCPResource {
         return cCPRepository.findAll();
     }
 
+    /**
+     * {@code GET  /ccps?withCounts=true} : get all the cCPS with the number of their documents.
+     * <p>
+     * The counts are maintained as documents are saved, so they are read without counting the documents.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of cCPS with their counts in body.
+     */
+    @GetMapping(value = "/ccps", params = "withCounts=true")
+    public List<CCPWithDocumentCountDTO> getAllCCPSWithDocumentCount() {
+        log.debug("REST request to get all CCPS with their document count");
+        return cCPDocumentCountService.findAllWithDocumentCount();
+    }
+
+    /**
+     * {@code GET  /ccps?view=summary} : get all the cCPS as summaries.
+     * <p>
+     * A summary holds the id and title of a cCP. Summaries are read in a read-only query, without loading the cCPS themselves.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of summaries in body.
+     */
+    @GetMapping(value = "/ccps", params = "view=summary")
+    public List<CCPSummaryDTO> getAllCCPSummaries() {
+        log.debug("REST request to get all CCP summaries");
+        return cCPRepository.findAllSummaries();
+    }
+
+    /**
+     * {@code GET  /ccps/export} : export all the cCPS as newline-delimited JSON.
+     * <p>
+     * The cCPS are streamed from a database cursor as they are read, so the response can be arbitrarily large.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the cCPS in body, one per line.
+     */
+    @GetMapping("/ccps/export")
+    public ResponseEntity<StreamingResponseBody> exportCCPS() {
+        log.debug("REST request to export all CCPS");
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(Constants.APPLICATION_NDJSON_VALUE))
+            .body(exportService::exportCCPS);
+    }
+
     /**
      * {@code GET  /ccps/:id} : get the "id" cCP.
+     * <p>
+     * The response carries an {@code ETag}. When the {@code If-None-Match} header matches the cached tag of the
+     * cCP, the cCP is not even loaded.
      *
      * @param id the id of the cCP to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the cCP, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the {@code If-None-Match} header of the request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the cCP, or with status {@code 304 (Not Modified)},
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/ccps/{id}")
-    public ResponseEntity<CCP> getCCP(@PathVariable Long id) {
+    public ResponseEntity<CCP> getCCP(@PathVariable Long id,
+                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get CCP : {}", id);
+        Optional<String> cachedTag = entityTagService.getCachedTag(EntityTagService.CCP_TAGS_CACHE, id);
+        if (cachedTag.isPresent() && EntityTagUtil.matches(ifNoneMatch, cachedTag.get())) {
+            return EntityTagUtil.notModified(cachedTag.get());
+        }
+        long stamp = entityTagService.stamp(EntityTagService.CCP_TAGS_CACHE, id);
         Optional<CCP> cCP = cCPRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(cCP);
+        return cCP.map(result -> ResponseEntity.ok()
+            .eTag(entityTagService.tag(EntityTagService.CCP_TAGS_CACHE, id, stamp, result))
+            .body(result))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * {@code GET  /ccps/:id/documents} : get a page of the documents of the "id" cCP, as summaries.
+     * <p>
+     * The documents are ordered by id unless another order is requested, and only those of the page are read, so
+     * the documents of a cCP are listed without loading them all.
+     *
+     * @param id the id of the cCP.
+     * @param pageable the pagination information.
+     * @param queryParams the query parameters of the request, used to build the pagination links.
+     * @param uriBuilder the URI builder of the request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the page of document summaries in body,
+     * or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/ccps/{id}/documents")
+    public ResponseEntity<List<DocumentSummaryDTO>> getCCPDocuments(@PathVariable Long id, Pageable pageable,
+                                                                    @RequestParam MultiValueMap<String, String> queryParams,
+                                                                    UriComponentsBuilder uriBuilder) {
+        log.debug("REST request to get a page of the Documents of CCP : {}", id);
+        Page<DocumentSummaryDTO> page = documentService.findSummariesByCCPId(id, pageable)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(uriBuilder.queryParams(queryParams), page);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
     /**
@@ -121,24 +237,50 @@ public class CCPResource {
     @DeleteMapping("/ccps/{id}")
     public ResponseEntity<Void> deleteCCP(@PathVariable Long id) {
         log.debug("REST request to delete CCP : {}", id);
-        cCPRepository.deleteById(id);
-        cCPSearchRepository.deleteById(id);
+        cCPService.delete(id);
+        evictTags(id);
         return ResponseEntity.noContent().headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString())).build();
     }
 
+    /**
+     * Evict the tag of a cCP, and the tags of all the documents since they embed their cCPS.
+     */
+    private void evictTags(Long id) {
+        entityTagService.evict(EntityTagService.CCP_TAGS_CACHE, id);
+        entityTagService.evictAll(EntityTagService.DOCUMENT_TAGS_CACHE);
+    }
+
     /**
      * {@code SEARCH  /_search/ccps?query=:query} : search for the cCP corresponding
      * to the query.
+     * <p>
+     * The hits are paginated: the response holds one page of at most {@value SearchService#MAX_PAGE_SIZE} cCPS with
+     * the usual pagination headers. Pages past the first {@value SearchService#MAX_RESULT_WINDOW} hits are read by
+     * following the cursor given in the {@value KeysetPaginationUtil#NEXT_CURSOR_HEADER} header of each page, which
+     * is as fast as reading the first page.
      *
      * @param query the query of the cCP search.
-     * @return the result of the search.
+     * @param cursor the cursor returned with the previous page, if any.
+     * @param pageable the pagination information.
+     * @param queryParams the query parameters of the request, used to build the pagination links.
+     * @param uriBuilder the URI builder of the request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the page of cCPS in body, or with status
+     * {@code 400 (Bad Request)} if the page is too large or too deep, or the cursor or the query is invalid.
+     * @throws IOException if Elasticsearch could not be queried.
      */
     @GetMapping("/_search/ccps")
-    public List<CCP> searchCCPS(@RequestParam String query) {
-        log.debug("REST request to search CCPS for query {}", query);
-        return StreamSupport
-            .stream(cCPSearchRepository.search(queryStringQuery(query)).spliterator(), false)
-            .collect(Collectors.toList());
+    public ResponseEntity<List<CCP>> searchCCPS(@RequestParam String query, @RequestParam(required = false) String cursor,
+                                                Pageable pageable, @RequestParam MultiValueMap<String, String> queryParams,
+                                                UriComponentsBuilder uriBuilder) throws IOException {
+        log.debug("REST request to search for a page of CCPS for query {}", query);
+        SearchPage<CCP> page;
+        try {
+            page = searchService.search(CCP.class, queryStringQuery(query), pageable, cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "searchinvalid");
+        }
+        HttpHeaders headers = SearchPaginationUtil.generateSearchHttpHeaders(uriBuilder.queryParams(queryParams), page, pageable, cursor);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
 }
@@ -0,0 +1,75 @@
+package com.tothapplication.web.rest;
+
+import com.tothapplication.service.DocumentMembershipService;
+import com.tothapplication.service.dto.DocumentMembershipDTO;
+import com.tothapplication.service.dto.DocumentMembershipQueryDTO;
+import com.tothapplication.service.dto.RelatedDocumentDTO;
+import com.tothapplication.web.rest.errors.BadRequestAlertException;
+
+import io.github.jhipster.web.util.ResponseUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST controller answering boolean queries on the CCPs and types of documents, and finding related documents.
+ */
+@RestController
+@RequestMapping("/api")
+public class DocumentMembershipResource {
+
+    private final Logger log = LoggerFactory.getLogger(DocumentMembershipResource.class);
+
+    private static final String ENTITY_NAME = "document";
+
+    private final DocumentMembershipService documentMembershipService;
+
+    public DocumentMembershipResource(DocumentMembershipService documentMembershipService) {
+        this.documentMembershipService = documentMembershipService;
+    }
+
+    /**
+     * {@code GET  /documents/_membership} : find the documents linked to all the {@code allCcpIds}, to any of the
+     * {@code anyCcpIds} and to none of the {@code notCcpIds}, of any of the {@code typeDoc} and of none of the
+     * {@code notTypeDoc}, e.g. {@code ?allCcpIds=3,7&notTypeDoc=JUSTIF}.
+     * <p>
+     * The query is answered from in-memory bitmaps, without querying the database.
+     *
+     * @param query the criteria of the query.
+     * @param pageable the requested page of ids, sorted by ascending id.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and, in body, a page of the ids of the matching
+     * documents and the facet counts of all of them, or with status {@code 400 (Bad Request)} if the page is too large.
+     */
+    @GetMapping("/documents/_membership")
+    public ResponseEntity<DocumentMembershipDTO> queryDocumentMembership(DocumentMembershipQueryDTO query, Pageable pageable) {
+        log.debug("REST request to query the membership of Documents : {}", query);
+        try {
+            return ResponseEntity.ok(documentMembershipService.query(query, pageable));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "sizeinvalid");
+        }
+    }
+
+    /**
+     * {@code GET  /documents/:id/related} : get the documents related to the "id" document, the ones sharing the
+     * most CCPs with it.
+     * <p>
+     * The related documents are precomputed in memory, only their titles are read from the database.
+     *
+     * @param id the id of the document.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of related documents in body, by
+     * descending number of shared CCPs, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/documents/{id}/related")
+    public ResponseEntity<List<RelatedDocumentDTO>> getRelatedDocuments(@PathVariable Long id) {
+        log.debug("REST request to get the Documents related to Document : {}", id);
+        return ResponseUtil.wrapOrNotFound(documentMembershipService.findRelated(id));
+    }
+}
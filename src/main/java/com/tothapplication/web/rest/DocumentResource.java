@@ -1,25 +1,56 @@
 package com.tothapplication.web.rest;
 
+import com.tothapplication.config.Constants;
 import com.tothapplication.domain.Document;
 import com.tothapplication.repository.DocumentRepository;
-import com.tothapplication.repository.search.DocumentSearchRepository;
+import com.tothapplication.service.DocumentBulkService;
+import com.tothapplication.service.DocumentContentService;
+import com.tothapplication.service.DocumentFacetService;
+import com.tothapplication.service.DocumentSearchService;
+import com.tothapplication.service.DocumentService;
+import com.tothapplication.service.EntityTagService;
+import com.tothapplication.service.ExportService;
+import com.tothapplication.service.SearchService;
+import com.tothapplication.service.dto.BulkResultDTO;
+import com.tothapplication.service.dto.DocumentFacetsDTO;
+import com.tothapplication.service.dto.DocumentSearchDTO;
+import com.tothapplication.service.dto.DocumentSummaryDTO;
+import com.tothapplication.service.dto.KeysetSlice;
+import com.tothapplication.service.dto.SearchPage;
+import com.tothapplication.service.util.KeysetCursor;
 import com.tothapplication.web.rest.errors.BadRequestAlertException;
+import com.tothapplication.web.rest.util.ContentTransferUtil;
+import com.tothapplication.web.rest.util.EntityTagUtil;
+import com.tothapplication.web.rest.util.KeysetPaginationUtil;
+import com.tothapplication.web.rest.util.SearchPaginationUtil;
 
 import io.github.jhipster.web.util.HeaderUtil;
-import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 
+import java.nio.channels.SeekableByteChannel;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.function.BiFunction;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -39,11 +70,35 @@ public class DocumentResource {
 
     private final DocumentRepository documentRepository;
 
-    private final DocumentSearchRepository documentSearchRepository;
+    private final SearchService searchService;
 
-    public DocumentResource(DocumentRepository documentRepository, DocumentSearchRepository documentSearchRepository) {
+    private final DocumentService documentService;
+
+    private final ExportService exportService;
+
+    private final DocumentBulkService documentBulkService;
+
+    private final DocumentContentService documentContentService;
+
+    private final EntityTagService entityTagService;
+
+    private final DocumentFacetService documentFacetService;
+
+    private final DocumentSearchService documentSearchService;
+
+    public DocumentResource(DocumentRepository documentRepository, SearchService searchService,
+                            DocumentService documentService, ExportService exportService, DocumentBulkService documentBulkService,
+                            DocumentContentService documentContentService, EntityTagService entityTagService,
+                            DocumentFacetService documentFacetService, DocumentSearchService documentSearchService) {
         this.documentRepository = documentRepository;
-        this.documentSearchRepository = documentSearchRepository;
+        this.searchService = searchService;
+        this.documentService = documentService;
+        this.exportService = exportService;
+        this.documentBulkService = documentBulkService;
+        this.documentContentService = documentContentService;
+        this.entityTagService = entityTagService;
+        this.documentFacetService = documentFacetService;
+        this.documentSearchService = documentSearchService;
     }
 
     /**
@@ -59,8 +114,7 @@ public class DocumentResource {
         if (document.getId() != null) {
             throw new BadRequestAlertException("A new document cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        Document result = documentRepository.save(document);
-        documentSearchRepository.save(result);
+        Document result = documentService.save(document);
         return ResponseEntity.created(new URI("/api/documents/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
             .body(result);
@@ -81,36 +135,307 @@ public class DocumentResource {
         if (document.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
-        Document result = documentRepository.save(document);
-        documentSearchRepository.save(result);
+        Document result = documentService.save(document);
+        entityTagService.evict(EntityTagService.DOCUMENT_TAGS_CACHE, result.getId());
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, document.getId().toString()))
             .body(result);
     }
 
+    /**
+     * {@code POST  /documents/_bulk} : Create or update documents in bulk.
+     * <p>
+     * The body is either a JSON array of documents or newline-delimited JSON, one document per line. Documents without
+     * an id are created, documents with an id are updated; their CCPs are referenced by id. Items are processed and
+     * reported independently: an invalid item does not prevent the others from being saved.
+     *
+     * @param body the documents to save.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the report, one result per document.
+     * @throws IOException if the body could not be read.
+     */
+    @PostMapping(value = "/documents/_bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, Constants.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkResultDTO> bulkSaveDocuments(InputStream body) throws IOException {
+        log.debug("REST request to save Documents in bulk");
+        BulkResultDTO result = documentBulkService.saveAll(body);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * {@code GET  /documents} : get all the documents.
+     * <p>
+     * When {@code cursor} or {@code size} is given, the documents are paginated by keyset: the response holds at most
+     * {@code size} documents and, if more are available, a {@code Link} header with {@code rel="next"} and a
+     * {@value KeysetPaginationUtil#NEXT_CURSOR_HEADER} header giving the cursor of the next page.
      *
      * @param eagerload flag to eager load entities from relationships (This is applicable for many-to-many).
+     * @param cursor the cursor returned with the previous page, if any.
+     * @param size the maximum number of documents per page.
+     * @param orderBy the keyset to paginate on: {@code id} (default) or {@code title}.
+     * @param queryParams the query parameters of the request, used to build the next page link.
+     * @param uriBuilder the URI builder of the request.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of documents in body.
      */
     @GetMapping("/documents")
-    public List<Document> getAllDocuments(@RequestParam(required = false, defaultValue = "false") boolean eagerload) {
-        log.debug("REST request to get all Documents");
-        return documentRepository.findAllWithEagerRelationships();
+    public ResponseEntity<List<Document>> getAllDocuments(@RequestParam(required = false, defaultValue = "false") boolean eagerload,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer size,
+                                                          @RequestParam(required = false, defaultValue = "id") String orderBy,
+                                                          @RequestParam MultiValueMap<String, String> queryParams,
+                                                          UriComponentsBuilder uriBuilder) {
+        if (cursor == null && size == null) {
+            log.debug("REST request to get all Documents");
+            return ResponseEntity.ok(documentRepository.findAllWithEagerRelationships());
+        }
+        log.debug("REST request to get a page of Documents by {} after cursor {}", orderBy, cursor);
+        KeysetSlice<Document> slice = findSlice(cursor, size, orderBy, documentService::findSliceById, documentService::findSliceByTitle);
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(uriBuilder.queryParams(queryParams), slice);
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * {@code GET  /documents?view=summary} : get all the documents as summaries.
+     * <p>
+     * A summary holds the id, title and type of a document and the ids of its CCPs. Summaries are read without
+     * loading the documents themselves, which makes them much cheaper to list. They are paginated like the documents.
+     *
+     * @param cursor the cursor returned with the previous page, if any.
+     * @param size the maximum number of summaries per page.
+     * @param orderBy the keyset to paginate on: {@code id} (default) or {@code title}.
+     * @param queryParams the query parameters of the request, used to build the next page link.
+     * @param uriBuilder the URI builder of the request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of summaries in body.
+     */
+    @GetMapping(value = "/documents", params = "view=summary")
+    public ResponseEntity<List<DocumentSummaryDTO>> getAllDocumentSummaries(@RequestParam(required = false) String cursor,
+                                                                            @RequestParam(required = false) Integer size,
+                                                                            @RequestParam(required = false, defaultValue = "id") String orderBy,
+                                                                            @RequestParam MultiValueMap<String, String> queryParams,
+                                                                            UriComponentsBuilder uriBuilder) {
+        if (cursor == null && size == null) {
+            log.debug("REST request to get all Document summaries");
+            return ResponseEntity.ok(documentService.findAllSummaries());
+        }
+        log.debug("REST request to get a page of Document summaries by {} after cursor {}", orderBy, cursor);
+        KeysetSlice<DocumentSummaryDTO> slice = findSlice(cursor, size, orderBy,
+            documentService::findSummarySliceById, documentService::findSummarySliceByTitle);
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(uriBuilder.queryParams(queryParams), slice);
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    private <T> KeysetSlice<T> findSlice(String cursor, Integer size, String orderBy,
+                                         BiFunction<KeysetCursor, Integer, KeysetSlice<T>> byId,
+                                         BiFunction<KeysetCursor, Integer, KeysetSlice<T>> byTitle) {
+        int pageSize = size != null ? size : DocumentService.DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > DocumentService.MAX_PAGE_SIZE) {
+            throw new BadRequestAlertException("Page size must be between 1 and " + DocumentService.MAX_PAGE_SIZE, ENTITY_NAME, "sizeinvalid");
+        }
+        KeysetCursor position = decodeCursor(cursor);
+        if ("title".equals(orderBy)) {
+            if (position != null && !position.isByTitle()) {
+                throw new BadRequestAlertException("Cursor does not match the requested order", ENTITY_NAME, "cursorinvalid");
+            }
+            return byTitle.apply(position, pageSize);
+        }
+        if ("id".equals(orderBy)) {
+            if (position != null && position.isByTitle()) {
+                throw new BadRequestAlertException("Cursor does not match the requested order", ENTITY_NAME, "cursorinvalid");
+            }
+            return byId.apply(position, pageSize);
+        }
+        throw new BadRequestAlertException("Documents can only be ordered by id or title", ENTITY_NAME, "orderinvalid");
+    }
+
+    private KeysetCursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "cursorinvalid");
+        }
+    }
+
+    /**
+     * {@code GET  /documents/export} : export all the documents, with their CCPs, as newline-delimited JSON.
+     * <p>
+     * The documents are streamed from a database cursor as they are read, so the response can be arbitrarily large.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the documents in body, one per line.
+     */
+    @GetMapping("/documents/export")
+    public ResponseEntity<StreamingResponseBody> exportDocuments() {
+        log.debug("REST request to export all Documents");
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(Constants.APPLICATION_NDJSON_VALUE))
+            .body(exportService::exportDocuments);
+    }
+
+    /**
+     * {@code GET  /documents/_facets?query=:query} : get the facet counts of the documents corresponding to the query:
+     * the number of documents of each type and of each CCP.
+     *
+     * @param query the query of the document search, all the documents if absent.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the facets in body,
+     * or with status {@code 400 (Bad Request)} if the query is invalid,
+     * or with status {@code 503 (Service Unavailable)} if the search engine cannot be reached to apply the query.
+     */
+    @GetMapping("/documents/_facets")
+    public ResponseEntity<DocumentFacetsDTO> getDocumentFacets(@RequestParam(required = false) String query) {
+        log.debug("REST request to get the facets of Documents for query {}", query);
+        Optional<DocumentFacetsDTO> facets;
+        try {
+            facets = documentFacetService.getFacets(query);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "searchinvalid");
+        }
+        return facets
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Search is unavailable"));
     }
 
     /**
      * {@code GET  /documents/:id} : get the "id" document.
+     * <p>
+     * The response carries an {@code ETag}. When the {@code If-None-Match} header matches the cached tag of the
+     * document, the document is not even loaded.
      *
      * @param id the id of the document to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the document, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the {@code If-None-Match} header of the request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the document, or with status {@code 304 (Not Modified)},
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/documents/{id}")
-    public ResponseEntity<Document> getDocument(@PathVariable Long id) {
+    public ResponseEntity<Document> getDocument(@PathVariable Long id,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get Document : {}", id);
+        Optional<String> cachedTag = entityTagService.getCachedTag(EntityTagService.DOCUMENT_TAGS_CACHE, id);
+        if (cachedTag.isPresent() && EntityTagUtil.matches(ifNoneMatch, cachedTag.get())) {
+            return EntityTagUtil.notModified(cachedTag.get());
+        }
+        long stamp = entityTagService.stamp(EntityTagService.DOCUMENT_TAGS_CACHE, id);
         Optional<Document> document = documentRepository.findOneWithEagerRelationships(id);
-        return ResponseUtil.wrapOrNotFound(document);
+        return document.map(result -> ResponseEntity.ok()
+            .eTag(entityTagService.tag(EntityTagService.DOCUMENT_TAGS_CACHE, id, stamp, result))
+            .body(result))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * {@code PUT  /documents/:id/content} : upload the content of the "id" document.
+     * <p>
+     * The body is streamed to the content store as it is received, so the content can be arbitrarily large. The
+     * {@code Content-Type} of the request, if any, becomes the MIME type of the document.
+     *
+     * @param id the id of the document.
+     * @param contentType the {@code Content-Type} header of the request.
+     * @param body the content.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated document, or with status {@code 404 (Not Found)}.
+     * @throws IOException if the content could not be stored.
+     */
+    @PutMapping("/documents/{id}/content")
+    public ResponseEntity<Document> uploadDocumentContent(@PathVariable Long id,
+                                                          @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                                          InputStream body) throws IOException {
+        log.debug("REST request to upload the content of Document : {}", id);
+        Document result = documentContentService.saveContent(id, body, contentType)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, id.toString()))
+            .body(result);
+    }
+
+    /**
+     * {@code GET  /documents/:id/content} : download the content of the "id" document.
+     * <p>
+     * A single byte range can be requested with a {@code Range} header. As RFC 7233 allows, a header that is malformed
+     * or requests several ranges is ignored, and the whole content returned. The content is written straight from the
+     * content store to the response, without going through the heap when the store is file based.
+     *
+     * @param id the id of the document.
+     * @param rangeHeader the {@code Range} header of the request.
+     * @param response the response to write the content to, with status {@code 200 (OK)}, {@code 206 (Partial Content)},
+     * {@code 416 (Range Not Satisfiable)} if the range starts past the end of the content, or {@code 404 (Not Found)}
+     * if the document or its content does not exist.
+     * @throws IOException if the content could not be read or written.
+     */
+    @GetMapping("/documents/{id}/content")
+    public void downloadDocumentContent(@PathVariable Long id,
+                                        @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+                                        HttpServletResponse response) throws IOException {
+        log.debug("REST request to download the content of Document : {}", id);
+        Document document = documentRepository.findById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        try (SeekableByteChannel channel = documentContentService.openContent(document)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND))) {
+            long length = channel.size();
+            long start = 0;
+            long end = length - 1;
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            List<HttpRange> ranges = Collections.emptyList();
+            if (rangeHeader != null) {
+                try {
+                    ranges = HttpRange.parseRanges(rangeHeader);
+                } catch (IllegalArgumentException e) {
+                    log.debug("Ignoring the invalid range {} : {}", rangeHeader, e.getMessage());
+                }
+            }
+            if (ranges.size() == 1) {
+                if (length == 0 || ranges.get(0).getRangeStart(length) >= length) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+            long count = end - start + 1;
+            response.setContentType(document.getMimeType() != null ? document.getMimeType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(count);
+            ContentTransferUtil.transfer(channel, start, count, response);
+        }
+    }
+
+    /**
+     * {@code PUT  /documents/:id/ccps/:ccpId} : link the "id" document to the "ccpId" cCP.
+     * <p>
+     * The link is written without loading the cCPS of the document nor the documents of the cCP. Linking documents
+     * already linked does nothing.
+     *
+     * @param id the id of the document.
+     * @param ccpId the id of the cCP.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}, or with status {@code 404 (Not Found)}
+     * if the document or the cCP does not exist.
+     */
+    @PutMapping("/documents/{id}/ccps/{ccpId}")
+    public ResponseEntity<Void> linkDocumentCCP(@PathVariable Long id, @PathVariable Long ccpId) {
+        log.debug("REST request to link Document {} to CCP {}", id, ccpId);
+        if (!documentService.linkCCP(id, ccpId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        entityTagService.evict(EntityTagService.DOCUMENT_TAGS_CACHE, id);
+        return ResponseEntity.noContent().headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, id.toString())).build();
+    }
+
+    /**
+     * {@code DELETE  /documents/:id/ccps/:ccpId} : unlink the "id" document from the "ccpId" cCP.
+     *
+     * @param id the id of the document.
+     * @param ccpId the id of the cCP.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}, or with status {@code 404 (Not Found)}
+     * if the document or the cCP does not exist.
+     * @see #linkDocumentCCP(Long, Long)
+     */
+    @DeleteMapping("/documents/{id}/ccps/{ccpId}")
+    public ResponseEntity<Void> unlinkDocumentCCP(@PathVariable Long id, @PathVariable Long ccpId) {
+        log.debug("REST request to unlink Document {} from CCP {}", id, ccpId);
+        if (!documentService.unlinkCCP(id, ccpId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        entityTagService.evict(EntityTagService.DOCUMENT_TAGS_CACHE, id);
+        return ResponseEntity.noContent().headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, id.toString())).build();
     }
 
     /**
@@ -122,24 +447,72 @@ public class DocumentResource {
     @DeleteMapping("/documents/{id}")
     public ResponseEntity<Void> deleteDocument(@PathVariable Long id) {
         log.debug("REST request to delete Document : {}", id);
-        documentRepository.deleteById(id);
-        documentSearchRepository.deleteById(id);
+        documentService.delete(id);
+        entityTagService.evict(EntityTagService.DOCUMENT_TAGS_CACHE, id);
         return ResponseEntity.noContent().headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString())).build();
     }
 
     /**
      * {@code SEARCH  /_search/documents?query=:query} : search for the document corresponding
      * to the query.
+     * <p>
+     * The hits are paginated: the response holds one page of at most {@value SearchService#MAX_PAGE_SIZE} documents with
+     * the usual pagination headers. Pages past the first {@value SearchService#MAX_RESULT_WINDOW} hits are read by
+     * following the cursor given in the {@value KeysetPaginationUtil#NEXT_CURSOR_HEADER} header of each page, which
+     * is as fast as reading the first page.
      *
      * @param query the query of the document search.
-     * @return the result of the search.
+     * @param cursor the cursor returned with the previous page, if any.
+     * @param pageable the pagination information.
+     * @param queryParams the query parameters of the request, used to build the pagination links.
+     * @param uriBuilder the URI builder of the request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the page of documents in body, or with status
+     * {@code 400 (Bad Request)} if the page is too large or too deep, or the cursor or the query is invalid.
+     * @throws IOException if Elasticsearch could not be queried.
      */
     @GetMapping("/_search/documents")
-    public List<Document> searchDocuments(@RequestParam String query) {
-        log.debug("REST request to search Documents for query {}", query);
-        return StreamSupport
-            .stream(documentSearchRepository.search(queryStringQuery(query)).spliterator(), false)
-            .collect(Collectors.toList());
+    public ResponseEntity<List<Document>> searchDocuments(@RequestParam String query, @RequestParam(required = false) String cursor,
+                                                          Pageable pageable, @RequestParam MultiValueMap<String, String> queryParams,
+                                                          UriComponentsBuilder uriBuilder) throws IOException {
+        log.debug("REST request to search for a page of Documents for query {}", query);
+        SearchPage<Document> page;
+        try {
+            page = searchService.search(Document.class, queryStringQuery(query), pageable, cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "searchinvalid");
+        }
+        HttpHeaders headers = SearchPaginationUtil.generateSearchHttpHeaders(uriBuilder.queryParams(queryParams), page, pageable, cursor);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * {@code POST  /_search/documents} : search for the documents matching structured criteria.
+     * <p>
+     * Unlike a query string, the criteria need no query syntax: the documents of the given types, in the CCPs with
+     * the given ids or titles, whose title matches the given words and whose MIME type starts with the given prefix. The exact criteria are
+     * not scored and are cached by Elasticsearch. The hits are paginated like the query string search.
+     *
+     * @param search the criteria of the search.
+     * @param cursor the cursor returned with the previous page, if any.
+     * @param pageable the pagination information.
+     * @param queryParams the query parameters of the request, used to build the pagination links.
+     * @param uriBuilder the URI builder of the request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the page of documents in body, or with status
+     * {@code 400 (Bad Request)} if the page is too large or too deep, or the cursor is invalid.
+     * @throws IOException if Elasticsearch could not be queried.
+     */
+    @PostMapping("/_search/documents")
+    public ResponseEntity<List<Document>> searchDocuments(@RequestBody DocumentSearchDTO search, @RequestParam(required = false) String cursor,
+                                                          Pageable pageable, @RequestParam MultiValueMap<String, String> queryParams,
+                                                          UriComponentsBuilder uriBuilder) throws IOException {
+        log.debug("REST request to search for a page of Documents : {}", search);
+        SearchPage<Document> page;
+        try {
+            page = documentSearchService.search(search, pageable, cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "searchinvalid");
+        }
+        HttpHeaders headers = SearchPaginationUtil.generateSearchHttpHeaders(uriBuilder.queryParams(queryParams), page, pageable, cursor);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 }
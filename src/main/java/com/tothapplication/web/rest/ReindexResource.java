@@ -0,0 +1,84 @@
+package com.tothapplication.web.rest;
+
+import com.tothapplication.service.ReindexService;
+import com.tothapplication.service.dto.ReindexStatusDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * REST controller for rebuilding the search indices from the database.
+ */
+@RestController
+@RequestMapping("/management/reindex")
+public class ReindexResource {
+
+    private final Logger log = LoggerFactory.getLogger(ReindexResource.class);
+
+    private final ReindexService reindexService;
+
+    public ReindexResource(ReindexService reindexService) {
+        this.reindexService = reindexService;
+    }
+
+    /**
+     * {@code POST /reindex/:entity} : start the reindex of an entity type, or resume it from its checkpoint.
+     *
+     * @param entity the entity type: {@code document}, {@code ccp} or {@code user}.
+     * @param restart whether to start over instead of resuming an interrupted reindex.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and the status of the reindex in body,
+     * with status {@code 404 (Not Found)} if the entity type is not indexed, or with status
+     * {@code 503 (Service Unavailable)} if the new index could not be created.
+     */
+    @PostMapping("/{entity}")
+    public ResponseEntity<ReindexStatusDTO> startReindex(@PathVariable String entity,
+                                                         @RequestParam(defaultValue = "false") boolean restart) {
+        log.debug("REST request to reindex {}, restart: {}", entity, restart);
+        checkIndexed(entity);
+        try {
+            return ResponseEntity.accepted().body(reindexService.start(entity, restart));
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Could not create the index: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@code GET /reindex/:entity} : get the progress of the reindex of an entity type.
+     *
+     * @param entity the entity type.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the status of the reindex in body,
+     * or with status {@code 404 (Not Found)} if the entity type was never reindexed.
+     */
+    @GetMapping("/{entity}")
+    public ResponseEntity<ReindexStatusDTO> getReindex(@PathVariable String entity) {
+        log.debug("REST request to get the reindex of {}", entity);
+        checkIndexed(entity);
+        return reindexService.getStatus(entity)
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * {@code GET /reindex} : get the progress of the reindex of all the entity types.
+     *
+     * @return the list of statuses.
+     */
+    @GetMapping
+    public List<ReindexStatusDTO> getAllReindexes() {
+        log.debug("REST request to get all the reindexes");
+        return reindexService.getStatuses();
+    }
+
+    private void checkIndexed(String entity) {
+        if (!reindexService.isIndexed(entity)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown entity type " + entity);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.tothapplication.web.rest;
+
+import com.tothapplication.service.TitleSuggestService;
+import com.tothapplication.service.dto.SuggestionDTO;
+import com.tothapplication.web.rest.errors.BadRequestAlertException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST controller suggesting the titles of documents and CCPs while they are typed.
+ */
+@RestController
+@RequestMapping("/api")
+public class SuggestResource {
+
+    private final Logger log = LoggerFactory.getLogger(SuggestResource.class);
+
+    private static final String ENTITY_NAME = "suggestion";
+
+    private final TitleSuggestService titleSuggestService;
+
+    public SuggestResource(TitleSuggestService titleSuggestService) {
+        this.titleSuggestService = titleSuggestService;
+    }
+
+    /**
+     * {@code GET  /_suggest?prefix=:prefix} : suggest the documents and CCPs whose title, or a word of it, starts
+     * with the prefix. Case and diacritics are ignored.
+     *
+     * @param prefix the typed prefix.
+     * @param size the maximum number of suggestions.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the suggestions in body,
+     * or with status {@code 400 (Bad Request)} if the size is invalid.
+     */
+    @GetMapping("/_suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam String prefix, @RequestParam(defaultValue = "10") int size) {
+        log.debug("REST request to suggest titles for prefix {}", prefix);
+        if (size < 1 || size > TitleSuggestService.MAX_SUGGESTIONS) {
+            throw new BadRequestAlertException("Size must be between 1 and " + TitleSuggestService.MAX_SUGGESTIONS, ENTITY_NAME, "sizeinvalid");
+        }
+        return ResponseEntity.ok(titleSuggestService.suggest(prefix, size));
+    }
+}
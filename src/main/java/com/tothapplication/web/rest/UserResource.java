@@ -3,14 +3,19 @@ package com.tothapplication.web.rest;
 import com.tothapplication.config.Constants;
 import com.tothapplication.domain.User;
 import com.tothapplication.repository.UserRepository;
-import com.tothapplication.repository.search.UserSearchRepository;
 import com.tothapplication.security.AuthoritiesConstants;
+import com.tothapplication.service.EntityTagService;
 import com.tothapplication.service.MailService;
+import com.tothapplication.service.SearchService;
 import com.tothapplication.service.UserService;
+import com.tothapplication.service.dto.SearchPage;
 import com.tothapplication.service.dto.UserDTO;
 import com.tothapplication.web.rest.errors.BadRequestAlertException;
 import com.tothapplication.web.rest.errors.EmailAlreadyUsedException;
 import com.tothapplication.web.rest.errors.LoginAlreadyUsedException;
+import com.tothapplication.web.rest.util.EntityTagUtil;
+import com.tothapplication.web.rest.util.KeysetPaginationUtil;
+import com.tothapplication.web.rest.util.SearchPaginationUtil;
 
 import io.github.jhipster.web.util.HeaderUtil;
 import io.github.jhipster.web.util.PaginationUtil;
@@ -27,14 +32,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -77,14 +82,18 @@ public class UserResource {
 
     private final MailService mailService;
 
-    private final UserSearchRepository userSearchRepository;
+    private final SearchService searchService;
 
-    public UserResource(UserService userService, UserRepository userRepository, MailService mailService, UserSearchRepository userSearchRepository) {
+    private final EntityTagService entityTagService;
+
+    public UserResource(UserService userService, UserRepository userRepository, MailService mailService, SearchService searchService,
+                        EntityTagService entityTagService) {
 
         this.userService = userService;
         this.userRepository = userRepository;
         this.mailService = mailService;
-        this.userSearchRepository = userSearchRepository;
+        this.searchService = searchService;
+        this.entityTagService = entityTagService;
     }
 
     /**
@@ -171,16 +180,30 @@ public class UserResource {
 
     /**
      * {@code GET /users/:login} : get the "login" user.
+     * <p>
+     * The response carries an {@code ETag}. When the {@code If-None-Match} header matches the cached tag of the
+     * user, the user is not even loaded.
      *
      * @param login the login of the user to find.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the "login" user, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the {@code If-None-Match} header of the request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the "login" user, or with status {@code 304 (Not Modified)},
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/users/{login:" + Constants.LOGIN_REGEX + "}")
-    public ResponseEntity<UserDTO> getUser(@PathVariable String login) {
+    public ResponseEntity<UserDTO> getUser(@PathVariable String login,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get User : {}", login);
-        return ResponseUtil.wrapOrNotFound(
-            userService.getUserWithAuthoritiesByLogin(login)
-                .map(UserDTO::new));
+        Optional<String> cachedTag = entityTagService.getCachedTag(EntityTagService.USER_TAGS_CACHE, login);
+        if (cachedTag.isPresent() && EntityTagUtil.matches(ifNoneMatch, cachedTag.get())) {
+            return EntityTagUtil.notModified(cachedTag.get());
+        }
+        long stamp = entityTagService.stamp(EntityTagService.USER_TAGS_CACHE, login);
+        return userService.getUserWithAuthoritiesByLogin(login)
+            .map(UserDTO::new)
+            .map(userDTO -> ResponseEntity.ok()
+                .eTag(entityTagService.tag(EntityTagService.USER_TAGS_CACHE, login, stamp, userDTO))
+                .body(userDTO))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     /**
@@ -199,14 +222,33 @@ public class UserResource {
 
     /**
      * {@code SEARCH /_search/users/:query} : search for the User corresponding to the query.
+     * <p>
+     * The hits are paginated: the response holds one page of at most {@value SearchService#MAX_PAGE_SIZE} users with
+     * the usual pagination headers. Pages past the first {@value SearchService#MAX_RESULT_WINDOW} hits are read by
+     * following the cursor given in the {@value KeysetPaginationUtil#NEXT_CURSOR_HEADER} header of each page, which
+     * is as fast as reading the first page.
      *
      * @param query the query to search.
-     * @return the result of the search.
+     * @param cursor the cursor returned with the previous page, if any.
+     * @param pageable the pagination information.
+     * @param queryParams the query parameters of the request, used to build the pagination links.
+     * @param uriBuilder the URI builder of the request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the page of users in body, or with status
+     * {@code 400 (Bad Request)} if the page is too large or too deep, or the cursor or the query is invalid.
+     * @throws IOException if Elasticsearch could not be queried.
      */
     @GetMapping("/_search/users/{query}")
-    public List<User> search(@PathVariable String query) {
-        return StreamSupport
-            .stream(userSearchRepository.search(queryStringQuery(query)).spliterator(), false)
-            .collect(Collectors.toList());
+    public ResponseEntity<List<User>> search(@PathVariable String query, @RequestParam(required = false) String cursor,
+                                             Pageable pageable, @RequestParam MultiValueMap<String, String> queryParams,
+                                             UriComponentsBuilder uriBuilder) throws IOException {
+        log.debug("REST request to search for a page of Users for query {}", query);
+        SearchPage<User> page;
+        try {
+            page = searchService.search(User.class, queryStringQuery(query), pageable, cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), "userManagement", "searchinvalid");
+        }
+        HttpHeaders headers = SearchPaginationUtil.generateSearchHttpHeaders(uriBuilder.queryParams(queryParams), page, pageable, cursor);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 }
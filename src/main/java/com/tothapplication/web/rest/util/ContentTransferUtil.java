@@ -0,0 +1,104 @@
+package com.tothapplication.web.rest.util;
+
+import io.undertow.servlet.spec.ServletOutputStreamImpl;
+import org.springframework.util.ClassUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Utility class for writing stored contents to HTTP responses without copying them through the heap when possible.
+ * <p>
+ * A range of a {@link FileChannel} that runs to the end of the file is handed to Undertow, which sends it with
+ * {@code sendfile}. Other ranges of a {@link FileChannel} go through {@link FileChannel#transferTo}, and any other
+ * channel is copied through a small buffer.
+ */
+public final class ContentTransferUtil {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final boolean UNDERTOW_PRESENT = ClassUtils.isPresent(
+        "io.undertow.servlet.spec.ServletOutputStreamImpl", ContentTransferUtil.class.getClassLoader());
+
+    private ContentTransferUtil() {
+    }
+
+    /**
+     * Write a range of a channel to a response. The headers must already be set on the response.
+     *
+     * @param channel the channel to read from.
+     * @param start the position of the first byte to write.
+     * @param count the number of bytes to write.
+     * @param response the response to write to.
+     * @throws IOException if the channel could not be read or the response written.
+     */
+    public static void transfer(SeekableByteChannel channel, long start, long count, ServletResponse response) throws IOException {
+        if (channel instanceof FileChannel) {
+            FileChannel file = (FileChannel) channel;
+            if (UNDERTOW_PRESENT && start + count == file.size() && UndertowTransfer.transfer(file, start, response)) {
+                return;
+            }
+            transfer(file, start, count, response.getOutputStream());
+            return;
+        }
+        channel.position(start);
+        OutputStream out = response.getOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long remaining = count;
+        while (remaining > 0) {
+            buffer.clear();
+            if (remaining < BUFFER_SIZE) {
+                buffer.limit((int) remaining);
+            }
+            int read = channel.read(buffer);
+            if (read < 0) {
+                throw new IOException("Content ended " + remaining + " bytes early");
+            }
+            out.write(buffer.array(), 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static void transfer(FileChannel file, long start, long count, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = start;
+        long end = start + count;
+        while (position < end) {
+            long transferred = file.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("Content ended " + (end - position) + " bytes early");
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * Kept apart so that Undertow classes are only loaded when Undertow is on the classpath.
+     */
+    private static final class UndertowTransfer {
+
+        private static boolean transfer(FileChannel file, long start, ServletResponse response) throws IOException {
+            ServletResponse unwrapped = response;
+            while (unwrapped instanceof ServletResponseWrapper) {
+                unwrapped = ((ServletResponseWrapper) unwrapped).getResponse();
+            }
+            ServletOutputStream out = unwrapped.getOutputStream();
+            if (!(out instanceof ServletOutputStreamImpl)) {
+                return false;
+            }
+            // Let the wrappers (Spring Security headers in particular) commit the response before bypassing them.
+            response.flushBuffer();
+            file.position(start);
+            ((ServletOutputStreamImpl) out).transferFrom(file);
+            return true;
+        }
+    }
+}
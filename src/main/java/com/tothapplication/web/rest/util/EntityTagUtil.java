@@ -0,0 +1,47 @@
+package com.tothapplication.web.rest.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Utility class for answering conditional requests from entity tags.
+ */
+public final class EntityTagUtil {
+
+    private EntityTagUtil() {
+    }
+
+    /**
+     * Check an {@code If-None-Match} header against the current tag of a resource.
+     *
+     * @param ifNoneMatch the {@code If-None-Match} header of the request, may be {@code null}.
+     * @param tag the current tag of the resource, quoted.
+     * @return whether the client already holds the current representation.
+     */
+    public static boolean matches(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Build a {@code 304 (Not Modified)} response.
+     *
+     * @param tag the current tag of the resource.
+     * @param <X> type of the response body.
+     * @return the {@link ResponseEntity} with status {@code 304 (Not Modified)} and the tag in the {@code ETag} header.
+     */
+    public static <X> ResponseEntity<X> notModified(String tag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.tothapplication.web.rest.util;
+
+import com.tothapplication.service.dto.KeysetSlice;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset (cursor based) pagination.
+ * <p>
+ * The link to the next page is published in a {@code Link} header with {@code rel="next"}, following the
+ * <a href="https://tools.ietf.org/html/rfc5988">RFC 5988 (Link header)</a>, and the raw cursor in the
+ * {@value #NEXT_CURSOR_HEADER} header. Both are absent on the last page.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final String CURSOR_PARAM = "cursor";
+
+    private KeysetPaginationUtil() {
+    }
+
+    /**
+     * Generate keyset pagination headers for a slice.
+     *
+     * @param uriBuilder the builder of the current request URI, query parameters included.
+     * @param slice the keyset slice.
+     * @return the {@link HttpHeaders}.
+     */
+    public static HttpHeaders generateKeysetHttpHeaders(UriComponentsBuilder uriBuilder, KeysetSlice<?> slice) {
+        HttpHeaders headers = new HttpHeaders();
+        slice.getNext().ifPresent(next -> {
+            String cursor = next.encode();
+            headers.add(NEXT_CURSOR_HEADER, cursor);
+            String link = uriBuilder.replaceQueryParam(CURSOR_PARAM, cursor).toUriString();
+            headers.add(HttpHeaders.LINK, "<" + link + ">; rel=\"next\"");
+        });
+        return headers;
+    }
+}
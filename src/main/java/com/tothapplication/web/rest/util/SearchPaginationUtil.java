@@ -0,0 +1,51 @@
+package com.tothapplication.web.rest.util;
+
+import com.tothapplication.service.dto.SearchPage;
+
+import io.github.jhipster.web.util.PaginationUtil;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling the pagination of search results.
+ * <p>
+ * A page read by number gets the usual pagination headers, plus the cursor of the next page in the
+ * {@value KeysetPaginationUtil#NEXT_CURSOR_HEADER} header. A page read with a cursor only has a next page: its
+ * {@code Link} header holds the {@code rel="next"} link, with the cursor instead of a page number.
+ */
+public final class SearchPaginationUtil {
+
+    private static final String HEADER_X_TOTAL_COUNT = "X-Total-Count";
+
+    private static final String PAGE_PARAM = "page";
+
+    private SearchPaginationUtil() {
+    }
+
+    /**
+     * Generate pagination headers for a page of search results.
+     *
+     * @param uriBuilder the builder of the current request URI, query parameters included.
+     * @param page the page of search results.
+     * @param pageable the requested page.
+     * @param cursor the cursor the page was read with, or {@code null} if it was read by number.
+     * @return the {@link HttpHeaders}.
+     */
+    public static HttpHeaders generateSearchHttpHeaders(UriComponentsBuilder uriBuilder, SearchPage<?> page,
+                                                        Pageable pageable, String cursor) {
+        if (cursor == null) {
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(uriBuilder, page.toPage(pageable));
+            page.getNext().ifPresent(next -> headers.add(KeysetPaginationUtil.NEXT_CURSOR_HEADER, next));
+            return headers;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HEADER_X_TOTAL_COUNT, Long.toString(page.getTotal()));
+        page.getNext().ifPresent(next -> {
+            headers.add(KeysetPaginationUtil.NEXT_CURSOR_HEADER, next);
+            String link = uriBuilder.replaceQueryParam(PAGE_PARAM).replaceQueryParam(KeysetPaginationUtil.CURSOR_PARAM, next).toUriString();
+            headers.add(HttpHeaders.LINK, "<" + link + ">; rel=\"next\"");
+        });
+        return headers;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Utility classes for the REST controllers.
+ */
+package com.tothapplication.web.rest.util;
@@ -0,0 +1,129 @@
+package com.tothapplication.config;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.domain.Authority;
+import com.tothapplication.domain.User;
+import com.tothapplication.service.CacheHotKeyService;
+import com.tothapplication.service.EntityTagService;
+import com.tothapplication.service.dto.HotKeyDTO;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.config.ResourcePools;
+import org.ehcache.config.ResourceType;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link CacheConfiguration}.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+public class CacheConfigurationIT {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private org.springframework.cache.CacheManager springCacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheHotKeyService cacheHotKeyService;
+
+    @Test
+    public void regionsConfiguredIndependently() {
+        ResourcePools documentTags = runtimeConfiguration(EntityTagService.DOCUMENT_TAGS_CACHE).getResourcePools();
+        assertThat(documentTags.getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(10);
+        assertThat(documentTags.getPoolForResource(ResourceType.Core.HEAP).getUnit()).isEqualTo(EntryUnit.ENTRIES);
+        assertThat(documentTags.getPoolForResource(ResourceType.Core.OFFHEAP).getSize()).isEqualTo(1);
+        assertThat(documentTags.getPoolForResource(ResourceType.Core.OFFHEAP).getUnit()).isEqualTo(MemoryUnit.MB);
+
+        // Regions without settings only have the default heap tier
+        ResourcePools users = runtimeConfiguration(User.class.getName()).getResourcePools();
+        assertThat(users.getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(100);
+        assertThat(users.getPoolForResource(ResourceType.Core.OFFHEAP)).isNull();
+        assertThat(runtimeConfiguration(User.class.getName()).getExpiryPolicy().getExpiryForCreation(1L, "user"))
+            .isEqualTo(Duration.ofSeconds(3600));
+
+        assertThat(runtimeConfiguration(Authority.class.getName()).getExpiryPolicy().getExpiryForCreation("ROLE_USER", "authority"))
+            .isEqualTo(ExpiryPolicy.INFINITE);
+    }
+
+    @Test
+    public void offHeapRegionStoresSerializedEntries() {
+        Cache<Object, Object> cache = cacheManager.getCache(EntityTagService.DOCUMENT_TAGS_CACHE);
+        // More entries than the heap tier holds, so that most of them are read back from off-heap
+        for (long id = 0; id < 100; id++) {
+            cache.put(id, "\"tag-" + id + "\"");
+        }
+        for (long id = 0; id < 100; id++) {
+            assertThat(cache.get(id)).isEqualTo("\"tag-" + id + "\"");
+        }
+        cache.clear();
+    }
+
+    @Test
+    public void regionsPublishStatistics() {
+        String name = EntityTagService.DOCUMENT_TAGS_CACHE;
+        Cache<Object, Object> cache = cacheManager.getCache(name);
+        cache.clear();
+        cache.put(1L, "\"tag-1\"");
+        assertThat(cache.get(1L)).isNotNull();
+        assertThat(cache.get(2L)).isNull();
+
+        assertThat(meterRegistry.get("cache.gets").tag("name", name).tag("result", "hit").functionCounter().count())
+            .isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("name", name).tag("result", "miss").functionCounter().count())
+            .isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("cache.puts").tag("name", name).functionCounter().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get(CacheConfiguration.SIZE_METRIC).tag("name", name).gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get(CacheConfiguration.HEAP_SIZE_METRIC).tag("name", name).gauge().value()).isLessThanOrEqualTo(1);
+        assertThat(meterRegistry.get(CacheConfiguration.OFF_HEAP_USED_METRIC).tag("name", name).gauge().value()).isPositive();
+        assertThat(meterRegistry.get(CacheConfiguration.OFF_HEAP_ALLOCATED_METRIC).tag("name", name).gauge().value()).isPositive();
+
+        // Heap only regions have a size, but no memory footprint
+        assertThat(meterRegistry.find(CacheConfiguration.SIZE_METRIC).tag("name", User.class.getName()).gauge()).isNotNull();
+        assertThat(meterRegistry.find(CacheConfiguration.HEAP_SIZE_METRIC).tag("name", User.class.getName()).gauge()).isNull();
+        assertThat(meterRegistry.find(CacheConfiguration.OFF_HEAP_USED_METRIC).tag("name", User.class.getName()).gauge()).isNull();
+        cache.clear();
+    }
+
+    @Test
+    public void readsAreSampledForHotKeys() {
+        String name = EntityTagService.DOCUMENT_TAGS_CACHE;
+        cacheHotKeyService.reset();
+        org.springframework.cache.Cache cache = springCacheManager.getCache(name);
+        cache.put(1L, "\"tag-1\"");
+        for (int i = 0; i < 5; i++) {
+            cache.get(1L);
+        }
+        cache.get(2L);
+
+        // Every read is sampled in the tests
+        List<HotKeyDTO> hotKeys = cacheHotKeyService.getHotKeys().get(name);
+        assertThat(hotKeys).extracting(HotKeyDTO::getKey).containsExactly("1", "2");
+        assertThat(hotKeys).extracting(HotKeyDTO::getCount).containsExactly(5L, 1L);
+        cache.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private CacheRuntimeConfiguration<Object, Object> runtimeConfiguration(String cacheName) {
+        Eh107Configuration<Object, Object> configuration = cacheManager.getCache(cacheName).getConfiguration(Eh107Configuration.class);
+        return configuration.unwrap(CacheRuntimeConfiguration.class);
+    }
+}
@@ -0,0 +1,54 @@
+package com.tothapplication.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link SearchAutoConfigurationImportFilter}.
+ * <p>
+ * The filter is not tested in a second application context, whose cache configuration would recreate the caches
+ * shared with the context of the integration tests.
+ */
+public class SearchAutoConfigurationImportFilterTest {
+
+    private static final String[] AUTO_CONFIGURATIONS = {
+        "org.springframework.boot.autoconfigure.elasticsearch.jest.JestAutoConfiguration",
+        "com.github.vanroy.springboot.autoconfigure.data.jest.ElasticsearchJestDataAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.elasticsearch.ElasticSearchJestHealthIndicatorAutoConfiguration",
+        "org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration"
+    };
+
+    private MockEnvironment environment;
+
+    private SearchAutoConfigurationImportFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        environment = new MockEnvironment();
+        filter = new SearchAutoConfigurationImportFilter();
+        filter.setEnvironment(environment);
+    }
+
+    @Test
+    public void testElasticsearchWiredByDefault() {
+        assertThat(filter.match(AUTO_CONFIGURATIONS, null)).containsExactly(true, true, true, true);
+    }
+
+    @Test
+    public void testElasticsearchWiredWhenItIsTheBackend() {
+        environment.setProperty("application.search.backend", "elasticsearch");
+        assertThat(filter.match(AUTO_CONFIGURATIONS, null)).containsExactly(true, true, true, true);
+    }
+
+    @Test
+    public void testElasticsearchNotWiredForOtherBackends() {
+        environment.setProperty("application.search.backend", "embedded");
+        assertThat(filter.match(AUTO_CONFIGURATIONS, null)).containsExactly(false, false, false, true);
+
+        environment.setProperty("application.search.backend", "postgresql");
+        assertThat(filter.match(AUTO_CONFIGURATIONS, null)).containsExactly(false, false, false, true);
+    }
+}
@@ -0,0 +1,60 @@
+package com.tothapplication.repository;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link JdbcSavepoints}.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+@Transactional
+public class JdbcSavepointsIT {
+
+    private static final String INSERT = "insert into document_ccp (document_id, ccp_id) values (:documentId, :ccpId)";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private CCPRepository cCPRepository;
+
+    @Autowired
+    private CCPDocumentCountRepository cCPDocumentCountRepository;
+
+    @Test
+    public void duplicateInsertIsSkippedWithinTheTransaction() {
+        Document document = documentRepository.saveAndFlush(new Document().title("Savepoint"));
+        CCP cCP = cCPRepository.saveAndFlush(new CCP().title("Savepoint"));
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("documentId", document.getId())
+            .addValue("ccpId", cCP.getId());
+
+        assertThat(JdbcSavepoints.insertIgnoringDuplicate(jdbcTemplate, INSERT, parameters)).isEqualTo(1);
+        // As if inserted by a concurrent transaction: the key exists, and the transaction goes on
+        assertThat(JdbcSavepoints.insertIgnoringDuplicate(jdbcTemplate, INSERT, parameters)).isZero();
+        assertThat(documentRepository.findIdsByCCPId(cCP.getId())).containsExactly(document.getId());
+    }
+
+    @Test
+    public void documentCountIsCreatedOnce() {
+        CCP cCP = cCPRepository.saveAndFlush(new CCP().title("Savepoint"));
+        documentRepository.saveAndFlush(new Document().title("Savepoint").addCCP(cCP));
+
+        assertThat(cCPDocumentCountRepository.insertDocumentCount(cCP.getId())).isTrue();
+        assertThat(cCPDocumentCountRepository.insertDocumentCount(cCP.getId())).isFalse();
+        assertThat(cCPDocumentCountRepository.findById(cCP.getId()).get().getDocumentCount()).isEqualTo(1L);
+    }
+}
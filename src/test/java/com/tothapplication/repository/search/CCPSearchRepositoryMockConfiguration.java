@@ -1,16 +0,0 @@
-package com.tothapplication.repository.search;
-
-import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.context.annotation.Configuration;
-
-/**
- * Configure a Mock version of {@link CCPSearchRepository} to test the
- * application without starting Elasticsearch.
- */
-@Configuration
-public class CCPSearchRepositoryMockConfiguration {
-
-    @MockBean
-    private CCPSearchRepository mockCCPSearchRepository;
-
-}
@@ -0,0 +1,100 @@
+package com.tothapplication.service;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.config.ApplicationProperties;
+import com.tothapplication.config.CacheWarmUpEndpoint;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.repository.AuthorityRepository;
+import com.tothapplication.repository.CCPRepository;
+import com.tothapplication.repository.DocumentRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link CacheWarmUpService}.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+public class CacheWarmUpServiceIT {
+
+    @Autowired
+    private CacheWarmUpService cacheWarmUpService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private CCPRepository cCPRepository;
+
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void disabledWarmUpDoesNotHoldBackTheApplication() {
+        assertThat(cacheWarmUpService.isEnabled()).isFalse();
+        assertThat(cacheWarmUpService.isDone()).isTrue();
+        assertThat(new CacheWarmUpEndpoint(cacheWarmUpService).warmUp().getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+    }
+
+    @Test
+    public void warmUpLoadsEntitiesInChunksBehindItsEndpoint() {
+        // The warm-up reads in its own transactions, so this test commits and cleans up
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Long> documentIds = new ArrayList<>();
+        List<Long> cCPIds = new ArrayList<>();
+        transactionTemplate.execute(status -> {
+            CCP cCP = cCPRepository.save(new CCP().title("Warm-up CCP"));
+            cCPIds.add(cCP.getId());
+            for (int i = 0; i < 3; i++) {
+                documentIds.add(documentRepository.save(new Document().title("Warm-up " + i).addCCP(cCP)).getId());
+            }
+            return null;
+        });
+        try {
+            ApplicationProperties applicationProperties = new ApplicationProperties();
+            applicationProperties.getCache().getWarmUp().setEnabled(true);
+            applicationProperties.getCache().getWarmUp().setChunkSize(2);
+            applicationProperties.getCache().getWarmUp().setMaxEntities(5);
+            List<Runnable> started = new ArrayList<>();
+            CacheWarmUpService warmUpService = new CacheWarmUpService(documentRepository, cCPRepository,
+                authorityRepository, transactionManager, started::add, applicationProperties);
+            CacheWarmUpEndpoint endpoint = new CacheWarmUpEndpoint(warmUpService);
+
+            // Unavailable from startup until the warm-up is over
+            assertThat(endpoint.warmUp().getStatus()).isEqualTo(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+            warmUpService.start();
+            assertThat(started).hasSize(1);
+            assertThat(endpoint.warmUp().getStatus()).isEqualTo(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+            started.get(0).run();
+
+            WebEndpointResponse<Map<String, Object>> progress = endpoint.warmUp();
+            assertThat(progress.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+            assertThat(progress.getBody()).containsEntry("done", true).containsKeys("loaded", "duration")
+                .doesNotContainKey("error");
+            Map<String, Long> loaded = warmUpService.getLoaded();
+            assertThat(loaded.get(CacheWarmUpService.DOCUMENT)).isEqualTo(Math.min(documentRepository.count(), 5));
+            assertThat(loaded.get(CacheWarmUpService.CCP)).isEqualTo(Math.min(cCPRepository.count(), 5));
+            assertThat(loaded.get(CacheWarmUpService.AUTHORITY)).isEqualTo(authorityRepository.count());
+        } finally {
+            transactionTemplate.execute(status -> {
+                documentIds.forEach(documentRepository::deleteById);
+                cCPIds.forEach(cCPRepository::deleteById);
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.tothapplication.service;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.domain.ReindexCheckpoint;
+import com.tothapplication.domain.SearchOutboxEvent;
+import com.tothapplication.domain.enumeration.ReindexStatus;
+import com.tothapplication.repository.ReindexCheckpointRepository;
+import com.tothapplication.repository.SearchOutboxEventRepository;
+import com.tothapplication.repository.SearchOutboxLeaseRepository;
+
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Get;
+import io.searchbox.indices.DeleteIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link SearchIndexerService}.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+@Transactional
+public class SearchIndexerServiceIT {
+
+    private static final String INDEX = "document";
+
+    @Autowired
+    private SearchIndexerService searchIndexerService;
+
+    @Autowired
+    private SearchOutboxService searchOutboxService;
+
+    @Autowired
+    private SearchOutboxEventRepository searchOutboxEventRepository;
+
+    @Autowired
+    private SearchOutboxLeaseRepository searchOutboxLeaseRepository;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private CCPService cCPService;
+
+    @Autowired
+    private IndexAliasService indexAliasService;
+
+    @Autowired
+    private ReindexCheckpointRepository reindexCheckpointRepository;
+
+    @Autowired
+    private JestClient jestClient;
+
+    @Test
+    @Transactional
+    public void assertThatOnlyTheLeaseHolderAppliesTheOutbox() {
+        Document document = documentService.save(new Document().title("indexed by the lease holder"));
+        Instant now = Instant.now();
+
+        // Held by another instance
+        assertThat(searchOutboxLeaseRepository.acquire(SearchIndexerService.LEASE, "other", now, now.plusSeconds(60))).isTrue();
+        assertThat(searchIndexerService.indexPending()).isZero();
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).hasSize(1);
+
+        // Expired, as if the other instance had stopped
+        assertThat(searchOutboxLeaseRepository.acquire(SearchIndexerService.LEASE, "other", now, now.minusSeconds(1))).isTrue();
+        assertThat(searchIndexerService.indexPending()).isGreaterThanOrEqualTo(1);
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    public void assertThatChangesAreIndexedThenDeleted() throws Exception {
+        Document document = documentService.save(new Document().title("indexed by the outbox"));
+        document = documentService.save(document.title("indexed once by the outbox"));
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).hasSize(2);
+
+        // Both changes are applied with a single index action
+        assertThat(searchIndexerService.indexPending()).isGreaterThanOrEqualTo(2);
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).isEmpty();
+        JestResult indexed = jestClient.execute(new Get.Builder(INDEX, document.getId().toString()).type(INDEX).build());
+        assertThat(indexed.isSucceeded()).isTrue();
+        assertThat(indexed.getJsonObject().getAsJsonObject("_source").get("title").getAsString()).isEqualTo("indexed once by the outbox");
+
+        documentService.delete(document.getId());
+        assertThat(searchIndexerService.indexPending()).isGreaterThanOrEqualTo(1);
+        JestResult deleted = jestClient.execute(new Get.Builder(INDEX, document.getId().toString()).type(INDEX).build());
+        assertThat(deleted.isSucceeded()).isFalse();
+    }
+
+    @Test
+    @Transactional
+    public void assertThatCCPChangesAreCopiedToTheirDocuments() throws Exception {
+        CCP cCP = cCPService.save(new CCP().title("copied to documents"));
+        Document document = documentService.save(new Document().title("with a copied CCP").addCCP(cCP));
+        Document other = documentService.save(new Document().title("without the copied CCP"));
+        searchIndexerService.indexPending();
+        long otherVersion = jestClient.execute(new Get.Builder(INDEX, other.getId().toString()).type(INDEX).build())
+            .getJsonObject().get("_version").getAsLong();
+
+        // Saving a CCP without changing the fields copied to its documents does not reindex them
+        cCPService.save(cCP);
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).isEmpty();
+
+        // Only the documents of the CCP are reindexed
+        cCPService.save(cCP.title("copied again to documents"));
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).hasSize(1);
+        searchIndexerService.indexPending();
+
+        JestResult indexed = jestClient.execute(new Get.Builder(INDEX, document.getId().toString()).type(INDEX).build());
+        assertThat(indexed.getJsonObject().getAsJsonObject("_source").getAsJsonArray("ccps").get(0).getAsJsonObject()
+            .get("title").getAsString()).isEqualTo("copied again to documents");
+        JestResult untouched = jestClient.execute(new Get.Builder(INDEX, other.getId().toString()).type(INDEX).build());
+        assertThat(untouched.getJsonObject().get("_version").getAsLong()).isEqualTo(otherVersion);
+
+        documentService.delete(document.getId());
+        documentService.delete(other.getId());
+        searchIndexerService.indexPending();
+    }
+
+    @Test
+    @Transactional
+    public void assertThatChangesAreAlsoWrittenToTheRebuiltIndex() throws Exception {
+        String targetIndex = indexAliasService.createNextIndex(Document.class);
+        try {
+            reindexCheckpointRepository.save(new ReindexCheckpoint()
+                .entityType(SearchOutboxService.DOCUMENT)
+                .targetIndex(targetIndex)
+                .status(ReindexStatus.RUNNING)
+                .lastId(0L)
+                .indexed(0L)
+                .failed(0L)
+                .total(0L)
+                .startedDate(Instant.now())
+                .updatedDate(Instant.now()));
+            Document document = documentService.save(new Document().title("written to both indices"));
+
+            searchIndexerService.indexPending();
+
+            JestResult indexed = jestClient.execute(new Get.Builder(INDEX, document.getId().toString()).type(INDEX).build());
+            assertThat(indexed.isSucceeded()).isTrue();
+            JestResult rebuilt = jestClient.execute(new Get.Builder(targetIndex, document.getId().toString()).type(INDEX).build());
+            assertThat(rebuilt.isSucceeded()).isTrue();
+            assertThat(rebuilt.getJsonObject().getAsJsonObject("_source").get("title").getAsString()).isEqualTo("written to both indices");
+
+            // The rebuild does not overwrite a document written by a more recent change
+            documentService.save(document.title("changed during the rebuild"));
+            searchIndexerService.indexPending();
+            assertThat(searchIndexerService.index(SearchOutboxService.DOCUMENT, Collections.singletonList(document.getId()), targetIndex)).isEmpty();
+            rebuilt = jestClient.execute(new Get.Builder(targetIndex, document.getId().toString()).type(INDEX).build());
+            assertThat(rebuilt.getJsonObject().getAsJsonObject("_source").get("title").getAsString()).isEqualTo("changed during the rebuild");
+        } finally {
+            jestClient.execute(new DeleteIndex.Builder(targetIndex).build());
+        }
+    }
+
+    @Test
+    @Transactional
+    public void assertThatFailedChangesAreRetriedLater() {
+        searchOutboxService.changed("unknown", 1L);
+
+        searchIndexerService.indexPending();
+
+        List<SearchOutboxEvent> events = searchOutboxEventRepository.findByEntityTypeAndEntityId("unknown", 1L);
+        assertThat(events).hasSize(1);
+        SearchOutboxEvent event = events.get(0);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getNextAttemptDate()).isAfter(Instant.now());
+        assertThat(event.getLastError()).contains("unknown");
+    }
+}
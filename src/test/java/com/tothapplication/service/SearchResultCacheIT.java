@@ -0,0 +1,184 @@
+package com.tothapplication.service;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.repository.SearchGenerationRepository;
+import com.tothapplication.repository.SearchOutboxEventRepository;
+import com.tothapplication.service.dto.SearchPage;
+import com.tothapplication.service.search.IndexOperation;
+import com.tothapplication.service.search.SearchBackend;
+import com.tothapplication.service.search.TermCounts;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+
+/**
+ * Integration tests for the {@link SearchResultCache}.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+public class SearchResultCacheIT {
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private SearchOutboxEventRepository searchOutboxEventRepository;
+
+    @Autowired
+    private SearchGenerationRepository searchGenerationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Class<?>> searches = new ArrayList<>();
+
+    private List<Object> hits = Collections.emptyList();
+
+    private SearchService searchService;
+
+    @BeforeEach
+    public void setup() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        searchService = new SearchService(new RecordingSearchBackend(), searchResultCache);
+    }
+
+    @Test
+    public void searchesCachedUntilAWriteIsCommitted() throws Exception {
+        // The cached searches are only invalidated once the writes are committed, so this test commits and cleans up
+        Document document = transactionTemplate.execute(status -> documentService.save(new Document().title("Exercice Java")));
+        hits = Collections.singletonList(document);
+        double cachedHits = count("hit");
+        try {
+            SearchPage<Document> page = searchService.search(Document.class, queryStringQuery("java"), PageRequest.of(0, 10), null);
+            assertThat(page.getContent()).extracting(Document::getId).containsExactly(document.getId());
+            page = searchService.search(Document.class, queryStringQuery("java"), PageRequest.of(0, 10), null);
+            assertThat(page.getContent()).extracting(Document::getTitle).containsExactly("Exercice Java");
+            assertThat(page.getTotal()).isEqualTo(1);
+            assertThat(searches).hasSize(1);
+            assertThat(count("hit")).isEqualTo(cachedHits + 1);
+            searchService.search(Document.class, queryStringQuery("  JAVA "), PageRequest.of(0, 10), null);
+            assertThat(searches).hasSize(1);
+            assertThat(count("hit")).isEqualTo(cachedHits + 2);
+
+            searchService.search(Document.class, queryStringQuery("java"), PageRequest.of(1, 10), null);
+            searchService.search(CCP.class, queryStringQuery("java"), PageRequest.of(0, 10), null);
+            assertThat(searches).containsExactly(Document.class, Document.class, CCP.class);
+
+            transactionTemplate.execute(status -> documentService.save(document.title("Exercice Java EE")));
+            searchService.search(Document.class, queryStringQuery("java"), PageRequest.of(0, 10), null);
+            assertThat(searches).hasSize(4);
+
+            searchResultCache.invalidate(Document.class);
+            searchService.search(Document.class, queryStringQuery("java"), PageRequest.of(0, 10), null);
+            assertThat(searches).hasSize(5);
+
+            // As if another instance had applied changes to the index
+            searchService.search(Document.class, queryStringQuery("java"), PageRequest.of(0, 10), null);
+            assertThat(searches).hasSize(5);
+            transactionTemplate.execute(status -> {
+                searchGenerationRepository.increment(SearchOutboxService.DOCUMENT);
+                return null;
+            });
+            searchResultCache.pollGenerations();
+            searchService.search(Document.class, queryStringQuery("java"), PageRequest.of(0, 10), null);
+            assertThat(searches).hasSize(6);
+        } finally {
+            transactionTemplate.execute(status -> {
+                documentService.delete(document.getId());
+                return null;
+            });
+            searchOutboxEventRepository.deleteAll();
+        }
+    }
+
+    private double count(String result) {
+        return meterRegistry.get(SearchResultCache.REQUESTS_METRIC).tag("entity", SearchOutboxService.DOCUMENT)
+            .tag("result", result).counter().count();
+    }
+
+    /**
+     * A backend returning the same hits to every search, and recording the searches.
+     */
+    private class RecordingSearchBackend implements SearchBackend {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> SearchPage<T> search(Class<T> entityClass, QueryBuilder query, Pageable pageable, String cursor) {
+            searches.add(entityClass);
+            return entityClass == Document.class ? new SearchPage<>((List<T>) hits, hits.size(), null)
+                : new SearchPage<>(Collections.emptyList(), 0, null);
+        }
+
+        @Override
+        public long[] searchIds(Class<?> entityClass, QueryBuilder query, int limit) {
+            return new long[0];
+        }
+
+        @Override
+        public Optional<TermCounts> countTerms(Class<?> entityClass, QueryBuilder query, Map<String, Integer> fields) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Map<Integer, String> bulk(List<IndexOperation> operations) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String getIndexName(Class<?> entityClass) {
+            return entityClass.getSimpleName().toLowerCase();
+        }
+
+        @Override
+        public Set<String> getIndices(Class<?> entityClass) {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public String createNextIndex(Class<?> entityClass) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean exists(String index) {
+            return false;
+        }
+
+        @Override
+        public void swap(Class<?> entityClass, String index) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteIndex(Class<?> entityClass, String index) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.tothapplication.service;
 import com.tothapplication.TothApplicationApp;
 import com.tothapplication.config.Constants;
 import com.tothapplication.domain.User;
-import com.tothapplication.repository.search.UserSearchRepository;
+import com.tothapplication.repository.SearchOutboxEventRepository;
 import com.tothapplication.repository.UserRepository;
 import com.tothapplication.service.dto.UserDTO;
 import com.tothapplication.service.util.RandomUtil;
@@ -27,9 +27,6 @@ import java.util.Optional;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -57,13 +54,8 @@ public class UserServiceIT {
     @Autowired
     private UserService userService;
 
-    /**
-     * This repository is mocked in the com.tothapplication.repository.search test package.
-     *
-     * @see com.tothapplication.repository.search.UserSearchRepositoryMockConfiguration
-     */
     @Autowired
-    private UserSearchRepository mockUserSearchRepository;
+    private SearchOutboxEventRepository searchOutboxEventRepository;
 
     @Autowired
     private AuditingHandler auditingHandler;
@@ -179,8 +171,8 @@ public class UserServiceIT {
         users = userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(now.minus(3, ChronoUnit.DAYS));
         assertThat(users).isEmpty();
 
-        // Verify Elasticsearch mock
-        verify(mockUserSearchRepository, times(1)).delete(user);
+        // Verify the deletion in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.USER, dbUser.getId())).hasSize(1);
     }
 
     @Test
@@ -198,8 +190,8 @@ public class UserServiceIT {
         Optional<User> maybeDbUser = userRepository.findById(dbUser.getId());
         assertThat(maybeDbUser).contains(dbUser);
 
-        // Verify Elasticsearch mock
-        verify(mockUserSearchRepository, never()).delete(user);
+        // Verify the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.USER, dbUser.getId())).isEmpty();
     }
 
     @Test
@@ -0,0 +1,86 @@
+package com.tothapplication.service.search;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.domain.Document;
+import com.tothapplication.service.IndexAliasService;
+import com.tothapplication.service.dto.SearchPage;
+
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Index;
+import io.searchbox.indices.Refresh;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.elasticsearch.index.query.QueryBuilders.matchPhraseQuery;
+
+/**
+ * Integration tests for the {@link ElasticsearchSearchBackend}.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+public class ElasticsearchSearchBackendIT {
+
+    private static final String INDEX = "document";
+
+    private static final String[] IDS = {"9", "10", "11"};
+
+    @Autowired
+    private JestClient jestClient;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private EntityMapper entityMapper;
+
+    @Autowired
+    private IndexAliasService indexAliasService;
+
+    private ElasticsearchSearchBackend backend;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        backend = new ElasticsearchSearchBackend(jestClient, elasticsearchOperations, entityMapper, indexAliasService);
+        index("{\"id\":9,\"title\":\"sorted hit b\",\"contentSize\":100}", "9");
+        index("{\"id\":10,\"title\":\"sorted hit c\",\"contentSize\":20}", "10");
+        index("{\"id\":11,\"title\":\"sorted hit a\",\"contentSize\":3}", "11");
+        jestClient.execute(new Refresh.Builder().addIndex(INDEX).build());
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        for (String id : IDS) {
+            jestClient.execute(new Delete.Builder(id).index(INDEX).type(INDEX).build());
+        }
+    }
+
+    @Test
+    public void sortsIdsAndNumbersNumerically() throws Exception {
+        assertThat(ids(Sort.by("id"))).containsExactly(9L, 10L, 11L);
+        assertThat(ids(Sort.by(Sort.Direction.DESC, "id"))).containsExactly(11L, 10L, 9L);
+        assertThat(ids(Sort.by("contentSize"))).containsExactly(11L, 10L, 9L);
+        // Text properties are sorted on their keyword
+        assertThat(ids(Sort.by("title"))).containsExactly(11L, 9L, 10L);
+    }
+
+    private void index(String source, String id) throws Exception {
+        jestClient.execute(new Index.Builder(source).index(INDEX).type(INDEX).id(id).build());
+    }
+
+    private List<Long> ids(Sort sort) throws Exception {
+        SearchPage<Document> page = backend.search(Document.class, matchPhraseQuery("title", "sorted hit"),
+            PageRequest.of(0, 10, sort), null);
+        return page.getContent().stream().map(Document::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,231 @@
+package com.tothapplication.service.search;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.domain.enumeration.TypeDocument;
+import com.tothapplication.service.dto.SearchPage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.index.query.Operator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+
+/**
+ * Integration tests for the {@link EmbeddedSearchBackend}.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+public class EmbeddedSearchBackendIT {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityMapper entityMapper;
+
+    private Path directory;
+
+    private EmbeddedSearchBackend backend;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("embedded-search");
+        backend = new EmbeddedSearchBackend(directory, objectMapper, entityMapper);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        backend.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void assertThatDocumentsAreSearchedWithoutAccents() throws Exception {
+        CCP cCP = new CCP().title("Concepteur développeur");
+        cCP.setId(7L);
+        index(document(1L, "Développeur d'applications", TypeDocument.COURSES, "application/pdf").addCCP(cCP),
+            document(2L, "Exercices de développement", TypeDocument.EXERCISE, "text/plain"),
+            document(3L, "Justificatif de présence", TypeDocument.JUSTIF, "application/pdf"));
+
+        assertThat(ids(backend.search(Document.class, queryStringQuery("DEVELOPPEUR"), PageRequest.of(0, 10), null)))
+            .containsExactly(1L);
+        assertThat(ids(backend.search(Document.class, queryStringQuery("développeur présence"), PageRequest.of(0, 10), null)))
+            .containsExactlyInAnyOrder(1L, 3L);
+        assertThat(ids(backend.search(Document.class, queryStringQuery("develop*"), PageRequest.of(0, 10), null)))
+            .containsExactlyInAnyOrder(1L, 2L);
+        assertThat(ids(backend.search(Document.class, queryStringQuery("id:2"), PageRequest.of(0, 10), null)))
+            .containsExactly(2L);
+        assertThat(ids(backend.search(Document.class, boolQuery()
+            .filter(termsQuery("typeDoc.keyword", "COURSES", "JUSTIF"))
+            .filter(prefixQuery("mimeType.keyword", "application/")), PageRequest.of(0, 10), null)))
+            .containsExactlyInAnyOrder(1L, 3L);
+        assertThat(ids(backend.search(Document.class, boolQuery()
+            .must(matchQuery("title", "developpeur applications").operator(Operator.AND))
+            .filter(termsQuery("ccps.id", Collections.singletonList(7L))), PageRequest.of(0, 10), null)))
+            .containsExactly(1L);
+
+        assertThat(backend.searchIds(Document.class, queryStringQuery("develop*"), 10)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(backend.searchIds(Document.class, queryStringQuery("develop*"), 1)).hasSize(1);
+
+        backend.bulk(Collections.singletonList(IndexOperation.delete(Document.class, "document", 1L)));
+        assertThat(ids(backend.search(Document.class, queryStringQuery("developpeur"), PageRequest.of(0, 10), null))).isEmpty();
+    }
+
+    @Test
+    public void assertThatHitsAreRankedByRelevance() throws Exception {
+        index(document(1L, "Programme de la formation", TypeDocument.COURSES, null),
+            document(2L, "Formation Java : exercices de formation", TypeDocument.EXERCISE, null));
+
+        assertThat(ids(backend.search(Document.class, queryStringQuery("formation"), PageRequest.of(0, 10), null)))
+            .containsExactly(2L, 1L);
+    }
+
+    @Test
+    public void assertThatRankingOnlyCountsLiveDocuments() throws Exception {
+        index(document(1L, "Alpha", TypeDocument.COURSES, null),
+            document(2L, "Beta", TypeDocument.COURSES, null),
+            document(3L, "Alpha gamma", TypeDocument.COURSES, null),
+            document(4L, "Alpha delta", TypeDocument.COURSES, null));
+        assertThat(ids(backend.search(Document.class, queryStringQuery("alpha beta"), PageRequest.of(0, 10), null)))
+            .startsWith(2L, 1L);
+
+        // Replaced and removed documents no longer make "alpha" the most common word
+        index(document(3L, "Gamma", TypeDocument.COURSES, null),
+            document(5L, "Beta epsilon", TypeDocument.COURSES, null));
+        backend.bulk(Collections.singletonList(IndexOperation.delete(Document.class, "document", 4L)));
+        assertThat(ids(backend.search(Document.class, queryStringQuery("alpha beta"), PageRequest.of(0, 10), null)))
+            .startsWith(1L, 2L);
+
+        backend.snapshot();
+        EmbeddedSearchBackend restarted = new EmbeddedSearchBackend(directory, objectMapper, entityMapper);
+        try {
+            assertThat(ids(restarted.search(Document.class, queryStringQuery("alpha beta"), PageRequest.of(0, 10), null)))
+                .startsWith(1L, 2L);
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    public void assertThatPagesAreFollowedWithCursors() throws Exception {
+        List<Document> documents = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            documents.add(document(id, "Document " + id, TypeDocument.COURSES, null));
+        }
+        index(documents.toArray(new Document[0]));
+
+        List<Long> ids = new ArrayList<>();
+        SearchPage<Document> page = backend.search(Document.class, matchAllQuery(), PageRequest.of(0, 2, Sort.by("title")), null);
+        ids.addAll(ids(page));
+        while (page.getNext().isPresent()) {
+            page = backend.search(Document.class, matchAllQuery(), PageRequest.of(0, 2, Sort.by("title")), page.getNext().get());
+            ids.addAll(ids(page));
+        }
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(page.getTotal()).isEqualTo(5);
+
+        assertThatThrownBy(() -> backend.search(Document.class, matchAllQuery(), PageRequest.of(0, 2), "invalid"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> backend.search(Document.class, wildcardQuery("title", "d*t"), PageRequest.of(0, 2), null))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void assertThatNumbersAreSortedNumerically() throws Exception {
+        List<Document> documents = new ArrayList<>();
+        for (long id = 12; id >= 1; id--) {
+            documents.add(document(id, "Document", TypeDocument.COURSES, null));
+        }
+        index(documents.toArray(new Document[0]));
+        List<Long> expected = LongStream.rangeClosed(1, 12).boxed().collect(Collectors.toList());
+
+        // Sorted on the id, and on the title then the id as a tiebreak, the cursors holding the ids as numbers
+        for (Sort sort : Arrays.asList(Sort.by("id"), Sort.by("title"))) {
+            List<Long> ids = new ArrayList<>();
+            SearchPage<Document> page = backend.search(Document.class, matchAllQuery(), PageRequest.of(0, 5, sort), null);
+            ids.addAll(ids(page));
+            while (page.getNext().isPresent()) {
+                page = backend.search(Document.class, matchAllQuery(), PageRequest.of(0, 5, sort), page.getNext().get());
+                ids.addAll(ids(page));
+            }
+            assertThat(ids).containsExactlyElementsOf(expected);
+        }
+
+        backend.snapshot();
+        EmbeddedSearchBackend restarted = new EmbeddedSearchBackend(directory, objectMapper, entityMapper);
+        try {
+            assertThat(ids(restarted.search(Document.class, matchAllQuery(), PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "id")), null)))
+                .containsExactly(12L, 11L, 10L);
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    public void assertThatIndicesAreRestoredAfterRestart() throws Exception {
+        index(document(1L, "Dossier professionnel", TypeDocument.JUSTIF, null));
+        String next = backend.createNextIndex(Document.class);
+        backend.bulk(Collections.singletonList(IndexOperation.create(Document.class, next, 2L,
+            entityMapper.mapToString(document(2L, "Dossier de projet", TypeDocument.JUSTIF, null)))));
+        backend.swap(Document.class, next);
+        backend.snapshot();
+        // Written to the journal only, as if the application had stopped before the next snapshot
+        index(document(3L, "Dossier de synthèse", TypeDocument.JUSTIF, null));
+        // Skipped, as the document already exists, and skipped again when the journal is replayed
+        assertThat(backend.bulk(Collections.singletonList(IndexOperation.create(Document.class, next, 3L,
+            entityMapper.mapToString(document(3L, "Brouillon", TypeDocument.JUSTIF, null)))))).isEmpty();
+
+        EmbeddedSearchBackend restarted = new EmbeddedSearchBackend(directory, objectMapper, entityMapper);
+        try {
+            assertThat(restarted.getIndices(Document.class)).containsExactly(next);
+            assertThat(ids(restarted.search(Document.class, queryStringQuery("dossier"), PageRequest.of(0, 10), null)))
+                .containsExactlyInAnyOrder(2L, 3L);
+            assertThat(ids(restarted.search(Document.class, queryStringQuery("brouillon"), PageRequest.of(0, 10), null)))
+                .isEmpty();
+        } finally {
+            restarted.close();
+        }
+    }
+
+    private void index(Document... documents) throws IOException {
+        List<IndexOperation> operations = new ArrayList<>();
+        for (Document document : documents) {
+            operations.add(IndexOperation.index(Document.class, "document", document.getId(), entityMapper.mapToString(document)));
+        }
+        assertThat(backend.bulk(operations)).isEmpty();
+    }
+
+    private static Document document(Long id, String title, TypeDocument typeDoc, String mimeType) {
+        Document document = new Document().title(title).typeDoc(typeDoc).mimeType(mimeType);
+        document.setId(id);
+        return document;
+    }
+
+    private static List<Long> ids(SearchPage<Document> page) {
+        return page.getContent().stream().map(Document::getId).collect(Collectors.toList());
+    }
+}
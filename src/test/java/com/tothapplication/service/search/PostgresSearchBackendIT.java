@@ -0,0 +1,142 @@
+package com.tothapplication.service.search;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.domain.User;
+import com.tothapplication.domain.enumeration.TypeDocument;
+import com.tothapplication.repository.CCPRepository;
+import com.tothapplication.repository.DocumentRepository;
+import com.tothapplication.service.dto.SearchPage;
+
+import org.elasticsearch.index.query.Operator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+
+/**
+ * Integration tests for the {@link PostgresSearchBackend}.
+ * <p>
+ * The tests run on H2, which has no full-text search: queries without text are run, the SQL of text queries is
+ * only checked.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+@Transactional
+public class PostgresSearchBackendIT {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private CCPRepository cCPRepository;
+
+    private PostgresSearchBackend backend;
+
+    @BeforeEach
+    public void setup() {
+        backend = new PostgresSearchBackend(jdbcTemplate, documentRepository, cCPRepository);
+    }
+
+    @Test
+    public void assertThatDocumentsAreFiltered() throws Exception {
+        CCP cCP = cCPRepository.saveAndFlush(new CCP().title("Concepteur développeur"));
+        Document first = documentRepository.saveAndFlush(new Document().title("Développeur d'applications")
+            .typeDoc(TypeDocument.COURSES).mimeType("application/pdf").addCCP(cCP));
+        Document second = documentRepository.saveAndFlush(new Document().title("Exercices")
+            .typeDoc(TypeDocument.EXERCISE).mimeType("application_x"));
+        Document third = documentRepository.saveAndFlush(new Document().title("Justificatif")
+            .typeDoc(TypeDocument.JUSTIF).mimeType("application/pdf"));
+
+        assertThat(ids(backend.search(Document.class, boolQuery()
+            .filter(termsQuery("typeDoc.keyword", "COURSES", "JUSTIF"))
+            .filter(prefixQuery("mimeType.keyword", "application/")), PageRequest.of(0, 10), null)))
+            .containsExactly(first.getId(), third.getId());
+        assertThat(ids(backend.search(Document.class, boolQuery()
+            .filter(termsQuery("ccps.id", Collections.singletonList(cCP.getId()))), PageRequest.of(0, 10), null)))
+            .containsExactly(first.getId());
+        assertThat(ids(backend.search(Document.class, boolQuery()
+            .filter(termQuery("ccps.title.keyword", "Concepteur développeur")), PageRequest.of(0, 10), null)))
+            .containsExactly(first.getId());
+        assertThat(ids(backend.search(Document.class, boolQuery()
+            .should(idsQuery().addIds(second.getId().toString()))
+            .should(termQuery("typeDoc.keyword", "JUSTIF"))
+            .mustNot(termQuery("mimeType.keyword", "application/pdf")), PageRequest.of(0, 10), null)))
+            .containsExactly(second.getId());
+        assertThat(backend.searchIds(Document.class, boolQuery()
+            .filter(termsQuery("typeDoc.keyword", "COURSES", "JUSTIF")), 10))
+            .containsExactlyInAnyOrder(first.getId(), third.getId());
+    }
+
+    @Test
+    public void assertThatPagesAreFollowedWithCursors() throws Exception {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 5; i >= 1; i--) {
+            expected.add(0, documentRepository.saveAndFlush(new Document().title("Document " + i).typeDoc(TypeDocument.JUSTIF)).getId());
+        }
+
+        List<Long> ids = new ArrayList<>();
+        SearchPage<Document> page = backend.search(Document.class, prefixQuery("title", "Document "),
+            PageRequest.of(0, 2, Sort.by("title")), null);
+        ids.addAll(ids(page));
+        while (page.getNext().isPresent()) {
+            page = backend.search(Document.class, prefixQuery("title", "Document "), PageRequest.of(0, 2, Sort.by("title")),
+                page.getNext().get());
+            ids.addAll(ids(page));
+        }
+        assertThat(ids).isEqualTo(expected);
+        assertThat(page.getTotal()).isEqualTo(5);
+
+        assertThatThrownBy(() -> backend.search(Document.class, matchAllQuery(), PageRequest.of(0, 2), "invalid"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> backend.search(Document.class, wildcardQuery("title", "d*t"), PageRequest.of(0, 2), null))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> backend.search(Document.class, matchAllQuery(), PageRequest.of(0, 2, Sort.by("ccps.id")), null))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> backend.search(User.class, matchAllQuery(), PageRequest.of(0, 2), null))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void assertThatTextIsMatchedAndRanked() {
+        FullTextQuery.Table table = new FullTextQuery.Table("ccp").column("title", "title", String.class)
+            .column("desc", "jhi_desc", String.class).searched("title", "desc");
+
+        FullTextQuery query = new FullTextQuery(table, boolQuery()
+            .must(matchQuery("title", "développeur web").operator(Operator.OR))
+            .filter(queryStringQuery("\"titre professionnel\""))
+            .mustNot(matchQuery("desc", "mobile")));
+        assertThat(query.count()).isEqualTo("select count(*) from ccp t where (t.search_vector @@ websearch_to_tsquery('french', :p0)"
+            + " and t.search_vector @@ websearch_to_tsquery('french', :p1)"
+            + " and not (t.search_vector @@ websearch_to_tsquery('french', :p2)))");
+        assertThat(query.select(Sort.unsorted())).endsWith(" order by ts_rank(t.search_vector, websearch_to_tsquery('french', :p0)) desc,"
+            + " t.id asc limit :limit offset :offset");
+        assertThat(Arrays.asList(query.getParameters().getParameterNames()))
+            .containsExactlyInAnyOrder("p0", "p1", "p2");
+        assertThat(query.getParameters().getValue("p0")).isEqualTo("développeur or web");
+
+        assertThatThrownBy(() -> new FullTextQuery(table, matchQuery("id", "1")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<Long> ids(SearchPage<Document> page) {
+        return page.getContent().stream().map(Document::getId).collect(Collectors.toList());
+    }
+}
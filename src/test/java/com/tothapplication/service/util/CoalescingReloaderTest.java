@@ -0,0 +1,76 @@
+package com.tothapplication.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Test class for the {@link CoalescingReloader} utility class.
+ */
+public class CoalescingReloaderTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private final List<Map<String, Set<Long>>> reloads = new ArrayList<>();
+
+    @Test
+    public void testChangesCoalescedUntilTheReloadRuns() {
+        CoalescingReloader reloader = new CoalescingReloader("tests", tasks::add, reloads::add);
+        reloader.changed("document", 1L);
+        reloader.changed("document", 2L);
+        reloader.changed("ccp", 1L);
+        assertThat(tasks).hasSize(1);
+        assertThat(reloader.isIdle()).isFalse();
+
+        tasks.remove(0).run();
+        assertThat(reloads).hasSize(1);
+        assertThat(reloads.get(0)).containsOnly(entry("document", newSet(1L, 2L)), entry("ccp", newSet(1L)));
+        assertThat(reloader.isIdle()).isTrue();
+    }
+
+    @Test
+    public void testChangesDuringAReloadRunNext() {
+        CoalescingReloader[] reloader = new CoalescingReloader[1];
+        reloader[0] = new CoalescingReloader("tests", tasks::add, entityIds -> {
+            if (reloads.isEmpty()) {
+                reloader[0].changed("document", 3L);
+                reloader[0].changed("document", 4L);
+            }
+            reloads.add(entityIds);
+        });
+        reloader[0].changed("document", 1L);
+        tasks.remove(0).run();
+        // The changes recorded while reloading were reloaded together by the same task
+        assertThat(tasks).isEmpty();
+        assertThat(reloads).hasSize(2);
+        assertThat(reloads.get(1)).containsOnly(entry("document", newSet(3L, 4L)));
+        assertThat(reloader[0].isIdle()).isTrue();
+    }
+
+    @Test
+    public void testFailedReloadDoesNotStopTheNextOnes() {
+        CoalescingReloader reloader = new CoalescingReloader("tests", tasks::add, entityIds -> {
+            reloads.add(entityIds);
+            throw new IllegalStateException("Database unavailable");
+        });
+        reloader.changed("document", 1L);
+        tasks.remove(0).run();
+        reloader.changed("document", 2L);
+        assertThat(tasks).hasSize(1);
+        tasks.remove(0).run();
+        assertThat(reloads).hasSize(2);
+        assertThat(reloader.isIdle()).isTrue();
+    }
+
+    private static Set<Long> newSet(Long... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+}
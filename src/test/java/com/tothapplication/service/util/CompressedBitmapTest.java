@@ -0,0 +1,108 @@
+package com.tothapplication.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the {@link CompressedBitmap} utility class, checked against a {@link BitSet}.
+ */
+public class CompressedBitmapTest {
+
+    private static final int RANGE = 5 * 65536;
+
+    @Test
+    public void testAddAndRemoveAcrossContainerKinds() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        BitSet expected = new BitSet();
+        // Dense enough to turn the first chunk into a bitmap, then back into an array
+        for (int value = 0; value < 3 * CompressedBitmap.ARRAY_MAX_CARDINALITY; value += 2) {
+            assertThat(bitmap.add(value)).isTrue();
+            expected.set(value);
+        }
+        assertThat(bitmap.add(0)).isFalse();
+        bitmap.add(200000);
+        expected.set(200000);
+        assertThat(bitmap.toArray()).isEqualTo(expected.stream().toArray());
+
+        for (int value = 0; value < 3 * CompressedBitmap.ARRAY_MAX_CARDINALITY; value += 4) {
+            assertThat(bitmap.remove(value)).isTrue();
+            expected.clear(value);
+        }
+        assertThat(bitmap.remove(0)).isFalse();
+        assertThat(bitmap.cardinality()).isEqualTo(expected.cardinality());
+        assertThat(bitmap.toArray()).isEqualTo(expected.stream().toArray());
+        assertThat(bitmap.contains(2)).isTrue();
+        assertThat(bitmap.contains(4)).isFalse();
+        assertThat(bitmap.contains(-1)).isFalse();
+
+        assertThat(bitmap.remove(200000)).isTrue();
+        assertThat(bitmap.contains(200000)).isFalse();
+        assertThatThrownBy(() -> bitmap.add(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testBooleanOperations() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            BitSet left = randomBitSet(random);
+            BitSet right = randomBitSet(random);
+            CompressedBitmap leftBitmap = toBitmap(left);
+            CompressedBitmap rightBitmap = toBitmap(right);
+
+            BitSet and = (BitSet) left.clone();
+            and.and(right);
+            BitSet or = (BitSet) left.clone();
+            or.or(right);
+            BitSet andNot = (BitSet) left.clone();
+            andNot.andNot(right);
+
+            assertThat(leftBitmap.and(rightBitmap).toArray()).isEqualTo(and.stream().toArray());
+            assertThat(leftBitmap.andCardinality(rightBitmap)).isEqualTo(and.cardinality());
+            assertThat(leftBitmap.or(rightBitmap).toArray()).isEqualTo(or.stream().toArray());
+            assertThat(leftBitmap.andNot(rightBitmap).toArray()).isEqualTo(andNot.stream().toArray());
+            assertThat(leftBitmap.toArray()).isEqualTo(left.stream().toArray());
+            assertThat(leftBitmap.copy()).isEqualTo(leftBitmap);
+        }
+    }
+
+    @Test
+    public void testSelect() {
+        BitSet expected = randomBitSet(new Random(7));
+        CompressedBitmap bitmap = toBitmap(expected);
+        int[] all = expected.stream().toArray();
+
+        assertThat(bitmap.select(0, 10)).isEqualTo(Arrays.copyOfRange(all, 0, 10));
+        assertThat(bitmap.select(all.length - 5, 10)).isEqualTo(Arrays.copyOfRange(all, all.length - 5, all.length));
+        assertThat(bitmap.select(all.length, 10)).isEmpty();
+        int middle = all.length / 2;
+        assertThat(bitmap.select(middle, 100)).isEqualTo(Arrays.copyOfRange(all, middle, middle + 100));
+    }
+
+    /**
+     * A set mixing empty, sparse and dense chunks.
+     */
+    private static BitSet randomBitSet(Random random) {
+        BitSet bitSet = new BitSet();
+        for (int chunk = 0; chunk < RANGE / 65536; chunk++) {
+            double density = new double[] {0, 0.001, 0.05, 0.5}[random.nextInt(4)];
+            for (int value = chunk * 65536; value < (chunk + 1) * 65536; value++) {
+                if (random.nextDouble() < density) {
+                    bitSet.set(value);
+                }
+            }
+        }
+        return bitSet;
+    }
+
+    private static CompressedBitmap toBitmap(BitSet bitSet) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        bitSet.stream().forEach(bitmap::add);
+        return bitmap;
+    }
+}
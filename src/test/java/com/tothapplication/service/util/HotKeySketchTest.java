@@ -0,0 +1,55 @@
+package com.tothapplication.service.util;
+
+import com.tothapplication.service.dto.HotKeyDTO;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link HotKeySketch} utility class.
+ */
+public class HotKeySketchTest {
+
+    @Test
+    public void testExactCountsWithinCapacity() {
+        HotKeySketch sketch = new HotKeySketch(3);
+        for (int i = 0; i < 5; i++) {
+            sketch.offer("a");
+        }
+        sketch.offer("b");
+        sketch.offer("c");
+        sketch.offer("c");
+
+        List<HotKeyDTO> top = sketch.top(2);
+        assertThat(top).extracting(HotKeyDTO::getKey).containsExactly("a", "c");
+        assertThat(top).extracting(HotKeyDTO::getCount).containsExactly(5L, 2L);
+        assertThat(top).extracting(HotKeyDTO::getError).containsExactly(0L, 0L);
+    }
+
+    @Test
+    public void testFrequentKeysSurviveManyRareKeys() {
+        HotKeySketch sketch = new HotKeySketch(5);
+        for (int i = 0; i < 1000; i++) {
+            sketch.offer("hot");
+            if (i % 2 == 0) {
+                sketch.offer("warm");
+            }
+            sketch.offer("cold-" + i);
+        }
+
+        List<HotKeyDTO> top = sketch.top(2);
+        assertThat(top).extracting(HotKeyDTO::getKey).containsExactly("hot", "warm");
+        // Counts are never underestimated, and overestimated by at most their error
+        assertThat(top.get(0).getCount()).isGreaterThanOrEqualTo(1000L);
+        assertThat(top.get(0).getCount() - top.get(0).getError()).isLessThanOrEqualTo(1000L);
+        assertThat(top.get(1).getCount()).isGreaterThanOrEqualTo(500L);
+        assertThat(top.get(1).getCount() - top.get(1).getError()).isLessThanOrEqualTo(500L);
+        assertThat(sketch.top(10)).hasSize(5);
+
+        sketch.clear();
+        assertThat(sketch.top(10)).isEmpty();
+    }
+}
@@ -1,32 +1,52 @@
 package com.tothapplication.web.rest;
 
 import com.tothapplication.TothApplicationApp;
+import com.tothapplication.config.Constants;
 import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
 import com.tothapplication.repository.CCPRepository;
-import com.tothapplication.repository.search.CCPSearchRepository;
+import com.tothapplication.repository.SearchOutboxEventRepository;
+import com.tothapplication.service.CCPDocumentCountService;
+import com.tothapplication.service.CCPService;
+import com.tothapplication.service.DocumentService;
+import com.tothapplication.service.EntityTagService;
+import com.tothapplication.service.ExportService;
+import com.tothapplication.service.SearchIndexerService;
+import com.tothapplication.service.SearchOutboxService;
+import com.tothapplication.service.SearchService;
 import com.tothapplication.web.rest.errors.ExceptionTranslator;
 
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Delete;
+import io.searchbox.indices.Refresh;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.Validator;
 
 import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import static com.tothapplication.web.rest.TestUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -46,13 +66,32 @@ public class CCPResourceIT {
     @Autowired
     private CCPRepository cCPRepository;
 
-    /**
-     * This repository is mocked in the com.tothapplication.repository.search test package.
-     *
-     * @see com.tothapplication.repository.search.CCPSearchRepositoryMockConfiguration
-     */
     @Autowired
-    private CCPSearchRepository mockCCPSearchRepository;
+    private SearchService searchService;
+
+    @Autowired
+    private SearchIndexerService searchIndexerService;
+
+    @Autowired
+    private JestClient jestClient;
+
+    @Autowired
+    private CCPService cCPService;
+
+    @Autowired
+    private SearchOutboxEventRepository searchOutboxEventRepository;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Autowired
+    private CCPDocumentCountService cCPDocumentCountService;
+
+    @Autowired
+    private DocumentService documentService;
 
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
@@ -76,7 +115,7 @@ public class CCPResourceIT {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final CCPResource cCPResource = new CCPResource(cCPRepository, mockCCPSearchRepository);
+        final CCPResource cCPResource = new CCPResource(cCPRepository, searchService, cCPService, exportService, entityTagService, cCPDocumentCountService, documentService);
         this.restCCPMockMvc = MockMvcBuilders.standaloneSetup(cCPResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -133,8 +172,8 @@ public class CCPResourceIT {
         assertThat(testCCP.getTitle()).isEqualTo(DEFAULT_TITLE);
         assertThat(testCCP.getDesc()).isEqualTo(DEFAULT_DESC);
 
-        // Validate the CCP in Elasticsearch
-        verify(mockCCPSearchRepository, times(1)).save(testCCP);
+        // Validate the CCP change in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.CCP, testCCP.getId())).hasSize(1);
     }
 
     @Test
@@ -155,8 +194,8 @@ public class CCPResourceIT {
         List<CCP> cCPList = cCPRepository.findAll();
         assertThat(cCPList).hasSize(databaseSizeBeforeCreate);
 
-        // Validate the CCP in Elasticsearch
-        verify(mockCCPSearchRepository, times(0)).save(cCP);
+        // Validate the CCP change is not in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.CCP, cCP.getId())).isEmpty();
     }
 
 
@@ -174,6 +213,84 @@ public class CCPResourceIT {
             .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE.toString())))
             .andExpect(jsonPath("$.[*].desc").value(hasItem(DEFAULT_DESC.toString())));
     }
+
+    @Test
+    @Transactional
+    public void getAllCCPSWithDocumentCount() throws Exception {
+        // Initialize the database
+        cCPRepository.saveAndFlush(cCP);
+        CCP other = cCPRepository.saveAndFlush(createEntity(em));
+        Document first = documentService.save(DocumentResourceIT.createEntity(em));
+        em.flush();
+        em.detach(first);
+        first.getCCPS().add(cCP);
+        documentService.save(first);
+        Document second = DocumentResourceIT.createEntity(em);
+        second.getCCPS().add(cCP);
+        second.getCCPS().add(other);
+        documentService.save(second);
+        documentService.delete(first.getId());
+
+        // Get all the cCPS with their counts
+        restCCPMockMvc.perform(get("/api/ccps?withCounts=true"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[?(@.id == " + cCP.getId() + ")].documentCount").value(1))
+            .andExpect(jsonPath("$.[?(@.id == " + other.getId() + ")].documentCount").value(1))
+            .andExpect(jsonPath("$.[?(@.id == " + cCP.getId() + ")].title").value(DEFAULT_TITLE));
+    }
+
+    @Test
+    @Transactional
+    public void getCCPDocuments() throws Exception {
+        // Initialize the database
+        cCPRepository.saveAndFlush(cCP);
+        CCP other = cCPRepository.saveAndFlush(createEntity(em));
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Document document = DocumentResourceIT.createEntity(em);
+            document.getCCPS().add(cCP);
+            if (i == 0) {
+                document.getCCPS().add(other);
+            }
+            documents.add(documentService.save(document));
+        }
+        documentService.save(DocumentResourceIT.createEntity(em));
+
+        // Get the pages of the documents of the cCP
+        restCCPMockMvc.perform(get("/api/ccps/{id}/documents?page=0&size=2", cCP.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")))
+            .andExpect(jsonPath("$.[*].id").value(contains(documents.get(0).getId().intValue(), documents.get(1).getId().intValue())))
+            .andExpect(jsonPath("$.[0].ccpIds").value(containsInAnyOrder(cCP.getId().intValue(), other.getId().intValue())));
+        restCCPMockMvc.perform(get("/api/ccps/{id}/documents?page=1&size=2", cCP.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(documents.get(2).getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingCCPDocuments() throws Exception {
+        restCCPMockMvc.perform(get("/api/ccps/{id}/documents", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getAllCCPSummaries() throws Exception {
+        // Initialize the database
+        cCPRepository.saveAndFlush(cCP);
+
+        // Get all the cCP summaries
+        restCCPMockMvc.perform(get("/api/ccps?view=summary"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(cCP.getId().intValue())))
+            .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE.toString())))
+            .andExpect(jsonPath("$.[*].desc").doesNotExist());
+    }
     
     @Test
     @Transactional
@@ -190,6 +307,62 @@ public class CCPResourceIT {
             .andExpect(jsonPath("$.desc").value(DEFAULT_DESC.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getCCPWithETag() throws Exception {
+        // Initialize the database
+        cCPRepository.saveAndFlush(cCP);
+
+        // Get the cCP and its tag
+        String eTag = restCCPMockMvc.perform(get("/api/ccps/{id}", cCP.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // The tag is answered from the cache
+        restCCPMockMvc.perform(get("/api/ccps/{id}", cCP.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        // Update the cCP
+        CCP updatedCCP = cCPRepository.findById(cCP.getId()).get();
+        em.detach(updatedCCP);
+        updatedCCP.title(UPDATED_TITLE);
+        restCCPMockMvc.perform(put("/api/ccps")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedCCP)))
+            .andExpect(status().isOk());
+
+        // The old tag does not match anymore
+        restCCPMockMvc.perform(get("/api/ccps/{id}", cCP.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+            .andExpect(jsonPath("$.title").value(UPDATED_TITLE));
+    }
+
+    @Test
+    @Transactional
+    public void exportCCPS() throws Exception {
+        // Initialize the database
+        cCPRepository.saveAndFlush(cCP);
+
+        // Export the cCPList
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportCCPS(out);
+        assertThat(out.toString("UTF-8"))
+            .contains("{\"id\":" + cCP.getId() + ",\"title\":\"" + DEFAULT_TITLE + "\",\"desc\":\"" + DEFAULT_DESC + "\"}\n");
+
+        // The endpoint streams the export asynchronously
+        MvcResult result = restCCPMockMvc.perform(get("/api/ccps/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restCCPMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(Constants.APPLICATION_NDJSON_VALUE));
+    }
+
     @Test
     @Transactional
     public void getNonExistingCCP() throws Exception {
@@ -226,8 +399,8 @@ public class CCPResourceIT {
         assertThat(testCCP.getTitle()).isEqualTo(UPDATED_TITLE);
         assertThat(testCCP.getDesc()).isEqualTo(UPDATED_DESC);
 
-        // Validate the CCP in Elasticsearch
-        verify(mockCCPSearchRepository, times(1)).save(testCCP);
+        // Validate the CCP change in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.CCP, testCCP.getId())).hasSize(1);
     }
 
     @Test
@@ -247,8 +420,8 @@ public class CCPResourceIT {
         List<CCP> cCPList = cCPRepository.findAll();
         assertThat(cCPList).hasSize(databaseSizeBeforeUpdate);
 
-        // Validate the CCP in Elasticsearch
-        verify(mockCCPSearchRepository, times(0)).save(cCP);
+        // Validate the CCP change is not in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.CCP, cCP.getId())).isEmpty();
     }
 
     @Test
@@ -268,24 +441,29 @@ public class CCPResourceIT {
         List<CCP> cCPList = cCPRepository.findAll();
         assertThat(cCPList).hasSize(databaseSizeBeforeDelete - 1);
 
-        // Validate the CCP in Elasticsearch
-        verify(mockCCPSearchRepository, times(1)).deleteById(cCP.getId());
+        // Validate the CCP deletion in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.CCP, cCP.getId())).hasSize(1);
     }
 
     @Test
     @Transactional
     public void searchCCP() throws Exception {
-        // Initialize the database
+        // Initialize the database and the search index
         cCPRepository.saveAndFlush(cCP);
-        when(mockCCPSearchRepository.search(queryStringQuery("id:" + cCP.getId())))
-            .thenReturn(Collections.singletonList(cCP));
-        // Search the cCP
-        restCCPMockMvc.perform(get("/api/_search/ccps?query=id:" + cCP.getId()))
-            .andExpect(status().isOk())
-            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
-            .andExpect(jsonPath("$.[*].id").value(hasItem(cCP.getId().intValue())))
-            .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE)))
-            .andExpect(jsonPath("$.[*].desc").value(hasItem(DEFAULT_DESC)));
+        assertThat(searchIndexerService.index(SearchOutboxService.CCP, Collections.singletonList(cCP.getId()), "ccp")).isEmpty();
+        jestClient.execute(new Refresh.Builder().addIndex("ccp").build());
+        try {
+            // Search the cCP
+            restCCPMockMvc.perform(get("/api/_search/ccps?query=id:" + cCP.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(cCP.getId().intValue())))
+                .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE)))
+                .andExpect(jsonPath("$.[*].desc").value(hasItem(DEFAULT_DESC)));
+        } finally {
+            jestClient.execute(new Delete.Builder(cCP.getId().toString()).index("ccp").type("ccp").build());
+        }
     }
 
     @Test
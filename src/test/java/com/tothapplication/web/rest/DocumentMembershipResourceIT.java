@@ -0,0 +1,245 @@
+package com.tothapplication.web.rest;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.domain.enumeration.TypeDocument;
+import com.tothapplication.repository.DocumentRepository;
+import com.tothapplication.repository.SearchOutboxEventRepository;
+import com.tothapplication.service.CCPService;
+import com.tothapplication.service.DocumentMembershipService;
+import com.tothapplication.service.DocumentService;
+import com.tothapplication.service.SearchService;
+import com.tothapplication.web.rest.errors.ExceptionTranslator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tothapplication.web.rest.TestUtil.createFormattingConversionService;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the {@link DocumentMembershipResource} REST controller.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+public class DocumentMembershipResourceIT {
+
+    @Autowired
+    private DocumentMembershipService documentMembershipService;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private CCPService cCPService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private SearchOutboxEventRepository searchOutboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private PageableHandlerMethodArgumentResolver pageableArgumentResolver;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    private MockMvc restDocumentMembershipMockMvc;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setup() {
+        final DocumentMembershipResource documentMembershipResource = new DocumentMembershipResource(documentMembershipService);
+        this.restDocumentMembershipMockMvc = MockMvcBuilders.standaloneSetup(documentMembershipResource)
+            .setCustomArgumentResolvers(pageableArgumentResolver)
+            .setControllerAdvice(exceptionTranslator)
+            .setConversionService(createFormattingConversionService())
+            .setMessageConverters(jacksonMessageConverter).build();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    public void queryMembershipKeptInSyncOnWrites() throws Exception {
+        // The bitmaps are only updated once the changes are committed, so this test commits and cleans up
+        CCP first = transactionTemplate.execute(status -> cCPService.save(new CCP().title("CCP 1")));
+        CCP second = transactionTemplate.execute(status -> cCPService.save(new CCP().title("CCP 2")));
+        Document courses = transactionTemplate.execute(status -> documentService.save(new Document().title("Cours")
+            .typeDoc(TypeDocument.COURSES).addCCP(first).addCCP(second)));
+        Document justif = transactionTemplate.execute(status -> documentService.save(new Document().title("Justificatif")
+            .typeDoc(TypeDocument.JUSTIF).addCCP(first).addCCP(second)));
+        Document exercise = transactionTemplate.execute(status -> documentService.save(new Document().title("Exercice")
+            .typeDoc(TypeDocument.EXERCISE).addCCP(first)));
+        try {
+            awaitReloads();
+            restDocumentMembershipMockMvc.perform(get("/api/documents/_membership?allCcpIds={first},{second}&notTypeDoc=JUSTIF",
+                first.getId(), second.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.ids").value(contains(courses.getId().intValue())))
+                .andExpect(jsonPath("$.facets.total").value(1))
+                .andExpect(jsonPath("$.facets.typeDoc.COURSES").value(1))
+                .andExpect(jsonPath("$.facets.ccps." + first.getId()).value(1))
+                .andExpect(jsonPath("$.facets.ccps." + second.getId()).value(1));
+            restDocumentMembershipMockMvc.perform(get("/api/documents/_membership?anyCcpIds={first},{second}&typeDoc=COURSES,EXERCISE",
+                first.getId(), second.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ids").value(contains(courses.getId().intValue(), exercise.getId().intValue())))
+                .andExpect(jsonPath("$.facets.ccps." + first.getId()).value(2))
+                .andExpect(jsonPath("$.facets.ccps." + second.getId()).value(1));
+            restDocumentMembershipMockMvc.perform(get("/api/documents/_membership?anyCcpIds={first}&notCcpIds={second}&page=0&size=1",
+                first.getId(), second.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ids").value(contains(exercise.getId().intValue())))
+                .andExpect(jsonPath("$.facets.total").value(1));
+
+            transactionTemplate.execute(status -> documentService.save(exercise.addCCP(second)));
+            transactionTemplate.execute(status -> documentService.save(justif.typeDoc(TypeDocument.COURSES)));
+            awaitReloads();
+            restDocumentMembershipMockMvc.perform(get("/api/documents/_membership?allCcpIds={first},{second}&typeDoc=COURSES",
+                first.getId(), second.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ids").value(contains(courses.getId().intValue(), justif.getId().intValue())))
+                .andExpect(jsonPath("$.facets.typeDoc.COURSES").value(2));
+            restDocumentMembershipMockMvc.perform(get("/api/documents/_membership?allCcpIds={first},{second}&size=2&page=1",
+                first.getId(), second.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ids").value(contains(exercise.getId().intValue())))
+                .andExpect(jsonPath("$.facets.total").value(3));
+        } finally {
+            transactionTemplate.execute(status -> {
+                documentService.delete(courses.getId());
+                documentService.delete(justif.getId());
+                documentService.delete(exercise.getId());
+                cCPService.delete(first.getId());
+                cCPService.delete(second.getId());
+                return null;
+            });
+            searchOutboxEventRepository.deleteAll();
+        }
+
+        awaitReloads();
+        restDocumentMembershipMockMvc.perform(get("/api/documents/_membership?anyCcpIds={first},{second}",
+            first.getId(), second.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.facets.total").value(0));
+    }
+
+    @Test
+    public void getRelatedDocumentsKeptInSyncOnWrites() throws Exception {
+        // The related documents are only updated once the changes are committed, so this test commits and cleans up
+        CCP first = transactionTemplate.execute(status -> cCPService.save(new CCP().title("CCP 1")));
+        CCP second = transactionTemplate.execute(status -> cCPService.save(new CCP().title("CCP 2")));
+        CCP third = transactionTemplate.execute(status -> cCPService.save(new CCP().title("CCP 3")));
+        Document all = transactionTemplate.execute(status -> documentService.save(new Document().title("Tout")
+            .addCCP(first).addCCP(second).addCCP(third)));
+        Document two = transactionTemplate.execute(status -> documentService.save(new Document().title("Deux")
+            .addCCP(first).addCCP(second)));
+        Document one = transactionTemplate.execute(status -> documentService.save(new Document().title("Un")
+            .addCCP(first)));
+        Document other = transactionTemplate.execute(status -> documentService.save(new Document().title("Autre")
+            .addCCP(third)));
+        List<Long> added = new ArrayList<>();
+        try {
+            awaitReloads();
+            // At most application.search.membership.related-size (2 in tests) related documents are kept
+            restDocumentMembershipMockMvc.perform(get("/api/documents/{id}/related", all.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.[*].id").value(contains(two.getId().intValue(), one.getId().intValue())))
+                .andExpect(jsonPath("$.[*].title").value(contains("Deux", "Un")))
+                .andExpect(jsonPath("$.[*].sharedCcps").value(contains(2, 1)));
+            restDocumentMembershipMockMvc.perform(get("/api/documents/{id}/related", other.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(contains(all.getId().intValue())));
+
+            transactionTemplate.execute(status -> documentService.save(two.removeCCP(first).removeCCP(second).addCCP(third)));
+            awaitReloads();
+            restDocumentMembershipMockMvc.perform(get("/api/documents/{id}/related", all.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(contains(two.getId().intValue(), one.getId().intValue())))
+                .andExpect(jsonPath("$.[*].sharedCcps").value(contains(1, 1)));
+            restDocumentMembershipMockMvc.perform(get("/api/documents/{id}/related", other.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(contains(all.getId().intValue(), two.getId().intValue())));
+
+            transactionTemplate.execute(status -> {
+                documentService.delete(one.getId());
+                return null;
+            });
+            awaitReloads();
+            restDocumentMembershipMockMvc.perform(get("/api/documents/{id}/related", all.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(contains(two.getId().intValue(), other.getId().intValue())));
+            restDocumentMembershipMockMvc.perform(get("/api/documents/{id}/related", one.getId()))
+                .andExpect(status().isNotFound());
+
+            // A rebuild counts the same shared CCPs
+            documentMembershipService.rebuild();
+            restDocumentMembershipMockMvc.perform(get("/api/documents/{id}/related", all.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(contains(two.getId().intValue(), other.getId().intValue())))
+                .andExpect(jsonPath("$.[*].sharedCcps").value(contains(1, 1)));
+
+            // The CCPs of more than application.search.membership.related-max-ccp-size (3 in tests) documents are not
+            // counted as shared
+            added.add(transactionTemplate.execute(status -> documentService.save(new Document().title("Quatre")
+                .addCCP(third))).getId());
+            awaitReloads();
+            documentMembershipService.rebuild();
+            restDocumentMembershipMockMvc.perform(get("/api/documents/{id}/related", other.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+        } finally {
+            transactionTemplate.execute(status -> {
+                added.forEach(documentService::delete);
+                documentService.delete(all.getId());
+                documentService.delete(two.getId());
+                documentRepository.findById(one.getId()).ifPresent(document -> documentService.delete(document.getId()));
+                documentService.delete(other.getId());
+                cCPService.delete(first.getId());
+                cCPService.delete(second.getId());
+                cCPService.delete(third.getId());
+                return null;
+            });
+            searchOutboxEventRepository.deleteAll();
+        }
+    }
+
+    @Test
+    public void queryMembershipWithInvalidSize() throws Exception {
+        restDocumentMembershipMockMvc.perform(get("/api/documents/_membership?size=" + (SearchService.MAX_PAGE_SIZE + 1)))
+            .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Wait for the memberships to be reloaded in the background.
+     */
+    private void awaitReloads() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!documentMembershipService.isUpToDate() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -1,11 +1,35 @@
 package com.tothapplication.web.rest;
 
 import com.tothapplication.TothApplicationApp;
+import com.tothapplication.config.Constants;
+import com.tothapplication.domain.CCP;
 import com.tothapplication.domain.Document;
+import com.tothapplication.repository.ContentBlobRepository;
 import com.tothapplication.repository.DocumentRepository;
-import com.tothapplication.repository.search.DocumentSearchRepository;
+import com.tothapplication.repository.SearchOutboxEventRepository;
+import com.tothapplication.service.CCPDocumentCountService;
+import com.tothapplication.service.ContentGarbageCollector;
+import com.tothapplication.service.DocumentBulkService;
+import com.tothapplication.service.DocumentContentService;
+import com.tothapplication.service.DocumentFacetService;
+import com.tothapplication.service.DocumentSearchService;
+import com.tothapplication.service.DocumentService;
+import com.tothapplication.service.EntityTagService;
+import com.tothapplication.service.ExportService;
+import com.tothapplication.service.SearchIndexerService;
+import com.tothapplication.service.SearchOutboxService;
+import com.tothapplication.service.SearchService;
+import com.tothapplication.service.dto.CCPWithDocumentCountDTO;
+import com.tothapplication.service.dto.DocumentSearchDTO;
+import com.tothapplication.service.storage.ContentStore;
+import com.tothapplication.service.util.KeysetCursor;
+import com.tothapplication.web.rest.util.KeysetPaginationUtil;
 import com.tothapplication.web.rest.errors.ExceptionTranslator;
 
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Index;
+import io.searchbox.indices.Refresh;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -15,22 +39,31 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.Validator;
 
 import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static com.tothapplication.web.rest.TestUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -57,13 +90,50 @@ public class DocumentResourceIT {
     @Mock
     private DocumentRepository documentRepositoryMock;
 
-    /**
-     * This repository is mocked in the com.tothapplication.repository.search test package.
-     *
-     * @see com.tothapplication.repository.search.DocumentSearchRepositoryMockConfiguration
-     */
     @Autowired
-    private DocumentSearchRepository mockDocumentSearchRepository;
+    private SearchService searchService;
+
+    @Autowired
+    private SearchIndexerService searchIndexerService;
+
+    @Autowired
+    private SearchOutboxEventRepository searchOutboxEventRepository;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private DocumentBulkService documentBulkService;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private ContentBlobRepository contentBlobRepository;
+
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private ContentGarbageCollector contentGarbageCollector;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Autowired
+    private DocumentFacetService documentFacetService;
+
+    @Autowired
+    private DocumentSearchService documentSearchService;
+
+    @Autowired
+    private CCPDocumentCountService cCPDocumentCountService;
+
+    @Autowired
+    private JestClient jestClient;
 
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
@@ -87,7 +157,7 @@ public class DocumentResourceIT {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final DocumentResource documentResource = new DocumentResource(documentRepository, mockDocumentSearchRepository);
+        final DocumentResource documentResource = new DocumentResource(documentRepository, searchService, documentService, exportService, documentBulkService, documentContentService, entityTagService, documentFacetService, documentSearchService);
         this.restDocumentMockMvc = MockMvcBuilders.standaloneSetup(documentResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -147,8 +217,8 @@ public class DocumentResourceIT {
         assertThat(testDocument.getMimeType()).isEqualTo(DEFAULT_MIME_TYPE);
         assertThat(testDocument.getTypeDoc()).isEqualTo(DEFAULT_TYPE_DOC);
 
-        // Validate the Document in Elasticsearch
-        verify(mockDocumentSearchRepository, times(1)).save(testDocument);
+        // Validate the Document change in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, testDocument.getId())).hasSize(1);
     }
 
     @Test
@@ -169,10 +239,228 @@ public class DocumentResourceIT {
         List<Document> documentList = documentRepository.findAll();
         assertThat(documentList).hasSize(databaseSizeBeforeCreate);
 
-        // Validate the Document in Elasticsearch
-        verify(mockDocumentSearchRepository, times(0)).save(document);
+        // Validate the Document change is not in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).isEmpty();
+    }
+
+
+    @Test
+    @Transactional
+    public void bulkSaveDocuments() throws Exception {
+        // Initialize the database
+        CCP cCP = CCPResourceIT.createEntity(em).title("Développeur Java criteria");
+        em.persist(cCP);
+        documentRepository.saveAndFlush(document);
+        int databaseSizeBeforeBulk = documentRepository.findAll().size();
+
+        // Create one document, update one, and fail on an unknown document and an unknown CCP
+        String body = "[" +
+            "{\"title\":\"" + DEFAULT_TITLE + "\",\"ccps\":[{\"id\":" + cCP.getId() + "}]}," +
+            "{\"id\":" + document.getId() + ",\"title\":\"" + UPDATED_TITLE + "\"}," +
+            "{\"id\":" + Long.MAX_VALUE + ",\"title\":\"" + UPDATED_TITLE + "\"}," +
+            "{\"title\":\"" + DEFAULT_TITLE + "\",\"ccps\":[{\"id\":" + Long.MAX_VALUE + "}]}" +
+            "]";
+        restDocumentMockMvc.perform(post("/api/documents/_bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.errors").value(true))
+            .andExpect(jsonPath("$.items[0].status").value(201))
+            .andExpect(jsonPath("$.items[1].status").value(200))
+            .andExpect(jsonPath("$.items[1].id").value(document.getId().intValue()))
+            .andExpect(jsonPath("$.items[2].status").value(404))
+            .andExpect(jsonPath("$.items[3].status").value(400));
+
+        // Validate the Documents in the database
+        assertThat(documentRepository.findAll()).hasSize(databaseSizeBeforeBulk + 1);
+        assertThat(documentRepository.findById(document.getId()).get().getTitle()).isEqualTo(UPDATED_TITLE);
+
+        // Validate the Document changes in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).hasSize(1);
+    }
+
+    @Test
+    @Transactional
+    public void bulkSaveDocumentsWithRolledBackChunk() throws Exception {
+        // A MIME type too long for its column fails the chunk when it is flushed
+        String mimeType = String.join("", Collections.nCopies(300, "a"));
+        String body = "[" +
+            "{\"title\":\"" + DEFAULT_TITLE + "\"}," +
+            "{\"title\":\"" + UPDATED_TITLE + "\",\"mimeType\":\"" + mimeType + "\"}" +
+            "]";
+        restDocumentMockMvc.perform(post("/api/documents/_bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.errors").value(true))
+            .andExpect(jsonPath("$.items", hasSize(2)))
+            .andExpect(jsonPath("$.items[*].status").value(everyItem(is(500))))
+            .andExpect(jsonPath("$.items[*].error").value(everyItem(is(DocumentBulkService.CHUNK_ROLLED_BACK))))
+            .andExpect(jsonPath("$.items[0].id").doesNotExist());
+    }
+
+    @Test
+    @Transactional
+    public void bulkSaveDocumentsAsNdjson() throws Exception {
+        int databaseSizeBeforeBulk = documentRepository.findAll().size();
+
+        // Create two documents, one per line
+        String body = "{\"title\":\"" + DEFAULT_TITLE + "\"}\n{\"title\":\"" + UPDATED_TITLE + "\"}\n";
+        restDocumentMockMvc.perform(post("/api/documents/_bulk")
+            .contentType(Constants.APPLICATION_NDJSON_VALUE)
+            .content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.errors").value(false))
+            .andExpect(jsonPath("$.items[*].status").value(hasItem(201)))
+            .andExpect(jsonPath("$.items", hasSize(2)));
+
+        // Validate the Documents in the database
+        assertThat(documentRepository.findAll()).hasSize(databaseSizeBeforeBulk + 2);
+    }
+
+    @Test
+    @Transactional
+    public void getDocumentWithETag() throws Exception {
+        // Initialize the database
+        documentRepository.saveAndFlush(document);
+
+        // Get the document and its tag
+        String eTag = restDocumentMockMvc.perform(get("/api/documents/{id}", document.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // The tag is answered from the cache
+        restDocumentMockMvc.perform(get("/api/documents/{id}", document.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        // Update the document
+        Document updatedDocument = documentRepository.findById(document.getId()).get();
+        em.detach(updatedDocument);
+        updatedDocument.title(UPDATED_TITLE);
+        restDocumentMockMvc.perform(put("/api/documents")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedDocument)))
+            .andExpect(status().isOk());
+
+        // The old tag does not match anymore
+        restDocumentMockMvc.perform(get("/api/documents/{id}", document.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+            .andExpect(jsonPath("$.title").value(UPDATED_TITLE));
+
+        // A tag computed from a document loaded before an eviction is not cached
+        long stamp = entityTagService.stamp(EntityTagService.DOCUMENT_TAGS_CACHE, document.getId());
+        entityTagService.evict(EntityTagService.DOCUMENT_TAGS_CACHE, document.getId());
+        entityTagService.tag(EntityTagService.DOCUMENT_TAGS_CACHE, document.getId(), stamp, document);
+        assertThat(entityTagService.getCachedTag(EntityTagService.DOCUMENT_TAGS_CACHE, document.getId())).isEmpty();
     }
 
+    @Test
+    @Transactional
+    public void uploadAndDownloadDocumentContent() throws Exception {
+        // Initialize the database
+        documentRepository.saveAndFlush(document);
+
+        // Upload the content
+        restDocumentMockMvc.perform(put("/api/documents/{id}/content", document.getId())
+            .contentType(MediaType.TEXT_PLAIN)
+            .content("Hello content"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(document.getId().intValue()))
+            .andExpect(jsonPath("$.mimeType").value(MediaType.TEXT_PLAIN_VALUE))
+            .andExpect(jsonPath("$.contentSize").value(13));
+
+        // Download the whole content
+        restDocumentMockMvc.perform(get("/api/documents/{id}/content", document.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(content().contentType(MediaType.TEXT_PLAIN))
+            .andExpect(content().string("Hello content"));
+
+        // Download a range of the content
+        restDocumentMockMvc.perform(get("/api/documents/{id}/content", document.getId())
+            .header(HttpHeaders.RANGE, "bytes=6-"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 6-12/13"))
+            .andExpect(content().string("content"));
+
+        // Download a range past the end of the content
+        restDocumentMockMvc.perform(get("/api/documents/{id}/content", document.getId())
+            .header(HttpHeaders.RANGE, "bytes=20-"))
+            .andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */13"));
+
+        // Malformed ranges and multiple ranges are ignored
+        for (String range : new String[] {"bytes=abc", "items=0-5", "bytes=5-2", "bytes=0-1,3-4"}) {
+            restDocumentMockMvc.perform(get("/api/documents/{id}/content", document.getId())
+                .header(HttpHeaders.RANGE, range))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(content().string("Hello content"));
+        }
+    }
+
+    @Test
+    @Transactional
+    public void uploadSameContentTwice() throws Exception {
+        // Initialize the database
+        Document first = documentRepository.saveAndFlush(createEntity(em));
+        Document second = documentRepository.saveAndFlush(createEntity(em));
+        String content = "Same content " + first.getId();
+
+        // Upload the same content to both documents
+        for (Document doc : new Document[] {first, second}) {
+            restDocumentMockMvc.perform(put("/api/documents/{id}/content", doc.getId())
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(content))
+                .andExpect(status().isOk());
+        }
+
+        // Validate that the content is stored once
+        String key = documentRepository.findById(first.getId()).get().getContentKey();
+        assertThat(documentRepository.findById(second.getId()).get().getContentKey()).isEqualTo(key);
+        assertThat(contentBlobRepository.findById(key).get().getRefCount()).isEqualTo(2);
+
+        // Delete the documents, the content is collected once unreferenced
+        restDocumentMockMvc.perform(delete("/api/documents/{id}", first.getId()))
+            .andExpect(status().isNoContent());
+        assertThat(contentBlobRepository.findById(key).get().getRefCount()).isEqualTo(1);
+        assertThat(contentGarbageCollector.collectGarbage()).isZero();
+        assertThat(contentStore.exists(key)).isTrue();
+
+        restDocumentMockMvc.perform(delete("/api/documents/{id}", second.getId()))
+            .andExpect(status().isNoContent());
+        assertThat(contentGarbageCollector.collectGarbage()).isEqualTo(1);
+        assertThat(contentBlobRepository.findById(key)).isEmpty();
+        assertThat(contentStore.exists(key)).isFalse();
+
+        // A collected content is stored again from the next upload
+        Document third = documentRepository.saveAndFlush(createEntity(em));
+        restDocumentMockMvc.perform(put("/api/documents/{id}/content", third.getId())
+            .contentType(MediaType.TEXT_PLAIN)
+            .content(content))
+            .andExpect(status().isOk());
+        assertThat(contentBlobRepository.findById(key).get().getRefCount()).isEqualTo(1);
+        assertThat(contentStore.exists(key)).isTrue();
+    }
+
+    @Test
+    @Transactional
+    public void downloadMissingDocumentContent() throws Exception {
+        // Initialize the database
+        documentRepository.saveAndFlush(document);
+
+        restDocumentMockMvc.perform(get("/api/documents/{id}/content", document.getId()))
+            .andExpect(status().isNotFound());
+        restDocumentMockMvc.perform(put("/api/documents/{id}/content", Long.MAX_VALUE)
+            .contentType(MediaType.TEXT_PLAIN)
+            .content("Hello content"))
+            .andExpect(status().isNotFound());
+    }
 
     @Test
     @Transactional
@@ -190,9 +478,90 @@ public class DocumentResourceIT {
             .andExpect(jsonPath("$.[*].typeDoc").value(hasItem(DEFAULT_TYPE_DOC.toString())));
     }
     
+    @Test
+    @Transactional
+    public void getAllDocumentSummaries() throws Exception {
+        // Initialize the database
+        CCP cCP = CCPResourceIT.createEntity(em).title("Développeur Java criteria");
+        em.persist(cCP);
+        document.getCCPS().add(cCP);
+        documentRepository.saveAndFlush(document);
+
+        // Get all the document summaries
+        restDocumentMockMvc.perform(get("/api/documents?view=summary"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[?(@.id == " + document.getId() + ")].title").value(DEFAULT_TITLE))
+            .andExpect(jsonPath("$.[?(@.id == " + document.getId() + ")].typeDoc").value(DEFAULT_TYPE_DOC.toString()))
+            .andExpect(jsonPath("$.[?(@.id == " + document.getId() + ")].ccpIds[0]").value(cCP.getId().intValue()))
+            .andExpect(jsonPath("$.[*].mimeType").doesNotExist());
+
+        // Get the first page of document summaries
+        restDocumentMockMvc.perform(get("/api/documents?view=summary&size=1&orderBy=id&cursor="
+            + KeysetCursor.afterId(document.getId() - 1).encode()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(document.getId().intValue()))
+            .andExpect(jsonPath("$.[0].ccpIds[0]").value(cCP.getId().intValue()));
+    }
+
+    @Test
+    @Transactional
+    public void getAllDocumentsByKeyset() throws Exception {
+        // Initialize the database
+        Document first = documentRepository.saveAndFlush(createEntity(em).title("CCCCCCCCCC"));
+        Document second = documentRepository.saveAndFlush(createEntity(em).title("AAAAAAAAAA"));
+        Document third = documentRepository.saveAndFlush(createEntity(em).title(null));
+
+        // Get the first page of the documentList ordered by id
+        String next = restDocumentMockMvc.perform(get("/api/documents?size=2"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[0].id").value(first.getId().intValue()))
+            .andExpect(jsonPath("$.[1].id").value(second.getId().intValue()))
+            .andExpect(header().string("Link", containsString("rel=\"next\"")))
+            .andReturn().getResponse().getHeader(KeysetPaginationUtil.NEXT_CURSOR_HEADER);
+
+        // Get the last page
+        restDocumentMockMvc.perform(get("/api/documents?size=2&cursor=" + next))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(third.getId().intValue()))
+            .andExpect(header().doesNotExist(KeysetPaginationUtil.NEXT_CURSOR_HEADER))
+            .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    @Transactional
+    public void getAllDocumentsByTitleKeyset() throws Exception {
+        // Initialize the database
+        Document first = documentRepository.saveAndFlush(createEntity(em).title("CCCCCCCCCC"));
+        Document second = documentRepository.saveAndFlush(createEntity(em).title("AAAAAAAAAA"));
+        Document third = documentRepository.saveAndFlush(createEntity(em).title(null));
+
+        // Walk the documentList ordered by title, documents without a title coming last
+        String next = restDocumentMockMvc.perform(get("/api/documents?size=1&orderBy=title"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(second.getId().intValue())))
+            .andReturn().getResponse().getHeader(KeysetPaginationUtil.NEXT_CURSOR_HEADER);
+        next = restDocumentMockMvc.perform(get("/api/documents?size=1&orderBy=title&cursor=" + next))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(first.getId().intValue())))
+            .andReturn().getResponse().getHeader(KeysetPaginationUtil.NEXT_CURSOR_HEADER);
+        restDocumentMockMvc.perform(get("/api/documents?size=1&orderBy=title&cursor=" + next))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(third.getId().intValue())))
+            .andExpect(header().doesNotExist(KeysetPaginationUtil.NEXT_CURSOR_HEADER));
+
+        // A cursor cannot be reused with another order
+        restDocumentMockMvc.perform(get("/api/documents?size=1&orderBy=id&cursor=" + next))
+            .andExpect(status().isBadRequest());
+    }
+
     @SuppressWarnings({"unchecked"})
     public void getAllDocumentsWithEagerRelationshipsIsEnabled() throws Exception {
-        DocumentResource documentResource = new DocumentResource(documentRepositoryMock, mockDocumentSearchRepository);
+        DocumentResource documentResource = new DocumentResource(documentRepositoryMock, searchService, documentService, exportService, documentBulkService, documentContentService, entityTagService, documentFacetService, documentSearchService);
         when(documentRepositoryMock.findAllWithEagerRelationships(any())).thenReturn(new PageImpl(new ArrayList<>()));
 
         MockMvc restDocumentMockMvc = MockMvcBuilders.standaloneSetup(documentResource)
@@ -209,7 +578,7 @@ public class DocumentResourceIT {
 
     @SuppressWarnings({"unchecked"})
     public void getAllDocumentsWithEagerRelationshipsIsNotEnabled() throws Exception {
-        DocumentResource documentResource = new DocumentResource(documentRepositoryMock, mockDocumentSearchRepository);
+        DocumentResource documentResource = new DocumentResource(documentRepositoryMock, searchService, documentService, exportService, documentBulkService, documentContentService, entityTagService, documentFacetService, documentSearchService);
             when(documentRepositoryMock.findAllWithEagerRelationships(any())).thenReturn(new PageImpl(new ArrayList<>()));
             MockMvc restDocumentMockMvc = MockMvcBuilders.standaloneSetup(documentResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
@@ -239,6 +608,31 @@ public class DocumentResourceIT {
             .andExpect(jsonPath("$.typeDoc").value(DEFAULT_TYPE_DOC.toString()));
     }
 
+    @Test
+    @Transactional
+    public void exportDocuments() throws Exception {
+        // Initialize the database
+        CCP cCP = CCPResourceIT.createEntity(em).title("Développeur Java criteria");
+        em.persist(cCP);
+        documentRepository.saveAndFlush(document.addCCP(cCP));
+        documentRepository.updateContent(document.getId(), "export-content", 13L, DEFAULT_MIME_TYPE);
+
+        // Export the documentList
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportDocuments(out);
+        assertThat(out.toString("UTF-8")).contains("{\"id\":" + document.getId() +
+            ",\"title\":\"" + DEFAULT_TITLE + "\",\"mimeType\":\"" + DEFAULT_MIME_TYPE + "\",\"typeDoc\":\"" + DEFAULT_TYPE_DOC +
+            "\",\"contentSize\":13,\"ccps\":[{\"id\":" + cCP.getId() + ",\"title\":\"" + cCP.getTitle() + "\",\"desc\":\"" + cCP.getDesc() + "\"}]}\n");
+
+        // The endpoint streams the export asynchronously
+        MvcResult result = restDocumentMockMvc.perform(get("/api/documents/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restDocumentMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(Constants.APPLICATION_NDJSON_VALUE));
+    }
+
     @Test
     @Transactional
     public void getNonExistingDocument() throws Exception {
@@ -277,8 +671,8 @@ public class DocumentResourceIT {
         assertThat(testDocument.getMimeType()).isEqualTo(UPDATED_MIME_TYPE);
         assertThat(testDocument.getTypeDoc()).isEqualTo(UPDATED_TYPE_DOC);
 
-        // Validate the Document in Elasticsearch
-        verify(mockDocumentSearchRepository, times(1)).save(testDocument);
+        // Validate the Document change in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, testDocument.getId())).hasSize(1);
     }
 
     @Test
@@ -298,8 +692,60 @@ public class DocumentResourceIT {
         List<Document> documentList = documentRepository.findAll();
         assertThat(documentList).hasSize(databaseSizeBeforeUpdate);
 
-        // Validate the Document in Elasticsearch
-        verify(mockDocumentSearchRepository, times(0)).save(document);
+        // Validate the Document change is not in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    public void linkAndUnlinkDocumentCCP() throws Exception {
+        // Initialize the database
+        documentRepository.saveAndFlush(document);
+        CCP cCP = CCPResourceIT.createEntity(em);
+        em.persist(cCP);
+        em.flush();
+        em.clear();
+        String eTag = restDocumentMockMvc.perform(get("/api/documents/{id}", document.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Link the document to the cCP, twice
+        restDocumentMockMvc.perform(put("/api/documents/{id}/ccps/{ccpId}", document.getId(), cCP.getId()))
+            .andExpect(status().isNoContent());
+        restDocumentMockMvc.perform(put("/api/documents/{id}/ccps/{ccpId}", document.getId(), cCP.getId()))
+            .andExpect(status().isNoContent());
+        assertThat(documentRepository.findIdsByCCPId(cCP.getId())).containsExactly(document.getId());
+        assertThat(cCPDocumentCountService.findAllWithDocumentCount()).filteredOn(count -> count.getId().equals(cCP.getId()))
+            .extracting(CCPWithDocumentCountDTO::getDocumentCount).containsExactly(1L);
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).hasSize(1);
+
+        // The old tag does not match anymore
+        em.clear();
+        restDocumentMockMvc.perform(get("/api/documents/{id}", document.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.ccps[*].id").value(hasItem(cCP.getId().intValue())));
+
+        // Unlink the document from the cCP, twice
+        restDocumentMockMvc.perform(delete("/api/documents/{id}/ccps/{ccpId}", document.getId(), cCP.getId()))
+            .andExpect(status().isNoContent());
+        restDocumentMockMvc.perform(delete("/api/documents/{id}/ccps/{ccpId}", document.getId(), cCP.getId()))
+            .andExpect(status().isNoContent());
+        assertThat(documentRepository.findIdsByCCPId(cCP.getId())).isEmpty();
+        assertThat(cCPDocumentCountService.findAllWithDocumentCount()).filteredOn(count -> count.getId().equals(cCP.getId()))
+            .extracting(CCPWithDocumentCountDTO::getDocumentCount).containsExactly(0L);
+    }
+
+    @Test
+    @Transactional
+    public void linkNonExistingDocumentCCP() throws Exception {
+        // Initialize the database
+        documentRepository.saveAndFlush(document);
+
+        restDocumentMockMvc.perform(put("/api/documents/{id}/ccps/{ccpId}", document.getId(), Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+        restDocumentMockMvc.perform(delete("/api/documents/{id}/ccps/{ccpId}", Long.MAX_VALUE, Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
     }
 
     @Test
@@ -319,25 +765,169 @@ public class DocumentResourceIT {
         List<Document> documentList = documentRepository.findAll();
         assertThat(documentList).hasSize(databaseSizeBeforeDelete - 1);
 
-        // Validate the Document in Elasticsearch
-        verify(mockDocumentSearchRepository, times(1)).deleteById(document.getId());
+        // Validate the Document deletion in the search outbox
+        assertThat(searchOutboxEventRepository.findByEntityTypeAndEntityId(SearchOutboxService.DOCUMENT, document.getId())).hasSize(1);
     }
 
     @Test
     @Transactional
     public void searchDocument() throws Exception {
-        // Initialize the database
+        // Initialize the database and the search index
         documentRepository.saveAndFlush(document);
-        when(mockDocumentSearchRepository.search(queryStringQuery("id:" + document.getId())))
-            .thenReturn(Collections.singletonList(document));
-        // Search the document
-        restDocumentMockMvc.perform(get("/api/_search/documents?query=id:" + document.getId()))
+        indexDocuments(Collections.singletonList(document.getId()));
+        try {
+            // Search the document
+            restDocumentMockMvc.perform(get("/api/_search/documents?query=id:" + document.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(header().doesNotExist(KeysetPaginationUtil.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(document.getId().intValue())))
+                .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE)))
+                .andExpect(jsonPath("$.[*].mimeType").value(hasItem(DEFAULT_MIME_TYPE)))
+                .andExpect(jsonPath("$.[*].typeDoc").value(hasItem(DEFAULT_TYPE_DOC.toString())));
+        } finally {
+            deleteIndexedDocuments(Collections.singletonList(document.getId()));
+        }
+    }
+
+    @Test
+    @Transactional
+    public void searchDocumentsWithCursor() throws Exception {
+        // Initialize the database and the search index
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(documentRepository.saveAndFlush(createEntity(em).title("searched by cursor")).getId());
+        }
+        indexDocuments(ids);
+        try {
+            // Read the first page by number
+            MvcResult firstPage = restDocumentMockMvc.perform(get("/api/_search/documents")
+                .param("query", "title:\"searched by cursor\"").param("size", "2").param("sort", "id,asc"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "3"))
+                .andExpect(jsonPath("$.[*].id").value(contains(ids.get(0).intValue(), ids.get(1).intValue())))
+                .andReturn();
+            String cursor = firstPage.getResponse().getHeader(KeysetPaginationUtil.NEXT_CURSOR_HEADER);
+            assertThat(cursor).isNotNull();
+
+            // Read the next page after the cursor
+            restDocumentMockMvc.perform(get("/api/_search/documents")
+                .param("query", "title:\"searched by cursor\"").param("size", "2").param("sort", "id,asc").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "3"))
+                .andExpect(header().doesNotExist(KeysetPaginationUtil.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$.[*].id").value(contains(ids.get(2).intValue())));
+        } finally {
+            deleteIndexedDocuments(ids);
+        }
+    }
+
+    @Test
+    public void searchDocumentsWithInvalidPage() throws Exception {
+        restDocumentMockMvc.perform(get("/api/_search/documents?query=*&size=" + (SearchService.MAX_PAGE_SIZE + 1)))
+            .andExpect(status().isBadRequest());
+        restDocumentMockMvc.perform(get("/api/_search/documents?query=*&size=" + SearchService.MAX_PAGE_SIZE
+            + "&page=" + SearchService.MAX_RESULT_WINDOW / SearchService.MAX_PAGE_SIZE))
+            .andExpect(status().isBadRequest());
+        restDocumentMockMvc.perform(get("/api/_search/documents?query=*&cursor=invalid"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void searchDocumentsWithCriteria() throws Exception {
+        // Initialize the database and the search index
+        CCP cCP = CCPResourceIT.createEntity(em).title("Développeur Java criteria");
+        em.persist(cCP);
+        Document matching = documentRepository.saveAndFlush(createEntity(em).title("java criteria")
+            .mimeType("application/pdf").typeDoc(TypeDocument.EXERCISE).addCCP(cCP));
+        Document otherType = documentRepository.saveAndFlush(createEntity(em).title("java criteria")
+            .mimeType("application/pdf").typeDoc(TypeDocument.COURSES).addCCP(cCP));
+        Document otherTitle = documentRepository.saveAndFlush(createEntity(em).title("python criteria")
+            .mimeType("application/pdf").typeDoc(TypeDocument.EXERCISE).addCCP(cCP));
+        Document otherMimeType = documentRepository.saveAndFlush(createEntity(em).title("java criteria")
+            .mimeType("text/plain").typeDoc(TypeDocument.EXERCISE).addCCP(cCP));
+        Document otherCCP = documentRepository.saveAndFlush(createEntity(em).title("java criteria")
+            .mimeType("application/pdf").typeDoc(TypeDocument.EXERCISE));
+        List<Long> ids = Arrays.asList(matching.getId(), otherType.getId(), otherTitle.getId(), otherMimeType.getId(), otherCCP.getId());
+        indexDocuments(ids);
+        try {
+            DocumentSearchDTO search = new DocumentSearchDTO();
+            search.setTypeDoc(Collections.singleton(TypeDocument.EXERCISE));
+            search.setCcpIds(Collections.singleton(cCP.getId()));
+            search.setTitle("java");
+            search.setMimeTypePrefix("application/");
+
+            // Search the documents matching all the criteria
+            restDocumentMockMvc.perform(post("/api/_search/documents")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(search)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(matching.getId().intValue())));
+
+            // With the CCP as the only criterion, all the documents in the CCP match
+            search.setTitle(null);
+            search.setTypeDoc(null);
+            search.setMimeTypePrefix(null);
+            restDocumentMockMvc.perform(post("/api/_search/documents")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(search)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "4"));
+
+            // The CCP can be given by title
+            search.setCcpIds(null);
+            search.setCcpTitles(Collections.singleton("Développeur Java criteria"));
+            restDocumentMockMvc.perform(post("/api/_search/documents")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(search)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "4"));
+        } finally {
+            deleteIndexedDocuments(ids);
+        }
+    }
+
+    private void indexDocuments(List<Long> ids) throws Exception {
+        assertThat(searchIndexerService.index(SearchOutboxService.DOCUMENT, ids, "document")).isEmpty();
+        jestClient.execute(new Refresh.Builder().addIndex("document").build());
+    }
+
+    private void deleteIndexedDocuments(List<Long> ids) throws Exception {
+        for (Long id : ids) {
+            jestClient.execute(new Delete.Builder(id.toString()).index("document").type("document").build());
+        }
+    }
+
+    @Test
+    @Transactional
+    public void getDocumentFacets() throws Exception {
+        // Index the documents
+        String index = "document";
+        jestClient.execute(new Index.Builder("{\"id\":1,\"title\":\"facet one\",\"typeDoc\":\"COURSES\",\"ccps\":[{\"id\":1},{\"id\":2}]}")
+            .index(index).type(index).id("1").build());
+        jestClient.execute(new Index.Builder("{\"id\":2,\"title\":\"facet two\",\"typeDoc\":\"COURSES\",\"ccps\":[{\"id\":2}]}")
+            .index(index).type(index).id("2").build());
+        jestClient.execute(new Index.Builder("{\"id\":3,\"title\":\"other\",\"typeDoc\":\"JUSTIF\",\"ccps\":[]}")
+            .index(index).type(index).id("3").build());
+        jestClient.execute(new Refresh.Builder().addIndex(index).build());
+
+        // Get the facets of the documents matching the query
+        restDocumentMockMvc.perform(get("/api/documents/_facets?query=title:facet"))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
-            .andExpect(jsonPath("$.[*].id").value(hasItem(document.getId().intValue())))
-            .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE)))
-            .andExpect(jsonPath("$.[*].mimeType").value(hasItem(DEFAULT_MIME_TYPE)))
-            .andExpect(jsonPath("$.[*].typeDoc").value(hasItem(DEFAULT_TYPE_DOC.toString())));
+            .andExpect(jsonPath("$.total").value(2))
+            .andExpect(jsonPath("$.typeDoc.COURSES").value(2))
+            .andExpect(jsonPath("$.typeDoc.JUSTIF").doesNotExist())
+            .andExpect(jsonPath("$.ccps.1").value(1))
+            .andExpect(jsonPath("$.ccps.2").value(2));
+
+        for (String id : new String[] {"1", "2", "3"}) {
+            jestClient.execute(new Delete.Builder(id).index(index).type(index).build());
+        }
     }
 
     @Test
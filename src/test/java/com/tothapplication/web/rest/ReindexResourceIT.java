@@ -0,0 +1,180 @@
+package com.tothapplication.web.rest;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.domain.ReindexCheckpoint;
+import com.tothapplication.domain.User;
+import com.tothapplication.domain.enumeration.ReindexStatus;
+import com.tothapplication.repository.ReindexCheckpointRepository;
+import com.tothapplication.repository.UserRepository;
+import com.tothapplication.service.IndexAliasService;
+import com.tothapplication.service.ReindexService;
+import com.tothapplication.service.SearchOutboxService;
+import com.tothapplication.service.dto.ReindexStatusDTO;
+import com.tothapplication.web.rest.errors.ExceptionTranslator;
+
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Get;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the {@link ReindexResource} REST controller.
+ * <p>
+ * The reindex reads committed data from its own threads, so these tests are not transactional.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+public class ReindexResourceIT {
+
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    @Autowired
+    private ReindexService reindexService;
+
+    @Autowired
+    private ReindexCheckpointRepository reindexCheckpointRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private IndexAliasService indexAliasService;
+
+    @Autowired
+    private JestClient jestClient;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    private MockMvc restReindexMockMvc;
+
+    @BeforeEach
+    public void setup() {
+        ReindexResource reindexResource = new ReindexResource(reindexService);
+        this.restReindexMockMvc = MockMvcBuilders.standaloneSetup(reindexResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setMessageConverters(jacksonMessageConverter).build();
+        reindexCheckpointRepository.deleteAll();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        reindexCheckpointRepository.deleteAll();
+    }
+
+    @Test
+    public void reindexUsers() throws Exception {
+        restReindexMockMvc.perform(post("/management/reindex/{entity}", SearchOutboxService.USER))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.entityType").value(SearchOutboxService.USER));
+
+        ReindexStatusDTO status = awaitReindex(SearchOutboxService.USER);
+        assertThat(status.getStatus()).isEqualTo(ReindexStatus.COMPLETED);
+        assertThat(status.getIndexed()).isEqualTo(userRepository.count());
+        assertThat(status.getFailed()).isZero();
+
+        // The alias was moved to the rebuilt index
+        assertThat(indexAliasService.getIndices(User.class)).containsExactly(status.getTargetIndex());
+        JestResult indexed = jestClient.execute(new Get.Builder("user", "1").type("user").build());
+        assertThat(indexed.isSucceeded()).isTrue();
+
+        restReindexMockMvc.perform(get("/management/reindex/{entity}", SearchOutboxService.USER))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value(ReindexStatus.COMPLETED.toString()));
+    }
+
+    @Test
+    public void resumeInterruptedReindex() throws Exception {
+        // A reindex stopped after the first two users, dated at a precision every database stores
+        Instant startedDate = Instant.now().minusSeconds(60).truncatedTo(ChronoUnit.MILLIS);
+        String targetIndex = indexAliasService.createNextIndex(User.class);
+        reindexCheckpointRepository.save(new ReindexCheckpoint()
+            .entityType(SearchOutboxService.USER)
+            .targetIndex(targetIndex)
+            .status(ReindexStatus.RUNNING)
+            .lastId(2L)
+            .indexed(2L)
+            .failed(0L)
+            .total(userRepository.count())
+            .startedDate(startedDate)
+            .updatedDate(startedDate));
+
+        restReindexMockMvc.perform(get("/management/reindex/{entity}", SearchOutboxService.USER))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value(ReindexStatus.INTERRUPTED.toString()))
+            .andExpect(jsonPath("$.lastId").value(2));
+
+        restReindexMockMvc.perform(post("/management/reindex/{entity}", SearchOutboxService.USER))
+            .andExpect(status().isAccepted());
+
+        // Only the users after the checkpoint were reindexed, and the run kept its start date
+        ReindexStatusDTO status = awaitReindex(SearchOutboxService.USER);
+        assertThat(status.getStatus()).isEqualTo(ReindexStatus.COMPLETED);
+        assertThat(status.getIndexed()).isEqualTo(2L + userRepository.findIdsAfterId(2L, PageRequest.of(0, 1000)).size());
+        assertThat(status.getStartedDate()).isEqualTo(startedDate);
+        assertThat(status.getTargetIndex()).isEqualTo(targetIndex);
+        assertThat(indexAliasService.getIndices(User.class)).containsExactly(targetIndex);
+    }
+
+    @Test
+    public void restartInterruptedReindex() throws Exception {
+        String abandonedIndex = indexAliasService.createNextIndex(User.class);
+        Instant startedDate = Instant.now().minusSeconds(60).truncatedTo(ChronoUnit.MILLIS);
+        reindexCheckpointRepository.save(new ReindexCheckpoint()
+            .entityType(SearchOutboxService.USER)
+            .targetIndex(abandonedIndex)
+            .status(ReindexStatus.RUNNING)
+            .lastId(2L)
+            .indexed(2L)
+            .failed(0L)
+            .total(userRepository.count())
+            .startedDate(startedDate)
+            .updatedDate(startedDate));
+
+        restReindexMockMvc.perform(post("/management/reindex/{entity}", SearchOutboxService.USER).param("restart", "true"))
+            .andExpect(status().isAccepted());
+        // The index of the abandoned run is deleted as soon as the new one is created
+        assertThat(indexAliasService.exists(abandonedIndex)).isFalse();
+
+        ReindexStatusDTO status = awaitReindex(SearchOutboxService.USER);
+        assertThat(status.getStatus()).isEqualTo(ReindexStatus.COMPLETED);
+        assertThat(status.getTargetIndex()).isNotEqualTo(abandonedIndex);
+        assertThat(status.getIndexed()).isEqualTo(userRepository.count());
+    }
+
+    @Test
+    public void reindexUnknownEntity() throws Exception {
+        restReindexMockMvc.perform(post("/management/reindex/{entity}", "unknown"))
+            .andExpect(status().isNotFound());
+        restReindexMockMvc.perform(get("/management/reindex/{entity}", "unknown"))
+            .andExpect(status().isNotFound());
+    }
+
+    private ReindexStatusDTO awaitReindex(String entityType) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        ReindexStatusDTO status = reindexService.getStatus(entityType).get();
+        while (status.getStatus() == ReindexStatus.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = reindexService.getStatus(entityType).get();
+        }
+        return status;
+    }
+}
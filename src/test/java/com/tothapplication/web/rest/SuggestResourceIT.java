@@ -0,0 +1,133 @@
+package com.tothapplication.web.rest;
+
+import com.tothapplication.TothApplicationApp;
+import com.tothapplication.domain.CCP;
+import com.tothapplication.domain.Document;
+import com.tothapplication.repository.SearchOutboxEventRepository;
+import com.tothapplication.service.CCPService;
+import com.tothapplication.service.DocumentService;
+import com.tothapplication.service.TitleSuggestService;
+import com.tothapplication.web.rest.errors.ExceptionTranslator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.tothapplication.web.rest.TestUtil.createFormattingConversionService;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the {@link SuggestResource} REST controller.
+ */
+@SpringBootTest(classes = TothApplicationApp.class)
+public class SuggestResourceIT {
+
+    @Autowired
+    private TitleSuggestService titleSuggestService;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private CCPService cCPService;
+
+    @Autowired
+    private SearchOutboxEventRepository searchOutboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    private MockMvc restSuggestMockMvc;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setup() {
+        final SuggestResource suggestResource = new SuggestResource(titleSuggestService);
+        this.restSuggestMockMvc = MockMvcBuilders.standaloneSetup(suggestResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setConversionService(createFormattingConversionService())
+            .setMessageConverters(jacksonMessageConverter).build();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    public void suggestTitlesKeptInSyncOnWrites() throws Exception {
+        // The suggestions are only updated once the changes are committed, so this test commits and cleans up
+        CCP cCP = transactionTemplate.execute(status -> cCPService.save(new CCP().title("Titre professionnel Développeur web")));
+        Document document = transactionTemplate.execute(status -> documentService.save(new Document().title("Développement d'applications")));
+        try {
+            awaitReloads();
+            restSuggestMockMvc.perform(get("/api/_suggest?prefix=DEVEL"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.[*].title").value(hasItem("Titre professionnel Développeur web")))
+                .andExpect(jsonPath("$.[*].title").value(hasItem("Développement d'applications")));
+            restSuggestMockMvc.perform(get("/api/_suggest?prefix=développeur W"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(hasItem(cCP.getId().intValue())))
+                .andExpect(jsonPath("$.[*].type").value(hasItem("ccp")))
+                .andExpect(jsonPath("$.[*].id").value(not(hasItem(document.getId().intValue()))));
+            restSuggestMockMvc.perform(get("/api/_suggest?prefix=dev&size=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(hasSize(1)));
+
+            transactionTemplate.execute(status -> documentService.save(document.title("Conception d'applications")));
+            awaitReloads();
+            restSuggestMockMvc.perform(get("/api/_suggest?prefix=developpement d"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(not(hasItem(document.getId().intValue()))));
+            restSuggestMockMvc.perform(get("/api/_suggest?prefix=conception d"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(hasItem(document.getId().intValue())));
+        } finally {
+            transactionTemplate.execute(status -> {
+                documentService.delete(document.getId());
+                cCPService.delete(cCP.getId());
+                return null;
+            });
+            searchOutboxEventRepository.deleteAll();
+        }
+
+        awaitReloads();
+        restSuggestMockMvc.perform(get("/api/_suggest?prefix=conception d"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(document.getId().intValue()))));
+        restSuggestMockMvc.perform(get("/api/_suggest?prefix=titre professionnel developpeur web"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(cCP.getId().intValue()))));
+    }
+
+    @Test
+    public void suggestWithInvalidSize() throws Exception {
+        restSuggestMockMvc.perform(get("/api/_suggest?prefix=dev&size=" + (TitleSuggestService.MAX_SUGGESTIONS + 1)))
+            .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Wait for the suggestions to be reloaded in the background.
+     */
+    private void awaitReloads() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!titleSuggestService.isUpToDate() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
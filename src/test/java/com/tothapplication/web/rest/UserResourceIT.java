@@ -4,14 +4,20 @@ import com.tothapplication.TothApplicationApp;
 import com.tothapplication.domain.Authority;
 import com.tothapplication.domain.User;
 import com.tothapplication.repository.UserRepository;
-import com.tothapplication.repository.search.UserSearchRepository;
 import com.tothapplication.security.AuthoritiesConstants;
+import com.tothapplication.service.EntityTagService;
 import com.tothapplication.service.MailService;
+import com.tothapplication.service.SearchIndexerService;
+import com.tothapplication.service.SearchOutboxService;
+import com.tothapplication.service.SearchService;
 import com.tothapplication.service.UserService;
 import com.tothapplication.service.dto.UserDTO;
 import com.tothapplication.service.mapper.UserMapper;
 import com.tothapplication.web.rest.errors.ExceptionTranslator;
 import com.tothapplication.web.rest.vm.ManagedUserVM;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Delete;
+import io.searchbox.indices.Refresh;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,6 +25,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cache.CacheManager;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
@@ -67,13 +74,14 @@ public class UserResourceIT {
     @Autowired
     private UserRepository userRepository;
 
-    /**
-     * This repository is mocked in the com.tothapplication.repository.search test package.
-     *
-     * @see com.tothapplication.repository.search.UserSearchRepositoryMockConfiguration
-     */
     @Autowired
-    private UserSearchRepository mockUserSearchRepository;
+    private SearchService searchService;
+
+    @Autowired
+    private SearchIndexerService searchIndexerService;
+
+    @Autowired
+    private JestClient jestClient;
 
     @Autowired
     private MailService mailService;
@@ -99,6 +107,9 @@ public class UserResourceIT {
     @Autowired
     private CacheManager cacheManager;
 
+    @Autowired
+    private EntityTagService entityTagService;
+
     private MockMvc restUserMockMvc;
 
     private User user;
@@ -107,7 +118,8 @@ public class UserResourceIT {
     public void setup() {
         cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).clear();
         cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).clear();
-        UserResource userResource = new UserResource(userService, userRepository, mailService, mockUserSearchRepository);
+        cacheManager.getCache(EntityTagService.USER_TAGS_CACHE).clear();
+        UserResource userResource = new UserResource(userService, userRepository, mailService, searchService, entityTagService);
 
         this.restUserMockMvc = MockMvcBuilders.standaloneSetup(userResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
@@ -209,7 +221,6 @@ public class UserResourceIT {
     public void createUserWithExistingLogin() throws Exception {
         // Initialize the database
         userRepository.saveAndFlush(user);
-        mockUserSearchRepository.save(user);
         int databaseSizeBeforeCreate = userRepository.findAll().size();
 
         ManagedUserVM managedUserVM = new ManagedUserVM();
@@ -239,7 +250,6 @@ public class UserResourceIT {
     public void createUserWithExistingEmail() throws Exception {
         // Initialize the database
         userRepository.saveAndFlush(user);
-        mockUserSearchRepository.save(user);
         int databaseSizeBeforeCreate = userRepository.findAll().size();
 
         ManagedUserVM managedUserVM = new ManagedUserVM();
@@ -269,7 +279,6 @@ public class UserResourceIT {
     public void getAllUsers() throws Exception {
         // Initialize the database
         userRepository.saveAndFlush(user);
-        mockUserSearchRepository.save(user);
 
         // Get all the users
         restUserMockMvc.perform(get("/api/users?sort=id,desc")
@@ -284,12 +293,32 @@ public class UserResourceIT {
             .andExpect(jsonPath("$.[*].langKey").value(hasItem(DEFAULT_LANGKEY)));
     }
 
+    @Test
+    @Transactional
+    public void searchUsers() throws Exception {
+        // Initialize the database and the search index
+        userRepository.saveAndFlush(user);
+        assertThat(searchIndexerService.index(SearchOutboxService.USER, Collections.singletonList(user.getId()), "user")).isEmpty();
+        jestClient.execute(new Refresh.Builder().addIndex("user").build());
+        try {
+            // Search the users
+            restUserMockMvc.perform(get("/api/_search/users/login:" + DEFAULT_LOGIN + "?size=1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(jsonPath("$.[*].login").value(hasItem(DEFAULT_LOGIN)))
+                .andExpect(jsonPath("$.[*].email").value(hasItem(DEFAULT_EMAIL)));
+        } finally {
+            jestClient.execute(new Delete.Builder(user.getId().toString()).index("user").type("user").build());
+        }
+    }
+
     @Test
     @Transactional
     public void getUser() throws Exception {
         // Initialize the database
         userRepository.saveAndFlush(user);
-        mockUserSearchRepository.save(user);
 
         assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(user.getLogin())).isNull();
 
@@ -307,6 +336,32 @@ public class UserResourceIT {
         assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(user.getLogin())).isNotNull();
     }
 
+    @Test
+    @Transactional
+    public void getUserWithETag() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+
+        // Get the user and its tag
+        String eTag = restUserMockMvc.perform(get("/api/users/{login}", user.getLogin()))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // The tag is answered from the cache
+        restUserMockMvc.perform(get("/api/users/{login}", user.getLogin())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+
+        // Updating the user evicts its tag
+        UserDTO userDTO = new UserDTO(user);
+        userDTO.setFirstName(UPDATED_FIRSTNAME);
+        userService.updateUser(userDTO);
+        assertThat(entityTagService.getCachedTag(EntityTagService.USER_TAGS_CACHE, user.getLogin())).isEmpty();
+    }
+
     @Test
     @Transactional
     public void getNonExistingUser() throws Exception {
@@ -319,7 +374,6 @@ public class UserResourceIT {
     public void updateUser() throws Exception {
         // Initialize the database
         userRepository.saveAndFlush(user);
-        mockUserSearchRepository.save(user);
         int databaseSizeBeforeUpdate = userRepository.findAll().size();
 
         // Update the user
@@ -362,7 +416,6 @@ public class UserResourceIT {
     public void updateUserLogin() throws Exception {
         // Initialize the database
         userRepository.saveAndFlush(user);
-        mockUserSearchRepository.save(user);
         int databaseSizeBeforeUpdate = userRepository.findAll().size();
 
         // Update the user
@@ -406,7 +459,6 @@ public class UserResourceIT {
     public void updateUserExistingEmail() throws Exception {
         // Initialize the database with 2 users
         userRepository.saveAndFlush(user);
-        mockUserSearchRepository.save(user);
 
         User anotherUser = new User();
         anotherUser.setLogin("jhipster");
@@ -418,7 +470,6 @@ public class UserResourceIT {
         anotherUser.setImageUrl("");
         anotherUser.setLangKey("en");
         userRepository.saveAndFlush(anotherUser);
-        mockUserSearchRepository.save(anotherUser);
 
         // Update the user
         User updatedUser = userRepository.findById(user.getId()).get();
@@ -450,7 +501,6 @@ public class UserResourceIT {
     public void updateUserExistingLogin() throws Exception {
         // Initialize the database
         userRepository.saveAndFlush(user);
-        mockUserSearchRepository.save(user);
 
         User anotherUser = new User();
         anotherUser.setLogin("jhipster");
@@ -462,7 +512,6 @@ public class UserResourceIT {
         anotherUser.setImageUrl("");
         anotherUser.setLangKey("en");
         userRepository.saveAndFlush(anotherUser);
-        mockUserSearchRepository.save(anotherUser);
 
         // Update the user
         User updatedUser = userRepository.findById(user.getId()).get();
@@ -494,7 +543,6 @@ public class UserResourceIT {
     public void deleteUser() throws Exception {
         // Initialize the database
         userRepository.saveAndFlush(user);
-        mockUserSearchRepository.save(user);
         int databaseSizeBeforeDelete = userRepository.findAll().size();
 
         // Delete the user